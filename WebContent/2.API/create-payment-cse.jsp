@@ -38,6 +38,7 @@
 				
 				<div class="field">
 					<input type="hidden" id="adyen-encrypted-form-expiry-generationtime" value="${generationTime}" data-encrypted-name="generationtime">
+					<input type="hidden" name="reference" value="${reference}">
 					<input type="submit" value="Create payment">
 				</div>
 			</fieldset>
@@ -0,0 +1,39 @@
+package com.adyen.examples.benchmarks;
+
+import org.openjdk.jmh.profile.GCProfiler;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.Options;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+/**
+ * Runs the benchmarks of the examples
+ *
+ * All benchmarks report their throughput (operations per second), and the allocation rate per operation using the
+ * JMH GC profiler (gc.alloc.rate.norm, in bytes per operation). Without arguments all benchmarks are run; otherwise
+ * only the benchmarks matching the given regular expressions, e.g. "SigningBenchmark" or "PaymentJsonBenchmark.codec".
+ *
+ * Usage: java -cp "benchmarks.jar:WEB-INF/classes:WEB-INF/lib/*" com.adyen.examples.benchmarks.BenchmarkRunner [regex...]
+ *
+ * @author Created by Adyen - Payments Made Easy
+ */
+public class BenchmarkRunner {
+
+	public static void main(String[] args) throws RunnerException {
+		OptionsBuilder options = new OptionsBuilder();
+		if (args.length == 0) {
+			options.include(BenchmarkRunner.class.getPackage().getName() + ".");
+		}
+		for (String include : args) {
+			options.include(include);
+		}
+
+		Options benchmarkOptions = options
+				.addProfiler(GCProfiler.class)
+				.shouldFailOnError(true)
+				.build();
+
+		new Runner(benchmarkOptions).run();
+	}
+
+}
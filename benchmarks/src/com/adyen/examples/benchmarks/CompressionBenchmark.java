@@ -0,0 +1,76 @@
+package com.adyen.examples.benchmarks;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+import java.util.zip.GZIPOutputStream;
+
+import org.apache.commons.codec.binary.Base64;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Benchmark of the GZIP compression of the HPP orderData
+ *
+ * The orderData is compressed with compressString of the HPP examples, for the short text of the examples and for an
+ * HTML order summary of the given number of order lines.
+ *
+ * @author Created by Adyen - Payments Made Easy
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class CompressionBenchmark {
+
+	@Param({ "0", "20" })
+	private int orderLines;
+
+	private String orderData;
+
+	@Setup
+	public void setup() {
+		if (orderLines == 0) {
+			orderData = "Orderdata to display on the HPP can be put here";
+			return;
+		}
+
+		StringBuilder html = new StringBuilder("<table class=\"od\">");
+		for (int i = 0; i < orderLines; i++) {
+			html.append("<tr><td>Article ").append(i).append(" - Adyen T-shirt, size M</td><td>1</td>")
+					.append("<td>EUR ").append(10 + i).append(",95</td></tr>");
+		}
+		orderData = html.append("</table>").toString();
+	}
+
+	@Benchmark
+	public String compressString() throws IOException {
+		return compressString(orderData);
+	}
+
+	/**
+	 * compressString of the HPP examples
+	 */
+	private static String compressString(String input) throws IOException {
+		ByteArrayOutputStream output = new ByteArrayOutputStream();
+		GZIPOutputStream gzip = new GZIPOutputStream(output);
+
+		gzip.write(input.getBytes("UTF-8"));
+		gzip.close();
+		output.close();
+
+		return Base64.encodeBase64String(output.toByteArray());
+	}
+
+}
@@ -0,0 +1,101 @@
+package com.adyen.examples.benchmarks;
+
+import java.util.Collections;
+import java.util.Enumeration;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Benchmark of the parameter scanning of customfields.HttpPost.CustomFieldsServer
+ *
+ * The custom fields are collected from the request parameters as in CustomFieldsServer: the custom field parameters
+ * are counted, after which every name and value is looked up. The request parameters are held in a map, like the
+ * parameter map of the servlet container, with the given number of custom fields and the usual session fields.
+ *
+ * @author Created by Adyen - Payments Made Easy
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class CustomFieldsBenchmark {
+
+	@Param({ "1", "20" })
+	private int customFields;
+
+	private Map<String, String[]> parameters;
+
+	@Setup
+	public void setup() {
+		parameters = new LinkedHashMap<String, String[]>();
+		parameters.put("request.merchantAccount", new String[] { "YourMerchantAccount" });
+		parameters.put("request.merchantReference", new String[] { "TEST-PAYMENT-2016-06-15-12:34:56" });
+
+		for (int i = 0; i < customFields; i++) {
+			String name = i == 0 ? "terms_conditions" : "field" + i;
+			parameters.put("request.customFields." + i + ".name", new String[] { name });
+			parameters.put("request.customFields." + i + ".value", new String[] { "true" });
+		}
+
+		String[][] sessionFields = {
+			{ "paymentAmount", "199" }, { "currencyCode", "EUR" }, { "skinCode", "YourSkinCode" },
+			{ "shopperLocale", "en_GB" }, { "countryCode", "NL" }
+		};
+		for (int i = 0; i < sessionFields.length; i++) {
+			parameters.put("request.sessionFields." + i + ".name", new String[] { sessionFields[i][0] });
+			parameters.put("request.sessionFields." + i + ".value", new String[] { sessionFields[i][1] });
+		}
+	}
+
+	@Benchmark
+	public Map<String, String> scanParameters() {
+		// Check how many custom fields are submitted
+		int customFieldsCount = 0;
+		Enumeration<String> paramNames = getParameterNames();
+
+		while (paramNames.hasMoreElements()) {
+			String paramName = paramNames.nextElement();
+
+			if (paramName.contains("request.customFields")) {
+				customFieldsCount++;
+			}
+		}
+
+		// Collect all custom fields
+		Map<String, String> customFields = new HashMap<String, String>();
+
+		for (int i = 0; i < customFieldsCount / 2; i++) {
+			String name = getParameter("request.customFields." + i + ".name");
+			String value = getParameter("request.customFields." + i + ".value");
+			customFields.put(name, value);
+		}
+
+		return customFields;
+	}
+
+	private Enumeration<String> getParameterNames() {
+		return Collections.enumeration(parameters.keySet());
+	}
+
+	private String getParameter(String name) {
+		String[] values = parameters.get(name);
+		return values == null ? null : values[0];
+	}
+
+}
@@ -0,0 +1,101 @@
+package com.adyen.examples.benchmarks;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.nio.charset.Charset;
+import java.util.concurrent.TimeUnit;
+
+import org.json.simple.JSONArray;
+import org.json.simple.JSONObject;
+import org.json.simple.parser.JSONParser;
+import org.json.simple.parser.ParseException;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import com.adyen.examples.notifications.journal.NotificationDeduplicator;
+
+/**
+ * Benchmark of the parsing of a JSON notification batch
+ *
+ * The batch is parsed as in notifications.JSON.NotificationServer: the request is parsed with json-simple, and every
+ * notification item is fingerprinted and serialized again to be appended to the journal. The parse benchmark only
+ * parses the batch, the handle benchmark does the complete per-request work apart from writing the journal.
+ *
+ * @author Created by Adyen - Payments Made Easy
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class NotificationParsingBenchmark {
+
+	private static final Charset UTF8 = Charset.forName("UTF-8");
+
+	private static final String[] EVENT_CODES = { "AUTHORISATION", "CAPTURE", "REFUND", "CANCELLATION" };
+
+	@Param({ "100" })
+	private int notificationItems;
+
+	private byte[] batch;
+
+	@Setup
+	public void setup() {
+		StringBuilder json = new StringBuilder("{\"live\":\"false\",\"notificationItems\":[");
+		for (int i = 0; i < notificationItems; i++) {
+			if (i > 0) {
+				json.append(',');
+			}
+			String eventCode = EVENT_CODES[i % EVENT_CODES.length];
+			json.append("{\"NotificationRequestItem\":{")
+					.append("\"additionalData\":{\"authCode\":\"58747\",\"cardSummary\":\"1111\",\"expiryDate\":\"6/2016\"},")
+					.append("\"amount\":{\"value\":").append(100 + i).append(",\"currency\":\"EUR\"},")
+					.append("\"eventCode\":\"").append(eventCode).append("\",")
+					.append("\"eventDate\":\"2016-06-15T12:34:56+02:00\",")
+					.append("\"merchantAccountCode\":\"YourMerchantAccount\",")
+					.append("\"merchantReference\":\"TEST-PAYMENT-").append(i).append("\",")
+					.append("\"operations\":[\"CANCEL\",\"CAPTURE\",\"REFUND\"],")
+					.append("\"originalReference\":\"").append(eventCode.equals("AUTHORISATION") ? "" : "8514660748430000").append("\",")
+					.append("\"paymentMethod\":\"mc\",")
+					.append("\"pspReference\":\"85146607484").append(String.format("%05d", i)).append("\",")
+					.append("\"reason\":\"58747:1111:6/2016\",")
+					.append("\"success\":\"true\"}}");
+		}
+		batch = json.append("]}").toString().getBytes(UTF8);
+	}
+
+	@Benchmark
+	public JSONObject parse() throws IOException, ParseException {
+		return parseRequest();
+	}
+
+	@Benchmark
+	public void handle(Blackhole blackhole) throws IOException, ParseException {
+		JSONObject notificationRequest = parseRequest();
+
+		JSONArray notificationItems = (JSONArray) notificationRequest.get("notificationItems");
+		for (Object notificationItem : notificationItems) {
+			JSONObject notification = (JSONObject) ((JSONObject) notificationItem).get("NotificationRequestItem");
+			blackhole.consume(NotificationDeduplicator.fingerprint(notification));
+			blackhole.consume(notification.toJSONString().getBytes(UTF8));
+		}
+	}
+
+	private JSONObject parseRequest() throws IOException, ParseException {
+		JSONParser parser = new JSONParser();
+		return (JSONObject) parser.parse(new InputStreamReader(new ByteArrayInputStream(batch), UTF8));
+	}
+
+}
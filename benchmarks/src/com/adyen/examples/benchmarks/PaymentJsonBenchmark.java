@@ -0,0 +1,145 @@
+package com.adyen.examples.benchmarks;
+
+import java.io.IOException;
+import java.nio.charset.Charset;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.http.HttpEntity;
+import org.apache.http.entity.ByteArrayEntity;
+import org.apache.http.entity.StringEntity;
+import org.apache.http.util.EntityUtils;
+import org.json.simple.JSONObject;
+import org.json.simple.parser.JSONParser;
+import org.json.simple.parser.ParseException;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.adyen.examples.common.json.Address;
+import com.adyen.examples.common.json.Amount;
+import com.adyen.examples.common.json.Card;
+import com.adyen.examples.common.json.JsonCodec;
+import com.adyen.examples.common.json.PaymentRequest;
+import com.adyen.examples.common.json.PaymentResult;
+
+/**
+ * Benchmark of the JSON payment request and result of CreatePaymentAPI
+ *
+ * The jsonSimple* benchmarks build the request and parse the result with json-simple, as CreatePaymentAPI did before
+ * the typed JSON codec. The codec* benchmarks do the same with {@link PaymentRequest}, {@link PaymentResult} and
+ * {@link JsonCodec}. Both build the request entity and read the result from a response entity, like the servlet.
+ *
+ * @author Created by Adyen - Payments Made Easy
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class PaymentJsonBenchmark {
+
+	private static final Charset UTF8 = Charset.forName("UTF-8");
+
+	private static final String REFERENCE = "TEST-PAYMENT-2016-06-15-12:34:56";
+
+	private byte[] paymentResponse;
+
+	@Setup
+	public void setup() {
+		paymentResponse = ("{\"additionalData\":{\"cardSummary\":\"1111\",\"expiryDate\":\"6/2016\"},"
+				+ "\"pspReference\":\"8514660748432421\",\"resultCode\":\"Authorised\",\"authCode\":\"58747\"}")
+				.getBytes(UTF8);
+	}
+
+	@Benchmark
+	public HttpEntity jsonSimpleBuild() {
+		JSONObject paymentRequest = new JSONObject();
+		paymentRequest.put("merchantAccount", "YourMerchantAccount");
+		paymentRequest.put("reference", REFERENCE);
+		paymentRequest.put("shopperIP", "123.123.123.123");
+		paymentRequest.put("shopperEmail", "test@example.com");
+		paymentRequest.put("shopperReference", "YourReference");
+		paymentRequest.put("fraudOffset", "0");
+
+		JSONObject amount = new JSONObject();
+		amount.put("currency", "EUR");
+		amount.put("value", "199");
+		paymentRequest.put("amount", amount);
+
+		JSONObject card = new JSONObject();
+		card.put("expiryMonth", "06");
+		card.put("expiryYear", "2016");
+		card.put("holderName", "John Doe");
+		card.put("number", "5555444433331111");
+		card.put("cvc", "737");
+
+		JSONObject billingAddress = new JSONObject();
+		billingAddress.put("street", "Simon Carmiggeltstraat");
+		billingAddress.put("houseNumberOrName", "6-50");
+		billingAddress.put("postalCode", "1011 DJ");
+		billingAddress.put("city", "Amsterdam");
+		billingAddress.put("stateOrProvince", "");
+		billingAddress.put("country", "NL");
+		card.put("billingAddress", billingAddress);
+
+		paymentRequest.put("card", card);
+
+		return new StringEntity(paymentRequest.toString(), "UTF-8");
+	}
+
+	@Benchmark
+	public HttpEntity codecBuild() {
+		PaymentRequest paymentRequest = new PaymentRequest();
+		paymentRequest.setMerchantAccount("YourMerchantAccount");
+		paymentRequest.setReference(REFERENCE);
+		paymentRequest.setShopperIP("123.123.123.123");
+		paymentRequest.setShopperEmail("test@example.com");
+		paymentRequest.setShopperReference("YourReference");
+		paymentRequest.setFraudOffset(0L);
+
+		Amount amount = new Amount();
+		amount.setCurrency("EUR");
+		amount.setValue(199);
+		paymentRequest.setAmount(amount);
+
+		Card card = new Card();
+		card.setExpiryMonth("06");
+		card.setExpiryYear("2016");
+		card.setHolderName("John Doe");
+		card.setNumber("5555444433331111");
+		card.setCvc("737");
+
+		Address billingAddress = new Address();
+		billingAddress.setStreet("Simon Carmiggeltstraat");
+		billingAddress.setHouseNumberOrName("6-50");
+		billingAddress.setPostalCode("1011 DJ");
+		billingAddress.setCity("Amsterdam");
+		billingAddress.setStateOrProvince("");
+		billingAddress.setCountry("NL");
+		card.setBillingAddress(billingAddress);
+
+		paymentRequest.setCard(card);
+
+		return JsonCodec.toEntity(paymentRequest);
+	}
+
+	@Benchmark
+	public JSONObject jsonSimpleParse() throws IOException, ParseException {
+		String response = EntityUtils.toString(new ByteArrayEntity(paymentResponse), "UTF-8");
+		return (JSONObject) new JSONParser().parse(response);
+	}
+
+	@Benchmark
+	public PaymentResult codecParse() throws IOException {
+		return JsonCodec.read(new ByteArrayEntity(paymentResponse), PaymentResult::readFrom);
+	}
+
+}
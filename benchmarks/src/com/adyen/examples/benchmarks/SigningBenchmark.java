@@ -0,0 +1,155 @@
+package com.adyen.examples.benchmarks;
+
+import java.io.UnsupportedEncodingException;
+import java.nio.charset.Charset;
+import java.security.GeneralSecurityException;
+import java.util.SortedMap;
+import java.util.TreeMap;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+import javax.crypto.Mac;
+import javax.crypto.spec.SecretKeySpec;
+
+import org.apache.commons.codec.binary.Base64;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.adyen.examples.common.HmacSigner;
+import com.google.common.io.BaseEncoding;
+
+/**
+ * Benchmark of the HPP form signatures
+ *
+ * The legacy* benchmarks are the signing code of the HPP examples as it was before {@link HmacSigner}: a new Mac for
+ * every signature, and for HMAC-SHA256 a signing string built with streams and escapeVal. The signer* benchmarks sign
+ * the same data with the shared {@link HmacSigner}.
+ *
+ * @author Created by Adyen - Payments Made Easy
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class SigningBenchmark {
+
+	private static final Charset UTF8 = Charset.forName("UTF-8");
+
+	private String sha1Key;
+	private byte[] sha256Key;
+	private String sha1SigningString;
+	private SortedMap<String, String> sha256Parameters;
+
+	private HmacSigner sha1Signer;
+	private HmacSigner sha256Signer;
+
+	@Setup
+	public void setup() throws GeneralSecurityException {
+		sha1Key = "YourHmacSecretKey";
+		sha256Key = BaseEncoding.base16().decode("4468D9782DEF54FCD706C9100C71EC43932B1EBC2ACF6BA0560C05AAA7550C48");
+
+		// merchantSig of CreatePaymentOnHppAdvanced
+		sha1SigningString = "199" + "EUR" + "2016-06-18" + "TEST-PAYMENT-2016-06-15-12:34:56" + "YourSkinCode"
+				+ "YourMerchantAccount" + "2016-06-16T12:34:56+02:00" + "" + "" + "" + "" + "" + "" + "" + "" + "1"
+				+ "1" + "";
+
+		// Parameters of CreatePaymentOnHpp_SHA_256
+		sha256Parameters = new TreeMap<String, String>();
+		sha256Parameters.put("merchantAccount", "YourMerchantAccount");
+		sha256Parameters.put("currencyCode", "EUR");
+		sha256Parameters.put("paymentAmount", "199");
+		sha256Parameters.put("sessionValidity", "2016-06-16T12:34:56+02:00");
+		sha256Parameters.put("shipBeforeDate", "2016-06-18");
+		sha256Parameters.put("shopperLocale", "en_GB");
+		sha256Parameters.put("merchantReference", "TEST-PAYMENT-2016-06-15-12:34:56");
+		sha256Parameters.put("skinCode", "YourSkinCode");
+		sha256Parameters.put("countryCode", "NL");
+		sha256Parameters.put("shopperEmail", "");
+		sha256Parameters.put("shopperReference", "");
+		sha256Parameters.put("allowedMethods", "");
+		sha256Parameters.put("blockedMethods", "");
+		sha256Parameters.put("offset", "");
+		sha256Parameters.put("orderData", "H4sIAAAAAAAAAPMvSkxJLUrMSbFVyshITUpVSMsvUkjOz8lJTS7JzM9TKEktLlFIzs/NTSzRS87PBQB5OeHBLwAAAA==");
+
+		sha1Signer = HmacSigner.getInstance(HmacSigner.HMAC_SHA1, sha1Key.getBytes(UTF8));
+		sha256Signer = HmacSigner.getInstance(HmacSigner.HMAC_SHA256, sha256Key);
+	}
+
+	@Benchmark
+	public String legacySha1() throws GeneralSecurityException, UnsupportedEncodingException {
+		return legacyCalculateHmacSha1(sha1Key, sha1SigningString);
+	}
+
+	@Benchmark
+	public String signerSha1() throws GeneralSecurityException {
+		return sha1Signer.sign(sha1SigningString);
+	}
+
+	@Benchmark
+	public String legacySha256SigningString() {
+		return legacySigningString(sha256Parameters);
+	}
+
+	@Benchmark
+	public String legacySha256() throws GeneralSecurityException {
+		return legacyCalculateHmacSha256(legacySigningString(sha256Parameters), sha256Key);
+	}
+
+	@Benchmark
+	public String signerSha256() throws GeneralSecurityException {
+		return sha256Signer.sign(sha256Parameters);
+	}
+
+	/**
+	 * calculateHMAC of CreatePaymentOnHppAdvanced (HMAC-SHA1)
+	 */
+	private static String legacyCalculateHmacSha1(String hmacKey, String signingString)
+			throws GeneralSecurityException, UnsupportedEncodingException {
+		SecretKeySpec keySpec = new SecretKeySpec(hmacKey.getBytes(), "HmacSHA1");
+		Mac mac = Mac.getInstance("HmacSHA1");
+		mac.init(keySpec);
+
+		byte[] result = mac.doFinal(signingString.getBytes("UTF-8"));
+		return Base64.encodeBase64String(result);
+	}
+
+	/**
+	 * Signing string of CreatePaymentOnHpp_SHA_256: escaped keys followed by escaped values, separated by ":"
+	 */
+	private static String legacySigningString(SortedMap<String, String> params) {
+		return Stream.concat(params.keySet().stream(), params.values().stream())
+				.map(signingTest -> escapeVal(signingTest))
+				.collect(Collectors.joining(":"));
+	}
+
+	private static String escapeVal(String val) {
+		if (val == null) {
+			return "";
+		}
+		return val.replace("\\", "\\\\").replace(":", "\\:");
+	}
+
+	/**
+	 * calculateHMAC of CreatePaymentOnHpp_SHA_256 (HMAC-SHA256)
+	 */
+	private static String legacyCalculateHmacSha256(String data, byte[] key) throws GeneralSecurityException {
+		SecretKeySpec signingKey = new SecretKeySpec(key, "HmacSHA256");
+		Mac mac = Mac.getInstance("HmacSHA256");
+		mac.init(signingKey);
+
+		byte[] rawHmac = mac.doFinal(data.getBytes(UTF8));
+		return BaseEncoding.base64().encode(rawHmac);
+	}
+
+}
@@ -10,18 +10,20 @@ import javax.servlet.http.HttpServletRequest;
 import javax.servlet.http.HttpServletResponse;
 
 import org.apache.http.HttpResponse;
-import org.apache.http.auth.AuthScope;
-import org.apache.http.auth.UsernamePasswordCredentials;
-import org.apache.http.client.CredentialsProvider;
 import org.apache.http.client.HttpClient;
 import org.apache.http.client.methods.HttpPost;
-import org.apache.http.entity.StringEntity;
-import org.apache.http.impl.client.BasicCredentialsProvider;
-import org.apache.http.impl.client.HttpClientBuilder;
-import org.apache.http.util.EntityUtils;
-import org.json.simple.JSONObject;
-import org.json.simple.parser.JSONParser;
-import org.json.simple.parser.ParseException;
+import org.apache.http.client.protocol.HttpClientContext;
+
+import com.adyen.examples.common.AdyenHttpClient;
+import com.adyen.examples.common.json.BrowserInfo;
+import com.adyen.examples.common.json.JsonCodec;
+import com.adyen.examples.common.json.PaymentRequest3d;
+import com.adyen.examples.common.json.PaymentResult;
+import com.adyen.examples.common.json.ServiceError;
+import com.adyen.examples.common.metrics.AdyenMetrics;
+import com.adyen.examples.common.metrics.OperationTimer;
+import com.adyen.examples.common.threedsecure.ThreeDSecureSession;
+import com.adyen.examples.common.threedsecure.ThreeDSecureSessions;
 
 /**
  * Authorise 3D Secure payment (JSON)
@@ -62,13 +64,14 @@ public class Authorise3dSecurePayment extends HttpServlet {
 		String wsPassword = "YourWSUserPassword";
 
 		/**
-		 * Create HTTP Client (using Apache HttpComponents library) and set up Basic Authentication
+		 * Get the shared HTTP Client (using Apache HttpComponents library) and set up Basic Authentication
+		 * 
+		 * The client is created once for the whole application, so connections to Adyen are reused between requests.
+		 * 
+		 * @see com.adyen.examples.common.AdyenHttpClient
 		 */
-		CredentialsProvider provider = new BasicCredentialsProvider();
-		UsernamePasswordCredentials credentials = new UsernamePasswordCredentials(wsUser, wsPassword);
-		provider.setCredentials(AuthScope.ANY, credentials);
-
-		HttpClient client = HttpClientBuilder.create().setDefaultCredentialsProvider(provider).build();
+		HttpClient client = AdyenHttpClient.getInstance();
+		HttpClientContext context = AdyenHttpClient.createContext(apiUrl, wsUser, wsPassword);
 
 		/**
 		 * After the shopper's identity is authenticated by the issuer, they will be returned to your
@@ -90,49 +93,69 @@ public class Authorise3dSecurePayment extends HttpServlet {
 		* </pre>
 		*/
 		
+		/**
+		 * Take the session that Create3dSecurePayment started for this MD. It holds the details of the original
+		 * payment request, so the payment is completed for the same merchant account and shopper. A callback with an
+		 * unknown or expired MD (the shopper has 15 minutes to authenticate), or with an MD whose session was taken
+		 * already by another callback, is not sent to Adyen. The session is put back when the call is not sent or
+		 * fails with an error that is worth retrying, so the shopper can submit the callback again.
+		 *
+		 * @see com.adyen.examples.common.threedsecure.ThreeDSecureSessions
+		 */
+		String md = request.getParameter("MD");
+		ThreeDSecureSession session = ThreeDSecureSessions.take(md);
+		if (session == null) {
+			response.sendError(HttpServletResponse.SC_BAD_REQUEST, "Unknown or expired 3-D Secure session");
+			return;
+		}
+
 		// Create payment request
-		JSONObject paymentRequest = new JSONObject();
-		paymentRequest.put("merchantAccount", "YourMerchantAccount");
-		paymentRequest.put("md", request.getParameter("MD"));
-		paymentRequest.put("paResponse", request.getParameter("PaRes"));
-		paymentRequest.put("shopperIP", "123.123.123.123");
+		PaymentRequest3d paymentRequest = new PaymentRequest3d();
+		paymentRequest.setMerchantAccount(session.getMerchantAccount());
+		paymentRequest.setMd(md);
+		paymentRequest.setPaResponse(request.getParameter("PaRes"));
+		paymentRequest.setShopperIP(session.getShopperIP());
 		
 		// Set browser info
-		JSONObject browserInfo = new JSONObject();
-		browserInfo.put("userAgent", request.getHeader("User-Agent"));
-		browserInfo.put("acceptHeader", request.getHeader("Accept"));
-		paymentRequest.put("browserInfo", browserInfo);
+		BrowserInfo browserInfo = new BrowserInfo();
+		browserInfo.setUserAgent(request.getHeader("User-Agent"));
+		browserInfo.setAcceptHeader(request.getHeader("Accept"));
+		paymentRequest.setBrowserInfo(browserInfo);
 
 		/**
 		 * Send the HTTP request with the specified variables in JSON.
 		 */
 		HttpPost httpRequest = new HttpPost(apiUrl);
-		httpRequest.addHeader("Content-Type", "application/json");
-		httpRequest.setEntity(new StringEntity(paymentRequest.toString(), "UTF-8"));
-
-		HttpResponse httpResponse = client.execute(httpRequest);
-		String paymentResponse = EntityUtils.toString(httpResponse.getEntity(), "UTF-8");
+		httpRequest.setEntity(JsonCodec.toEntity(paymentRequest));
 
 		/**
 		 * Keep in mind that you should handle errors correctly.
 		 * If the Adyen platform does not accept or store a submitted request, you will receive a HTTP response with
-		 * status different than 200 OK. In this case, the error details are populated in the paymentResponse.
+		 * status different than 200 OK. In this case, the error details are populated in the response body.
 		 */
-		
-		// Parse JSON response
-		JSONParser parser = new JSONParser();
-		JSONObject paymentResult;
-		
-		try {
-			paymentResult = (JSONObject) parser.parse(paymentResponse);
-		} catch (ParseException e) {
-			throw new ServletException(e);
-		}
-		
-		// If the request was rejected, raise an exception
-		if (httpResponse.getStatusLine().getStatusCode() != 200) {
-			String faultString = paymentResult.get("errorType") + " " + paymentResult.get("errorCode") + " " + paymentResult.get("message");
-			throw new ServletException(faultString);
+		PaymentResult paymentResult;
+		try (OperationTimer timer = AdyenMetrics.json(apiUrl).start()) {
+			HttpResponse httpResponse;
+			try {
+				httpResponse = client.execute(httpRequest, context);
+			} catch (IOException e) {
+				// Not sent (e.g. LimitExceededException) or no response
+				ThreeDSecureSessions.putBack(md, session);
+				throw e;
+			}
+
+			// If the request was rejected, raise an exception
+			int statusCode = httpResponse.getStatusLine().getStatusCode();
+			if (statusCode != 200) {
+				if (statusCode >= 500) {
+					ThreeDSecureSessions.putBack(md, session);
+				}
+				throw new ServletException(ServiceError.from(httpResponse).getFaultString());
+			}
+
+			// Read JSON response
+			paymentResult = JsonCodec.read(httpResponse.getEntity(), PaymentResult::readFrom);
+			timer.setResult(paymentResult.getResultCode());
 		}
 
 		/**
@@ -149,10 +172,10 @@ public class Authorise3dSecurePayment extends HttpServlet {
 		PrintWriter out = response.getWriter();
 
 		out.println("Payment Result:");
-		out.println("- pspReference: " + paymentResult.get("pspReference"));
-		out.println("- resultCode: " + paymentResult.get("resultCode"));
-		out.println("- authCode: " + paymentResult.get("authCode"));
-		out.println("- refusalReason: " + paymentResult.get("refusalReason"));
+		out.println("- pspReference: " + paymentResult.getPspReference());
+		out.println("- resultCode: " + paymentResult.getResultCode());
+		out.println("- authCode: " + paymentResult.getAuthCode());
+		out.println("- refusalReason: " + paymentResult.getRefusalReason());
 
 	}
 
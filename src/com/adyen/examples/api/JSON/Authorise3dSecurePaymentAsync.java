@@ -0,0 +1,176 @@
+package com.adyen.examples.api.JSON;
+
+import java.io.IOException;
+import java.io.PrintWriter;
+
+import javax.servlet.AsyncContext;
+import javax.servlet.ServletException;
+import javax.servlet.annotation.WebInitParam;
+import javax.servlet.annotation.WebServlet;
+import javax.servlet.http.HttpServlet;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+
+import org.apache.http.client.methods.HttpPost;
+import org.apache.http.client.protocol.HttpClientContext;
+
+import com.adyen.examples.common.AdyenHttpClient;
+import com.adyen.examples.common.AsyncJsonCall;
+import com.adyen.examples.common.json.BrowserInfo;
+import com.adyen.examples.common.json.JsonCodec;
+import com.adyen.examples.common.json.PaymentRequest3d;
+import com.adyen.examples.common.json.PaymentResult;
+import com.adyen.examples.common.threedsecure.ThreeDSecureSession;
+import com.adyen.examples.common.threedsecure.ThreeDSecureSessions;
+
+/**
+ * Authorise 3D Secure payment (JSON, asynchronous)
+ * 
+ * 3D Secure (Verifed by VISA / MasterCard SecureCode) is an additional authentication
+ * protocol that involves the shopper being redirected to their card issuer where their
+ * identity is authenticated prior to the payment proceeding to an authorisation request.
+ * 
+ * In order to start processing 3D Secure transactions, the following changes are required:
+ * 1. Your Merchant Account needs to be confgured by Adyen to support 3D Secure. If you would
+ *    like to have 3D Secure enabled, please submit a request to the Adyen Support Team (support@adyen.com).
+ * 2. Your integration should support redirecting the shopper to the card issuer and submitting
+ *    a second API call to complete the payment.
+ *
+ * This example demonstrates the second API call to complete the payment using JSON.
+ * See the API Manual for a full explanation of the steps required to process 3D Secure payments.
+ * 
+ * Please note: using our API requires a web service user. Set up your Webservice user:
+ * Adyen CA >> Settings >> Users >> ws@Company. >> Generate Password >> Submit
+ * 
+ * This is the asynchronous variant of Authorise3dSecurePayment. The container thread is released while the call to Adyen
+ * is in flight, so a small thread pool can serve thousands of payments waiting for Adyen or the acquirer at the
+ * same time. The response is written when the call completes, or an error is returned after the asyncTimeout.
+ * 
+ * @link /2.API/JSON/Authorise3dSecurePaymentAsync
+ * @author Created by Adyen - Payments Made Easy
+ */
+
+@WebServlet(urlPatterns = { "/2.API/JSON/Authorise3dSecurePaymentAsync" }, asyncSupported = true,
+	initParams = { @WebInitParam(name = "asyncTimeout", value = "30000") })
+public class Authorise3dSecurePaymentAsync extends HttpServlet {
+
+	protected void doPost(HttpServletRequest request, HttpServletResponse response) throws ServletException, IOException {
+
+		/**
+		 * JSON settings
+		 * - apiUrl: URL of the Adyen API you are using (Test/Live)
+		 * - wsUser: your web service user
+		 * - wsPassword: your web service user's password
+		 * - asyncTimeout: maximum time (in milliseconds) to wait for Adyen, set as init parameter of this servlet
+		 */
+		String apiUrl = "https://pal-test.adyen.com/pal/servlet/Payment/v10/authorise3d";
+		String wsUser = "YourWSUser";
+		String wsPassword = "YourWSUserPassword";
+		long asyncTimeout = Long.parseLong(getInitParameter("asyncTimeout"));
+
+		/**
+		 * Set up Basic Authentication for the shared asynchronous HTTP Client (using Apache HttpAsyncClient library)
+		 * 
+		 * @see com.adyen.examples.common.AdyenAsyncHttpClient
+		 */
+		HttpClientContext context = AdyenHttpClient.createContext(apiUrl, wsUser, wsPassword);
+
+		/**
+		 * After the shopper's identity is authenticated by the issuer, they will be returned to your
+		 * site by sending an HTTP POST request to the TermUrl containing the MD parameter and a new
+		 * parameter called PaRes (see API manual). These will be needed to complete the payment.
+		 *
+		 * To complete the payment, a payment request should be submitted to the authorise3d action
+		 * of the web service. The request should contain the following variables:
+		 * 
+		 * <pre>
+		 * - merchantAccount: This should be the same as the Merchant Account used in the original authorise request.
+		 * - browserInfo:     It is safe to use the values from the original authorise request, as they
+		                      are unlikely to change during the course of a payment.
+		 * - md:              The value of the MD parameter received from the issuer.
+		 * - paResponse:       The value of the PaRes parameter received from the issuer.
+		 * - shopperIP:       The IP address of the shopper. We recommend that you provide this data, as
+		                      it is used in a number of risk checks, for example, the number of payment
+		                      attempts and location based checks.
+		* </pre>
+		*/
+		
+		/**
+		 * Take the session that Create3dSecurePayment started for this MD. It holds the details of the original
+		 * payment request, so the payment is completed for the same merchant account and shopper. A callback with an
+		 * unknown or expired MD (the shopper has 15 minutes to authenticate), or with an MD whose session was taken
+		 * already by another callback, is not sent to Adyen. The session is put back when the call is not sent or
+		 * fails with an error that is worth retrying, so the shopper can submit the callback again.
+		 *
+		 * @see com.adyen.examples.common.threedsecure.ThreeDSecureSessions
+		 */
+		final String md = request.getParameter("MD");
+		final ThreeDSecureSession session = ThreeDSecureSessions.take(md);
+		if (session == null) {
+			response.sendError(HttpServletResponse.SC_BAD_REQUEST, "Unknown or expired 3-D Secure session");
+			return;
+		}
+
+		// Create payment request
+		PaymentRequest3d paymentRequest = new PaymentRequest3d();
+		paymentRequest.setMerchantAccount(session.getMerchantAccount());
+		paymentRequest.setMd(md);
+		paymentRequest.setPaResponse(request.getParameter("PaRes"));
+		paymentRequest.setShopperIP(session.getShopperIP());
+		
+		// Set browser info
+		BrowserInfo browserInfo = new BrowserInfo();
+		browserInfo.setUserAgent(request.getHeader("User-Agent"));
+		browserInfo.setAcceptHeader(request.getHeader("Accept"));
+		paymentRequest.setBrowserInfo(browserInfo);
+
+		/**
+		 * Send the HTTP request with the specified variables in JSON.
+		 */
+		HttpPost httpRequest = new HttpPost(apiUrl);
+		httpRequest.setEntity(JsonCodec.toByteArrayEntity(paymentRequest));
+
+		/**
+		 * Put the request in asynchronous mode and send the HTTP request. The container thread is released while the
+		 * request to Adyen is in flight; the result is written by the AsyncJsonCall when the response arrives.
+		 * If there is no response within the asyncTimeout, 504 Gateway Timeout is returned.
+		 * 
+		 * Keep in mind that you should handle errors correctly.
+		 * If the Adyen platform does not accept or store a submitted request, you will receive a HTTP response with
+		 * status different than 200 OK. In this case, the AsyncJsonCall returns the error details with status 500.
+		 */
+		final AsyncContext asyncContext = request.startAsync();
+		asyncContext.setTimeout(asyncTimeout);
+
+		new AsyncJsonCall<PaymentResult>(asyncContext, PaymentResult::readFrom, PaymentResult::getResultCode) {
+			@Override
+			protected void onRetryableFailure() {
+				ThreeDSecureSessions.putBack(md, session);
+			}
+
+			@Override
+			protected void onResult(PaymentResult paymentResult) throws IOException {
+				/**
+				 * If the payment passes validation a risk analysis will be done and, depending on the outcome, an
+				 * authorisation will be attempted. You receive a payment response with the following fields:
+				 * 
+				 * <pre>
+				 * - pspReference    : Adyen's unique reference that is associated with the payment.
+				 * - resultCode      : The result of the payment. Possible values: Authorised, Refused, Error or Received.
+				 * - authCode        : The authorisation code if the payment was successful. Blank otherwise.
+				 * - refusalReason   : Adyen's mapped refusal reason, populated if the payment was refused.
+				 * </pre>
+				 */
+				PrintWriter out = getResponse().getWriter();
+
+				out.println("Payment Result:");
+				out.println("- pspReference: " + paymentResult.getPspReference());
+				out.println("- resultCode: " + paymentResult.getResultCode());
+				out.println("- authCode: " + paymentResult.getAuthCode());
+				out.println("- refusalReason: " + paymentResult.getRefusalReason());
+			}
+		}.execute(httpRequest, context);
+
+	}
+
+}
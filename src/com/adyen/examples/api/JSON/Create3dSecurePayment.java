@@ -2,8 +2,6 @@ package com.adyen.examples.api.JSON;
 
 import java.io.IOException;
 import java.io.PrintWriter;
-import java.text.SimpleDateFormat;
-import java.util.Date;
 
 import javax.servlet.ServletException;
 import javax.servlet.annotation.WebServlet;
@@ -12,18 +10,24 @@ import javax.servlet.http.HttpServletRequest;
 import javax.servlet.http.HttpServletResponse;
 
 import org.apache.http.HttpResponse;
-import org.apache.http.auth.AuthScope;
-import org.apache.http.auth.UsernamePasswordCredentials;
-import org.apache.http.client.CredentialsProvider;
 import org.apache.http.client.HttpClient;
 import org.apache.http.client.methods.HttpPost;
-import org.apache.http.entity.StringEntity;
-import org.apache.http.impl.client.BasicCredentialsProvider;
-import org.apache.http.impl.client.HttpClientBuilder;
-import org.apache.http.util.EntityUtils;
-import org.json.simple.JSONObject;
-import org.json.simple.parser.JSONParser;
-import org.json.simple.parser.ParseException;
+import org.apache.http.client.protocol.HttpClientContext;
+
+import com.adyen.examples.common.AdyenHttpClient;
+import com.adyen.examples.common.ReferenceGenerator;
+import com.adyen.examples.common.json.Address;
+import com.adyen.examples.common.json.Amount;
+import com.adyen.examples.common.json.BrowserInfo;
+import com.adyen.examples.common.json.Card;
+import com.adyen.examples.common.json.JsonCodec;
+import com.adyen.examples.common.json.PaymentRequest;
+import com.adyen.examples.common.json.PaymentResult;
+import com.adyen.examples.common.json.ServiceError;
+import com.adyen.examples.common.metrics.AdyenMetrics;
+import com.adyen.examples.common.metrics.OperationTimer;
+import com.adyen.examples.common.threedsecure.ThreeDSecureSession;
+import com.adyen.examples.common.threedsecure.ThreeDSecureSessions;
 
 /**
  * Create 3D Secure payment (JSON)
@@ -62,13 +66,14 @@ public class Create3dSecurePayment extends HttpServlet {
 		String wsPassword = "YourWSUserPassword";
 
 		/**
-		 * Create HTTP Client (using Apache HttpComponents library) and set up Basic Authentication
+		 * Get the shared HTTP Client (using Apache HttpComponents library) and set up Basic Authentication
+		 * 
+		 * The client is created once for the whole application, so connections to Adyen are reused between requests.
+		 * 
+		 * @see com.adyen.examples.common.AdyenHttpClient
 		 */
-		CredentialsProvider provider = new BasicCredentialsProvider();
-		UsernamePasswordCredentials credentials = new UsernamePasswordCredentials(wsUser, wsPassword);
-		provider.setCredentials(AuthScope.ANY, credentials);
-
-		HttpClient client = HttpClientBuilder.create().setDefaultCredentialsProvider(provider).build();
+		HttpClient client = AdyenHttpClient.getInstance();
+		HttpClientContext context = AdyenHttpClient.createContext(apiUrl, wsUser, wsPassword);
 
 		/**
 		 * A payment can be submitted by sending a PaymentRequest to the authorise action of the web service.
@@ -108,75 +113,68 @@ public class Create3dSecurePayment extends HttpServlet {
 		 */
 		
 		// Create new payment request
-		JSONObject paymentRequest = new JSONObject();
-		paymentRequest.put("merchantAccount", "YourMerchantAccount");
-		paymentRequest.put("reference", "TEST-3D-SECURE-PAYMENT-" + new SimpleDateFormat("yyyy-MM-dd-HH:mm:ss").format(new Date()));
-		paymentRequest.put("shopperIP", "123.123.123.123");
-		paymentRequest.put("shopperEmail", "test@example.com");
-		paymentRequest.put("shopperReference", "YourReference");
-		paymentRequest.put("fraudOffset", "0");
+		PaymentRequest paymentRequest = new PaymentRequest();
+		paymentRequest.setMerchantAccount("YourMerchantAccount");
+		paymentRequest.setReference(ReferenceGenerator.next("TEST-3D-SECURE-PAYMENT-"));
+		paymentRequest.setShopperIP("123.123.123.123");
+		paymentRequest.setShopperEmail("test@example.com");
+		paymentRequest.setShopperReference("YourReference");
+		paymentRequest.setFraudOffset(0L);
 		
 		// Set amount
-		JSONObject amount = new JSONObject();
-		amount.put("currency", "EUR");
-		amount.put("value", "199");
-		paymentRequest.put("amount", amount);
+		Amount amount = new Amount();
+		amount.setCurrency("EUR");
+		amount.setValue(199);
+		paymentRequest.setAmount(amount);
 
 		// Set card
-		JSONObject card = new JSONObject();
-		card.put("expiryMonth", "06");
-		card.put("expiryYear", "2016");
-		card.put("holderName", "John Doe");
-		card.put("number", "5212345678901234");
-		card.put("cvc", "737");
+		Card card = new Card();
+		card.setExpiryMonth("06");
+		card.setExpiryYear("2016");
+		card.setHolderName("John Doe");
+		card.setNumber("5212345678901234");
+		card.setCvc("737");
 		
-		JSONObject billingAddress = new JSONObject();
-		billingAddress.put("street", "Simon Carmiggeltstraat");
-		billingAddress.put("houseNumberOrName", "6-50");
-		billingAddress.put("postalCode", "1011 DJ");
-		billingAddress.put("city", "Amsterdam");
-		billingAddress.put("stateOrProvince", "");
-		billingAddress.put("country", "NL");
-		card.put("billingAddress", billingAddress);
-
-		paymentRequest.put("card", card);
+		Address billingAddress = new Address();
+		billingAddress.setStreet("Simon Carmiggeltstraat");
+		billingAddress.setHouseNumberOrName("6-50");
+		billingAddress.setPostalCode("1011 DJ");
+		billingAddress.setCity("Amsterdam");
+		billingAddress.setStateOrProvince("");
+		billingAddress.setCountry("NL");
+		card.setBillingAddress(billingAddress);
+
+		paymentRequest.setCard(card);
 		
 		// Set browser info
-		JSONObject browserInfo = new JSONObject();
-		browserInfo.put("userAgent", request.getHeader("User-Agent"));
-		browserInfo.put("acceptHeader", request.getHeader("Accept"));
-		paymentRequest.put("browserInfo", browserInfo);
+		BrowserInfo browserInfo = new BrowserInfo();
+		browserInfo.setUserAgent(request.getHeader("User-Agent"));
+		browserInfo.setAcceptHeader(request.getHeader("Accept"));
+		paymentRequest.setBrowserInfo(browserInfo);
 
 		/**
 		 * Send the HTTP request with the specified variables in JSON.
 		 */
 		HttpPost httpRequest = new HttpPost(apiUrl);
-		httpRequest.addHeader("Content-Type", "application/json");
-		httpRequest.setEntity(new StringEntity(paymentRequest.toString(), "UTF-8"));
-
-		HttpResponse httpResponse = client.execute(httpRequest);
-		String paymentResponse = EntityUtils.toString(httpResponse.getEntity(), "UTF-8");
+		httpRequest.setEntity(JsonCodec.toEntity(paymentRequest));
 
 		/**
 		 * Keep in mind that you should handle errors correctly.
 		 * If the Adyen platform does not accept or store a submitted request, you will receive a HTTP response with
-		 * status different than 200 OK. In this case, the error details are populated in the paymentResponse.
+		 * status different than 200 OK. In this case, the error details are populated in the response body.
 		 */
-		
-		// Parse JSON response
-		JSONParser parser = new JSONParser();
-		JSONObject paymentResult;
-		
-		try {
-			paymentResult = (JSONObject) parser.parse(paymentResponse);
-		} catch (ParseException e) {
-			throw new ServletException(e);
-		}
-		
-		// If the request was rejected, raise an exception
-		if (httpResponse.getStatusLine().getStatusCode() != 200) {
-			String faultString = paymentResult.get("errorType") + " " + paymentResult.get("errorCode") + " " + paymentResult.get("message");
-			throw new ServletException(faultString);
+		PaymentResult paymentResult;
+		try (OperationTimer timer = AdyenMetrics.json(apiUrl).start()) {
+			HttpResponse httpResponse = client.execute(httpRequest, context);
+
+			// If the request was rejected, raise an exception
+			if (httpResponse.getStatusLine().getStatusCode() != 200) {
+				throw new ServletException(ServiceError.from(httpResponse).getFaultString());
+			}
+
+			// Read JSON response
+			paymentResult = JsonCodec.read(httpResponse.getEntity(), PaymentResult::readFrom);
+			timer.setResult(paymentResult.getResultCode());
 		}
 
 		/**
@@ -204,11 +202,21 @@ public class Create3dSecurePayment extends HttpServlet {
 		 * @see WebContent/2.API/create-3d-secure-payment.jsp
 		 */
 
-		if (paymentResult.get("resultCode").equals("RedirectShopper")) {
+		if (paymentResult.getResultCode().equals("RedirectShopper")) {
+			/**
+			 * Keep the original payment request details until the shopper returns from the issuer. Authorise3dSecurePayment
+			 * looks them up by MD, on whichever server the shopper returns to.
+			 *
+			 * @see com.adyen.examples.common.threedsecure.ThreeDSecureSessions
+			 */
+			ThreeDSecureSessions.start(paymentResult.getMd(), new ThreeDSecureSession(paymentRequest.getMerchantAccount(),
+					paymentRequest.getReference(), amount.getCurrency(), amount.getValue(),
+					paymentRequest.getShopperReference(), paymentRequest.getShopperEmail(), paymentRequest.getShopperIP()));
+
 			// Set request parameters for use on the JSP page
-			request.setAttribute("IssuerUrl", paymentResult.get("issuerUrl"));
-			request.setAttribute("PaReq", paymentResult.get("paRequest"));
-			request.setAttribute("MD", paymentResult.get("md"));
+			request.setAttribute("IssuerUrl", paymentResult.getIssuerUrl());
+			request.setAttribute("PaReq", paymentResult.getPaRequest());
+			request.setAttribute("MD", paymentResult.getMd());
 			request.setAttribute("TermUrl", "YOUR_URL_HERE/Authorise3dSecurePayment");
 
 			// Set correct character encoding
@@ -221,10 +229,10 @@ public class Create3dSecurePayment extends HttpServlet {
 			PrintWriter out = response.getWriter();
 
 			out.println("Payment Result:");
-			out.println("- pspReference: " + paymentResult.get("pspReference"));
-			out.println("- resultCode: " + paymentResult.get("resultCode"));
-			out.println("- authCode: " + paymentResult.get("authCode"));
-			out.println("- refusalReason: " + paymentResult.get("refusalReason"));
+			out.println("- pspReference: " + paymentResult.getPspReference());
+			out.println("- resultCode: " + paymentResult.getResultCode());
+			out.println("- authCode: " + paymentResult.getAuthCode());
+			out.println("- refusalReason: " + paymentResult.getRefusalReason());
 		}
 
 	}
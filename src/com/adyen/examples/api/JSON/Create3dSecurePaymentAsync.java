@@ -0,0 +1,218 @@
+package com.adyen.examples.api.JSON;
+
+import java.io.IOException;
+import java.io.PrintWriter;
+
+import javax.servlet.AsyncContext;
+import javax.servlet.ServletException;
+import javax.servlet.annotation.WebInitParam;
+import javax.servlet.annotation.WebServlet;
+import javax.servlet.http.HttpServlet;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+
+import org.apache.http.client.methods.HttpPost;
+import org.apache.http.client.protocol.HttpClientContext;
+
+import com.adyen.examples.common.AdyenHttpClient;
+import com.adyen.examples.common.AsyncJsonCall;
+import com.adyen.examples.common.ReferenceGenerator;
+import com.adyen.examples.common.json.Address;
+import com.adyen.examples.common.json.Amount;
+import com.adyen.examples.common.json.BrowserInfo;
+import com.adyen.examples.common.json.Card;
+import com.adyen.examples.common.json.JsonCodec;
+import com.adyen.examples.common.json.PaymentRequest;
+import com.adyen.examples.common.json.PaymentResult;
+import com.adyen.examples.common.threedsecure.ThreeDSecureSession;
+import com.adyen.examples.common.threedsecure.ThreeDSecureSessions;
+
+/**
+ * Create 3D Secure payment (JSON, asynchronous)
+ *
+ * 3D Secure (Verifed by VISA / MasterCard SecureCode) is an additional authentication
+ * protocol that involves the shopper being redirected to their card issuer where their
+ * identity is authenticated prior to the payment proceeding to an authorisation request.
+ *
+ * In order to start processing 3D Secure transactions, the following changes are required:
+ * 1. Your Merchant Account needs to be confgured by Adyen to support 3D Secure. If you would
+ *    like to have 3D Secure enabled, please submit a request to the Adyen Support Team (support@adyen.com).
+ * 2. Your integration should support redirecting the shopper to the card issuer and submitting
+ *    a second API call to complete the payment.
+ *
+ * This example demonstrates the initial API call to create the 3D secure payment using JSON,
+ * and shows the redirection the the card issuer.
+ * See the API Manual for a full explanation of the steps required to process 3D Secure payments.
+ *
+ * This is the asynchronous variant of Create3dSecurePayment. The container thread is released while the call to Adyen
+ * is in flight, so a small thread pool can serve thousands of payments waiting for Adyen or the acquirer at the
+ * same time. The response is written when the call completes, or an error is returned after the asyncTimeout.
+ *
+ * @link /2.API/JSON/Create3dSecurePaymentAsync
+ * @author Created by Adyen - Payments Made Easy
+ */
+
+@WebServlet(urlPatterns = { "/2.API/JSON/Create3dSecurePaymentAsync" }, asyncSupported = true,
+	initParams = { @WebInitParam(name = "asyncTimeout", value = "30000") })
+public class Create3dSecurePaymentAsync extends HttpServlet {
+
+	protected void doGet(HttpServletRequest request, HttpServletResponse response) throws ServletException, IOException {
+
+		/**
+		 * JSON settings
+		 * - apiUrl: URL of the Adyen API you are using (Test/Live)
+		 * - wsUser: your web service user
+		 * - wsPassword: your web service user's password
+		 * - asyncTimeout: maximum time (in milliseconds) to wait for Adyen, set as init parameter of this servlet
+		 */
+		String apiUrl = "https://pal-test.adyen.com/pal/servlet/Payment/v10/authorise";
+		String wsUser = "YourWSUser";
+		String wsPassword = "YourWSUserPassword";
+		long asyncTimeout = Long.parseLong(getInitParameter("asyncTimeout"));
+
+		/**
+		 * Set up Basic Authentication for the shared asynchronous HTTP Client (using Apache HttpAsyncClient library)
+		 * 
+		 * @see com.adyen.examples.common.AdyenAsyncHttpClient
+		 */
+		HttpClientContext context = AdyenHttpClient.createContext(apiUrl, wsUser, wsPassword);
+
+		/**
+		 * A payment can be submitted by sending a PaymentRequest to the authorise action of the web service.
+		 * The initial API call for both 3D Secure and non-3D Secure payments is almost identical.
+		 * However, for 3D Secure payments, you must supply the browserInfo object as a sub-element of the payment request.
+		 * This is a container for the acceptHeader and userAgent of the shopper's browser.
+		 *
+		 * <pre>
+		 * - merchantAccount           : The merchant account for which you want to process the payment
+		 * - amount
+		 *     - currency              : The three character ISO currency code.
+		 *     - value                 : The transaction amount in minor units (e.g. EUR 1,00 = 100).
+		 * - reference                 : Your reference for this payment.
+		 * - shopperIP                 : The shopper's IP address. (recommended)
+		 * - shopperEmail              : The shopper's email address. (recommended)
+		 * - shopperReference          : An ID that uniquely identifes the shopper, such as a customer id. (recommended)
+		 * - fraudOffset               : An integer that is added to the normal fraud score. (optional)
+		 * - card
+		 *     - expiryMonth           : The expiration date's month written as a 2-digit string,
+		 *                               padded with 0 if required (e.g. 03 or 12).
+		 *     - expiryYear            : The expiration date's year written as in full (e.g. 2016).
+		 *     - holderName            : The card holder's name, as embossed on the card.
+		 *     - number                : The card number.
+		 *     - cvc                   : The card validation code, which is the CVC2 (MasterCard),
+		 *                               CVV2 (Visa) or CID (American Express).
+		 *     - billingAddress (recommended)
+		 *         - street            : The street name.
+		 *         - houseNumberOrName : The house number (or name).
+		 *         - city              : The city.
+		 *         - postalCode        : The postal/zip code.
+		 *         - stateOrProvince   : The state or province.
+		 *         - country           : The country in ISO 3166-1 alpha-2 format (e.g. NL).
+		 * - browserInfo
+		 *     - userAgent             : The user agent string of the shopper's browser (required).
+		 *     - acceptHeader          : The accept header string of the shopper's browser (required).
+		 * </pre>
+		 */
+		
+		// Create new payment request
+		PaymentRequest paymentRequest = new PaymentRequest();
+		paymentRequest.setMerchantAccount("YourMerchantAccount");
+		paymentRequest.setReference(ReferenceGenerator.next("TEST-3D-SECURE-PAYMENT-"));
+		paymentRequest.setShopperIP("123.123.123.123");
+		paymentRequest.setShopperEmail("test@example.com");
+		paymentRequest.setShopperReference("YourReference");
+		paymentRequest.setFraudOffset(0L);
+		
+		// Set amount
+		Amount amount = new Amount();
+		amount.setCurrency("EUR");
+		amount.setValue(199);
+		paymentRequest.setAmount(amount);
+
+		// Set card
+		Card card = new Card();
+		card.setExpiryMonth("06");
+		card.setExpiryYear("2016");
+		card.setHolderName("John Doe");
+		card.setNumber("5212345678901234");
+		card.setCvc("737");
+		
+		Address billingAddress = new Address();
+		billingAddress.setStreet("Simon Carmiggeltstraat");
+		billingAddress.setHouseNumberOrName("6-50");
+		billingAddress.setPostalCode("1011 DJ");
+		billingAddress.setCity("Amsterdam");
+		billingAddress.setStateOrProvince("");
+		billingAddress.setCountry("NL");
+		card.setBillingAddress(billingAddress);
+
+		paymentRequest.setCard(card);
+		
+		// Set browser info
+		BrowserInfo browserInfo = new BrowserInfo();
+		browserInfo.setUserAgent(request.getHeader("User-Agent"));
+		browserInfo.setAcceptHeader(request.getHeader("Accept"));
+		paymentRequest.setBrowserInfo(browserInfo);
+
+		/**
+		 * Send the HTTP request with the specified variables in JSON.
+		 */
+		HttpPost httpRequest = new HttpPost(apiUrl);
+		httpRequest.setEntity(JsonCodec.toByteArrayEntity(paymentRequest));
+
+		/**
+		 * Put the request in asynchronous mode and send the HTTP request. The container thread is released while the
+		 * request to Adyen is in flight; the result is written by the AsyncJsonCall when the response arrives.
+		 * If there is no response within the asyncTimeout, 504 Gateway Timeout is returned.
+		 * 
+		 * Keep in mind that you should handle errors correctly.
+		 * If the Adyen platform does not accept or store a submitted request, you will receive a HTTP response with
+		 * status different than 200 OK. In this case, the AsyncJsonCall returns the error details with status 500.
+		 */
+		final AsyncContext asyncContext = request.startAsync();
+		asyncContext.setTimeout(asyncTimeout);
+
+		new AsyncJsonCall<PaymentResult>(asyncContext, PaymentResult::readFrom, PaymentResult::getResultCode) {
+			@Override
+			protected void onResult(PaymentResult paymentResult) throws IOException {
+				/**
+				 * If the card is enrolled in the 3-D Secure programme, the resultCode will be RedirectShopper and the
+				 * shopper is redirected to the issuer, as in Create3dSecurePayment. The request is dispatched to the
+				 * JSP page instead of completed.
+				 * 
+				 * @see WebContent/2.API/create-3d-secure-payment.jsp
+				 */
+				if (paymentResult.getResultCode().equals("RedirectShopper")) {
+					// Keep the original payment request details until the shopper returns from the issuer
+					ThreeDSecureSessions.start(paymentResult.getMd(), new ThreeDSecureSession(
+							paymentRequest.getMerchantAccount(), paymentRequest.getReference(), amount.getCurrency(),
+							amount.getValue(), paymentRequest.getShopperReference(), paymentRequest.getShopperEmail(),
+							paymentRequest.getShopperIP()));
+
+					// Set request parameters for use on the JSP page
+					asyncContext.getRequest().setAttribute("IssuerUrl", paymentResult.getIssuerUrl());
+					asyncContext.getRequest().setAttribute("PaReq", paymentResult.getPaRequest());
+					asyncContext.getRequest().setAttribute("MD", paymentResult.getMd());
+					asyncContext.getRequest().setAttribute("TermUrl", "YOUR_URL_HERE/Authorise3dSecurePaymentAsync");
+
+					// Set correct character encoding
+					getResponse().setCharacterEncoding("UTF-8");
+
+					// Dispatch request data to corresponding JSP page
+					dispatch("/2.API/create-3d-secure-payment.jsp");
+				}
+				else {
+					PrintWriter out = getResponse().getWriter();
+
+					out.println("Payment Result:");
+					out.println("- pspReference: " + paymentResult.getPspReference());
+					out.println("- resultCode: " + paymentResult.getResultCode());
+					out.println("- authCode: " + paymentResult.getAuthCode());
+					out.println("- refusalReason: " + paymentResult.getRefusalReason());
+				}
+			}
+		}.execute(httpRequest, context);
+
+	}
+
+}
@@ -0,0 +1,179 @@
+package com.adyen.examples.api.JSON;
+
+import java.io.IOException;
+import java.io.PrintWriter;
+
+import javax.servlet.AsyncContext;
+import javax.servlet.ServletException;
+import javax.servlet.annotation.WebInitParam;
+import javax.servlet.annotation.WebServlet;
+import javax.servlet.http.HttpServlet;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+
+import org.apache.http.client.methods.HttpPost;
+import org.apache.http.client.protocol.HttpClientContext;
+
+import com.adyen.examples.common.AdyenHttpClient;
+import com.adyen.examples.common.AsyncJsonCall;
+import com.adyen.examples.common.ReferenceGenerator;
+import com.adyen.examples.common.json.Address;
+import com.adyen.examples.common.json.Amount;
+import com.adyen.examples.common.json.Card;
+import com.adyen.examples.common.json.JsonCodec;
+import com.adyen.examples.common.json.PaymentRequest;
+import com.adyen.examples.common.json.PaymentResult;
+
+/**
+ * Create Payment through the API (JSON, asynchronous)
+ * 
+ * Payments can be created through our API, however this is only possible if you are PCI Compliant. JSON API payments
+ * are submitted using a HTTP request to the authorise action. We will explain a simple credit card submission.
+ * 
+ * Please note: using our API requires a web service user. Set up your Webservice user:
+ * Adyen CA >> Settings >> Users >> ws@Company. >> Generate Password >> Submit
+ * 
+ * This is the asynchronous variant of CreatePaymentAPI. The container thread is released while the call to Adyen
+ * is in flight, so a small thread pool can serve thousands of payments waiting for Adyen or the acquirer at the
+ * same time. The response is written when the call completes, or an error is returned after the asyncTimeout.
+ * 
+ * @link /2.API/JSON/CreatePaymentAPIAsync
+ * @author Created by Adyen - Payments Made Easy
+ */
+
+@WebServlet(urlPatterns = { "/2.API/JSON/CreatePaymentAPIAsync" }, asyncSupported = true,
+	initParams = { @WebInitParam(name = "asyncTimeout", value = "30000") })
+public class CreatePaymentAPIAsync extends HttpServlet {
+
+	protected void doGet(HttpServletRequest request, HttpServletResponse response) throws ServletException, IOException {
+
+		/**
+		 * JSON settings
+		 * - apiUrl: URL of the Adyen API you are using (Test/Live)
+		 * - wsUser: your web service user
+		 * - wsPassword: your web service user's password
+		 * - asyncTimeout: maximum time (in milliseconds) to wait for Adyen, set as init parameter of this servlet
+		 */
+		String apiUrl = "https://pal-test.adyen.com/pal/servlet/Payment/v10/authorise";
+		String wsUser = "YourWSUser";
+		String wsPassword = "YourWSPassword";
+		long asyncTimeout = Long.parseLong(getInitParameter("asyncTimeout"));
+
+		/**
+		 * Set up Basic Authentication for the shared asynchronous HTTP Client (using Apache HttpAsyncClient library)
+		 * 
+		 * @see com.adyen.examples.common.AdyenAsyncHttpClient
+		 */
+		HttpClientContext context = AdyenHttpClient.createContext(apiUrl, wsUser, wsPassword);
+
+		/**
+		 * A payment can be submitted with a JSON request to the authorise action of the API,
+		 * containing the following variables:
+		 * 
+		 * <pre>
+		 * - merchantAccount           : The merchant account for which you want to process the payment
+		 * - amount
+		 *     - currency              : The three character ISO currency code.
+		 *     - value                 : The transaction amount in minor units (e.g. EUR 1,00 = 100).
+		 * - reference                 : Your reference for this payment.
+		 * - shopperIP                 : The shopper's IP address. (recommended)
+		 * - shopperEmail              : The shopper's email address. (recommended)
+		 * - shopperReference          : An ID that uniquely identifes the shopper, such as a customer id. (recommended)
+		 * - fraudOffset               : An integer that is added to the normal fraud score. (optional)
+		 * - card
+		 *     - expiryMonth           : The expiration date's month written as a 2-digit string,
+		 *                               padded with 0 if required (e.g. 03 or 12).
+		 *     - expiryYear            : The expiration date's year written as in full (e.g. 2016).
+		 *     - holderName            : The card holder's name, as embossed on the card.
+		 *     - number                : The card number.
+		 *     - cvc                   : The card validation code, which is the CVC2 (MasterCard),
+		 *                               CVV2 (Visa) or CID (American Express).
+		 *     - billingAddress (recommended)
+		 *         - street            : The street name.
+		 *         - houseNumberOrName : The house number (or name).
+		 *         - city              : The city.
+		 *         - postalCode        : The postal/zip code.
+		 *         - stateOrProvince   : The state or province.
+		 *         - country           : The country in ISO 3166-1 alpha-2 format (e.g. NL).
+		 * </pre>
+		 */
+		
+		// Create new payment request
+		PaymentRequest paymentRequest = new PaymentRequest();
+		paymentRequest.setMerchantAccount("YourMerchantAccount");
+		paymentRequest.setReference(ReferenceGenerator.next("TEST-PAYMENT-"));
+		paymentRequest.setShopperIP("123.123.123.123");
+		paymentRequest.setShopperEmail("test@example.com");
+		paymentRequest.setShopperReference("YourReference");
+		paymentRequest.setFraudOffset(0L);
+		
+		// Set amount
+		Amount amount = new Amount();
+		amount.setCurrency("EUR");
+		amount.setValue(199);
+		paymentRequest.setAmount(amount);
+
+		// Set card
+		Card card = new Card();
+		card.setExpiryMonth("06");
+		card.setExpiryYear("2016");
+		card.setHolderName("John Doe");
+		card.setNumber("5555444433331111");
+		card.setCvc("737");
+		
+		Address billingAddress = new Address();
+		billingAddress.setStreet("Simon Carmiggeltstraat");
+		billingAddress.setHouseNumberOrName("6-50");
+		billingAddress.setPostalCode("1011 DJ");
+		billingAddress.setCity("Amsterdam");
+		billingAddress.setStateOrProvince("");
+		billingAddress.setCountry("NL");
+		card.setBillingAddress(billingAddress);
+
+		paymentRequest.setCard(card);
+		
+		/**
+		 * Send the HTTP request with the specified variables in JSON.
+		 */
+		HttpPost httpRequest = new HttpPost(apiUrl);
+		httpRequest.setEntity(JsonCodec.toByteArrayEntity(paymentRequest));
+
+		/**
+		 * Put the request in asynchronous mode and send the HTTP request. The container thread is released while the
+		 * request to Adyen is in flight; the result is written by the AsyncJsonCall when the response arrives.
+		 * If there is no response within the asyncTimeout, 504 Gateway Timeout is returned.
+		 * 
+		 * Keep in mind that you should handle errors correctly.
+		 * If the Adyen platform does not accept or store a submitted request, you will receive a HTTP response with
+		 * status different than 200 OK. In this case, the AsyncJsonCall returns the error details with status 500.
+		 */
+		final AsyncContext asyncContext = request.startAsync();
+		asyncContext.setTimeout(asyncTimeout);
+
+		new AsyncJsonCall<PaymentResult>(asyncContext, PaymentResult::readFrom, PaymentResult::getResultCode) {
+			@Override
+			protected void onResult(PaymentResult paymentResult) throws IOException {
+				/**
+				 * If the payment passes validation a risk analysis will be done and, depending on the outcome, an
+				 * authorisation will be attempted. You receive a payment response with the following fields:
+				 * 
+				 * <pre>
+				 * - pspReference    : Adyen's unique reference that is associated with the payment.
+				 * - resultCode      : The result of the payment. Possible values: Authorised, Refused, Error or Received.
+				 * - authCode        : The authorisation code if the payment was successful. Blank otherwise.
+				 * - refusalReason   : Adyen's mapped refusal reason, populated if the payment was refused.
+				 * </pre>
+				 */
+				PrintWriter out = getResponse().getWriter();
+
+				out.println("Payment Result:");
+				out.println("- pspReference: " + paymentResult.getPspReference());
+				out.println("- resultCode: " + paymentResult.getResultCode());
+				out.println("- authCode: " + paymentResult.getAuthCode());
+				out.println("- refusalReason: " + paymentResult.getRefusalReason());
+			}
+		}.execute(httpRequest, context);
+
+	}
+
+}
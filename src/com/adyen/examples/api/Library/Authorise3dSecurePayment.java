@@ -1,8 +1,16 @@
 package com.adyen.examples.api.Library;
+import java.io.IOException;
+
 import com.adyen.Client;
 import com.adyen.enums.Environment;
+import com.adyen.examples.common.limit.LimitingClientInterface;
+import com.adyen.examples.common.metrics.AdyenMetrics;
+import com.adyen.examples.common.metrics.OperationTimer;
+import com.adyen.examples.common.threedsecure.ThreeDSecureSession;
+import com.adyen.examples.common.threedsecure.ThreeDSecureSessions;
 import com.adyen.model.PaymentResult;
 import com.adyen.service.Payment;
+import com.adyen.service.exception.ApiException;
 import com.adyen.model.PaymentRequest3d;
 import com.adyen.model.BrowserInfo;
 import com.adyen.model.Amount;
@@ -31,7 +39,15 @@ import com.adyen.model.Amount;
  */
 public class Authorise3dSecurePayment {
 
-    public void authorise3dPayment() throws Exception{
+    /**
+     * Completes the payment when the shopper returns from the issuer.
+     *
+     * @param md the MD parameter posted to your TermUrl. Create3dSecurePayment started a session for it when it
+     *        redirected the shopper, in this JVM or in the shared database (see ThreeDSecureSessions), so call this
+     *        method from the TermUrl handler of the same application.
+     * @param paResponse the PaRes parameter posted to your TermUrl
+     */
+    public void authorise3dPayment(String md, String paResponse) throws Exception{
 
         /**
          * Client settings
@@ -44,6 +60,8 @@ public class Authorise3dSecurePayment {
          */
         // Create new Client
         Client client = new Client("YourWSUser", "YourWSPassword", Environment.TEST, "myTestPayment");
+        // Limit the number of concurrent calls per operation, see AdyenLimiters
+        client.setHttpClient(new LimitingClientInterface(client.getHttpClient()));
         Payment payment = new Payment(client);
 
         // Create new 3d Payment Request
@@ -75,12 +93,33 @@ public class Authorise3dSecurePayment {
          *                                                          attempts and location based checks.
          * </pre>
          */
+        // Take the original payment request details, stored by Create3dSecurePayment, see ThreeDSecureSessions.
+        // The session is taken only once, so a second callback with the same MD does not complete the payment again.
+        // It is put back when the call is not sent or fails with an error that is worth retrying.
+        ThreeDSecureSession session = ThreeDSecureSessions.take(md);
+        if (session == null) {
+            throw new IllegalStateException("Unknown, expired or completed 3-D Secure session");
+        }
+
         // Set 3d Payment Request
-        paymentRequest3d.setMerchantAccount("YourMerchantAccount");
+        paymentRequest3d.setMerchantAccount(session.getMerchantAccount());
         paymentRequest3d.setBrowserInfo(browserInfo);
-        paymentRequest3d.set3DRequestData("YourMD","YourPaResponse");
-        paymentRequest3d.setShopperIP("1.2.3.4");
-        PaymentResult paymentResult = payment.authorise3D(paymentRequest3d);
+        paymentRequest3d.set3DRequestData(md, paResponse);
+        paymentRequest3d.setShopperIP(session.getShopperIP());
+        PaymentResult paymentResult;
+        try (OperationTimer timer = AdyenMetrics.library("Payment.authorise3D").start()) {
+            paymentResult = payment.authorise3D(paymentRequest3d);
+            timer.setResult(String.valueOf(paymentResult.getResultCode()));
+        } catch (IOException e) {
+            // Not sent (e.g. LimitExceededException) or no response
+            ThreeDSecureSessions.putBack(md, session);
+            throw e;
+        } catch (ApiException e) {
+            if (e.getStatusCode() >= 500) {
+                ThreeDSecureSessions.putBack(md, session);
+            }
+            throw e;
+        }
 
         /**
          * If the payment passes validation a risk analysis will be done and, depending on the outcome, an authorisation
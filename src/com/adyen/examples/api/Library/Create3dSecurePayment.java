@@ -1,6 +1,11 @@
 package com.adyen.examples.api.Library;
 import com.adyen.Client;
 import com.adyen.enums.Environment;
+import com.adyen.examples.common.limit.LimitingClientInterface;
+import com.adyen.examples.common.metrics.AdyenMetrics;
+import com.adyen.examples.common.metrics.OperationTimer;
+import com.adyen.examples.common.threedsecure.ThreeDSecureSession;
+import com.adyen.examples.common.threedsecure.ThreeDSecureSessions;
 import com.adyen.model.PaymentRequest;
 import com.adyen.model.PaymentResult;
 import com.adyen.service.Payment;
@@ -41,6 +46,8 @@ public class Create3dSecurePayment {
          */
         // Create new Client
         Client client = new Client("YourWSUser", "YourWSPassword", Environment.TEST, "myTestPayment");
+        // Limit the number of concurrent calls per operation, see AdyenLimiters
+        client.setHttpClient(new LimitingClientInterface(client.getHttpClient()));
         Payment payment = new Payment(client);
 
         /**
@@ -93,7 +100,11 @@ public class Create3dSecurePayment {
         paymentRequest.setCardData("6731012345678906", "John Doe", "08", "2018", "737");
 
         // Authorise the 3dPayment Request
-        PaymentResult paymentResult = payment.authorise(paymentRequest);
+        PaymentResult paymentResult;
+        try (OperationTimer timer = AdyenMetrics.library("Payment.authorise").start()) {
+            paymentResult = payment.authorise(paymentRequest);
+            timer.setResult(String.valueOf(paymentResult.getResultCode()));
+        }
 
         /**
          * Once your account is configured for 3-D Secure, the Adyen system performs a directory
@@ -119,6 +130,13 @@ public class Create3dSecurePayment {
          *
          * @see WebContent/2.API/create-3d-secure-payment.jsp
          */
+        if (paymentResult.getResultCode() == PaymentResult.ResultCodeEnum.REDIRECTSHOPPER) {
+            // Keep the original payment request details until the shopper returns from the issuer, see ThreeDSecureSessions
+            ThreeDSecureSessions.start(paymentResult.getMd(), new ThreeDSecureSession(paymentRequest.getMerchantAccount(),
+                    paymentRequest.getReference(), paymentRequest.getAmount().getCurrency(),
+                    paymentRequest.getAmount().getValue(), paymentRequest.getShopperReference(),
+                    paymentRequest.getShopperEmail(), paymentRequest.getShopperIP()));
+        }
 
         System.out.println("3d Payment Request:");
         System.out.println("- paRequest: " + paymentResult.getPaRequest());
@@ -1,6 +1,9 @@
 package com.adyen.examples.api.Library;
 import com.adyen.Client;
 import com.adyen.enums.Environment;
+import com.adyen.examples.common.limit.LimitingClientInterface;
+import com.adyen.examples.common.metrics.AdyenMetrics;
+import com.adyen.examples.common.metrics.OperationTimer;
 import com.adyen.model.PaymentRequest;
 import com.adyen.model.PaymentResult;
 import com.adyen.service.Payment;
@@ -33,6 +36,8 @@ public class CreatePaymentAPI {
          */
         // Create new Client
         Client client = new Client("YourWSUser", "YourWSPassword", Environment.TEST, "myTestPayment");
+        // Limit the number of concurrent calls per operation, see AdyenLimiters
+        client.setHttpClient(new LimitingClientInterface(client.getHttpClient()));
         Payment payment = new Payment(client);
 
 
@@ -82,7 +87,11 @@ public class CreatePaymentAPI {
         paymentRequest.setCardData("5136333333333335", "John Doe", "08", "2018", "737");
 
         // Authorise the Payment Request
-        PaymentResult paymentResult = payment.authorise(paymentRequest);
+        PaymentResult paymentResult;
+        try (OperationTimer timer = AdyenMetrics.library("Payment.authorise").start()) {
+            paymentResult = payment.authorise(paymentRequest);
+            timer.setResult(String.valueOf(paymentResult.getResultCode()));
+        }
 
         /**
          * If the payment passes validation a risk analysis will be done and, depending on the outcome, an authorisation
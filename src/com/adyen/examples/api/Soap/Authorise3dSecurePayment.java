@@ -2,20 +2,24 @@ package com.adyen.examples.api.Soap;
 
 import java.io.IOException;
 import java.io.PrintWriter;
-import java.net.URL;
 
 import javax.servlet.ServletException;
 import javax.servlet.annotation.WebServlet;
 import javax.servlet.http.HttpServlet;
 import javax.servlet.http.HttpServletRequest;
 import javax.servlet.http.HttpServletResponse;
-import javax.xml.ws.BindingProvider;
-
+import javax.xml.ws.WebServiceException;
+
+import com.adyen.examples.common.PortPool;
+import com.adyen.examples.common.SoapServices;
+import com.adyen.examples.common.metrics.AdyenMetrics;
+import com.adyen.examples.common.metrics.OperationTimer;
+import com.adyen.examples.common.threedsecure.ThreeDSecureSession;
+import com.adyen.examples.common.threedsecure.ThreeDSecureSessions;
 import com.adyen.services.common.BrowserInfo;
 import com.adyen.services.payment.PaymentPortType;
 import com.adyen.services.payment.PaymentRequest3D;
 import com.adyen.services.payment.PaymentResult;
-import com.adyen.services.payment.PaymentService;
 import com.adyen.services.payment.ServiceException;
 
 /**
@@ -57,16 +61,32 @@ public class Authorise3dSecurePayment extends HttpServlet {
 		String wsPassword = "YourWSUserPassword";
 
 		/**
-		 * Create SOAP client, using classes in adyen-wsdl-cxf.jar library (generated by wsdl2java tool, Apache CXF).
+		 * Take the session that Create3dSecurePayment started for this MD. It holds the details of the original
+		 * payment request, so the payment is completed for the same merchant account and shopper. A callback with an
+		 * unknown or expired MD (the shopper has 15 minutes to authenticate), or with an MD whose session was taken
+		 * already by another callback, is not sent to Adyen. The session is put back when the call is not sent or
+		 * fails without a response from Adyen, so the shopper can submit the callback again.
+		 *
+		 * @see com.adyen.examples.common.threedsecure.ThreeDSecureSessions
+		 */
+		String md = request.getParameter("MD");
+		ThreeDSecureSession session = ThreeDSecureSessions.take(md);
+		if (session == null) {
+			response.sendError(HttpServletResponse.SC_BAD_REQUEST, "Unknown or expired 3-D Secure session");
+			return;
+		}
+
+		/**
+		 * Get a SOAP client, using classes in adyen-wsdl-cxf.jar library (generated by wsdl2java tool, Apache CXF).
+		 * 
+		 * The SOAP service is created only once, and the clients are pooled with HTTP Authentication already set.
+		 * Please return the client to the pool when the call is done.
 		 * 
 		 * @see WebContent/WEB-INF/lib/adyen-wsdl-cxf.jar
+		 * @see com.adyen.examples.common.SoapServices
 		 */
-		PaymentService service = new PaymentService(new URL(wsdl));
-		PaymentPortType client = service.getPaymentHttpPort();
-
-		// Set HTTP Authentication
-		((BindingProvider) client).getRequestContext().put(BindingProvider.USERNAME_PROPERTY, wsUser);
-		((BindingProvider) client).getRequestContext().put(BindingProvider.PASSWORD_PROPERTY, wsPassword);
+		PortPool<PaymentPortType> ports = SoapServices.paymentPorts(wsdl, wsUser, wsPassword);
+		PaymentPortType client = ports.borrow();
 
 		/**
 		 * After the shopper's identity is authenticated by the issuer, they will be returned to your
@@ -90,10 +110,10 @@ public class Authorise3dSecurePayment extends HttpServlet {
 
 		// Create new payment request
 		PaymentRequest3D paymentRequest = new PaymentRequest3D();
-		paymentRequest.setMerchantAccount("YourMerchantAccount");
-		paymentRequest.setMd(request.getParameter("MD"));
+		paymentRequest.setMerchantAccount(session.getMerchantAccount());
+		paymentRequest.setMd(md);
 		paymentRequest.setPaResponse(request.getParameter("PaRes"));
-		paymentRequest.setShopperIP("123.123.123.123");
+		paymentRequest.setShopperIP(session.getShopperIP());
 
 		// Set browser info
 		BrowserInfo browserInfo = new BrowserInfo();
@@ -105,10 +125,17 @@ public class Authorise3dSecurePayment extends HttpServlet {
 		 * Send the authorise3d request.
 		 */
 		PaymentResult paymentResult;
-		try {
+		try (OperationTimer timer = AdyenMetrics.soap("Payment.authorise3D").start()) {
 			paymentResult = client.authorise3D(paymentRequest);
+			timer.setResult(paymentResult.getResultCode());
 		} catch (ServiceException e) {
 			throw new ServletException(e);
+		} catch (WebServiceException e) {
+			// Not sent (e.g. LimitExceededException) or no response
+			ThreeDSecureSessions.putBack(md, session);
+			throw e;
+		} finally {
+			ports.release(client);
 		}
 
 		/**
@@ -2,17 +2,20 @@ package com.adyen.examples.api.Soap;
 
 import java.io.IOException;
 import java.io.PrintWriter;
-import java.net.URL;
-import java.text.SimpleDateFormat;
-import java.util.Date;
 
 import javax.servlet.ServletException;
 import javax.servlet.annotation.WebServlet;
 import javax.servlet.http.HttpServlet;
 import javax.servlet.http.HttpServletRequest;
 import javax.servlet.http.HttpServletResponse;
-import javax.xml.ws.BindingProvider;
 
+import com.adyen.examples.common.PortPool;
+import com.adyen.examples.common.ReferenceGenerator;
+import com.adyen.examples.common.SoapServices;
+import com.adyen.examples.common.metrics.AdyenMetrics;
+import com.adyen.examples.common.metrics.OperationTimer;
+import com.adyen.examples.common.threedsecure.ThreeDSecureSession;
+import com.adyen.examples.common.threedsecure.ThreeDSecureSessions;
 import com.adyen.services.common.Address;
 import com.adyen.services.common.Amount;
 import com.adyen.services.common.BrowserInfo;
@@ -20,7 +23,6 @@ import com.adyen.services.payment.Card;
 import com.adyen.services.payment.PaymentPortType;
 import com.adyen.services.payment.PaymentRequest;
 import com.adyen.services.payment.PaymentResult;
-import com.adyen.services.payment.PaymentService;
 import com.adyen.services.payment.ServiceException;
 
 /**
@@ -60,16 +62,16 @@ public class Create3dSecurePayment extends HttpServlet {
 		String wsPassword = "YourWSUserPassword";
 
 		/**
-		 * Create SOAP client, using classes in adyen-wsdl-cxf.jar library (generated by wsdl2java tool, Apache CXF).
+		 * Get a SOAP client, using classes in adyen-wsdl-cxf.jar library (generated by wsdl2java tool, Apache CXF).
+		 *
+		 * The SOAP service is created only once, and the clients are pooled with HTTP Authentication already set.
+		 * Please return the client to the pool when the call is done.
 		 *
 		 * @see WebContent/WEB-INF/lib/adyen-wsdl-cxf.jar
+		 * @see com.adyen.examples.common.SoapServices
 		 */
-		PaymentService service = new PaymentService(new URL(wsdl));
-		PaymentPortType client = service.getPaymentHttpPort();
-
-		// Set HTTP Authentication
-		((BindingProvider) client).getRequestContext().put(BindingProvider.USERNAME_PROPERTY, wsUser);
-		((BindingProvider) client).getRequestContext().put(BindingProvider.PASSWORD_PROPERTY, wsPassword);
+		PortPool<PaymentPortType> ports = SoapServices.paymentPorts(wsdl, wsUser, wsPassword);
+		PaymentPortType client = ports.borrow();
 
 		/**
 		 * A payment can be submitted by sending a PaymentRequest to the authorise action of the web service.
@@ -111,7 +113,7 @@ public class Create3dSecurePayment extends HttpServlet {
 		// Create new payment request
 		PaymentRequest paymentRequest = new PaymentRequest();
 		paymentRequest.setMerchantAccount("YourMerchantAccount");
-		paymentRequest.setReference("TEST-3D-SECURE-PAYMENT-" + new SimpleDateFormat("yyyy-MM-dd-HH:mm:ss").format(new Date()));
+		paymentRequest.setReference(ReferenceGenerator.next("TEST-3D-SECURE-PAYMENT-"));
 		paymentRequest.setShopperIP("123.123.123.123");
 		paymentRequest.setShopperEmail("test@example.com");
 		paymentRequest.setShopperReference("YourReference");
@@ -153,10 +155,13 @@ public class Create3dSecurePayment extends HttpServlet {
 		 * Send the authorise request.
 		 */
 		PaymentResult paymentResult;
-		try {
+		try (OperationTimer timer = AdyenMetrics.soap("Payment.authorise").start()) {
 			paymentResult = client.authorise(paymentRequest);
+			timer.setResult(paymentResult.getResultCode());
 		} catch (ServiceException e) {
 			throw new ServletException(e);
+		} finally {
+			ports.release(client);
 		}
 
 		/**
@@ -184,6 +189,16 @@ public class Create3dSecurePayment extends HttpServlet {
 		 * @see WebContent/2.API/create-3d-secure-payment.jsp
 		 */
 		if (paymentResult.getResultCode().equals("RedirectShopper")) {
+			/**
+			 * Keep the original payment request details until the shopper returns from the issuer. Authorise3dSecurePayment
+			 * looks them up by MD, on whichever server the shopper returns to.
+			 *
+			 * @see com.adyen.examples.common.threedsecure.ThreeDSecureSessions
+			 */
+			ThreeDSecureSessions.start(paymentResult.getMd(), new ThreeDSecureSession(paymentRequest.getMerchantAccount(),
+					paymentRequest.getReference(), amount.getCurrency(), amount.getValue(),
+					paymentRequest.getShopperReference(), paymentRequest.getShopperEmail(), paymentRequest.getShopperIP()));
+
 			// Set request parameters for use on the JSP page
 			request.setAttribute("IssuerUrl", paymentResult.getIssuerUrl());
 			request.setAttribute("PaReq", paymentResult.getPaRequest());
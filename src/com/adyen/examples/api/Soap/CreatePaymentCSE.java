@@ -2,7 +2,6 @@ package com.adyen.examples.api.Soap;
 
 import java.io.IOException;
 import java.io.PrintWriter;
-import java.net.URL;
 import java.text.SimpleDateFormat;
 import java.util.Date;
 
@@ -11,15 +10,18 @@ import javax.servlet.annotation.WebServlet;
 import javax.servlet.http.HttpServlet;
 import javax.servlet.http.HttpServletRequest;
 import javax.servlet.http.HttpServletResponse;
-import javax.xml.ws.BindingProvider;
 
+import com.adyen.examples.common.PortPool;
+import com.adyen.examples.common.ReferenceGenerator;
+import com.adyen.examples.common.SoapServices;
+import com.adyen.examples.common.metrics.AdyenMetrics;
+import com.adyen.examples.common.metrics.OperationTimer;
 import com.adyen.services.common.Amount;
 import com.adyen.services.payment.AnyType2AnyTypeMap;
 import com.adyen.services.payment.AnyType2AnyTypeMap.Entry;
 import com.adyen.services.payment.PaymentPortType;
 import com.adyen.services.payment.PaymentRequest;
 import com.adyen.services.payment.PaymentResult;
-import com.adyen.services.payment.PaymentService;
 import com.adyen.services.payment.ServiceException;
 
 /**
@@ -69,16 +71,16 @@ public class CreatePaymentCSE extends HttpServlet {
 		String wsPassword = "YourWSPassword";
 
 		/**
-		 * Create SOAP client, using classes in adyen-wsdl-cxf.jar library (generated by wsdl2java tool, Apache CXF).
+		 * Get a SOAP client, using classes in adyen-wsdl-cxf.jar library (generated by wsdl2java tool, Apache CXF).
+		 * 
+		 * The SOAP service is created only once, and the clients are pooled with HTTP Authentication already set.
+		 * Please return the client to the pool when the call is done.
 		 * 
 		 * @see WebContent/WEB-INF/lib/adyen-wsdl-cxf.jar
+		 * @see com.adyen.examples.common.SoapServices
 		 */
-		PaymentService service = new PaymentService(new URL(wsdl));
-		PaymentPortType client = service.getPaymentHttpPort();
-
-		// Set HTTP Authentication
-		((BindingProvider) client).getRequestContext().put(BindingProvider.USERNAME_PROPERTY, wsUser);
-		((BindingProvider) client).getRequestContext().put(BindingProvider.PASSWORD_PROPERTY, wsPassword);
+		PortPool<PaymentPortType> ports = SoapServices.paymentPorts(wsdl, wsUser, wsPassword);
+		PaymentPortType client = ports.borrow();
 
 		/**
 		 * A payment can be submitted by sending a PaymentRequest to the authorise action of the web service.
@@ -100,7 +102,7 @@ public class CreatePaymentCSE extends HttpServlet {
 		// Create new payment request
 		PaymentRequest paymentRequest = new PaymentRequest();
 		paymentRequest.setMerchantAccount("YourMerchantAccount");
-		paymentRequest.setReference("TEST-PAYMENT-" + new SimpleDateFormat("yyyy-MM-dd-HH:mm:ss").format(new Date()));
+		paymentRequest.setReference(ReferenceGenerator.next("TEST-PAYMENT-"));
 		paymentRequest.setShopperIP("123.123.123.123");
 		paymentRequest.setShopperEmail("test@example.com");
 		paymentRequest.setShopperReference("YourReference");
@@ -125,10 +127,13 @@ public class CreatePaymentCSE extends HttpServlet {
 		 * Send the authorise request.
 		 */
 		PaymentResult paymentResult;
-		try {
+		try (OperationTimer timer = AdyenMetrics.soap("Payment.authorise").start()) {
 			paymentResult = client.authorise(paymentRequest);
+			timer.setResult(paymentResult.getResultCode());
 		} catch (ServiceException e) {
 			throw new ServletException(e);
+		} finally {
+			ports.release(client);
 		}
 
 		/**
@@ -0,0 +1,159 @@
+package com.adyen.examples.common;
+
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.http.HttpHost;
+import org.apache.http.HttpRequestInterceptor;
+import org.apache.http.HttpResponse;
+import org.apache.http.HttpResponseInterceptor;
+import org.apache.http.client.config.RequestConfig;
+import org.apache.http.conn.routing.HttpRoute;
+import org.apache.http.impl.client.DefaultConnectionKeepAliveStrategy;
+import org.apache.http.impl.nio.client.CloseableHttpAsyncClient;
+import org.apache.http.impl.nio.client.HttpAsyncClients;
+import org.apache.http.impl.nio.conn.PoolingNHttpClientConnectionManager;
+import org.apache.http.impl.nio.reactor.DefaultConnectingIOReactor;
+import org.apache.http.impl.nio.reactor.IOReactorConfig;
+import org.apache.http.nio.reactor.IOReactorException;
+import org.apache.http.protocol.HttpContext;
+
+import com.adyen.examples.common.metrics.MetricsInterceptor;
+
+/**
+ * Shared asynchronous HTTP Client for calls to the Adyen platform
+ *
+ * The asynchronous client (using Apache HttpAsyncClient library) does not block a thread while waiting for Adyen. A
+ * small number of I/O threads handles all open connections, so thousands of calls can be in flight at the same time.
+ * It is used by the asynchronous servlets, together with {@link AsyncJsonCall}.
+ *
+ * Use {@link AdyenHttpClient#createContext(String, String, String)} to get an execution context with Basic
+ * Authentication for your web service user.
+ *
+ * The client is closed by {@link AdyenClientLifecycle} when the application is stopped.
+ *
+ * @author Created by Adyen - Payments Made Easy
+ */
+public final class AdyenAsyncHttpClient {
+
+	/**
+	 * Connection pool settings
+	 * - IO_THREADS: number of I/O dispatch threads
+	 * - MAX_TOTAL_CONNECTIONS: maximum number of open connections in the pool
+	 * - MAX_CONNECTIONS_PER_ADYEN_HOST: maximum number of open connections to a single Adyen host
+	 * - KEEP_ALIVE_MILLIS: how long an idle connection is kept open when Adyen does not send a Keep-Alive header
+	 * - IDLE_TIMEOUT_MILLIS: idle connections are closed after this period
+	 * - CONNECT_TIMEOUT_MILLIS: timeout for establishing a connection
+	 * - SOCKET_TIMEOUT_MILLIS: timeout for waiting on data from Adyen
+	 * - POOL_TIMEOUT_MILLIS: timeout for waiting on a free connection from the pool
+	 */
+	private static final int IO_THREADS = Runtime.getRuntime().availableProcessors();
+	private static final int MAX_TOTAL_CONNECTIONS = 2000;
+	private static final int MAX_CONNECTIONS_PER_ADYEN_HOST = 1000;
+	private static final long KEEP_ALIVE_MILLIS = 30000;
+	private static final long IDLE_TIMEOUT_MILLIS = 30000;
+	private static final int CONNECT_TIMEOUT_MILLIS = 5000;
+	private static final int SOCKET_TIMEOUT_MILLIS = 60000;
+	private static final int POOL_TIMEOUT_MILLIS = 5000;
+
+	private static final String[] ADYEN_HOSTS = {
+		"pal-test.adyen.com", "pal-live.adyen.com", "test.adyen.com", "live.adyen.com"
+	};
+
+	private static volatile AdyenAsyncHttpClient instance;
+
+	private final PoolingNHttpClientConnectionManager connectionManager;
+	private final CloseableHttpAsyncClient httpClient;
+	private final IdleConnectionEvictor idleConnectionEvictor;
+
+	private AdyenAsyncHttpClient() throws IOReactorException {
+		IOReactorConfig ioReactorConfig = IOReactorConfig.custom()
+				.setIoThreadCount(IO_THREADS)
+				.setConnectTimeout(CONNECT_TIMEOUT_MILLIS)
+				.setSoTimeout(SOCKET_TIMEOUT_MILLIS)
+				.build();
+
+		connectionManager = new PoolingNHttpClientConnectionManager(new DefaultConnectingIOReactor(ioReactorConfig));
+		connectionManager.setMaxTotal(MAX_TOTAL_CONNECTIONS);
+		connectionManager.setDefaultMaxPerRoute(MAX_CONNECTIONS_PER_ADYEN_HOST);
+
+		for (String host : ADYEN_HOSTS) {
+			HttpRoute route = new HttpRoute(new HttpHost(host, 443, "https"), null, true);
+			connectionManager.setMaxPerRoute(route, MAX_CONNECTIONS_PER_ADYEN_HOST);
+		}
+
+		RequestConfig requestConfig = RequestConfig.custom()
+				.setConnectTimeout(CONNECT_TIMEOUT_MILLIS)
+				.setSocketTimeout(SOCKET_TIMEOUT_MILLIS)
+				.setConnectionRequestTimeout(POOL_TIMEOUT_MILLIS)
+				.build();
+
+		MetricsInterceptor metricsInterceptor = new MetricsInterceptor();
+
+		httpClient = HttpAsyncClients.custom()
+				.setConnectionManager(connectionManager)
+				.setRoutePlanner(new AdyenRoutePlanner())
+				.addInterceptorLast((HttpRequestInterceptor) metricsInterceptor)
+				.addInterceptorLast((HttpResponseInterceptor) metricsInterceptor)
+				.setKeepAliveStrategy(new DefaultConnectionKeepAliveStrategy() {
+					@Override
+					public long getKeepAliveDuration(HttpResponse response, HttpContext context) {
+						long duration = super.getKeepAliveDuration(response, context);
+						return duration > 0 ? duration : KEEP_ALIVE_MILLIS;
+					}
+				})
+				.setDefaultRequestConfig(requestConfig)
+				.build();
+		httpClient.start();
+
+		idleConnectionEvictor = new IdleConnectionEvictor("adyen-async-idle-connection-evictor", IDLE_TIMEOUT_MILLIS) {
+			@Override
+			protected void evict(long idleTimeoutMillis) {
+				connectionManager.closeExpiredConnections();
+				connectionManager.closeIdleConnections(idleTimeoutMillis, TimeUnit.MILLISECONDS);
+			}
+		};
+		idleConnectionEvictor.start();
+	}
+
+	/**
+	 * Returns the shared (started) asynchronous HTTP Client, creating it on first use.
+	 */
+	public static CloseableHttpAsyncClient getInstance() {
+		AdyenAsyncHttpClient result = instance;
+		if (result == null) {
+			synchronized (AdyenAsyncHttpClient.class) {
+				result = instance;
+				if (result == null) {
+					try {
+						instance = result = new AdyenAsyncHttpClient();
+					} catch (IOReactorException e) {
+						throw new IllegalStateException("Unable to start the asynchronous HTTP Client", e);
+					}
+				}
+			}
+		}
+		return result.httpClient;
+	}
+
+	/**
+	 * Closes the shared asynchronous HTTP Client and all its connections.
+	 */
+	public static void shutdown() {
+		AdyenAsyncHttpClient current;
+		synchronized (AdyenAsyncHttpClient.class) {
+			current = instance;
+			instance = null;
+		}
+
+		if (current != null) {
+			current.idleConnectionEvictor.shutdown();
+			try {
+				current.httpClient.close();
+			} catch (IOException e) {
+				// Nothing left to do, the I/O reactor is shut down
+			}
+		}
+	}
+
+}
@@ -0,0 +1,54 @@
+package com.adyen.examples.common;
+
+import javax.servlet.ServletContextEvent;
+import javax.servlet.ServletContextListener;
+import javax.servlet.annotation.WebListener;
+
+import com.adyen.examples.common.limit.AdyenLimiters;
+import com.adyen.examples.common.metrics.AdyenMetrics;
+
+/**
+ * Lifecycle of the shared Adyen clients
+ *
+ * Creates the shared SOAP services when the application is started, and closes the shared clients (and their
+ * connections to the Adyen platform) when the application is stopped. The MBeans of the {@link AdyenMetrics} and
+ * {@link AdyenLimiters} are unregistered when the application is stopped.
+ *
+ * The asynchronous client is only shut down when Apache HttpAsyncClient is deployed (see {@link AdyenAsyncHttpClient});
+ * without it the asynchronous servlets are not available and the client was never created.
+ *
+ * @author Created by Adyen - Payments Made Easy
+ */
+@WebListener
+public class AdyenClientLifecycle implements ServletContextListener {
+
+	@Override
+	public void contextInitialized(ServletContextEvent event) {
+		SoapServices.init();
+	}
+
+	@Override
+	public void contextDestroyed(ServletContextEvent event) {
+		AdyenHttpClient.shutdown();
+		if (isAsyncClientAvailable()) {
+			AdyenAsyncHttpClient.shutdown();
+		}
+		SoapServices.shutdown();
+		AdyenMetrics.shutdown();
+		AdyenLimiters.shutdown();
+	}
+
+	/**
+	 * Returns whether httpasyncclient (and httpcore-nio) are on the classpath, without loading the async client.
+	 */
+	private static boolean isAsyncClientAvailable() {
+		try {
+			Class.forName("org.apache.http.impl.nio.client.HttpAsyncClients", false,
+					AdyenClientLifecycle.class.getClassLoader());
+			return true;
+		} catch (ClassNotFoundException | LinkageError e) {
+			return false;
+		}
+	}
+
+}
@@ -0,0 +1,58 @@
+package com.adyen.examples.common;
+
+/**
+ * Adyen endpoints called by the examples
+ *
+ * The Payment, Recurring and Payout services are all hosted on the same host (pal-test/pal-live), which means they
+ * share a single route in the connection pool. Every endpoint therefore gets a limit on the number of connections each
+ * of its operations may use at the same time, so one busy operation can never take all connections of the route. How
+ * the connections are divided between checkout and background calls is up to the
+ * {@link com.adyen.examples.common.limit.OutboundScheduler}.
+ *
+ * @author Created by Adyen - Payments Made Easy
+ */
+public enum AdyenEndpoint {
+
+	PAYMENT("/pal/servlet/Payment/", 50),
+	RECURRING("/pal/servlet/Recurring/", 20),
+	PAYOUT("/pal/servlet/Payout/", 20),
+	HPP("/hpp/", 20),
+	OTHER("/", 10);
+
+	private final String pathPrefix;
+	private final int maxConnections;
+
+	private AdyenEndpoint(String pathPrefix, int maxConnections) {
+		this.pathPrefix = pathPrefix;
+		this.maxConnections = maxConnections;
+	}
+
+	/**
+	 * Path prefix of all actions of this endpoint (e.g. /pal/servlet/Payment/v10/authorise).
+	 */
+	public String getPathPrefix() {
+		return pathPrefix;
+	}
+
+	/**
+	 * Maximum number of connections a single operation of this endpoint may use at the same time.
+	 */
+	public int getMaxConnections() {
+		return maxConnections;
+	}
+
+	/**
+	 * Returns the endpoint that serves the given request path.
+	 */
+	public static AdyenEndpoint fromPath(String path) {
+		if (path != null) {
+			for (AdyenEndpoint endpoint : values()) {
+				if (endpoint != OTHER && path.startsWith(endpoint.pathPrefix)) {
+					return endpoint;
+				}
+			}
+		}
+		return OTHER;
+	}
+
+}
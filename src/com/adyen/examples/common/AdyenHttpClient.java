@@ -0,0 +1,207 @@
+package com.adyen.examples.common;
+
+import java.io.IOException;
+import java.net.URI;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.http.HttpHost;
+import org.apache.http.HttpRequestInterceptor;
+import org.apache.http.HttpResponse;
+import org.apache.http.HttpResponseInterceptor;
+import org.apache.http.auth.AuthScope;
+import org.apache.http.auth.UsernamePasswordCredentials;
+import org.apache.http.client.AuthCache;
+import org.apache.http.client.CredentialsProvider;
+import org.apache.http.client.config.RequestConfig;
+import org.apache.http.client.protocol.HttpClientContext;
+import org.apache.http.client.utils.URIUtils;
+import org.apache.http.conn.routing.HttpRoute;
+import org.apache.http.impl.auth.BasicScheme;
+import org.apache.http.impl.client.BasicAuthCache;
+import org.apache.http.impl.client.BasicCredentialsProvider;
+import org.apache.http.impl.client.CloseableHttpClient;
+import org.apache.http.impl.client.DefaultConnectionKeepAliveStrategy;
+import org.apache.http.impl.client.HttpClientBuilder;
+import org.apache.http.impl.conn.PoolingHttpClientConnectionManager;
+import org.apache.http.impl.execchain.ClientExecChain;
+import org.apache.http.protocol.HttpContext;
+
+import com.adyen.examples.common.metrics.MetricsInterceptor;
+
+/**
+ * Shared HTTP Client for all calls to the Adyen platform
+ *
+ * Creating a new HTTP Client for every request means a new connection pool, a new TCP connection and a full TLS
+ * handshake for every payment. This class holds a single thread-safe client (using Apache HttpComponents library) for
+ * the whole application, backed by a pooled connection manager, so connections to Adyen are kept alive and reused.
+ *
+ * The client does not hold any credentials; use {@link #createContext(String, String, String)} to get an execution
+ * context with Basic Authentication for your web service user.
+ *
+ * For load testing, the calls can be sent to a local simulator instead, see {@link AdyenRoutePlanner}. The bytes sent
+ * and received are counted per operation, see {@link MetricsInterceptor}.
+ *
+ * The client is closed by {@link AdyenClientLifecycle} when the application is stopped.
+ *
+ * @author Created by Adyen - Payments Made Easy
+ */
+public final class AdyenHttpClient {
+
+	/**
+	 * Connection pool settings
+	 * - MAX_TOTAL_CONNECTIONS: maximum number of open connections in the pool
+	 * - MAX_CONNECTIONS_PER_ADYEN_HOST: maximum number of open connections to a single Adyen host
+	 * - KEEP_ALIVE_MILLIS: how long an idle connection is kept open when Adyen does not send a Keep-Alive header
+	 * - IDLE_TIMEOUT_MILLIS: idle connections are closed after this period
+	 * - CONNECT_TIMEOUT_MILLIS: timeout for establishing a connection
+	 * - SOCKET_TIMEOUT_MILLIS: timeout for waiting on data from Adyen
+	 * - POOL_TIMEOUT_MILLIS: timeout for waiting on a free connection from the pool
+	 */
+	private static final int MAX_TOTAL_CONNECTIONS = 200;
+	private static final int MAX_CONNECTIONS_PER_ADYEN_HOST = 100;
+	private static final long KEEP_ALIVE_MILLIS = 30000;
+	private static final long IDLE_TIMEOUT_MILLIS = 30000;
+	private static final int CONNECT_TIMEOUT_MILLIS = 5000;
+	private static final int SOCKET_TIMEOUT_MILLIS = 60000;
+	private static final int POOL_TIMEOUT_MILLIS = 5000;
+
+	private static final String[] ADYEN_HOSTS = {
+		"pal-test.adyen.com", "pal-live.adyen.com", "test.adyen.com", "live.adyen.com"
+	};
+
+	private static volatile AdyenHttpClient instance;
+
+	private final PoolingHttpClientConnectionManager connectionManager;
+	private final CloseableHttpClient httpClient;
+	private final IdleConnectionEvictor idleConnectionEvictor;
+
+	private AdyenHttpClient() {
+		connectionManager = new PoolingHttpClientConnectionManager();
+		connectionManager.setMaxTotal(MAX_TOTAL_CONNECTIONS);
+		connectionManager.setDefaultMaxPerRoute(MAX_CONNECTIONS_PER_ADYEN_HOST);
+
+		for (String host : ADYEN_HOSTS) {
+			HttpRoute route = new HttpRoute(new HttpHost(host, 443, "https"), null, true);
+			connectionManager.setMaxPerRoute(route, MAX_CONNECTIONS_PER_ADYEN_HOST);
+		}
+
+		RequestConfig requestConfig = RequestConfig.custom()
+				.setConnectTimeout(CONNECT_TIMEOUT_MILLIS)
+				.setSocketTimeout(SOCKET_TIMEOUT_MILLIS)
+				.setConnectionRequestTimeout(POOL_TIMEOUT_MILLIS)
+				.build();
+
+		MetricsInterceptor metricsInterceptor = new MetricsInterceptor();
+
+		httpClient = new EndpointLimitingHttpClientBuilder()
+				.setConnectionManager(connectionManager)
+				.setRoutePlanner(new AdyenRoutePlanner())
+				.addInterceptorLast((HttpRequestInterceptor) metricsInterceptor)
+				.addInterceptorLast((HttpResponseInterceptor) metricsInterceptor)
+				.setKeepAliveStrategy(new DefaultConnectionKeepAliveStrategy() {
+					@Override
+					public long getKeepAliveDuration(HttpResponse response, HttpContext context) {
+						long duration = super.getKeepAliveDuration(response, context);
+						return duration > 0 ? duration : KEEP_ALIVE_MILLIS;
+					}
+				})
+				.setDefaultRequestConfig(requestConfig)
+				.build();
+
+		idleConnectionEvictor = new IdleConnectionEvictor("adyen-idle-connection-evictor", IDLE_TIMEOUT_MILLIS) {
+			@Override
+			protected void evict(long idleTimeoutMillis) {
+				connectionManager.closeExpiredConnections();
+				connectionManager.closeIdleConnections(idleTimeoutMillis, TimeUnit.MILLISECONDS);
+			}
+		};
+		idleConnectionEvictor.start();
+	}
+
+	/**
+	 * Returns the shared HTTP Client, creating it on first use.
+	 */
+	public static CloseableHttpClient getInstance() {
+		return holder().httpClient;
+	}
+
+	private static AdyenHttpClient holder() {
+		AdyenHttpClient result = instance;
+		if (result == null) {
+			synchronized (AdyenHttpClient.class) {
+				result = instance;
+				if (result == null) {
+					instance = result = new AdyenHttpClient();
+				}
+			}
+		}
+		return result;
+	}
+
+	/**
+	 * Creates an execution context with (preemptive) Basic Authentication for the host of the given URL.
+	 *
+	 * The credentials are sent with the first request, which saves the 401 round trip to Adyen on every call.
+	 */
+	public static HttpClientContext createContext(String url, String wsUser, String wsPassword) {
+		HttpHost target = URIUtils.extractHost(URI.create(url));
+
+		CredentialsProvider provider = new BasicCredentialsProvider();
+		provider.setCredentials(new AuthScope(target), new UsernamePasswordCredentials(wsUser, wsPassword));
+
+		AuthCache authCache = new BasicAuthCache();
+		authCache.put(target, new BasicScheme());
+
+		// Requests sent to the simulator are authenticated for the Adyen host on the port of the simulator
+		HttpHost simulatedTarget = AdyenRoutePlanner.toSimulatedTarget(target);
+		if (simulatedTarget != null) {
+			authCache.put(simulatedTarget, new BasicScheme());
+		}
+
+		HttpClientContext context = HttpClientContext.create();
+		context.setCredentialsProvider(provider);
+		context.setAuthCache(authCache);
+		return context;
+	}
+
+	/**
+	 * Returns the connection manager of the shared client, e.g. to inspect the pool statistics.
+	 */
+	public static PoolingHttpClientConnectionManager getConnectionManager() {
+		return holder().connectionManager;
+	}
+
+	/**
+	 * Closes the shared HTTP Client and all its connections.
+	 */
+	public static void shutdown() {
+		AdyenHttpClient current;
+		synchronized (AdyenHttpClient.class) {
+			current = instance;
+			instance = null;
+		}
+
+		if (current != null) {
+			current.idleConnectionEvictor.shutdown();
+			try {
+				current.httpClient.close();
+			} catch (IOException e) {
+				// Nothing left to do, the connections are closed by the connection manager
+			}
+			current.connectionManager.shutdown();
+		}
+	}
+
+	/**
+	 * HttpClientBuilder adding the endpoint limits to the execution chain.
+	 */
+	private static class EndpointLimitingHttpClientBuilder extends HttpClientBuilder {
+
+		@Override
+		protected ClientExecChain decorateMainExec(ClientExecChain mainExec) {
+			return new EndpointLimitingExec(mainExec);
+		}
+
+	}
+
+}
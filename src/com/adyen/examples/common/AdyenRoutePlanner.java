@@ -0,0 +1,131 @@
+package com.adyen.examples.common;
+
+import java.net.InetAddress;
+import java.net.URI;
+import java.net.URISyntaxException;
+import java.net.UnknownHostException;
+
+import org.apache.http.HttpException;
+import org.apache.http.HttpHost;
+import org.apache.http.HttpRequest;
+import org.apache.http.conn.routing.HttpRoute;
+import org.apache.http.impl.conn.DefaultRoutePlanner;
+import org.apache.http.protocol.HttpContext;
+
+/**
+ * Route planner that sends the calls to Adyen to a local simulator instead, for load and latency testing
+ *
+ * When the system property com.adyen.examples.simulatorUrl is set (e.g. http://localhost:8089), every request to an
+ * Adyen host is sent to that address instead; the path of the request is kept. Without the property, requests are
+ * routed as usual. The property is read once, when this class is loaded.
+ *
+ * The requests to the simulator carry the credentials of the web service user, and the simulator is spoken to over
+ * plain HTTP. The simulator therefore has to run on this machine: a URL whose host is not a loopback address (e.g.
+ * localhost or 127.0.0.1) is refused, so the property cannot send the calls and their credentials to another host.
+ *
+ * @see com.adyen.examples.simulator.AdyenSimulator
+ * @author Created by Adyen - Payments Made Easy
+ */
+public class AdyenRoutePlanner extends DefaultRoutePlanner {
+
+	/**
+	 * Simulator settings
+	 * - SIMULATOR_URL_PROPERTY: system property with the base URL of the simulator
+	 */
+	public static final String SIMULATOR_URL_PROPERTY = "com.adyen.examples.simulatorUrl";
+
+	private static final String ADYEN_DOMAIN = ".adyen.com";
+
+	private static final URI SIMULATOR_URL = readSimulatorUrl();
+
+	private final HttpHost simulator;
+
+	public AdyenRoutePlanner() {
+		super(null);
+		URI simulatorUrl = SIMULATOR_URL;
+		this.simulator = simulatorUrl == null ? null
+				: new HttpHost(simulatorUrl.getHost(), simulatorUrl.getPort(), simulatorUrl.getScheme());
+	}
+
+	@Override
+	public HttpRoute determineRoute(HttpHost host, HttpRequest request, HttpContext context) throws HttpException {
+		if (simulator != null && isAdyenHost(host)) {
+			return super.determineRoute(simulator, request, context);
+		}
+		return super.determineRoute(host, request, context);
+	}
+
+	/**
+	 * Returns the target host as it is seen by the authentication of a request that is sent to the simulator: the
+	 * Adyen host with the port of the simulator. Returns null if no simulator is configured or the host is not an
+	 * Adyen host.
+	 */
+	public static HttpHost toSimulatedTarget(HttpHost target) {
+		URI simulatorUrl = SIMULATOR_URL;
+		if (simulatorUrl == null || !isAdyenHost(target)) {
+			return null;
+		}
+		int port = simulatorUrl.getPort() >= 0 ? simulatorUrl.getPort() : "https".equals(simulatorUrl.getScheme()) ? 443 : 80;
+		return new HttpHost(target.getHostName(), port, target.getSchemeName());
+	}
+
+	/**
+	 * Returns the given Adyen URL with the scheme, host and port of the simulator, or the URL itself if no simulator is
+	 * configured.
+	 */
+	public static String toSimulatorUrl(String url) {
+		URI simulatorUrl = SIMULATOR_URL;
+		if (simulatorUrl == null) {
+			return url;
+		}
+
+		try {
+			URI uri = new URI(url);
+			if (uri.getHost() == null || !uri.getHost().endsWith(ADYEN_DOMAIN)) {
+				return url;
+			}
+			return new URI(simulatorUrl.getScheme(), null, simulatorUrl.getHost(), simulatorUrl.getPort(), uri.getPath(),
+					uri.getQuery(), null).toString();
+		} catch (URISyntaxException e) {
+			return url;
+		}
+	}
+
+	/**
+	 * Returns the configured simulator URL, or null if the calls go to Adyen.
+	 */
+	public static URI getSimulatorUrl() {
+		return SIMULATOR_URL;
+	}
+
+	private static URI readSimulatorUrl() {
+		String value = System.getProperty(SIMULATOR_URL_PROPERTY);
+		if (value == null || value.isEmpty()) {
+			return null;
+		}
+
+		URI url;
+		try {
+			url = new URI(value);
+		} catch (URISyntaxException e) {
+			throw new IllegalArgumentException("Invalid " + SIMULATOR_URL_PROPERTY + ": " + value, e);
+		}
+		if (url.getHost() == null) {
+			throw new IllegalArgumentException("Invalid " + SIMULATOR_URL_PROPERTY + ": " + value);
+		}
+		try {
+			if (!InetAddress.getByName(url.getHost()).isLoopbackAddress()) {
+				throw new IllegalArgumentException(SIMULATOR_URL_PROPERTY + " must point to this machine (e.g. "
+						+ "http://localhost:8089): " + value);
+			}
+		} catch (UnknownHostException e) {
+			throw new IllegalArgumentException("Invalid " + SIMULATOR_URL_PROPERTY + ": " + value, e);
+		}
+		return url;
+	}
+
+	private static boolean isAdyenHost(HttpHost host) {
+		return host != null && host.getHostName().endsWith(ADYEN_DOMAIN);
+	}
+
+}
@@ -0,0 +1,250 @@
+package com.adyen.examples.common;
+
+import java.io.IOException;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.Function;
+
+import javax.servlet.AsyncContext;
+import javax.servlet.AsyncEvent;
+import javax.servlet.AsyncListener;
+import javax.servlet.http.HttpServletResponse;
+
+import org.apache.http.HttpResponse;
+import org.apache.http.client.methods.HttpPost;
+import org.apache.http.client.protocol.HttpClientContext;
+import org.apache.http.concurrent.FutureCallback;
+
+import com.adyen.examples.common.json.JsonCodec;
+import com.adyen.examples.common.json.ServiceError;
+import com.adyen.examples.common.limit.AdyenLimiters;
+import com.adyen.examples.common.limit.LimitExceededException;
+import com.adyen.examples.common.limit.Permit;
+import com.adyen.examples.common.metrics.AdyenMetrics;
+import com.adyen.examples.common.metrics.OperationTimer;
+
+/**
+ * Asynchronous JSON call to the Adyen platform from an asynchronous servlet
+ *
+ * The request is sent with the shared {@link AdyenAsyncHttpClient}, so the container thread is released while the
+ * call is in flight. When the response arrives, it is read into a typed result (see {@link JsonCodec}) and handed to
+ * {@link #onResult(Object)}, which writes the servlet response. The callbacks of the HttpAsyncClient run on its I/O
+ * reactor thread, which is shared by all calls: they only release the permit and hand the response over to a
+ * container thread (see {@link AsyncContext#start(Runnable)}), which reads it and writes the servlet response. Errors
+ * and timeouts are answered with an error status:
+ *
+ * <pre>
+ * - 500 Internal Server Error : Adyen rejected the request, or its response could not be handled.
+ * - 502 Bad Gateway           : the call to Adyen failed.
+ * - 503 Service Unavailable   : too many calls to the same operation in flight, the call was not sent to Adyen.
+ * - 504 Gateway Timeout       : no response within the timeout of the AsyncContext.
+ * </pre>
+ *
+ * Exactly one of these outcomes is written, whichever happens first. When the call was not sent, failed without a
+ * response or Adyen answered with a 5xx status, {@link #onRetryableFailure()} is called first, e.g. to put back state
+ * that was taken for the call.
+ *
+ * The call is measured in the JSON {@link AdyenMetrics} of the called URL, with the result code of the result. It
+ * needs a permit of the {@link AdyenLimiters limiter} of the called operation; as the call must not block the
+ * container thread, it is rejected right away when no permit is available.
+ *
+ * @author Created by Adyen - Payments Made Easy
+ */
+public abstract class AsyncJsonCall<T> implements FutureCallback<HttpResponse>, AsyncListener {
+
+	private final AsyncContext asyncContext;
+	private final JsonCodec.ResultReader<T> resultReader;
+	private final Function<? super T, String> resultCode;
+	private final AtomicBoolean finished = new AtomicBoolean();
+	private volatile Future<HttpResponse> future;
+	private volatile OperationTimer timer;
+	private volatile Permit permit;
+	private boolean dispatched;
+
+	/**
+	 * Creates a call that reads its result with the given reader. The result code of the result (e.g. Authorised) is
+	 * recorded in the metrics of the call.
+	 */
+	protected AsyncJsonCall(AsyncContext asyncContext, JsonCodec.ResultReader<T> resultReader,
+			Function<? super T, String> resultCode) {
+		this.asyncContext = asyncContext;
+		this.resultReader = resultReader;
+		this.resultCode = resultCode;
+	}
+
+	/**
+	 * Sends the request to Adyen and returns immediately.
+	 */
+	public void execute(HttpPost httpRequest, HttpClientContext context) {
+		asyncContext.addListener(this);
+		timer = AdyenMetrics.json(httpRequest.getURI()).start();
+		try {
+			permit = AdyenLimiters.tryAcquire(httpRequest.getURI());
+		} catch (LimitExceededException e) {
+			finished.set(true);
+			timer.close();
+			onRetryableFailure();
+			sendError(HttpServletResponse.SC_SERVICE_UNAVAILABLE, e.getMessage());
+			asyncContext.complete();
+			return;
+		}
+		future = AdyenAsyncHttpClient.getInstance().execute(httpRequest, context, this);
+	}
+
+	/**
+	 * Writes the servlet response for a successful (HTTP 200) result from Adyen; called on a container thread.
+	 */
+	protected abstract void onResult(T result) throws IOException;
+
+	/**
+	 * Called when the call was not sent to Adyen, failed without a response or was answered with a 5xx status, so it
+	 * can be tried again. Does nothing by default.
+	 */
+	protected void onRetryableFailure() {
+	}
+
+	protected AsyncContext getAsyncContext() {
+		return asyncContext;
+	}
+
+	protected HttpServletResponse getResponse() {
+		return (HttpServletResponse) asyncContext.getResponse();
+	}
+
+	/**
+	 * Dispatches the request to the given path (e.g. a JSP page) instead of completing it.
+	 */
+	protected void dispatch(String path) {
+		dispatched = true;
+		asyncContext.dispatch(path);
+	}
+
+	@Override
+	public void completed(final HttpResponse httpResponse) {
+		if (!finished.compareAndSet(false, true)) {
+			return;
+		}
+
+		permit.setStatus(httpResponse.getStatusLine().getStatusCode());
+		permit.close();
+		asyncContext.start(() -> respond(httpResponse));
+	}
+
+	@Override
+	public void failed(final Exception e) {
+		if (finished.compareAndSet(false, true)) {
+			permit.setDropped();
+			permit.close();
+			timer.close();
+			asyncContext.start(() -> {
+				onRetryableFailure();
+				sendError(HttpServletResponse.SC_BAD_GATEWAY, e.toString());
+				asyncContext.complete();
+			});
+		}
+	}
+
+	@Override
+	public void cancelled() {
+		if (finished.compareAndSet(false, true)) {
+			permit.close();
+			timer.close();
+			asyncContext.start(() -> {
+				sendError(HttpServletResponse.SC_BAD_GATEWAY, "Request to Adyen was cancelled");
+				asyncContext.complete();
+			});
+		}
+	}
+
+	@Override
+	public void onTimeout(AsyncEvent event) {
+		if (finished.compareAndSet(false, true)) {
+			Future<HttpResponse> current = future;
+			if (current != null) {
+				current.cancel(true);
+			}
+			releasePermit(true);
+			closeTimer();
+			sendError(HttpServletResponse.SC_GATEWAY_TIMEOUT, "No response from Adyen in time");
+			asyncContext.complete();
+		}
+	}
+
+	@Override
+	public void onError(AsyncEvent event) {
+		if (finished.compareAndSet(false, true)) {
+			Future<HttpResponse> current = future;
+			if (current != null) {
+				current.cancel(true);
+			}
+			releasePermit(false);
+			closeTimer();
+			asyncContext.complete();
+		}
+	}
+
+	@Override
+	public void onComplete(AsyncEvent event) {
+	}
+
+	@Override
+	public void onStartAsync(AsyncEvent event) {
+	}
+
+	/**
+	 * Reads the response of Adyen and writes the servlet response, on a container thread.
+	 */
+	private void respond(HttpResponse httpResponse) {
+		try {
+			// If the request was rejected, return an error
+			int statusCode = httpResponse.getStatusLine().getStatusCode();
+			if (statusCode != 200) {
+				String faultString = ServiceError.from(httpResponse).getFaultString();
+				timer.close();
+				if (statusCode >= 500) {
+					onRetryableFailure();
+				}
+				getResponse().sendError(HttpServletResponse.SC_INTERNAL_SERVER_ERROR, faultString);
+			}
+			else {
+				T result = JsonCodec.read(httpResponse.getEntity(), resultReader);
+				timer.setResult(resultCode.apply(result));
+				timer.close();
+				onResult(result);
+			}
+		} catch (IOException | RuntimeException e) {
+			timer.close();
+			sendError(HttpServletResponse.SC_INTERNAL_SERVER_ERROR, e.toString());
+		} finally {
+			if (!dispatched) {
+				asyncContext.complete();
+			}
+		}
+	}
+
+	private void releasePermit(boolean dropped) {
+		Permit current = permit;
+		if (current != null) {
+			if (dropped) {
+				current.setDropped();
+			}
+			current.close();
+		}
+	}
+
+	private void closeTimer() {
+		OperationTimer current = timer;
+		if (current != null) {
+			current.close();
+		}
+	}
+
+	private void sendError(int status, String message) {
+		try {
+			getResponse().sendError(status, message);
+		} catch (IOException | IllegalStateException e) {
+			// The response is already committed, nothing left to report
+		}
+	}
+
+}
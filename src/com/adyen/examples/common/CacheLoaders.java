@@ -0,0 +1,34 @@
+package com.adyen.examples.common;
+
+import java.util.concurrent.ExecutionException;
+
+/**
+ * Failures of the loaders of the caches
+ *
+ * The caches (see {@link PaymentMethodCache} and {@link RecurringDetailCache}) throw a failure of their loader as
+ * ExecutionException, as the call to Adyen may have been made by another request. A caller that calls Adyen directly
+ * otherwise, like the Library examples, rethrows what the call to Adyen threw instead.
+ *
+ * @author Created by Adyen - Payments Made Easy
+ */
+public final class CacheLoaders {
+
+	private CacheLoaders() {
+	}
+
+	/**
+	 * Returns the exception the loader threw, to be thrown instead of the ExecutionException. An Error is thrown as
+	 * is; an ExecutionException without a cause is returned itself.
+	 */
+	public static Exception cause(ExecutionException e) {
+		Throwable cause = e.getCause();
+		if (cause instanceof Error) {
+			throw (Error) cause;
+		}
+		if (cause instanceof Exception) {
+			return (Exception) cause;
+		}
+		return e;
+	}
+
+}
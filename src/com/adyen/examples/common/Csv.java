@@ -0,0 +1,73 @@
+package com.adyen.examples.common;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Reading and writing single CSV lines (RFC 4180 quoting), for the batch files of the examples
+ *
+ * Fields may be quoted with double quotes; a double quote within a quoted field is written as two double quotes.
+ * Fields are only quoted when written if they contain a comma or a double quote. Line breaks in written fields are
+ * replaced by spaces, so every record stays on a single line and the files can be read line by line.
+ *
+ * @author Created by Adyen - Payments Made Easy
+ */
+public final class Csv {
+
+	private Csv() {
+	}
+
+	/**
+	 * Splits a CSV line into its fields.
+	 */
+	public static List<String> split(String line) {
+		List<String> fields = new ArrayList<String>();
+		StringBuilder field = new StringBuilder();
+		boolean quoted = false;
+
+		for (int i = 0; i < line.length(); i++) {
+			char c = line.charAt(i);
+			if (quoted) {
+				if (c == '"' && i + 1 < line.length() && line.charAt(i + 1) == '"') {
+					field.append('"');
+					i++;
+				}
+				else if (c == '"') {
+					quoted = false;
+				}
+				else {
+					field.append(c);
+				}
+			}
+			else if (c == '"') {
+				quoted = true;
+			}
+			else if (c == ',') {
+				fields.add(field.toString());
+				field.setLength(0);
+			}
+			else {
+				field.append(c);
+			}
+		}
+		fields.add(field.toString());
+		return fields;
+	}
+
+	/**
+	 * Appends a field to a CSV line, quoted if needed. A null value is appended as an empty field.
+	 */
+	public static StringBuilder append(StringBuilder line, String value) {
+		if (value == null) {
+			return line;
+		}
+		if (value.indexOf('\n') >= 0 || value.indexOf('\r') >= 0) {
+			value = value.replace('\r', ' ').replace('\n', ' ');
+		}
+		if (value.indexOf(',') < 0 && value.indexOf('"') < 0) {
+			return line.append(value);
+		}
+		return line.append('"').append(value.replace("\"", "\"\"")).append('"');
+	}
+
+}
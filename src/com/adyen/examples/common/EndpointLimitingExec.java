@@ -0,0 +1,151 @@
+package com.adyen.examples.common;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+
+import org.apache.http.HttpEntity;
+import org.apache.http.HttpException;
+import org.apache.http.client.methods.CloseableHttpResponse;
+import org.apache.http.client.methods.HttpExecutionAware;
+import org.apache.http.client.methods.HttpRequestWrapper;
+import org.apache.http.client.protocol.HttpClientContext;
+import org.apache.http.conn.EofSensorInputStream;
+import org.apache.http.conn.EofSensorWatcher;
+import org.apache.http.conn.routing.HttpRoute;
+import org.apache.http.entity.HttpEntityWrapper;
+import org.apache.http.impl.execchain.ClientExecChain;
+
+import com.adyen.examples.common.limit.AdyenLimiters;
+import com.adyen.examples.common.limit.OutboundScheduler;
+import com.adyen.examples.common.limit.Permit;
+
+/**
+ * Limits the number of concurrent requests per Adyen endpoint
+ *
+ * All Adyen API endpoints share the same route in the connection pool. This step in the execution chain makes sure
+ * that every request has a permit of the adaptive {@link AdyenLimiters limiter} of its operation, so a slow operation
+ * (e.g. listRecurringDetails) cannot take the connections of the other operations, and a slot of the
+ * {@link OutboundScheduler}, which keeps connections reserved for the checkout calls. No operation uses more than the
+ * connections of its endpoint, see {@link AdyenEndpoint#getMaxConnections()}.
+ *
+ * The connection is in use until the response body is read, so the permit is kept until then as well: it is released
+ * when the response entity is read to its end or closed, or when the response is closed, whichever comes first. The
+ * round trip time reported to the limiter includes reading the body.
+ */
+class EndpointLimitingExec implements ClientExecChain {
+
+	private final ClientExecChain requestExecutor;
+
+	EndpointLimitingExec(ClientExecChain requestExecutor) {
+		this.requestExecutor = requestExecutor;
+	}
+
+	@Override
+	public CloseableHttpResponse execute(HttpRoute route, HttpRequestWrapper request, HttpClientContext context,
+			HttpExecutionAware execAware) throws IOException, HttpException {
+
+		Permit permit = AdyenLimiters.acquire(request.getURI());
+		CloseableHttpResponse response;
+		try {
+			response = requestExecutor.execute(route, request, context, execAware);
+		} catch (IOException e) {
+			permit.setDropped();
+			permit.close();
+			throw e;
+		} catch (HttpException | RuntimeException e) {
+			permit.close();
+			throw e;
+		}
+		permit.setStatus(response.getStatusLine().getStatusCode());
+
+		HttpEntity entity = response.getEntity();
+		if (entity == null || !entity.isStreaming()) {
+			// Nothing left to read from the connection
+			permit.close();
+			return response;
+		}
+		response.setEntity(new PermitEntity(entity, permit));
+		return (CloseableHttpResponse) Proxy.newProxyInstance(CloseableHttpResponse.class.getClassLoader(),
+				new Class<?>[] { CloseableHttpResponse.class }, new PermitResponse(response, permit));
+	}
+
+	/**
+	 * Response entity that releases the permit when its content is read to the end, closed or aborted.
+	 */
+	private static class PermitEntity extends HttpEntityWrapper implements EofSensorWatcher {
+
+		private final Permit permit;
+
+		PermitEntity(HttpEntity entity, Permit permit) {
+			super(entity);
+			this.permit = permit;
+		}
+
+		@Override
+		public InputStream getContent() throws IOException {
+			return new EofSensorInputStream(super.getContent(), this);
+		}
+
+		@Override
+		public void writeTo(OutputStream out) throws IOException {
+			try {
+				super.writeTo(out);
+			} finally {
+				permit.close();
+			}
+		}
+
+		@Override
+		public boolean eofDetected(InputStream wrapped) {
+			permit.close();
+			return true;
+		}
+
+		@Override
+		public boolean streamClosed(InputStream wrapped) {
+			permit.close();
+			return true;
+		}
+
+		@Override
+		public boolean streamAbort(InputStream wrapped) {
+			permit.close();
+			return true;
+		}
+
+	}
+
+	/**
+	 * Response that releases the permit when it is closed, e.g. without reading its entity.
+	 */
+	private static class PermitResponse implements InvocationHandler {
+
+		private final CloseableHttpResponse response;
+		private final Permit permit;
+
+		PermitResponse(CloseableHttpResponse response, Permit permit) {
+			this.response = response;
+			this.permit = permit;
+		}
+
+		@Override
+		public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+			try {
+				return method.invoke(response, args);
+			} catch (InvocationTargetException e) {
+				throw e.getCause();
+			} finally {
+				if ("close".equals(method.getName()) && method.getParameterTypes().length == 0) {
+					permit.close();
+				}
+			}
+		}
+
+	}
+
+}
@@ -0,0 +1,300 @@
+package com.adyen.examples.common;
+
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.charset.Charset;
+import java.nio.charset.CharsetEncoder;
+import java.nio.charset.CoderResult;
+import java.nio.charset.CodingErrorAction;
+import java.security.GeneralSecurityException;
+import java.util.Arrays;
+import java.util.SortedMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+import javax.crypto.Mac;
+import javax.crypto.spec.SecretKeySpec;
+
+/**
+ * Shared HMAC signing for the Hosted Payment Pages (HPP) signatures
+ *
+ * Creating a Mac and initialising it with the key is expensive compared to signing the few hundred bytes of a HPP
+ * form. A signer is created once per algorithm and key, and keeps an initialised Mac per thread, together with the
+ * buffers used to encode the signing string and the signature. Supported algorithms are HmacSHA1 and HmacSHA256.
+ *
+ * Signatures are returned Base64 encoded, as expected by the HPP (merchantSig, billingAddressSig, etc.).
+ *
+ * For the HMAC-SHA256 signature, {@link #sign(SortedMap)} encodes the signing data (escaped keys and values, separated
+ * by ":") in a single pass, directly into the UTF-8 buffer that is passed to the Mac, without building the signing
+ * string.
+ *
+ * @author Created by Adyen - Payments Made Easy
+ */
+public final class HmacSigner {
+
+	public static final String HMAC_SHA1 = "HmacSHA1";
+	public static final String HMAC_SHA256 = "HmacSHA256";
+
+	private static final Charset UTF8 = Charset.forName("UTF-8");
+
+	private static final char[] BASE64 = "ABCDEFGHIJKLMNOPQRSTUVWXYZabcdefghijklmnopqrstuvwxyz0123456789+/".toCharArray();
+
+	private static final ConcurrentMap<SignerKey, HmacSigner> signers = new ConcurrentHashMap<SignerKey, HmacSigner>();
+
+	private final SecretKeySpec keySpec;
+	private final ThreadLocal<SigningState> state;
+
+	private HmacSigner(String algorithm, byte[] key) throws GeneralSecurityException {
+		keySpec = new SecretKeySpec(key, algorithm);
+
+		// Fail now on an unknown algorithm or invalid key, instead of on every signature
+		createMac(keySpec);
+
+		state = ThreadLocal.withInitial(() -> {
+			try {
+				return new SigningState(createMac(keySpec));
+			} catch (GeneralSecurityException e) {
+				throw new IllegalStateException("Unable to create " + keySpec.getAlgorithm(), e);
+			}
+		});
+	}
+
+	/**
+	 * Returns the signer for the given algorithm (HmacSHA1 or HmacSHA256) and key.
+	 */
+	public static HmacSigner getInstance(String algorithm, byte[] key) throws GeneralSecurityException {
+		SignerKey signerKey = new SignerKey(algorithm, key);
+		HmacSigner signer = signers.get(signerKey);
+		if (signer == null) {
+			signer = new HmacSigner(algorithm, key);
+			HmacSigner existing = signers.putIfAbsent(new SignerKey(algorithm, key.clone()), signer);
+			if (existing != null) {
+				signer = existing;
+			}
+		}
+		return signer;
+	}
+
+	/**
+	 * Computes the Base64 encoded signature of the UTF-8 encoded signing string.
+	 */
+	public String sign(String signingString) throws GeneralSecurityException {
+		SigningState current = begin();
+		current.update(signingString);
+		return current.finish();
+	}
+
+	/**
+	 * Computes the Base64 encoded signature of the given bytes.
+	 */
+	public String sign(byte[] data, int offset, int length) throws GeneralSecurityException {
+		SigningState current = begin();
+		current.mac.update(data, offset, length);
+		return current.finish();
+	}
+
+	/**
+	 * Computes the Base64 encoded signature of the signing data of the given HPP parameters: all keys followed by all
+	 * values, in the order of the map, separated by ":". In keys and values, "\" is escaped as "\\" and ":" as "\:".
+	 * A null value is signed as an empty string.
+	 */
+	public String sign(SortedMap<String, String> parameters) throws GeneralSecurityException {
+		SigningState current = begin();
+		boolean first = true;
+
+		for (String key : parameters.keySet()) {
+			if (!first) {
+				current.updateSeparator();
+			}
+			current.updateEscaped(key);
+			first = false;
+		}
+
+		for (String value : parameters.values()) {
+			if (!first) {
+				current.updateSeparator();
+			}
+			if (value != null) {
+				current.updateEscaped(value);
+			}
+			first = false;
+		}
+
+		current.flush();
+		return current.finish();
+	}
+
+	public String getAlgorithm() {
+		return keySpec.getAlgorithm();
+	}
+
+	/**
+	 * Returns the state of the current thread, cleared of anything a signature that failed halfway left behind.
+	 */
+	private SigningState begin() {
+		SigningState current = state.get();
+		current.reset();
+		return current;
+	}
+
+	private static Mac createMac(SecretKeySpec keySpec) throws GeneralSecurityException {
+		Mac mac = Mac.getInstance(keySpec.getAlgorithm());
+		mac.init(keySpec);
+		return mac;
+	}
+
+	/**
+	 * Initialised Mac and buffers of a single thread.
+	 */
+	private static final class SigningState {
+
+		private final Mac mac;
+		private final CharsetEncoder encoder = UTF8.newEncoder()
+				.onMalformedInput(CodingErrorAction.REPLACE)
+				.onUnmappableCharacter(CodingErrorAction.REPLACE);
+		private final ByteBuffer input = ByteBuffer.allocate(1024);
+		private final byte[] signature;
+		private final char[] encoded;
+
+		private SigningState(Mac mac) {
+			this.mac = mac;
+			this.signature = new byte[mac.getMacLength()];
+			this.encoded = new char[(signature.length + 2) / 3 * 4];
+		}
+
+		private void reset() {
+			mac.reset();
+			input.clear();
+			encoder.reset();
+		}
+
+		/**
+		 * Encodes the string to UTF-8 in the input buffer, passing every full buffer to the Mac.
+		 */
+		private void update(String data) {
+			CharBuffer chars = CharBuffer.wrap(data);
+			encoder.reset();
+
+			// Malformed input is replaced, so the only results are underflow (done) and overflow (buffer full)
+			CoderResult result;
+			do {
+				result = encoder.encode(chars, input, true);
+				flush();
+			} while (result.isOverflow());
+
+			do {
+				result = encoder.flush(input);
+				flush();
+			} while (result.isOverflow());
+		}
+
+		/**
+		 * Encodes the escaped text to UTF-8 in the input buffer, passing every full buffer to the Mac. Gives the same
+		 * bytes as text.replace("\\", "\\\\").replace(":", "\\:").getBytes("UTF-8").
+		 */
+		private void updateEscaped(String text) {
+			byte[] buffer = input.array();
+			int position = input.position();
+			int length = text.length();
+
+			for (int i = 0; i < length; i++) {
+				// Make sure the longest encoding of a single character (4 bytes) fits
+				if (position > buffer.length - 4) {
+					input.position(position);
+					flush();
+					position = 0;
+				}
+
+				char c = text.charAt(i);
+				if (c < 0x80) {
+					if (c == '\\' || c == ':') {
+						buffer[position++] = '\\';
+					}
+					buffer[position++] = (byte) c;
+				}
+				else if (c < 0x800) {
+					buffer[position++] = (byte) (0xc0 | (c >> 6));
+					buffer[position++] = (byte) (0x80 | (c & 0x3f));
+				}
+				else if (!Character.isSurrogate(c)) {
+					buffer[position++] = (byte) (0xe0 | (c >> 12));
+					buffer[position++] = (byte) (0x80 | ((c >> 6) & 0x3f));
+					buffer[position++] = (byte) (0x80 | (c & 0x3f));
+				}
+				else if (Character.isHighSurrogate(c) && i + 1 < length && Character.isLowSurrogate(text.charAt(i + 1))) {
+					int codePoint = Character.toCodePoint(c, text.charAt(++i));
+					buffer[position++] = (byte) (0xf0 | (codePoint >> 18));
+					buffer[position++] = (byte) (0x80 | ((codePoint >> 12) & 0x3f));
+					buffer[position++] = (byte) (0x80 | ((codePoint >> 6) & 0x3f));
+					buffer[position++] = (byte) (0x80 | (codePoint & 0x3f));
+				}
+				else {
+					// Unpaired surrogate, replaced like String.getBytes does
+					buffer[position++] = '?';
+				}
+			}
+
+			input.position(position);
+		}
+
+		private void updateSeparator() {
+			if (!input.hasRemaining()) {
+				flush();
+			}
+			input.put((byte) ':');
+		}
+
+		private void flush() {
+			input.flip();
+			mac.update(input);
+			input.clear();
+		}
+
+		private String finish() throws GeneralSecurityException {
+			mac.doFinal(signature, 0);
+
+			int length = 0;
+			for (int i = 0; i < signature.length; i += 3) {
+				int b0 = signature[i] & 0xff;
+				int b1 = i + 1 < signature.length ? signature[i + 1] & 0xff : 0;
+				int b2 = i + 2 < signature.length ? signature[i + 2] & 0xff : 0;
+
+				encoded[length++] = BASE64[b0 >>> 2];
+				encoded[length++] = BASE64[((b0 & 0x03) << 4) | (b1 >>> 4)];
+				encoded[length++] = i + 1 < signature.length ? BASE64[((b1 & 0x0f) << 2) | (b2 >>> 6)] : '=';
+				encoded[length++] = i + 2 < signature.length ? BASE64[b2 & 0x3f] : '=';
+			}
+			return new String(encoded, 0, length);
+		}
+
+	}
+
+	private static final class SignerKey {
+
+		private final String algorithm;
+		private final byte[] key;
+		private final int hash;
+
+		private SignerKey(String algorithm, byte[] key) {
+			this.algorithm = algorithm;
+			this.key = key;
+			this.hash = 31 * algorithm.hashCode() + Arrays.hashCode(key);
+		}
+
+		@Override
+		public int hashCode() {
+			return hash;
+		}
+
+		@Override
+		public boolean equals(Object obj) {
+			if (!(obj instanceof SignerKey)) {
+				return false;
+			}
+			SignerKey other = (SignerKey) obj;
+			return algorithm.equals(other.algorithm) && Arrays.equals(key, other.key);
+		}
+
+	}
+
+}
@@ -0,0 +1,220 @@
+package com.adyen.examples.common;
+
+import java.util.ArrayDeque;
+import java.util.Arrays;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Results of payment submissions by idempotency key, so a duplicate submission is never sent to Adyen twice
+ *
+ * A double click on the pay button, or a retry of the browser, submits the same payment again. With an idempotency key
+ * that identifies the payment (e.g. an Idempotency-Key header, or the merchant reference), a submission is handled as
+ * follows:
+ *
+ * <pre>
+ * - first submission              : sent to Adyen, the result is kept for the window.
+ * - duplicate while in flight     : waits for the result of the first submission.
+ * - duplicate within the window   : answered with the result of the first submission, without calling Adyen.
+ * - duplicate after the window    : sent to Adyen again.
+ * </pre>
+ *
+ * Every submission comes with a hash of its request (e.g. {@link com.adyen.examples.common.json.JsonCodec#digest}).
+ * A key that is submitted again with another request, e.g. a reused Idempotency-Key header, is rejected with an
+ * {@link IdempotencyConflictException} instead of being answered with the result of the other request.
+ *
+ * Only results are kept; when the first submission fails (e.g. it is rejected by Adyen, or the connection fails), the
+ * waiting duplicates fail as well, and the next submission is sent to Adyen again. Note that the results are kept in
+ * memory, so duplicates are only recognised by the same server.
+ *
+ * @author Created by Adyen - Payments Made Easy
+ */
+public final class IdempotencyCache<V> {
+
+	/**
+	 * Submits the payment to Adyen.
+	 */
+	public interface Submission<V> {
+
+		V submit() throws Exception;
+
+	}
+
+	/**
+	 * Cache settings
+	 * - DEFAULT_WINDOW_MILLIS: how long the result of a submission is returned for its duplicates
+	 * - DEFAULT_MAX_ENTRIES: maximum number of kept results; the oldest results are dropped first
+	 */
+	public static final long DEFAULT_WINDOW_MILLIS = TimeUnit.MINUTES.toMillis(15);
+	public static final int DEFAULT_MAX_ENTRIES = 100000;
+
+	private final ConcurrentMap<String, Entry<V>> entries = new ConcurrentHashMap<String, Entry<V>>();
+	private final ConcurrentMap<String, Entry<V>> inFlight = new ConcurrentHashMap<String, Entry<V>>();
+	// Kept results in the order they were stored, so the oldest are dropped from the head; guarded by itself
+	private final ArrayDeque<Entry<V>> insertionOrder = new ArrayDeque<Entry<V>>();
+	private final long windowMillis;
+	private final int maxEntries;
+
+	private final AtomicLong hitCount = new AtomicLong();
+	private final AtomicLong inFlightHitCount = new AtomicLong();
+	private final AtomicLong missCount = new AtomicLong();
+
+	public IdempotencyCache() {
+		this(DEFAULT_WINDOW_MILLIS, DEFAULT_MAX_ENTRIES);
+	}
+
+	public IdempotencyCache(long windowMillis, int maxEntries) {
+		this.windowMillis = windowMillis;
+		this.maxEntries = maxEntries;
+	}
+
+	/**
+	 * Returns the result of the submission with the given idempotency key, submitting it if it was not submitted
+	 * within the window. A failure of the submission is thrown as ExecutionException.
+	 *
+	 * @param requestHash hash of the submitted request, which must be the same for every submission of the key
+	 * @throws IdempotencyConflictException if the key was submitted with another request
+	 */
+	public V submit(String idempotencyKey, byte[] requestHash, Submission<V> submission) throws ExecutionException,
+			IdempotencyConflictException {
+		Entry<V> entry = entries.get(idempotencyKey);
+		if (entry != null) {
+			if (System.currentTimeMillis() - entry.createdAt < windowMillis) {
+				entry.checkRequest(requestHash);
+				hitCount.incrementAndGet();
+				return entry.value;
+			}
+			entries.remove(idempotencyKey, entry);
+		}
+
+		Entry<V> pending = new Entry<V>(idempotencyKey, requestHash, null, System.currentTimeMillis(),
+				new CompletableFuture<V>());
+		Entry<V> existing = inFlight.putIfAbsent(idempotencyKey, pending);
+
+		if (existing != null) {
+			// The same payment is being submitted right now, wait for its result
+			existing.checkRequest(requestHash);
+			inFlightHitCount.incrementAndGet();
+			try {
+				return existing.future.get();
+			} catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+				throw new ExecutionException(e);
+			}
+		}
+
+		// The result may have been stored just before this submission became the one in flight
+		entry = entries.get(idempotencyKey);
+		if (entry != null && System.currentTimeMillis() - entry.createdAt < windowMillis) {
+			inFlight.remove(idempotencyKey, pending);
+			pending.future.complete(entry.value);
+			entry.checkRequest(requestHash);
+			hitCount.incrementAndGet();
+			return entry.value;
+		}
+
+		missCount.incrementAndGet();
+		try {
+			V value = submission.submit();
+			put(idempotencyKey, requestHash, value);
+			pending.future.complete(value);
+			return value;
+		} catch (Exception e) {
+			pending.future.completeExceptionally(e);
+			throw new ExecutionException(e);
+		} finally {
+			inFlight.remove(idempotencyKey, pending);
+		}
+	}
+
+	/**
+	 * Removes all kept results.
+	 */
+	public void clear() {
+		synchronized (insertionOrder) {
+			insertionOrder.clear();
+			entries.clear();
+		}
+	}
+
+	public int size() {
+		return entries.size();
+	}
+
+	/**
+	 * Number of duplicates answered with a kept result.
+	 */
+	public long getHitCount() {
+		return hitCount.get();
+	}
+
+	/**
+	 * Number of duplicates that waited for the submission in flight.
+	 */
+	public long getInFlightHitCount() {
+		return inFlightHitCount.get();
+	}
+
+	/**
+	 * Number of submissions sent to Adyen.
+	 */
+	public long getMissCount() {
+		return missCount.get();
+	}
+
+	/**
+	 * Keeps a result, and drops the results outside the window and the oldest results above the maximum from the head
+	 * of the insertion order. All results have the same window, so the oldest are always at the head.
+	 */
+	private void put(String idempotencyKey, byte[] requestHash, V value) {
+		long now = System.currentTimeMillis();
+		Entry<V> entry = new Entry<V>(idempotencyKey, requestHash, value, now, null);
+
+		synchronized (insertionOrder) {
+			entries.put(idempotencyKey, entry);
+			insertionOrder.addLast(entry);
+
+			// The order may still hold results that were replaced or removed, they are dropped the same way
+			Entry<V> oldest;
+			while ((oldest = insertionOrder.peekFirst()) != null
+					&& (insertionOrder.size() > maxEntries || now - oldest.createdAt >= windowMillis)) {
+				insertionOrder.pollFirst();
+				entries.remove(oldest.key, oldest);
+			}
+		}
+	}
+
+	/**
+	 * Kept result of a submission, or the submission in flight with its future.
+	 */
+	private static final class Entry<V> {
+
+		private final String key;
+		private final byte[] requestHash;
+		private final V value;
+		private final long createdAt;
+		// Only set while the submission is in flight
+		private final CompletableFuture<V> future;
+
+		private Entry(String key, byte[] requestHash, V value, long createdAt, CompletableFuture<V> future) {
+			this.key = key;
+			this.requestHash = requestHash;
+			this.value = value;
+			this.createdAt = createdAt;
+			this.future = future;
+		}
+
+		private void checkRequest(byte[] otherRequestHash) throws IdempotencyConflictException {
+			if (!Arrays.equals(requestHash, otherRequestHash)) {
+				throw new IdempotencyConflictException("Idempotency key " + key
+						+ " was already submitted with another request");
+			}
+		}
+
+	}
+
+}
@@ -0,0 +1,18 @@
+package com.adyen.examples.common;
+
+/**
+ * Thrown by the {@link IdempotencyCache} when an idempotency key is submitted again with another request than the
+ * one it was first submitted with, e.g. a reused Idempotency-Key header or merchant reference. The request has not
+ * been sent to Adyen; answer it with an error (e.g. HTTP 409 Conflict) instead of the result of the other request.
+ *
+ * @author Created by Adyen - Payments Made Easy
+ */
+public class IdempotencyConflictException extends Exception {
+
+	private static final long serialVersionUID = 1L;
+
+	public IdempotencyConflictException(String message) {
+		super(message);
+	}
+
+}
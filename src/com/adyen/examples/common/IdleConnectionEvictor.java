@@ -0,0 +1,39 @@
+package com.adyen.examples.common;
+
+/**
+ * Background thread closing expired and idle connections of a connection pool
+ */
+abstract class IdleConnectionEvictor extends Thread {
+
+	private final long idleTimeoutMillis;
+	private volatile boolean running = true;
+
+	IdleConnectionEvictor(String name, long idleTimeoutMillis) {
+		super(name);
+		setDaemon(true);
+		this.idleTimeoutMillis = idleTimeoutMillis;
+	}
+
+	/**
+	 * Closes the expired connections and the connections that are idle for longer than the given period.
+	 */
+	protected abstract void evict(long idleTimeoutMillis);
+
+	@Override
+	public void run() {
+		while (running) {
+			try {
+				Thread.sleep(Math.max(1000, idleTimeoutMillis / 6));
+			} catch (InterruptedException e) {
+				return;
+			}
+			evict(idleTimeoutMillis);
+		}
+	}
+
+	void shutdown() {
+		running = false;
+		interrupt();
+	}
+
+}
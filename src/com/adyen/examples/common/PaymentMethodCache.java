@@ -0,0 +1,305 @@
+package com.adyen.examples.common;
+
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Cache for the payment methods returned by the directory service (directory.shtml)
+ *
+ * The payment methods available for a skin rarely change, so they do not have to be requested for every page view.
+ * Payment methods are cached per skinCode, merchantAccount, countryCode, currencyCode and amount bucket (amounts
+ * within the same power of two share their payment methods):
+ *
+ * <pre>
+ * - younger than the TTL           : returned from the cache.
+ * - older than the TTL (stale)     : returned from the cache, while they are refreshed in the background.
+ * - older than TTL + max staleness : requested again before they are returned.
+ * </pre>
+ *
+ * When several requests need the same payment methods at the same time, only one of them calls the directory
+ * service; the others wait for its result. A failed background refresh keeps the stale payment methods.
+ *
+ * @author Created by Adyen - Payments Made Easy
+ */
+public final class PaymentMethodCache<V> {
+
+	/**
+	 * Requests the payment methods from the directory service.
+	 */
+	public interface Loader<V> {
+
+		V load() throws Exception;
+
+	}
+
+	/**
+	 * Cache settings
+	 * - DEFAULT_TTL_MILLIS: how long cached payment methods are fresh
+	 * - DEFAULT_MAX_STALE_MILLIS: how long stale payment methods may be returned while they are refreshed
+	 * - DEFAULT_MAX_ENTRIES: maximum number of cached payment method lists
+	 * - REFRESH_THREADS: number of threads refreshing stale payment methods (shared by all caches)
+	 */
+	public static final long DEFAULT_TTL_MILLIS = TimeUnit.MINUTES.toMillis(15);
+	public static final long DEFAULT_MAX_STALE_MILLIS = TimeUnit.HOURS.toMillis(1);
+	public static final int DEFAULT_MAX_ENTRIES = 10000;
+	private static final int REFRESH_THREADS = 2;
+
+	private static final ThreadPoolExecutor refreshExecutor = createRefreshExecutor();
+
+	private final ConcurrentMap<Key, Entry<V>> entries = new ConcurrentHashMap<Key, Entry<V>>();
+	private final ConcurrentMap<Key, CompletableFuture<V>> loading = new ConcurrentHashMap<Key, CompletableFuture<V>>();
+	private final long ttlMillis;
+	private final long maxStaleMillis;
+	private final int maxEntries;
+
+	private final AtomicLong hitCount = new AtomicLong();
+	private final AtomicLong staleHitCount = new AtomicLong();
+	private final AtomicLong missCount = new AtomicLong();
+	private final AtomicLong loadCount = new AtomicLong();
+
+	public PaymentMethodCache() {
+		this(DEFAULT_TTL_MILLIS, DEFAULT_MAX_STALE_MILLIS, DEFAULT_MAX_ENTRIES);
+	}
+
+	public PaymentMethodCache(long ttlMillis, long maxStaleMillis, int maxEntries) {
+		this.ttlMillis = ttlMillis;
+		this.maxStaleMillis = maxStaleMillis;
+		this.maxEntries = maxEntries;
+	}
+
+	/**
+	 * Returns the cached payment methods for the key, using the loader if they are not cached (or too old) and to
+	 * refresh them when they are stale. A failure of the loader is thrown as ExecutionException.
+	 */
+	public V get(Key key, Loader<V> loader) throws ExecutionException {
+		Entry<V> entry = entries.get(key);
+		if (entry != null) {
+			long age = System.currentTimeMillis() - entry.loadedAt;
+			if (age < ttlMillis) {
+				hitCount.incrementAndGet();
+				return entry.value;
+			}
+			if (age < ttlMillis + maxStaleMillis) {
+				staleHitCount.incrementAndGet();
+				refresh(key, loader);
+				return entry.value;
+			}
+		}
+
+		missCount.incrementAndGet();
+		return load(key, loader);
+	}
+
+	/**
+	 * Removes all cached payment methods.
+	 */
+	public void clear() {
+		entries.clear();
+	}
+
+	public int size() {
+		return entries.size();
+	}
+
+	public long getHitCount() {
+		return hitCount.get();
+	}
+
+	public long getStaleHitCount() {
+		return staleHitCount.get();
+	}
+
+	public long getMissCount() {
+		return missCount.get();
+	}
+
+	/**
+	 * Number of calls to the directory service.
+	 */
+	public long getLoadCount() {
+		return loadCount.get();
+	}
+
+	private V load(Key key, Loader<V> loader) throws ExecutionException {
+		CompletableFuture<V> future = new CompletableFuture<V>();
+		CompletableFuture<V> existing = loading.putIfAbsent(key, future);
+
+		if (existing != null) {
+			// Another request is already loading these payment methods, wait for its result
+			try {
+				return existing.get();
+			} catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+				throw new ExecutionException(e);
+			}
+		}
+
+		try {
+			V value = loader.load();
+			loadCount.incrementAndGet();
+			put(key, value);
+			future.complete(value);
+			return value;
+		} catch (Exception e) {
+			future.completeExceptionally(e);
+			throw new ExecutionException(e);
+		} finally {
+			loading.remove(key, future);
+		}
+	}
+
+	private void refresh(final Key key, final Loader<V> loader) {
+		final CompletableFuture<V> future = new CompletableFuture<V>();
+		if (loading.putIfAbsent(key, future) != null) {
+			// Already being loaded or refreshed
+			return;
+		}
+
+		try {
+			refreshExecutor.execute(() -> {
+				try {
+					V value = loader.load();
+					loadCount.incrementAndGet();
+					put(key, value);
+					future.complete(value);
+				} catch (Exception e) {
+					// Keep the stale payment methods, the next request will try again
+					future.completeExceptionally(e);
+				} finally {
+					loading.remove(key, future);
+				}
+			});
+		} catch (RejectedExecutionException e) {
+			loading.remove(key, future);
+		}
+	}
+
+	private void put(Key key, V value) {
+		if (entries.size() >= maxEntries && !entries.containsKey(key)) {
+			evictOldest();
+		}
+		entries.put(key, new Entry<V>(value, System.currentTimeMillis()));
+	}
+
+	private void evictOldest() {
+		Key oldestKey = null;
+		long oldestLoadedAt = Long.MAX_VALUE;
+		for (Map.Entry<Key, Entry<V>> candidate : entries.entrySet()) {
+			if (candidate.getValue().loadedAt < oldestLoadedAt) {
+				oldestLoadedAt = candidate.getValue().loadedAt;
+				oldestKey = candidate.getKey();
+			}
+		}
+		if (oldestKey != null) {
+			entries.remove(oldestKey);
+		}
+	}
+
+	private static ThreadPoolExecutor createRefreshExecutor() {
+		final AtomicInteger threadNumber = new AtomicInteger();
+		ThreadPoolExecutor executor = new ThreadPoolExecutor(REFRESH_THREADS, REFRESH_THREADS, 60, TimeUnit.SECONDS,
+				new LinkedBlockingQueue<Runnable>(DEFAULT_MAX_ENTRIES), runnable -> {
+					Thread thread = new Thread(runnable, "payment-method-refresh-" + threadNumber.incrementAndGet());
+					thread.setDaemon(true);
+					return thread;
+				});
+
+		// Do not keep threads when nothing needs to be refreshed
+		executor.allowCoreThreadTimeOut(true);
+		return executor;
+	}
+
+	/**
+	 * Identifies a list of payment methods.
+	 */
+	public static final class Key {
+
+		private final String skinCode;
+		private final String merchantAccount;
+		private final String countryCode;
+		private final String currencyCode;
+		private final int amountBucket;
+		private final int hash;
+
+		private Key(String skinCode, String merchantAccount, String countryCode, String currencyCode, int amountBucket) {
+			this.skinCode = String.valueOf(skinCode);
+			this.merchantAccount = String.valueOf(merchantAccount);
+			this.countryCode = String.valueOf(countryCode);
+			this.currencyCode = String.valueOf(currencyCode);
+			this.amountBucket = amountBucket;
+
+			int h = this.skinCode.hashCode();
+			h = 31 * h + this.merchantAccount.hashCode();
+			h = 31 * h + this.countryCode.hashCode();
+			h = 31 * h + this.currencyCode.hashCode();
+			this.hash = 31 * h + amountBucket;
+		}
+
+		/**
+		 * Creates the key for a directory request; the paymentAmount is in minor units (e.g. "100" for EUR 1,00).
+		 */
+		public static Key of(String skinCode, String merchantAccount, String countryCode, String currencyCode,
+				String paymentAmount) {
+			return new Key(skinCode, merchantAccount, countryCode, currencyCode, amountBucket(paymentAmount));
+		}
+
+		/**
+		 * Returns the power of two bucket of an amount: 0 for 0, 1 for 1, 2 for 2-3, 3 for 4-7, etc.
+		 */
+		static int amountBucket(String paymentAmount) {
+			long amount;
+			try {
+				amount = Long.parseLong(paymentAmount);
+			} catch (NumberFormatException e) {
+				return -1;
+			}
+			return amount <= 0 ? 0 : 64 - Long.numberOfLeadingZeros(amount);
+		}
+
+		@Override
+		public int hashCode() {
+			return hash;
+		}
+
+		@Override
+		public boolean equals(Object obj) {
+			if (!(obj instanceof Key)) {
+				return false;
+			}
+			Key other = (Key) obj;
+			return amountBucket == other.amountBucket
+					&& skinCode.equals(other.skinCode)
+					&& merchantAccount.equals(other.merchantAccount)
+					&& countryCode.equals(other.countryCode)
+					&& currencyCode.equals(other.currencyCode);
+		}
+
+		@Override
+		public String toString() {
+			return skinCode + "/" + merchantAccount + "/" + countryCode + "/" + currencyCode + "/" + amountBucket;
+		}
+
+	}
+
+	private static final class Entry<V> {
+
+		private final V value;
+		private final long loadedAt;
+
+		private Entry(V value, long loadedAt) {
+			this.value = value;
+			this.loadedAt = loadedAt;
+		}
+
+	}
+
+}
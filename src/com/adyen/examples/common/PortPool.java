@@ -0,0 +1,73 @@
+package com.adyen.examples.common;
+
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+
+import javax.xml.ws.BindingProvider;
+
+/**
+ * Pool of preconfigured SOAP clients (port proxies)
+ *
+ * A port proxy keeps its settings (endpoint address, HTTP Authentication) in its request context, which is not safe to
+ * share between threads. Creating a proxy is cheap compared to creating the service, but still not free; this pool
+ * keeps a limited number of idle proxies for reuse, with the settings already applied.
+ *
+ * Always return a borrowed client with {@link #release(Object)}, preferably in a finally block.
+ *
+ * @author Created by Adyen - Payments Made Easy
+ */
+public class PortPool<T> {
+
+	/**
+	 * Creates new, fully configured port proxies for the pool.
+	 */
+	public interface PortFactory<T> {
+		T create();
+	}
+
+	private final PortFactory<T> factory;
+	private final BlockingQueue<T> idlePorts;
+
+	public PortPool(PortFactory<T> factory, int maxIdle) {
+		this.factory = factory;
+		this.idlePorts = new ArrayBlockingQueue<T>(maxIdle);
+	}
+
+	/**
+	 * Returns an idle port proxy from the pool, or creates a new one if none is available.
+	 */
+	public T borrow() {
+		T port = idlePorts.poll();
+		return port != null ? port : factory.create();
+	}
+
+	/**
+	 * Returns a port proxy to the pool. The proxy is dropped when the pool is full.
+	 */
+	public void release(T port) {
+		if (port != null) {
+			idlePorts.offer(port);
+		}
+	}
+
+	/**
+	 * Number of idle port proxies in the pool.
+	 */
+	public int getIdleCount() {
+		return idlePorts.size();
+	}
+
+	/**
+	 * Applies the endpoint address and HTTP Authentication to a new port proxy.
+	 */
+	static <T> T configure(T port, String endpointAddress, String wsUser, String wsPassword) {
+		BindingProvider bindingProvider = (BindingProvider) port;
+		if (endpointAddress != null) {
+			bindingProvider.getRequestContext().put(BindingProvider.ENDPOINT_ADDRESS_PROPERTY, endpointAddress);
+		}
+		bindingProvider.getRequestContext().put(BindingProvider.USERNAME_PROPERTY, wsUser);
+		bindingProvider.getRequestContext().put(BindingProvider.PASSWORD_PROPERTY, wsPassword);
+		return port;
+	}
+
+}
@@ -0,0 +1,334 @@
+package com.adyen.examples.common;
+
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Cache for the recurring details of shoppers (listRecurringDetails)
+ *
+ * A one-click checkout page shows the stored details of the shopper, so without a cache every page view calls the
+ * Recurring service. Recurring details are cached per merchantAccount, shopperReference and contract (e.g. ONECLICK or
+ * RECURRING). The details of a shopper change only when details are stored or disabled, so cached details are dropped
+ * as soon as that happens:
+ *
+ * <pre>
+ * - disable                        : call invalidateShopper after the disable request (see DisableRecurringContract).
+ * - RECURRING_CONTRACT notification : details were stored for the shopper.
+ * - AUTHORISATION notification      : a payment stored or used details of the shopper.
+ * </pre>
+ *
+ * The notifications are handled by RecurringDetailInvalidator. The details of at most maxShoppers shoppers are kept;
+ * the shoppers whose details were used least recently are dropped first. As the details may also be changed through
+ * another server (or the notification may not reach this one), cached details are not used after the TTL.
+ *
+ * When several requests need the same details at the same time, only one of them calls the Recurring service; the
+ * others wait for its result. Details that are being requested while they are invalidated are not cached.
+ *
+ * Every cache is registered, so invalidateShopper drops the details from all caches (JSON, SOAP and Library). Create a
+ * cache once, e.g. as a static field.
+ *
+ * @author Created by Adyen - Payments Made Easy
+ */
+public final class RecurringDetailCache<V> {
+
+	/**
+	 * Requests the recurring details from the Recurring service.
+	 */
+	public interface Loader<V> {
+
+		V load() throws Exception;
+
+	}
+
+	/**
+	 * Cache settings
+	 * - DEFAULT_TTL_MILLIS: how long cached details are used when they are not invalidated
+	 * - DEFAULT_MAX_SHOPPERS: maximum number of shoppers whose details are cached
+	 */
+	public static final long DEFAULT_TTL_MILLIS = TimeUnit.MINUTES.toMillis(10);
+	public static final int DEFAULT_MAX_SHOPPERS = 10000;
+
+	private static final List<RecurringDetailCache<?>> caches = new CopyOnWriteArrayList<RecurringDetailCache<?>>();
+
+	private final Object lock = new Object();
+	private final LinkedHashMap<Shopper, Map<String, CachedDetails<V>>> shoppers;
+	private final Map<Key, CompletableFuture<V>> loading = new HashMap<Key, CompletableFuture<V>>();
+	private final long ttlMillis;
+
+	private final AtomicLong hitCount = new AtomicLong();
+	private final AtomicLong missCount = new AtomicLong();
+	private final AtomicLong loadCount = new AtomicLong();
+	private final AtomicLong invalidationCount = new AtomicLong();
+	private final AtomicLong evictionCount = new AtomicLong();
+
+	public RecurringDetailCache() {
+		this(DEFAULT_TTL_MILLIS, DEFAULT_MAX_SHOPPERS);
+	}
+
+	public RecurringDetailCache(long ttlMillis, final int maxShoppers) {
+		this.ttlMillis = ttlMillis;
+
+		// In access order, so the eldest shopper is the one whose details were used least recently
+		this.shoppers = new LinkedHashMap<Shopper, Map<String, CachedDetails<V>>>(16, 0.75f, true) {
+
+			private static final long serialVersionUID = 1L;
+
+			@Override
+			protected boolean removeEldestEntry(Map.Entry<Shopper, Map<String, CachedDetails<V>>> eldest) {
+				if (size() > maxShoppers) {
+					evictionCount.incrementAndGet();
+					return true;
+				}
+				return false;
+			}
+
+		};
+		caches.add(this);
+	}
+
+	/**
+	 * Drops the cached details of a shopper from all caches, e.g. after disabling details.
+	 */
+	public static void invalidateShopper(String merchantAccount, String shopperReference) {
+		Shopper shopper = new Shopper(merchantAccount, shopperReference);
+		for (RecurringDetailCache<?> cache : caches) {
+			cache.invalidate(shopper);
+		}
+	}
+
+	/**
+	 * Drops the cached details of all shoppers of a merchant account from all caches, e.g. when a notification does
+	 * not tell the shopper.
+	 */
+	public static void invalidateMerchantAccount(String merchantAccount) {
+		String account = String.valueOf(merchantAccount);
+		for (RecurringDetailCache<?> cache : caches) {
+			cache.invalidateAll(account);
+		}
+	}
+
+	/**
+	 * Returns the cached details of the shopper for the contract, using the loader if they are not cached (or too
+	 * old). A failure of the loader is thrown as ExecutionException.
+	 */
+	public V get(String merchantAccount, String shopperReference, String contract, Loader<V> loader)
+			throws ExecutionException {
+		Key key = new Key(new Shopper(merchantAccount, shopperReference), String.valueOf(contract));
+
+		CompletableFuture<V> future;
+		CompletableFuture<V> existing;
+		synchronized (lock) {
+			Map<String, CachedDetails<V>> contracts = shoppers.get(key.shopper);
+			CachedDetails<V> entry = contracts != null ? contracts.get(key.contract) : null;
+			if (entry != null && System.currentTimeMillis() - entry.loadedAt < ttlMillis) {
+				hitCount.incrementAndGet();
+				return entry.value;
+			}
+
+			missCount.incrementAndGet();
+			existing = loading.get(key);
+			future = existing != null ? existing : new CompletableFuture<V>();
+			if (existing == null) {
+				loading.put(key, future);
+			}
+		}
+
+		if (existing != null) {
+			// Another request is already loading these details, wait for its result
+			try {
+				return existing.get();
+			} catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+				throw new ExecutionException(e);
+			}
+		}
+
+		try {
+			V value = loader.load();
+			loadCount.incrementAndGet();
+			synchronized (lock) {
+				// Only cache the details if they were not invalidated while they were loaded
+				if (loading.get(key) == future) {
+					loading.remove(key);
+					put(key, value);
+				}
+			}
+			future.complete(value);
+			return value;
+		} catch (Exception e) {
+			synchronized (lock) {
+				loading.remove(key, future);
+			}
+			future.completeExceptionally(e);
+			throw new ExecutionException(e);
+		}
+	}
+
+	/**
+	 * Removes all cached details.
+	 */
+	public void clear() {
+		synchronized (lock) {
+			shoppers.clear();
+			loading.clear();
+		}
+	}
+
+	/**
+	 * Number of shoppers whose details are cached.
+	 */
+	public int size() {
+		synchronized (lock) {
+			return shoppers.size();
+		}
+	}
+
+	public long getHitCount() {
+		return hitCount.get();
+	}
+
+	public long getMissCount() {
+		return missCount.get();
+	}
+
+	/**
+	 * Number of calls to the Recurring service.
+	 */
+	public long getLoadCount() {
+		return loadCount.get();
+	}
+
+	/**
+	 * Number of shoppers whose details were dropped because they were changed.
+	 */
+	public long getInvalidationCount() {
+		return invalidationCount.get();
+	}
+
+	/**
+	 * Number of shoppers whose details were dropped to make room for others.
+	 */
+	public long getEvictionCount() {
+		return evictionCount.get();
+	}
+
+	private void put(Key key, V value) {
+		Map<String, CachedDetails<V>> contracts = shoppers.get(key.shopper);
+		if (contracts == null) {
+			// Most shoppers have a single contract
+			contracts = new HashMap<String, CachedDetails<V>>(2);
+			shoppers.put(key.shopper, contracts);
+		}
+		contracts.put(key.contract, new CachedDetails<V>(value, System.currentTimeMillis()));
+	}
+
+	private void invalidate(Shopper shopper) {
+		synchronized (lock) {
+			if (shoppers.remove(shopper) != null) {
+				invalidationCount.incrementAndGet();
+			}
+			for (Iterator<Key> keys = loading.keySet().iterator(); keys.hasNext();) {
+				if (keys.next().shopper.equals(shopper)) {
+					keys.remove();
+				}
+			}
+		}
+	}
+
+	private void invalidateAll(String merchantAccount) {
+		synchronized (lock) {
+			for (Iterator<Shopper> keys = shoppers.keySet().iterator(); keys.hasNext();) {
+				if (keys.next().merchantAccount.equals(merchantAccount)) {
+					keys.remove();
+					invalidationCount.incrementAndGet();
+				}
+			}
+			for (Iterator<Key> keys = loading.keySet().iterator(); keys.hasNext();) {
+				if (keys.next().shopper.merchantAccount.equals(merchantAccount)) {
+					keys.remove();
+				}
+			}
+		}
+	}
+
+	/**
+	 * Identifies a shopper of a merchant account.
+	 */
+	private static final class Shopper {
+
+		private final String merchantAccount;
+		private final String shopperReference;
+		private final int hash;
+
+		private Shopper(String merchantAccount, String shopperReference) {
+			this.merchantAccount = String.valueOf(merchantAccount);
+			this.shopperReference = String.valueOf(shopperReference);
+			this.hash = 31 * this.merchantAccount.hashCode() + this.shopperReference.hashCode();
+		}
+
+		@Override
+		public int hashCode() {
+			return hash;
+		}
+
+		@Override
+		public boolean equals(Object obj) {
+			if (!(obj instanceof Shopper)) {
+				return false;
+			}
+			Shopper other = (Shopper) obj;
+			return shopperReference.equals(other.shopperReference) && merchantAccount.equals(other.merchantAccount);
+		}
+
+	}
+
+	/**
+	 * Identifies the details of a shopper for a contract.
+	 */
+	private static final class Key {
+
+		private final Shopper shopper;
+		private final String contract;
+
+		private Key(Shopper shopper, String contract) {
+			this.shopper = shopper;
+			this.contract = contract;
+		}
+
+		@Override
+		public int hashCode() {
+			return 31 * shopper.hashCode() + contract.hashCode();
+		}
+
+		@Override
+		public boolean equals(Object obj) {
+			if (!(obj instanceof Key)) {
+				return false;
+			}
+			Key other = (Key) obj;
+			return contract.equals(other.contract) && shopper.equals(other.shopper);
+		}
+
+	}
+
+	private static final class CachedDetails<V> {
+
+		private final V value;
+		private final long loadedAt;
+
+		private CachedDetails(V value, long loadedAt) {
+			this.value = value;
+			this.loadedAt = loadedAt;
+		}
+
+	}
+
+}
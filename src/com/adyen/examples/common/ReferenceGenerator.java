@@ -0,0 +1,141 @@
+package com.adyen.examples.common;
+
+import java.time.Instant;
+import java.time.ZoneId;
+import java.time.format.DateTimeFormatter;
+import java.util.concurrent.atomic.AtomicLong;
+
+import com.adyen.examples.common.threedsecure.ThreeDSecureSessions;
+
+/**
+ * Unique references for payments, payouts and modifications
+ *
+ * A reference consists of the given prefix, the current time (per second), the node ID and a sequence number within
+ * that second, for example TEST-PAYMENT-2016-03-01-12:00:00-007-000042. References of the same node are unique and
+ * sort in the order they were generated; the node ID keeps references of different servers apart.
+ *
+ * The second and the sequence number are kept together in a single atomic value, so generating a reference does not
+ * take a lock. The formatted time is cached and only formatted again when the second changes. When more than
+ * MAX_SEQUENCE references are generated within a second, the following references use the next second.
+ *
+ * The node ID is read from the system property com.adyen.examples.nodeId (0-999). Set it to a different value on every
+ * server; only a single server can do without it (node ID 0). A node ID that is not a number from 0 to 999 is refused,
+ * and so is a missing node ID when the servers share their 3-D Secure sessions (see
+ * {@link ThreeDSecureSessions#DATA_SOURCE_PROPERTY}), as that means several servers generate references. A node ID
+ * derived from the host name would not do: two servers can get the same one, and their references would collide.
+ *
+ * @author Created by Adyen - Payments Made Easy
+ */
+public final class ReferenceGenerator {
+
+	/**
+	 * Reference settings
+	 * - NODE_ID_PROPERTY: system property with the node ID of this server
+	 * - SEQUENCE_BITS: number of bits of the sequence number within a second
+	 * - MAX_SEQUENCE: maximum number of references per second (6 digits)
+	 * - MAX_NODE_ID: highest node ID (3 digits)
+	 */
+	public static final String NODE_ID_PROPERTY = "com.adyen.examples.nodeId";
+	private static final int SEQUENCE_BITS = 20;
+	private static final long SEQUENCE_MASK = (1L << SEQUENCE_BITS) - 1;
+	private static final long MAX_SEQUENCE = 999999;
+	private static final int MAX_NODE_ID = 999;
+
+	private static final DateTimeFormatter TIME_FORMAT = DateTimeFormatter.ofPattern("yyyy-MM-dd-HH:mm:ss")
+			.withZone(ZoneId.systemDefault());
+
+	private static final String NODE_ID = String.format("%03d", getNodeId());
+
+	// Second (epoch) in the high bits, sequence number within that second in the low SEQUENCE_BITS bits
+	private static final AtomicLong state = new AtomicLong();
+
+	private static volatile TimePrefix timePrefix = new TimePrefix(0);
+
+	private ReferenceGenerator() {
+	}
+
+	/**
+	 * Returns a new unique reference starting with the given prefix (e.g. "TEST-PAYMENT-").
+	 */
+	public static String next(String prefix) {
+		long now = System.currentTimeMillis() / 1000;
+		long current;
+		long next;
+
+		do {
+			current = state.get();
+			long second = current >>> SEQUENCE_BITS;
+			long sequence = current & SEQUENCE_MASK;
+
+			if (now > second) {
+				next = now << SEQUENCE_BITS;
+			}
+			else if (sequence < MAX_SEQUENCE) {
+				// Same second, or the clock went back: continue the sequence of the last second used
+				next = current + 1;
+			}
+			else {
+				// All sequence numbers of this second are used, continue with the next second
+				next = (second + 1) << SEQUENCE_BITS;
+			}
+		} while (!state.compareAndSet(current, next));
+
+		return format(prefix, next >>> SEQUENCE_BITS, next & SEQUENCE_MASK);
+	}
+
+	private static String format(String prefix, long second, long sequence) {
+		TimePrefix time = timePrefix;
+		if (time.second != second) {
+			time = new TimePrefix(second);
+			timePrefix = time;
+		}
+
+		StringBuilder reference = new StringBuilder(prefix.length() + 34);
+		reference.append(prefix).append(time.text).append('-').append(NODE_ID).append('-');
+
+		// Zero-pad the sequence number to 6 digits, so references sort in order
+		for (long limit = 100000; limit > 1 && sequence < limit; limit /= 10) {
+			reference.append('0');
+		}
+		return reference.append(sequence).toString();
+	}
+
+	private static int getNodeId() {
+		String nodeId = System.getProperty(NODE_ID_PROPERTY);
+		if (nodeId == null || nodeId.trim().isEmpty()) {
+			String dataSource = System.getProperty(ThreeDSecureSessions.DATA_SOURCE_PROPERTY);
+			if (dataSource != null && !dataSource.trim().isEmpty()) {
+				throw new IllegalStateException(NODE_ID_PROPERTY + " is required when several servers share "
+						+ ThreeDSecureSessions.DATA_SOURCE_PROPERTY + "; set it to a different value (0-" + MAX_NODE_ID
+						+ ") on every server");
+			}
+			return 0;
+		}
+
+		try {
+			int id = Integer.parseInt(nodeId.trim());
+			if (id >= 0 && id <= MAX_NODE_ID) {
+				return id;
+			}
+		} catch (NumberFormatException e) {
+			// Reported below
+		}
+		throw new IllegalStateException("Invalid " + NODE_ID_PROPERTY + ": " + nodeId + " (0-" + MAX_NODE_ID + ")");
+	}
+
+	/**
+	 * Formatted time of a single second.
+	 */
+	private static final class TimePrefix {
+
+		private final long second;
+		private final String text;
+
+		private TimePrefix(long second) {
+			this.second = second;
+			this.text = TIME_FORMAT.format(Instant.ofEpochSecond(second));
+		}
+
+	}
+
+}
@@ -0,0 +1,187 @@
+package com.adyen.examples.common;
+
+import java.net.MalformedURLException;
+import java.net.URI;
+import java.net.URISyntaxException;
+import java.net.URL;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+import javax.xml.ws.BindingProvider;
+import javax.xml.ws.Service;
+import javax.xml.ws.WebServiceException;
+
+import com.adyen.examples.common.limit.LimitingSoapHandler;
+import com.adyen.services.payment.PaymentPortType;
+import com.adyen.services.payment.PaymentService;
+import com.adyen.services.payout.PayoutPortType;
+import com.adyen.services.payout.PayoutService;
+import com.adyen.services.recurring.RecurringPortType;
+import com.adyen.services.recurring.RecurringService;
+
+/**
+ * Shared SOAP services for all calls to the Adyen platform
+ *
+ * Creating a SOAP service downloads and parses the WSDL and builds the JAX-WS/JAXB model, which takes far longer than
+ * the actual payment call. This class creates every service only once and hands out pools of preconfigured clients
+ * (see {@link PortPool}), with the endpoint address and HTTP Authentication already set. Every client limits its
+ * calls with a {@link LimitingSoapHandler}.
+ *
+ * The WSDLs are read from the classpath (wsdl/Payment.wsdl, wsdl/Recurring.wsdl and wsdl/Payout.wsdl, bundled in
+ * adyen-wsdl-cxf.jar by tools/wsdl2java.xml) when available, otherwise they are downloaded once from the given URL.
+ * When the bundled WSDL is used, the host of the endpoint address is taken from the given WSDL URL, so the same
+ * bundled WSDL serves both Test and Live.
+ *
+ * For load testing, the calls can be sent to a local simulator instead, see {@link AdyenRoutePlanner}. The WSDLs are
+ * still read from the classpath or downloaded from Adyen, once.
+ *
+ * @author Created by Adyen - Payments Made Easy
+ */
+public final class SoapServices {
+
+	/**
+	 * SOAP settings
+	 * - BUNDLED_WSDL_PATH: classpath folder of the bundled WSDLs
+	 * - MAX_IDLE_PORTS: maximum number of idle clients kept per pool
+	 */
+	private static final String BUNDLED_WSDL_PATH = "/wsdl/";
+	private static final int MAX_IDLE_PORTS = 32;
+
+	private static final String PAYMENT_WSDL = "Payment.wsdl";
+	private static final String RECURRING_WSDL = "Recurring.wsdl";
+	private static final String PAYOUT_WSDL = "Payout.wsdl";
+
+	private static final ConcurrentMap<String, Service> services = new ConcurrentHashMap<String, Service>();
+	private static final ConcurrentMap<String, PortPool<?>> pools = new ConcurrentHashMap<String, PortPool<?>>();
+
+	private SoapServices() {
+	}
+
+	/**
+	 * Creates the services for all bundled WSDLs, so the first request does not pay for it.
+	 */
+	public static void init() {
+		for (String wsdlName : new String[] { PAYMENT_WSDL, RECURRING_WSDL, PAYOUT_WSDL }) {
+			URL bundledWsdl = getBundledWsdl(wsdlName);
+			if (bundledWsdl != null) {
+				getService(wsdlName, bundledWsdl);
+			}
+		}
+	}
+
+	/**
+	 * Returns the pool of Payment clients for the given WSDL URL and web service user.
+	 */
+	@SuppressWarnings("unchecked")
+	public static PortPool<PaymentPortType> paymentPorts(final String wsdl, final String wsUser, final String wsPassword) {
+		String key = PAYMENT_WSDL + "|" + wsdl + "|" + wsUser + "|" + wsPassword;
+		return (PortPool<PaymentPortType>) pools.computeIfAbsent(key, k -> new PortPool<PaymentPortType>(() -> {
+			PaymentService service = (PaymentService) getService(PAYMENT_WSDL, wsdl);
+			PaymentPortType port = service.getPaymentHttpPort();
+			LimitingSoapHandler.install(port, AdyenEndpoint.PAYMENT, "Payment");
+			return PortPool.configure(port, getEndpointAddress(port, PAYMENT_WSDL, wsdl), wsUser, wsPassword);
+		}, MAX_IDLE_PORTS));
+	}
+
+	/**
+	 * Returns the pool of Recurring clients for the given WSDL URL and web service user.
+	 */
+	@SuppressWarnings("unchecked")
+	public static PortPool<RecurringPortType> recurringPorts(final String wsdl, final String wsUser, final String wsPassword) {
+		String key = RECURRING_WSDL + "|" + wsdl + "|" + wsUser + "|" + wsPassword;
+		return (PortPool<RecurringPortType>) pools.computeIfAbsent(key, k -> new PortPool<RecurringPortType>(() -> {
+			RecurringService service = (RecurringService) getService(RECURRING_WSDL, wsdl);
+			RecurringPortType port = service.getRecurringHttpPort();
+			LimitingSoapHandler.install(port, AdyenEndpoint.RECURRING, "Recurring");
+			return PortPool.configure(port, getEndpointAddress(port, RECURRING_WSDL, wsdl), wsUser, wsPassword);
+		}, MAX_IDLE_PORTS));
+	}
+
+	/**
+	 * Returns the pool of Payout clients for the given WSDL URL and web service user.
+	 */
+	@SuppressWarnings("unchecked")
+	public static PortPool<PayoutPortType> payoutPorts(final String wsdl, final String wsUser, final String wsPassword) {
+		String key = PAYOUT_WSDL + "|" + wsdl + "|" + wsUser + "|" + wsPassword;
+		return (PortPool<PayoutPortType>) pools.computeIfAbsent(key, k -> new PortPool<PayoutPortType>(() -> {
+			PayoutService service = (PayoutService) getService(PAYOUT_WSDL, wsdl);
+			PayoutPortType port = service.getPayoutHttpPort();
+			LimitingSoapHandler.install(port, AdyenEndpoint.PAYOUT, "Payout");
+			return PortPool.configure(port, getEndpointAddress(port, PAYOUT_WSDL, wsdl), wsUser, wsPassword);
+		}, MAX_IDLE_PORTS));
+	}
+
+	/**
+	 * Drops all services and pooled clients.
+	 */
+	public static void shutdown() {
+		pools.clear();
+		services.clear();
+	}
+
+	private static Service getService(String wsdlName, String wsdl) {
+		URL bundledWsdl = getBundledWsdl(wsdlName);
+		if (bundledWsdl != null) {
+			return getService(wsdlName, bundledWsdl);
+		}
+
+		try {
+			return getService(wsdlName, new URL(wsdl));
+		} catch (MalformedURLException e) {
+			throw new WebServiceException("Invalid WSDL URL: " + wsdl, e);
+		}
+	}
+
+	private static Service getService(final String wsdlName, final URL wsdlLocation) {
+		return services.computeIfAbsent(wsdlLocation.toExternalForm(), k -> {
+			switch (wsdlName) {
+				case PAYMENT_WSDL:
+					return new PaymentService(wsdlLocation);
+				case RECURRING_WSDL:
+					return new RecurringService(wsdlLocation);
+				case PAYOUT_WSDL:
+					return new PayoutService(wsdlLocation);
+				default:
+					throw new IllegalArgumentException("Unknown WSDL: " + wsdlName);
+			}
+		});
+	}
+
+	private static URL getBundledWsdl(String wsdlName) {
+		return SoapServices.class.getResource(BUNDLED_WSDL_PATH + wsdlName);
+	}
+
+	/**
+	 * Returns the endpoint address for a port created from the bundled WSDL, which is the address in the WSDL with the
+	 * host of the given WSDL URL (Test/Live). Returns null if the WSDL was downloaded from the given URL. When a
+	 * simulator is configured (see {@link AdyenRoutePlanner}), the address points to the simulator instead.
+	 */
+	private static String getEndpointAddress(Object port, String wsdlName, String wsdl) {
+		Object address = ((BindingProvider) port).getRequestContext().get(BindingProvider.ENDPOINT_ADDRESS_PROPERTY);
+		if (address == null) {
+			return null;
+		}
+
+		// Send the calls to the local simulator, if configured
+		if (AdyenRoutePlanner.getSimulatorUrl() != null) {
+			return AdyenRoutePlanner.toSimulatorUrl(address.toString());
+		}
+
+		if (getBundledWsdl(wsdlName) == null) {
+			return null;
+		}
+
+		try {
+			URI endpoint = new URI(address.toString());
+			String host = new URI(wsdl).getHost();
+			if (host == null || host.equals(endpoint.getHost())) {
+				return null;
+			}
+			return new URI(endpoint.getScheme(), endpoint.getUserInfo(), host, endpoint.getPort(), endpoint.getPath(),
+					endpoint.getQuery(), endpoint.getFragment()).toString();
+		} catch (URISyntaxException e) {
+			throw new WebServiceException("Invalid endpoint address: " + address, e);
+		}
+	}
+
+}
@@ -0,0 +1,129 @@
+package com.adyen.examples.common.batch;
+
+import java.io.Closeable;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.RandomAccessFile;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+
+/**
+ * Progress of a batch, stored in a file next to the output file
+ *
+ * The checkpoint holds the number of records whose results are written, and the length of the output file at that
+ * point (see {@link OrderedResultWriter}). After a restart the output file is cut back to that length and the batch
+ * resumes with the next record, so every record appears exactly once in the output. Records that were in flight when
+ * the batch stopped are sent again; they carry the same idempotency key (see BulkModifications and PayoutPipeline).
+ *
+ * The ID of the batch is stored as well, so a checkpoint is not applied to another batch, e.g. the captures.csv of the
+ * next day. The ID is given by the batchId setting, or derived from the content of the input file (see
+ * {@link #contentId(File)}). The checkpoint is kept when the batch is complete: running the same batch again does not
+ * send anything.
+ *
+ * @author Created by Adyen - Payments Made Easy
+ */
+public class BatchCheckpoint implements Closeable {
+
+	private static final int MAGIC = 0x42435032;
+
+	private final File path;
+	private final RandomAccessFile file;
+
+	public BatchCheckpoint(File output) throws IOException {
+		path = new File(output.getPath() + ".checkpoint");
+		file = new RandomAccessFile(path, "rw");
+	}
+
+	/**
+	 * Returns the ID of a batch derived from the content of its input file: the first 16 hex digits of its SHA-256
+	 * hash. Files with the same name but other content (e.g. the captures of another day) have another ID.
+	 */
+	public static String contentId(File input) throws IOException {
+		MessageDigest digest;
+		try {
+			digest = MessageDigest.getInstance("SHA-256");
+		} catch (NoSuchAlgorithmException e) {
+			throw new IllegalStateException("SHA-256 is not available", e);
+		}
+
+		try (InputStream in = new FileInputStream(input)) {
+			byte[] buffer = new byte[65536];
+			int length;
+			while ((length = in.read(buffer)) >= 0) {
+				digest.update(buffer, 0, length);
+			}
+		}
+
+		StringBuilder id = new StringBuilder(16);
+		byte[] hash = digest.digest();
+		for (int i = 0; i < 8; i++) {
+			id.append(Character.forDigit((hash[i] >> 4) & 0xf, 16)).append(Character.forDigit(hash[i] & 0xf, 16));
+		}
+		return id.toString();
+	}
+
+	/**
+	 * Returns whether a checkpoint is stored.
+	 */
+	public synchronized boolean exists() throws IOException {
+		return file.length() > 0;
+	}
+
+	/**
+	 * Returns the number of records processed, or 0 if no checkpoint is stored.
+	 *
+	 * @throws IOException if the checkpoint was stored for another batch
+	 */
+	public synchronized long loadRecords(String batchId) throws IOException {
+		if (!exists()) {
+			return 0;
+		}
+		file.seek(0);
+		if (file.length() < 20 || file.readInt() != MAGIC) {
+			throw new IOException("Checkpoint " + path + " has an unknown format; delete it to start the batch from "
+					+ "the beginning");
+		}
+		long records = file.readLong();
+		file.readLong();
+		String storedBatchId = file.readUTF();
+		if (!storedBatchId.equals(batchId)) {
+			throw new IOException("Checkpoint " + path + " belongs to another batch (" + storedBatchId
+					+ "); delete it to start the batch from the beginning");
+		}
+		return records;
+	}
+
+	/**
+	 * Returns the length of the output file at the checkpoint, or 0 if no checkpoint is stored.
+	 */
+	public synchronized long loadOutputPosition() throws IOException {
+		if (!exists()) {
+			return 0;
+		}
+		file.seek(12);
+		return file.readLong();
+	}
+
+	public synchronized void store(String batchId, long records, long outputPosition) throws IOException {
+		file.seek(0);
+		file.writeInt(MAGIC);
+		file.writeLong(records);
+		file.writeLong(outputPosition);
+		file.writeUTF(batchId);
+		file.setLength(file.getFilePointer());
+		file.getFD().sync();
+	}
+
+	@Override
+	public synchronized void close() throws IOException {
+		file.close();
+	}
+
+	@Override
+	public String toString() {
+		return path.getPath();
+	}
+
+}
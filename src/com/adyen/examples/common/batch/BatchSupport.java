@@ -0,0 +1,66 @@
+package com.adyen.examples.common.batch;
+
+import java.lang.management.ManagementFactory;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import javax.management.JMException;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+
+/**
+ * Threads and JMX registration of the batches (bulk modifications, payouts and billing runs)
+ *
+ * @author Created by Adyen - Payments Made Easy
+ */
+public final class BatchSupport {
+
+	private BatchSupport() {
+	}
+
+	/**
+	 * Returns a factory of daemon threads named name-1, name-2, etc., so a batch never keeps the JVM from exiting.
+	 */
+	public static ThreadFactory threads(final String name) {
+		final AtomicInteger count = new AtomicInteger();
+		return new ThreadFactory() {
+			@Override
+			public Thread newThread(Runnable runnable) {
+				Thread thread = new Thread(runnable, name + "-" + count.incrementAndGet());
+				thread.setDaemon(true);
+				return thread;
+			}
+		};
+	}
+
+	/**
+	 * Registers the MBean of a batch as com.adyen.examples:type=type,name=name, replacing an earlier batch with the
+	 * same name. Returns the name to unregister it with, or null if monitoring is not available.
+	 */
+	public static ObjectName registerMBean(Object mbean, String type, String name) {
+		try {
+			MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+			ObjectName objectName = new ObjectName("com.adyen.examples:type=" + type + ",name="
+					+ ObjectName.quote(name));
+			if (server.isRegistered(objectName)) {
+				server.unregisterMBean(objectName);
+			}
+			server.registerMBean(mbean, objectName);
+			return objectName;
+		} catch (JMException e) {
+			// Monitoring is not available, the batch continues
+			return null;
+		}
+	}
+
+	public static void unregisterMBean(ObjectName objectName) {
+		if (objectName != null) {
+			try {
+				ManagementFactory.getPlatformMBeanServer().unregisterMBean(objectName);
+			} catch (JMException e) {
+				// Already unregistered
+			}
+		}
+	}
+
+}
@@ -0,0 +1,149 @@
+package com.adyen.examples.common.batch;
+
+import java.io.BufferedOutputStream;
+import java.io.Closeable;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.RandomAccessFile;
+import java.nio.charset.Charset;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Writes the results of a batch to the output file, in the order of the input file
+ *
+ * The records of a batch complete out of order, as they are sent in parallel. A result is kept until the results of
+ * all earlier records are written; the batch bounds the number of records in flight, so only a few results are kept
+ * at a time. Because the output follows the input, the number of results written and the length of the output file
+ * are enough to resume the batch (see {@link BatchCheckpoint}).
+ *
+ * A subclass writes a single result in the format of its output, see {@link #writeResult(Object)}.
+ *
+ * @param <R> type of the results
+ * @author Created by Adyen - Payments Made Easy
+ */
+public abstract class OrderedResultWriter<R> implements Closeable {
+
+	/**
+	 * Writer settings
+	 * - CHECKPOINT_RECORDS: maximum number of results written between two checkpoints
+	 * - CHECKPOINT_MILLIS: maximum time between two checkpoints
+	 */
+	private static final int CHECKPOINT_RECORDS = 1000;
+	private static final long CHECKPOINT_MILLIS = 1000;
+
+	protected static final Charset UTF8 = Charset.forName("UTF-8");
+
+	private final BatchCheckpoint checkpoint;
+	private final String batchId;
+	private final FileOutputStream file;
+	private final OutputStream out;
+	private final Map<Long, R> pending = new HashMap<Long, R>();
+
+	private long written;
+	private long position;
+	private long checkpointed;
+	private long lastCheckpointMillis = System.currentTimeMillis();
+
+	/**
+	 * Opens the output file. When resuming, the file is cut back to its length at the checkpoint, otherwise it is
+	 * created (or emptied) and starts with the header.
+	 *
+	 * @param written number of records whose results are already written (from the checkpoint)
+	 * @param header first line of a new output file, or null for none
+	 */
+	protected OrderedResultWriter(File output, BatchCheckpoint checkpoint, String batchId, long written, String header)
+			throws IOException {
+		this.checkpoint = checkpoint;
+		this.batchId = batchId;
+		this.written = written;
+		this.checkpointed = written;
+		this.position = written > 0 ? checkpoint.loadOutputPosition() : 0;
+
+		try (RandomAccessFile truncate = new RandomAccessFile(output, "rw")) {
+			truncate.setLength(position);
+		}
+		file = new FileOutputStream(output, true);
+		out = new BufferedOutputStream(file, 65536);
+
+		if (position == 0 && header != null) {
+			writeBytes(header.getBytes(UTF8));
+		}
+	}
+
+	/**
+	 * Adds the result of a record, and writes all results that are next in line. Returns the number of results
+	 * written, which is 0 if an earlier record is still in flight.
+	 */
+	public synchronized int write(R result) throws IOException {
+		pending.put(recordNumber(result), result);
+
+		int count = 0;
+		R next;
+		while ((next = pending.remove(written + 1)) != null) {
+			writeResult(next);
+			written++;
+			count++;
+		}
+
+		long now = System.currentTimeMillis();
+		if (written - checkpointed >= CHECKPOINT_RECORDS
+				|| (count > 0 && now - lastCheckpointMillis >= CHECKPOINT_MILLIS)) {
+			checkpoint();
+		}
+		return count;
+	}
+
+	/**
+	 * Flushes the written results to disk and stores the checkpoint.
+	 */
+	public synchronized void checkpoint() throws IOException {
+		out.flush();
+		file.getFD().sync();
+		checkpoint.store(batchId, written, position);
+		checkpointed = written;
+		lastCheckpointMillis = System.currentTimeMillis();
+	}
+
+	/**
+	 * Number of results written, including the results written before a restart.
+	 */
+	public synchronized long getWritten() {
+		return written;
+	}
+
+	/**
+	 * Stores a final checkpoint and closes the file. Results that are not next in line are dropped; their records are
+	 * sent again when the batch resumes.
+	 */
+	@Override
+	public synchronized void close() throws IOException {
+		try {
+			checkpoint();
+		} finally {
+			out.close();
+		}
+	}
+
+	/**
+	 * Returns the number of the record of a result in the input file, starting at 1.
+	 */
+	protected abstract long recordNumber(R result);
+
+	/**
+	 * Writes a single result with {@link #writeBytes(byte[], int, int)}. Called while holding the lock of the writer.
+	 */
+	protected abstract void writeResult(R result) throws IOException;
+
+	protected final void writeBytes(byte[] bytes) throws IOException {
+		writeBytes(bytes, 0, bytes.length);
+	}
+
+	protected final void writeBytes(byte[] bytes, int offset, int length) throws IOException {
+		out.write(bytes, offset, length);
+		position += length;
+	}
+
+}
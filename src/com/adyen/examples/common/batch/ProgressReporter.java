@@ -0,0 +1,96 @@
+package com.adyen.examples.common.batch;
+
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.function.LongSupplier;
+
+/**
+ * Reports the progress of a batch at a fixed interval
+ *
+ * Every interval the throughput over the last interval and the average throughput since the start are sampled from
+ * the number of records processed, after which the report is run (typically printing the progress of the batch). The
+ * throughput and the estimated time remaining are available to the MBean of the batch.
+ *
+ * @author Created by Adyen - Payments Made Easy
+ */
+public class ProgressReporter {
+
+	private final String name;
+	private final long periodSeconds;
+	private final LongSupplier processed;
+	private final Runnable report;
+
+	private volatile double throughput;
+	private volatile double averageThroughput;
+
+	private ScheduledExecutorService executor;
+
+	/**
+	 * @param name name of the reporter thread
+	 * @param processed returns the number of records processed, including the records processed before a restart
+	 */
+	public ProgressReporter(String name, long periodSeconds, LongSupplier processed, Runnable report) {
+		this.name = name;
+		this.periodSeconds = periodSeconds;
+		this.processed = processed;
+		this.report = report;
+	}
+
+	/**
+	 * Starts reporting; the throughput counts the records processed from now on.
+	 */
+	public synchronized void start() {
+		final long startCount = processed.getAsLong();
+		final long startNanos = System.nanoTime();
+		executor = Executors.newSingleThreadScheduledExecutor(BatchSupport.threads(name));
+		executor.scheduleAtFixedRate(new Runnable() {
+
+			private long lastCount = startCount;
+			private long lastNanos = startNanos;
+
+			@Override
+			public void run() {
+				long count = processed.getAsLong();
+				long now = System.nanoTime();
+				throughput = (count - lastCount) * 1e9 / (now - lastNanos);
+				averageThroughput = (count - startCount) * 1e9 / (now - startNanos);
+				lastCount = count;
+				lastNanos = now;
+				report.run();
+			}
+		}, periodSeconds, periodSeconds, TimeUnit.SECONDS);
+	}
+
+	public synchronized void stop() {
+		if (executor != null) {
+			executor.shutdownNow();
+		}
+	}
+
+	/**
+	 * Records processed per second over the last interval.
+	 */
+	public double getThroughput() {
+		return throughput;
+	}
+
+	/**
+	 * Returns the estimated time to process the remaining records at the average throughput, or -1 if unknown.
+	 */
+	public long getEtaSeconds(long remaining) {
+		double rate = averageThroughput;
+		if (rate <= 0) {
+			return -1;
+		}
+		return (long) (Math.max(0, remaining) / rate);
+	}
+
+	/**
+	 * Formats an estimated time remaining as h:mm:ss.
+	 */
+	public static String formatEta(long seconds) {
+		return seconds < 0 ? "unknown" : String.format("%d:%02d:%02d", seconds / 3600, seconds / 60 % 60, seconds % 60);
+	}
+
+}
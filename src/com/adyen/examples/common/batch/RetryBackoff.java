@@ -0,0 +1,66 @@
+package com.adyen.examples.common.batch;
+
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.BooleanSupplier;
+
+/**
+ * Exponential backoff with jitter between the attempts of a request of a batch
+ *
+ * Network errors and an overloaded platform are retried: the time to wait starts at the given backoff and doubles for
+ * every next attempt. A random jitter of up to the backoff itself is added, so the retries of requests that are sent
+ * in parallel do not arrive together. Retrying ends after the maximum number of attempts, or when the batch stops.
+ *
+ * @author Created by Adyen - Payments Made Easy
+ */
+public class RetryBackoff {
+
+	/**
+	 * Backoff settings
+	 * - MAX_DOUBLINGS: maximum number of times the backoff is doubled
+	 */
+	private static final int MAX_DOUBLINGS = 10;
+
+	private final int maxAttempts;
+	private final long backoffMillis;
+	private final BooleanSupplier running;
+	private final LongAdder retries = new LongAdder();
+
+	/**
+	 * @param running returns false once the batch is stopped, after which failed requests are not retried
+	 */
+	public RetryBackoff(int maxAttempts, long backoffMillis, BooleanSupplier running) {
+		this.maxAttempts = maxAttempts;
+		this.backoffMillis = backoffMillis;
+		this.running = running;
+	}
+
+	/**
+	 * Waits before the attempt after the given (failed) one, and returns whether it is to be made. Returns false
+	 * without waiting when the maximum number of attempts is reached or the batch is stopped, and returns false when
+	 * the wait is interrupted (keeping the interrupt status of the thread).
+	 */
+	public boolean awaitRetry(int attempt) {
+		if (attempt >= maxAttempts || !running.getAsBoolean()) {
+			return false;
+		}
+
+		long backoff = backoffMillis << Math.min(attempt - 1, MAX_DOUBLINGS);
+		try {
+			Thread.sleep(backoff + ThreadLocalRandom.current().nextLong(backoff));
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			return false;
+		}
+		retries.increment();
+		return true;
+	}
+
+	/**
+	 * Number of retries made.
+	 */
+	public long getRetryCount() {
+		return retries.sum();
+	}
+
+}
@@ -0,0 +1,77 @@
+package com.adyen.examples.common.json;
+
+/**
+ * Billing address of a card holder
+ *
+ * @author Created by Adyen - Payments Made Easy
+ */
+public class Address implements JsonMessage {
+
+	private String street;
+	private String houseNumberOrName;
+	private String city;
+	private String postalCode;
+	private String stateOrProvince;
+	private String country;
+
+	public String getStreet() {
+		return street;
+	}
+
+	public void setStreet(String street) {
+		this.street = street;
+	}
+
+	public String getHouseNumberOrName() {
+		return houseNumberOrName;
+	}
+
+	public void setHouseNumberOrName(String houseNumberOrName) {
+		this.houseNumberOrName = houseNumberOrName;
+	}
+
+	public String getCity() {
+		return city;
+	}
+
+	public void setCity(String city) {
+		this.city = city;
+	}
+
+	public String getPostalCode() {
+		return postalCode;
+	}
+
+	public void setPostalCode(String postalCode) {
+		this.postalCode = postalCode;
+	}
+
+	public String getStateOrProvince() {
+		return stateOrProvince;
+	}
+
+	public void setStateOrProvince(String stateOrProvince) {
+		this.stateOrProvince = stateOrProvince;
+	}
+
+	public String getCountry() {
+		return country;
+	}
+
+	public void setCountry(String country) {
+		this.country = country;
+	}
+
+	@Override
+	public void writeTo(JsonWriter writer) {
+		writer.beginObject();
+		writer.field("street", street);
+		writer.field("houseNumberOrName", houseNumberOrName);
+		writer.field("city", city);
+		writer.field("postalCode", postalCode);
+		writer.field("stateOrProvince", stateOrProvince);
+		writer.field("country", country);
+		writer.endObject();
+	}
+
+}
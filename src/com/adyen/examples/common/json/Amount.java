@@ -0,0 +1,45 @@
+package com.adyen.examples.common.json;
+
+/**
+ * Amount of a payment or modification, in minor units (e.g. EUR 1,00 = 100)
+ *
+ * @author Created by Adyen - Payments Made Easy
+ */
+public class Amount implements JsonMessage {
+
+	private String currency;
+	private long value;
+
+	public Amount() {
+	}
+
+	public Amount(String currency, long value) {
+		this.currency = currency;
+		this.value = value;
+	}
+
+	public String getCurrency() {
+		return currency;
+	}
+
+	public void setCurrency(String currency) {
+		this.currency = currency;
+	}
+
+	public long getValue() {
+		return value;
+	}
+
+	public void setValue(long value) {
+		this.value = value;
+	}
+
+	@Override
+	public void writeTo(JsonWriter writer) {
+		writer.beginObject();
+		writer.field("currency", currency);
+		writer.name("value").value(value);
+		writer.endObject();
+	}
+
+}
@@ -0,0 +1,37 @@
+package com.adyen.examples.common.json;
+
+/**
+ * Browser details of the shopper, required for 3D Secure payments
+ *
+ * @author Created by Adyen - Payments Made Easy
+ */
+public class BrowserInfo implements JsonMessage {
+
+	private String userAgent;
+	private String acceptHeader;
+
+	public String getUserAgent() {
+		return userAgent;
+	}
+
+	public void setUserAgent(String userAgent) {
+		this.userAgent = userAgent;
+	}
+
+	public String getAcceptHeader() {
+		return acceptHeader;
+	}
+
+	public void setAcceptHeader(String acceptHeader) {
+		this.acceptHeader = acceptHeader;
+	}
+
+	@Override
+	public void writeTo(JsonWriter writer) {
+		writer.beginObject();
+		writer.field("userAgent", userAgent);
+		writer.field("acceptHeader", acceptHeader);
+		writer.endObject();
+	}
+
+}
@@ -0,0 +1,79 @@
+package com.adyen.examples.common.json;
+
+/**
+ * Card details of a payment request
+ *
+ * Only submit card details when you are PCI compliant; for a OneClick payment only the CVC is set.
+ *
+ * @author Created by Adyen - Payments Made Easy
+ */
+public class Card implements JsonMessage {
+
+	private String expiryMonth;
+	private String expiryYear;
+	private String holderName;
+	private String number;
+	private String cvc;
+	private Address billingAddress;
+
+	public String getExpiryMonth() {
+		return expiryMonth;
+	}
+
+	public void setExpiryMonth(String expiryMonth) {
+		this.expiryMonth = expiryMonth;
+	}
+
+	public String getExpiryYear() {
+		return expiryYear;
+	}
+
+	public void setExpiryYear(String expiryYear) {
+		this.expiryYear = expiryYear;
+	}
+
+	public String getHolderName() {
+		return holderName;
+	}
+
+	public void setHolderName(String holderName) {
+		this.holderName = holderName;
+	}
+
+	public String getNumber() {
+		return number;
+	}
+
+	public void setNumber(String number) {
+		this.number = number;
+	}
+
+	public String getCvc() {
+		return cvc;
+	}
+
+	public void setCvc(String cvc) {
+		this.cvc = cvc;
+	}
+
+	public Address getBillingAddress() {
+		return billingAddress;
+	}
+
+	public void setBillingAddress(Address billingAddress) {
+		this.billingAddress = billingAddress;
+	}
+
+	@Override
+	public void writeTo(JsonWriter writer) {
+		writer.beginObject();
+		writer.field("expiryMonth", expiryMonth);
+		writer.field("expiryYear", expiryYear);
+		writer.field("holderName", holderName);
+		writer.field("number", number);
+		writer.field("cvc", cvc);
+		writer.field("billingAddress", billingAddress);
+		writer.endObject();
+	}
+
+}
@@ -0,0 +1,49 @@
+package com.adyen.examples.common.json;
+
+/**
+ * Request for the disable action of the Recurring API
+ *
+ * Without a recurringDetailReference, all details of the shopper are disabled.
+ *
+ * @author Created by Adyen - Payments Made Easy
+ */
+public class DisableRequest implements JsonMessage {
+
+	private String merchantAccount;
+	private String shopperReference;
+	private String recurringDetailReference;
+
+	public String getMerchantAccount() {
+		return merchantAccount;
+	}
+
+	public void setMerchantAccount(String merchantAccount) {
+		this.merchantAccount = merchantAccount;
+	}
+
+	public String getShopperReference() {
+		return shopperReference;
+	}
+
+	public void setShopperReference(String shopperReference) {
+		this.shopperReference = shopperReference;
+	}
+
+	public String getRecurringDetailReference() {
+		return recurringDetailReference;
+	}
+
+	public void setRecurringDetailReference(String recurringDetailReference) {
+		this.recurringDetailReference = recurringDetailReference;
+	}
+
+	@Override
+	public void writeTo(JsonWriter writer) {
+		writer.beginObject();
+		writer.field("merchantAccount", merchantAccount);
+		writer.field("shopperReference", shopperReference);
+		writer.field("recurringDetailReference", recurringDetailReference);
+		writer.endObject();
+	}
+
+}
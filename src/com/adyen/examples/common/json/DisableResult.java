@@ -0,0 +1,41 @@
+package com.adyen.examples.common.json;
+
+import java.io.IOException;
+
+/**
+ * Result of the disable action of the Recurring API
+ *
+ * @author Created by Adyen - Payments Made Easy
+ */
+public class DisableResult {
+
+	private String response;
+
+	public String getResponse() {
+		return response;
+	}
+
+	public void setResponse(String response) {
+		this.response = response;
+	}
+
+	/**
+	 * Reads the result from a JSON response, skipping unknown fields.
+	 */
+	public static DisableResult readFrom(JsonReader reader) throws IOException {
+		DisableResult result = new DisableResult();
+		reader.beginObject();
+		while (reader.hasNext()) {
+			switch (reader.nextName()) {
+				case "response":
+					result.setResponse(reader.nextString());
+					break;
+				default:
+					reader.skipValue();
+			}
+		}
+		reader.endObject();
+		return result;
+	}
+
+}
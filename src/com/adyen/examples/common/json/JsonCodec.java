@@ -0,0 +1,92 @@
+package com.adyen.examples.common.json;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+
+import org.apache.http.HttpEntity;
+import org.apache.http.entity.ByteArrayEntity;
+import org.apache.http.entity.ContentType;
+import org.apache.http.util.EntityUtils;
+
+/**
+ * Converts the typed JSON requests and results to and from HTTP entities
+ *
+ * Requests are written as UTF-8 bytes straight into a pooled buffer, which is sent as the request entity without
+ * intermediate strings or copies. Responses are read in a single pass over the entity stream.
+ *
+ * @author Created by Adyen - Payments Made Easy
+ */
+public final class JsonCodec {
+
+	/**
+	 * Reads a typed result from a JSON document.
+	 */
+	public interface ResultReader<T> {
+
+		T readFrom(JsonReader reader) throws IOException;
+
+	}
+
+	private JsonCodec() {
+	}
+
+	/**
+	 * Writes the request into the buffer of the current thread and returns it as entity. The entity shares the buffer,
+	 * so it must be sent (synchronously) before the next request is written on this thread.
+	 */
+	public static HttpEntity toEntity(JsonMessage request) {
+		JsonWriter writer = JsonWriter.pooled();
+		request.writeTo(writer);
+		return new ByteArrayEntity(writer.getBuffer(), 0, writer.size(), ContentType.APPLICATION_JSON);
+	}
+
+	/**
+	 * Writes the request into a buffer of its own, for requests that are sent asynchronously.
+	 */
+	public static HttpEntity toByteArrayEntity(JsonMessage request) {
+		JsonWriter writer = JsonWriter.pooled();
+		request.writeTo(writer);
+		return new ByteArrayEntity(writer.toByteArray(), ContentType.APPLICATION_JSON);
+	}
+
+	/**
+	 * Returns the SHA-256 digest of the request as it would be sent, e.g. to recognise a repeated request. Uses the
+	 * buffer of the current thread, so call it before {@link #toEntity(JsonMessage)}.
+	 */
+	public static byte[] digest(JsonMessage request) {
+		JsonWriter writer = JsonWriter.pooled();
+		request.writeTo(writer);
+		try {
+			MessageDigest digest = MessageDigest.getInstance("SHA-256");
+			digest.update(writer.getBuffer(), 0, writer.size());
+			return digest.digest();
+		} catch (NoSuchAlgorithmException e) {
+			// Every Java platform supports SHA-256
+			throw new IllegalStateException(e);
+		}
+	}
+
+	/**
+	 * Reads the result from the entity stream. The entity is always fully consumed, so the connection can be reused.
+	 */
+	public static <T> T read(HttpEntity entity, ResultReader<T> resultReader) throws IOException {
+		if (entity == null) {
+			throw new JsonParseException("Empty response");
+		}
+
+		try {
+			InputStream in = entity.getContent();
+			JsonReader reader = new JsonReader(in);
+			T result = resultReader.readFrom(reader);
+			if (reader.peek() != JsonReader.Token.END_DOCUMENT) {
+				throw new JsonParseException("Unexpected data after the end of the document in JSON response");
+			}
+			return result;
+		} finally {
+			EntityUtils.consume(entity);
+		}
+	}
+
+}
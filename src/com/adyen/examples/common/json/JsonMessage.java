@@ -0,0 +1,12 @@
+package com.adyen.examples.common.json;
+
+/**
+ * A request (or part of a request) that writes itself as JSON.
+ *
+ * @author Created by Adyen - Payments Made Easy
+ */
+public interface JsonMessage {
+
+	void writeTo(JsonWriter writer);
+
+}
@@ -0,0 +1,18 @@
+package com.adyen.examples.common.json;
+
+import java.io.IOException;
+
+/**
+ * Thrown when a response is not valid JSON, or does not have the expected structure.
+ *
+ * @author Created by Adyen - Payments Made Easy
+ */
+public class JsonParseException extends IOException {
+
+	private static final long serialVersionUID = 1L;
+
+	public JsonParseException(String message) {
+		super(message);
+	}
+
+}
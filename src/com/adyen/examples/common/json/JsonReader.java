@@ -0,0 +1,445 @@
+package com.adyen.examples.common.json;
+
+import java.io.IOException;
+import java.io.InputStream;
+
+/**
+ * Streaming (pull) JSON reader, decoding UTF-8 bytes directly from an input stream
+ *
+ * Responses are read in a single pass over the stream, filling the result object field by field, without building a
+ * tree of objects or first reading the whole body into a string. Numbers and booleans are returned as their text by
+ * {@link #nextString()}; fields that are not needed are skipped with {@link #skipValue()}.
+ *
+ * A reader is not thread-safe.
+ *
+ * @author Created by Adyen - Payments Made Easy
+ */
+public final class JsonReader {
+
+	/**
+	 * The kinds of tokens in a JSON document.
+	 */
+	public enum Token {
+		BEGIN_OBJECT, END_OBJECT, BEGIN_ARRAY, END_ARRAY, NAME, STRING, NUMBER, BOOLEAN, NULL, END_DOCUMENT
+	}
+
+	private static final int MAX_DEPTH = 64;
+
+	// Parser states, per nesting level
+	private static final int EMPTY_DOCUMENT = 0;
+	private static final int NONEMPTY_DOCUMENT = 1;
+	private static final int EMPTY_OBJECT = 2;
+	private static final int NONEMPTY_OBJECT = 3;
+	private static final int DANGLING_NAME = 4;
+	private static final int EMPTY_ARRAY = 5;
+	private static final int NONEMPTY_ARRAY = 6;
+
+	private static final ThreadLocal<byte[]> buffers = ThreadLocal.withInitial(() -> new byte[8192]);
+
+	private final InputStream in;
+	private final byte[] buffer;
+	private int position;
+	private int limit;
+
+	private final int[] stack = new int[MAX_DEPTH];
+	private int depth = 1;
+
+	private Token peeked;
+	private final StringBuilder text = new StringBuilder(64);
+
+	/**
+	 * Creates a reader for the given stream. The read buffer is shared by all readers of the current thread, so a
+	 * thread must finish reading one document before it starts the next.
+	 */
+	public JsonReader(InputStream in) {
+		this.in = in;
+		this.buffer = buffers.get();
+		stack[0] = EMPTY_DOCUMENT;
+	}
+
+	/**
+	 * Returns the kind of the next token, without consuming it.
+	 */
+	public Token peek() throws IOException {
+		if (peeked != null) {
+			return peeked;
+		}
+
+		int c;
+		switch (stack[depth - 1]) {
+			case EMPTY_ARRAY:
+				stack[depth - 1] = NONEMPTY_ARRAY;
+				c = nextNonWhitespace();
+				if (c == ']') {
+					return peeked = Token.END_ARRAY;
+				}
+				return peeked = readValue(c);
+
+			case NONEMPTY_ARRAY:
+				c = nextNonWhitespace();
+				if (c == ']') {
+					return peeked = Token.END_ARRAY;
+				}
+				expect(c, ',');
+				return peeked = readValue(nextNonWhitespace());
+
+			case EMPTY_OBJECT:
+			case NONEMPTY_OBJECT:
+				boolean empty = stack[depth - 1] == EMPTY_OBJECT;
+				stack[depth - 1] = DANGLING_NAME;
+				c = nextNonWhitespace();
+				if (c == '}') {
+					return peeked = Token.END_OBJECT;
+				}
+				if (!empty) {
+					expect(c, ',');
+					c = nextNonWhitespace();
+				}
+				expect(c, '"');
+				readString();
+				return peeked = Token.NAME;
+
+			case DANGLING_NAME:
+				stack[depth - 1] = NONEMPTY_OBJECT;
+				expect(nextNonWhitespace(), ':');
+				return peeked = readValue(nextNonWhitespace());
+
+			case EMPTY_DOCUMENT:
+				stack[depth - 1] = NONEMPTY_DOCUMENT;
+				return peeked = readValue(nextNonWhitespace());
+
+			default:
+				c = nextNonWhitespace();
+				if (c != -1) {
+					throw syntaxError("Unexpected data after the end of the document");
+				}
+				return peeked = Token.END_DOCUMENT;
+		}
+	}
+
+	public void beginObject() throws IOException {
+		consume(Token.BEGIN_OBJECT);
+		push(EMPTY_OBJECT);
+	}
+
+	public void endObject() throws IOException {
+		consume(Token.END_OBJECT);
+		depth--;
+	}
+
+	public void beginArray() throws IOException {
+		consume(Token.BEGIN_ARRAY);
+		push(EMPTY_ARRAY);
+	}
+
+	public void endArray() throws IOException {
+		consume(Token.END_ARRAY);
+		depth--;
+	}
+
+	/**
+	 * Returns whether the current object or array has another element.
+	 */
+	public boolean hasNext() throws IOException {
+		Token token = peek();
+		return token != Token.END_OBJECT && token != Token.END_ARRAY && token != Token.END_DOCUMENT;
+	}
+
+	public String nextName() throws IOException {
+		consume(Token.NAME);
+		return text.toString();
+	}
+
+	/**
+	 * Returns the next string, number or boolean as text, or null for a JSON null.
+	 */
+	public String nextString() throws IOException {
+		Token token = peek();
+		switch (token) {
+			case STRING:
+			case NUMBER:
+			case BOOLEAN:
+				peeked = null;
+				return text.toString();
+			case NULL:
+				peeked = null;
+				return null;
+			default:
+				throw syntaxError("Expected a value but was " + token);
+		}
+	}
+
+	/**
+	 * Returns the next number as a long, or null for a JSON null. Numbers sent as strings are accepted as well.
+	 */
+	public Long nextLong() throws IOException {
+		String value = nextString();
+		if (value == null) {
+			return null;
+		}
+		try {
+			return Long.valueOf(value);
+		} catch (NumberFormatException e) {
+			throw syntaxError("Expected a number but was " + value);
+		}
+	}
+
+	/**
+	 * Skips the next value, including all nested objects and arrays.
+	 */
+	public void skipValue() throws IOException {
+		int level = 0;
+		do {
+			switch (peek()) {
+				case BEGIN_OBJECT:
+					beginObject();
+					level++;
+					break;
+				case BEGIN_ARRAY:
+					beginArray();
+					level++;
+					break;
+				case END_OBJECT:
+					endObject();
+					level--;
+					break;
+				case END_ARRAY:
+					endArray();
+					level--;
+					break;
+				case END_DOCUMENT:
+					throw syntaxError("Unexpected end of the document");
+				default:
+					peeked = null;
+			}
+		} while (level > 0);
+	}
+
+	/**
+	 * Copies the next value (including nested objects and arrays) to the given writer.
+	 */
+	public void copyValue(JsonWriter writer) throws IOException {
+		switch (peek()) {
+			case BEGIN_OBJECT:
+				beginObject();
+				writer.beginObject();
+				while (hasNext()) {
+					writer.name(nextName());
+					copyValue(writer);
+				}
+				endObject();
+				writer.endObject();
+				break;
+			case BEGIN_ARRAY:
+				beginArray();
+				writer.beginArray();
+				while (hasNext()) {
+					copyValue(writer);
+				}
+				endArray();
+				writer.endArray();
+				break;
+			case NUMBER:
+			case BOOLEAN:
+				writer.literal(nextString());
+				break;
+			default:
+				writer.value(nextString());
+		}
+	}
+
+	/**
+	 * Returns the next value (e.g. a nested object) as JSON text.
+	 */
+	public String nextJson() throws IOException {
+		if (peek() == Token.NULL) {
+			peeked = null;
+			return null;
+		}
+		JsonWriter writer = new JsonWriter();
+		copyValue(writer);
+		return writer.toString();
+	}
+
+	private void consume(Token expected) throws IOException {
+		Token token = peek();
+		if (token != expected) {
+			throw syntaxError("Expected " + expected + " but was " + token);
+		}
+		peeked = null;
+	}
+
+	private void push(int state) throws IOException {
+		if (depth == MAX_DEPTH) {
+			throw syntaxError("JSON nested too deep");
+		}
+		stack[depth++] = state;
+	}
+
+	private Token readValue(int c) throws IOException {
+		switch (c) {
+			case '{':
+				return Token.BEGIN_OBJECT;
+			case '[':
+				return Token.BEGIN_ARRAY;
+			case '"':
+				readString();
+				return Token.STRING;
+			case 't':
+				readLiteral("true");
+				return Token.BOOLEAN;
+			case 'f':
+				readLiteral("false");
+				return Token.BOOLEAN;
+			case 'n':
+				readLiteral("null");
+				return Token.NULL;
+			case -1:
+				throw syntaxError("Unexpected end of the document");
+			default:
+				if (c == '-' || (c >= '0' && c <= '9')) {
+					readNumber(c);
+					return Token.NUMBER;
+				}
+				throw syntaxError("Unexpected character '" + (char) c + "'");
+		}
+	}
+
+	private void readLiteral(String literal) throws IOException {
+		text.setLength(0);
+		text.append(literal.charAt(0));
+		for (int i = 1; i < literal.length(); i++) {
+			if (read() != literal.charAt(i)) {
+				throw syntaxError("Expected " + literal);
+			}
+			text.append(literal.charAt(i));
+		}
+	}
+
+	private void readNumber(int c) throws IOException {
+		text.setLength(0);
+		text.append((char) c);
+		while (fill()) {
+			c = buffer[position];
+			if ((c >= '0' && c <= '9') || c == '.' || c == 'e' || c == 'E' || c == '+' || c == '-') {
+				text.append((char) c);
+				position++;
+			}
+			else {
+				break;
+			}
+		}
+	}
+
+	/**
+	 * Reads the rest of a string (after the opening quote) into the text buffer, decoding escapes and UTF-8.
+	 */
+	private void readString() throws IOException {
+		text.setLength(0);
+		while (true) {
+			int c = read();
+			if (c == '"') {
+				return;
+			}
+			if (c == '\\') {
+				text.append(readEscape());
+			}
+			else if (c < 0x20) {
+				throw syntaxError(c == -1 ? "Unterminated string" : "Unescaped control character in string");
+			}
+			else if (c < 0x80) {
+				text.append((char) c);
+			}
+			else if ((c & 0xe0) == 0xc0) {
+				text.append((char) (((c & 0x1f) << 6) | continuation()));
+			}
+			else if ((c & 0xf0) == 0xe0) {
+				text.append((char) (((c & 0x0f) << 12) | (continuation() << 6) | continuation()));
+			}
+			else if ((c & 0xf8) == 0xf0) {
+				int codePoint = ((c & 0x07) << 18) | (continuation() << 12) | (continuation() << 6) | continuation();
+				text.appendCodePoint(codePoint);
+			}
+			else {
+				throw syntaxError("Invalid UTF-8");
+			}
+		}
+	}
+
+	private char readEscape() throws IOException {
+		int c = read();
+		switch (c) {
+			case '"':
+			case '\\':
+			case '/':
+				return (char) c;
+			case 'n':
+				return '\n';
+			case 'r':
+				return '\r';
+			case 't':
+				return '\t';
+			case 'b':
+				return '\b';
+			case 'f':
+				return '\f';
+			case 'u':
+				int value = 0;
+				for (int i = 0; i < 4; i++) {
+					int digit = Character.digit(read(), 16);
+					if (digit < 0) {
+						throw syntaxError("Invalid unicode escape");
+					}
+					value = (value << 4) | digit;
+				}
+				return (char) value;
+			default:
+				throw syntaxError("Invalid escape sequence");
+		}
+	}
+
+	private int continuation() throws IOException {
+		int c = read();
+		if ((c & 0xc0) != 0x80) {
+			throw syntaxError("Invalid UTF-8");
+		}
+		return c & 0x3f;
+	}
+
+	private int nextNonWhitespace() throws IOException {
+		while (true) {
+			int c = read();
+			if (c != ' ' && c != '\n' && c != '\r' && c != '\t') {
+				return c;
+			}
+		}
+	}
+
+	private void expect(int c, char expected) throws IOException {
+		if (c != expected) {
+			throw syntaxError(c == -1 ? "Unexpected end of the document" : "Expected '" + expected + "' but was '" + (char) c + "'");
+		}
+	}
+
+	private int read() throws IOException {
+		return fill() ? buffer[position++] & 0xff : -1;
+	}
+
+	private boolean fill() throws IOException {
+		if (position < limit) {
+			return true;
+		}
+		int count = in.read(buffer, 0, buffer.length);
+		if (count <= 0) {
+			return false;
+		}
+		position = 0;
+		limit = count;
+		return true;
+	}
+
+	private JsonParseException syntaxError(String message) {
+		return new JsonParseException(message + " in JSON response");
+	}
+
+}
@@ -0,0 +1,306 @@
+package com.adyen.examples.common.json;
+
+import java.nio.charset.Charset;
+import java.util.Arrays;
+
+/**
+ * Streaming JSON writer, writing UTF-8 bytes directly into a growable buffer
+ *
+ * Messages are written field by field (see {@link JsonMessage}), without building a tree of objects or an intermediate
+ * string. Use {@link #pooled()} to reuse the buffer of the current thread; the pooled writer (and an entity created
+ * from it) must be used before the next message is written on the same thread.
+ *
+ * @author Created by Adyen - Payments Made Easy
+ */
+public final class JsonWriter {
+
+	private static final Charset UTF8 = Charset.forName("UTF-8");
+	private static final byte[] HEX = "0123456789abcdef".getBytes(UTF8);
+	private static final byte[] NULL = "null".getBytes(UTF8);
+	private static final int MAX_DEPTH = 64;
+
+	private static final ThreadLocal<JsonWriter> pool = ThreadLocal.withInitial(JsonWriter::new);
+
+	private byte[] buffer = new byte[1024];
+	private int size;
+
+	// Per nesting level: whether the next element must be preceded by a comma
+	private final boolean[] comma = new boolean[MAX_DEPTH];
+	private int depth;
+	private boolean afterName;
+
+	/**
+	 * Returns the (reset) writer of the current thread.
+	 */
+	public static JsonWriter pooled() {
+		JsonWriter writer = pool.get();
+		writer.reset();
+		return writer;
+	}
+
+	public void reset() {
+		size = 0;
+		depth = 0;
+		afterName = false;
+	}
+
+	public JsonWriter beginObject() {
+		return open('{');
+	}
+
+	public JsonWriter endObject() {
+		return close('}');
+	}
+
+	public JsonWriter beginArray() {
+		return open('[');
+	}
+
+	public JsonWriter endArray() {
+		return close(']');
+	}
+
+	public JsonWriter name(String name) {
+		separator();
+		writeString(name);
+		writeByte(':');
+		afterName = true;
+		return this;
+	}
+
+	public JsonWriter value(String value) {
+		separator();
+		if (value == null) {
+			writeBytes(NULL);
+		}
+		else {
+			writeString(value);
+		}
+		return this;
+	}
+
+	public JsonWriter value(long value) {
+		separator();
+		writeLong(value);
+		return this;
+	}
+
+	public JsonWriter value(boolean value) {
+		separator();
+		writeAscii(value ? "true" : "false");
+		return this;
+	}
+
+	/**
+	 * Writes a number or boolean literal as it was read, see {@link JsonReader#copyValue(JsonWriter)}.
+	 */
+	JsonWriter literal(String value) {
+		separator();
+		writeAscii(value);
+		return this;
+	}
+
+	public JsonWriter value(JsonMessage value) {
+		if (value == null) {
+			separator();
+			writeBytes(NULL);
+		}
+		else {
+			value.writeTo(this);
+		}
+		return this;
+	}
+
+	/**
+	 * Writes a string field, unless the value is null.
+	 */
+	public JsonWriter field(String name, String value) {
+		return value == null ? this : name(name).value(value);
+	}
+
+	/**
+	 * Writes a number field, unless the value is null.
+	 */
+	public JsonWriter field(String name, Long value) {
+		return value == null ? this : name(name).value(value.longValue());
+	}
+
+	/**
+	 * Writes an object field, unless the value is null.
+	 */
+	public JsonWriter field(String name, JsonMessage value) {
+		return value == null ? this : name(name).value(value);
+	}
+
+	/**
+	 * The buffer holding the written bytes; only the first {@link #size()} bytes are valid.
+	 */
+	public byte[] getBuffer() {
+		return buffer;
+	}
+
+	public int size() {
+		return size;
+	}
+
+	public byte[] toByteArray() {
+		return Arrays.copyOf(buffer, size);
+	}
+
+	@Override
+	public String toString() {
+		return new String(buffer, 0, size, UTF8);
+	}
+
+	private JsonWriter open(char bracket) {
+		separator();
+		writeByte(bracket);
+		if (++depth >= MAX_DEPTH) {
+			throw new IllegalStateException("JSON nested too deep");
+		}
+		comma[depth] = false;
+		return this;
+	}
+
+	private JsonWriter close(char bracket) {
+		depth--;
+		writeByte(bracket);
+		return this;
+	}
+
+	private void separator() {
+		if (afterName) {
+			afterName = false;
+			return;
+		}
+		if (depth > 0) {
+			if (comma[depth]) {
+				writeByte(',');
+			}
+			comma[depth] = true;
+		}
+	}
+
+	private void writeString(String value) {
+		int length = value.length();
+		ensureCapacity(length + 2);
+		buffer[size++] = '"';
+
+		for (int i = 0; i < length; i++) {
+			// Room for the longest encoding of a single character (\\u0000 or 4 UTF-8 bytes) and the closing quote
+			if (size + 7 > buffer.length) {
+				ensureCapacity(length - i + 7);
+			}
+
+			char c = value.charAt(i);
+			if (c < 0x80) {
+				if (c == '"' || c == '\\') {
+					buffer[size++] = '\\';
+					buffer[size++] = (byte) c;
+				}
+				else if (c >= 0x20) {
+					buffer[size++] = (byte) c;
+				}
+				else {
+					writeControl(c);
+				}
+			}
+			else if (c < 0x800) {
+				buffer[size++] = (byte) (0xc0 | (c >> 6));
+				buffer[size++] = (byte) (0x80 | (c & 0x3f));
+			}
+			else if (!Character.isSurrogate(c)) {
+				buffer[size++] = (byte) (0xe0 | (c >> 12));
+				buffer[size++] = (byte) (0x80 | ((c >> 6) & 0x3f));
+				buffer[size++] = (byte) (0x80 | (c & 0x3f));
+			}
+			else if (Character.isHighSurrogate(c) && i + 1 < length && Character.isLowSurrogate(value.charAt(i + 1))) {
+				int codePoint = Character.toCodePoint(c, value.charAt(++i));
+				buffer[size++] = (byte) (0xf0 | (codePoint >> 18));
+				buffer[size++] = (byte) (0x80 | ((codePoint >> 12) & 0x3f));
+				buffer[size++] = (byte) (0x80 | ((codePoint >> 6) & 0x3f));
+				buffer[size++] = (byte) (0x80 | (codePoint & 0x3f));
+			}
+			else {
+				buffer[size++] = '?';
+			}
+		}
+
+		buffer[size++] = '"';
+	}
+
+	private void writeControl(char c) {
+		buffer[size++] = '\\';
+		switch (c) {
+			case '\n':
+				buffer[size++] = 'n';
+				break;
+			case '\r':
+				buffer[size++] = 'r';
+				break;
+			case '\t':
+				buffer[size++] = 't';
+				break;
+			case '\b':
+				buffer[size++] = 'b';
+				break;
+			case '\f':
+				buffer[size++] = 'f';
+				break;
+			default:
+				buffer[size++] = 'u';
+				buffer[size++] = '0';
+				buffer[size++] = '0';
+				buffer[size++] = HEX[c >> 4];
+				buffer[size++] = HEX[c & 0xf];
+		}
+	}
+
+	private void writeLong(long value) {
+		if (value == Long.MIN_VALUE) {
+			writeAscii(Long.toString(value));
+			return;
+		}
+
+		ensureCapacity(20);
+		if (value < 0) {
+			buffer[size++] = '-';
+			value = -value;
+		}
+
+		int digits = 1;
+		for (long limit = 10; limit <= value && digits < 19; limit *= 10) {
+			digits++;
+		}
+		for (int i = size + digits - 1; i >= size; i--) {
+			buffer[i] = (byte) ('0' + value % 10);
+			value /= 10;
+		}
+		size += digits;
+	}
+
+	private void writeAscii(String value) {
+		ensureCapacity(value.length());
+		for (int i = 0; i < value.length(); i++) {
+			buffer[size++] = (byte) value.charAt(i);
+		}
+	}
+
+	private void writeBytes(byte[] bytes) {
+		ensureCapacity(bytes.length);
+		System.arraycopy(bytes, 0, buffer, size, bytes.length);
+		size += bytes.length;
+	}
+
+	private void writeByte(char c) {
+		ensureCapacity(1);
+		buffer[size++] = (byte) c;
+	}
+
+	private void ensureCapacity(int extra) {
+		if (size + extra > buffer.length) {
+			buffer = Arrays.copyOf(buffer, Math.max(buffer.length * 2, size + extra));
+		}
+	}
+
+}
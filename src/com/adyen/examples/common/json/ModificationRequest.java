@@ -0,0 +1,59 @@
+package com.adyen.examples.common.json;
+
+/**
+ * Modification request for the capture, cancel, refund and cancelOrRefund actions of the API
+ *
+ * The modificationAmount is only used by capture and refund.
+ *
+ * @author Created by Adyen - Payments Made Easy
+ */
+public class ModificationRequest implements JsonMessage {
+
+	private String merchantAccount;
+	private String originalReference;
+	private String reference;
+	private Amount modificationAmount;
+
+	public String getMerchantAccount() {
+		return merchantAccount;
+	}
+
+	public void setMerchantAccount(String merchantAccount) {
+		this.merchantAccount = merchantAccount;
+	}
+
+	public String getOriginalReference() {
+		return originalReference;
+	}
+
+	public void setOriginalReference(String originalReference) {
+		this.originalReference = originalReference;
+	}
+
+	public String getReference() {
+		return reference;
+	}
+
+	public void setReference(String reference) {
+		this.reference = reference;
+	}
+
+	public Amount getModificationAmount() {
+		return modificationAmount;
+	}
+
+	public void setModificationAmount(Amount modificationAmount) {
+		this.modificationAmount = modificationAmount;
+	}
+
+	@Override
+	public void writeTo(JsonWriter writer) {
+		writer.beginObject();
+		writer.field("merchantAccount", merchantAccount);
+		writer.field("originalReference", originalReference);
+		writer.field("reference", reference);
+		writer.field("modificationAmount", modificationAmount);
+		writer.endObject();
+	}
+
+}
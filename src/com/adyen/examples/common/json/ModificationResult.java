@@ -0,0 +1,53 @@
+package com.adyen.examples.common.json;
+
+import java.io.IOException;
+
+/**
+ * Result of the capture, cancel, refund and cancelOrRefund actions of the API
+ *
+ * @author Created by Adyen - Payments Made Easy
+ */
+public class ModificationResult {
+
+	private String pspReference;
+	private String response;
+
+	public String getPspReference() {
+		return pspReference;
+	}
+
+	public void setPspReference(String pspReference) {
+		this.pspReference = pspReference;
+	}
+
+	public String getResponse() {
+		return response;
+	}
+
+	public void setResponse(String response) {
+		this.response = response;
+	}
+
+	/**
+	 * Reads the result from a JSON response, skipping unknown fields.
+	 */
+	public static ModificationResult readFrom(JsonReader reader) throws IOException {
+		ModificationResult result = new ModificationResult();
+		reader.beginObject();
+		while (reader.hasNext()) {
+			switch (reader.nextName()) {
+				case "pspReference":
+					result.setPspReference(reader.nextString());
+					break;
+				case "response":
+					result.setResponse(reader.nextString());
+					break;
+				default:
+					reader.skipValue();
+			}
+		}
+		reader.endObject();
+		return result;
+	}
+
+}
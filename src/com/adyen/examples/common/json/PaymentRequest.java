@@ -0,0 +1,163 @@
+package com.adyen.examples.common.json;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Payment request for the authorise action of the API
+ *
+ * @author Created by Adyen - Payments Made Easy
+ */
+public class PaymentRequest implements JsonMessage {
+
+	private String merchantAccount;
+	private Amount amount;
+	private String reference;
+	private String shopperIP;
+	private String shopperEmail;
+	private String shopperReference;
+	private Long fraudOffset;
+	private Card card;
+	private BrowserInfo browserInfo;
+	private String selectedRecurringDetailReference;
+	private String shopperInteraction;
+	private Recurring recurring;
+	private Map<String, String> additionalData = new LinkedHashMap<String, String>();
+
+	public String getMerchantAccount() {
+		return merchantAccount;
+	}
+
+	public void setMerchantAccount(String merchantAccount) {
+		this.merchantAccount = merchantAccount;
+	}
+
+	public Amount getAmount() {
+		return amount;
+	}
+
+	public void setAmount(Amount amount) {
+		this.amount = amount;
+	}
+
+	public String getReference() {
+		return reference;
+	}
+
+	public void setReference(String reference) {
+		this.reference = reference;
+	}
+
+	public String getShopperIP() {
+		return shopperIP;
+	}
+
+	public void setShopperIP(String shopperIP) {
+		this.shopperIP = shopperIP;
+	}
+
+	public String getShopperEmail() {
+		return shopperEmail;
+	}
+
+	public void setShopperEmail(String shopperEmail) {
+		this.shopperEmail = shopperEmail;
+	}
+
+	public String getShopperReference() {
+		return shopperReference;
+	}
+
+	public void setShopperReference(String shopperReference) {
+		this.shopperReference = shopperReference;
+	}
+
+	public Long getFraudOffset() {
+		return fraudOffset;
+	}
+
+	public void setFraudOffset(Long fraudOffset) {
+		this.fraudOffset = fraudOffset;
+	}
+
+	public Card getCard() {
+		return card;
+	}
+
+	public void setCard(Card card) {
+		this.card = card;
+	}
+
+	public BrowserInfo getBrowserInfo() {
+		return browserInfo;
+	}
+
+	public void setBrowserInfo(BrowserInfo browserInfo) {
+		this.browserInfo = browserInfo;
+	}
+
+	public String getSelectedRecurringDetailReference() {
+		return selectedRecurringDetailReference;
+	}
+
+	public void setSelectedRecurringDetailReference(String selectedRecurringDetailReference) {
+		this.selectedRecurringDetailReference = selectedRecurringDetailReference;
+	}
+
+	public String getShopperInteraction() {
+		return shopperInteraction;
+	}
+
+	public void setShopperInteraction(String shopperInteraction) {
+		this.shopperInteraction = shopperInteraction;
+	}
+
+	public Recurring getRecurring() {
+		return recurring;
+	}
+
+	public void setRecurring(Recurring recurring) {
+		this.recurring = recurring;
+	}
+
+	public Map<String, String> getAdditionalData() {
+		return additionalData;
+	}
+
+	public void setAdditionalData(Map<String, String> additionalData) {
+		this.additionalData = additionalData;
+	}
+
+	/**
+	 * Adds an additionalData field, e.g. card.encrypted.json for Client-Side Encryption.
+	 */
+	public void putAdditionalData(String key, String value) {
+		additionalData.put(key, value);
+	}
+
+	@Override
+	public void writeTo(JsonWriter writer) {
+		writer.beginObject();
+		writer.field("merchantAccount", merchantAccount);
+		writer.field("amount", amount);
+		writer.field("reference", reference);
+		writer.field("shopperIP", shopperIP);
+		writer.field("shopperEmail", shopperEmail);
+		writer.field("shopperReference", shopperReference);
+		writer.field("fraudOffset", fraudOffset);
+		writer.field("card", card);
+		writer.field("browserInfo", browserInfo);
+		writer.field("selectedRecurringDetailReference", selectedRecurringDetailReference);
+		writer.field("shopperInteraction", shopperInteraction);
+		writer.field("recurring", recurring);
+		if (!additionalData.isEmpty()) {
+			writer.name("additionalData").beginObject();
+			for (Map.Entry<String, String> entry : additionalData.entrySet()) {
+				writer.field(entry.getKey(), entry.getValue());
+			}
+			writer.endObject();
+		}
+		writer.endObject();
+	}
+
+}
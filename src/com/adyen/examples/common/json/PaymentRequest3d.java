@@ -0,0 +1,67 @@
+package com.adyen.examples.common.json;
+
+/**
+ * Payment request for the authorise3d action of the API, completing a 3D Secure payment
+ *
+ * @author Created by Adyen - Payments Made Easy
+ */
+public class PaymentRequest3d implements JsonMessage {
+
+	private String merchantAccount;
+	private String md;
+	private String paResponse;
+	private String shopperIP;
+	private BrowserInfo browserInfo;
+
+	public String getMerchantAccount() {
+		return merchantAccount;
+	}
+
+	public void setMerchantAccount(String merchantAccount) {
+		this.merchantAccount = merchantAccount;
+	}
+
+	public String getMd() {
+		return md;
+	}
+
+	public void setMd(String md) {
+		this.md = md;
+	}
+
+	public String getPaResponse() {
+		return paResponse;
+	}
+
+	public void setPaResponse(String paResponse) {
+		this.paResponse = paResponse;
+	}
+
+	public String getShopperIP() {
+		return shopperIP;
+	}
+
+	public void setShopperIP(String shopperIP) {
+		this.shopperIP = shopperIP;
+	}
+
+	public BrowserInfo getBrowserInfo() {
+		return browserInfo;
+	}
+
+	public void setBrowserInfo(BrowserInfo browserInfo) {
+		this.browserInfo = browserInfo;
+	}
+
+	@Override
+	public void writeTo(JsonWriter writer) {
+		writer.beginObject();
+		writer.field("merchantAccount", merchantAccount);
+		writer.field("md", md);
+		writer.field("paResponse", paResponse);
+		writer.field("shopperIP", shopperIP);
+		writer.field("browserInfo", browserInfo);
+		writer.endObject();
+	}
+
+}
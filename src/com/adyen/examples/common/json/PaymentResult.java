@@ -0,0 +1,134 @@
+package com.adyen.examples.common.json;
+
+import java.io.IOException;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Result of the authorise and authorise3d actions of the API
+ *
+ * For a card enrolled in 3D Secure, the resultCode is RedirectShopper and issuerUrl, paRequest and md are set.
+ *
+ * @author Created by Adyen - Payments Made Easy
+ */
+public class PaymentResult {
+
+	private String pspReference;
+	private String resultCode;
+	private String authCode;
+	private String refusalReason;
+	private String issuerUrl;
+	private String paRequest;
+	private String md;
+	private Map<String, String> additionalData = new LinkedHashMap<String, String>();
+
+	public String getPspReference() {
+		return pspReference;
+	}
+
+	public void setPspReference(String pspReference) {
+		this.pspReference = pspReference;
+	}
+
+	public String getResultCode() {
+		return resultCode;
+	}
+
+	public void setResultCode(String resultCode) {
+		this.resultCode = resultCode;
+	}
+
+	public String getAuthCode() {
+		return authCode;
+	}
+
+	public void setAuthCode(String authCode) {
+		this.authCode = authCode;
+	}
+
+	public String getRefusalReason() {
+		return refusalReason;
+	}
+
+	public void setRefusalReason(String refusalReason) {
+		this.refusalReason = refusalReason;
+	}
+
+	public String getIssuerUrl() {
+		return issuerUrl;
+	}
+
+	public void setIssuerUrl(String issuerUrl) {
+		this.issuerUrl = issuerUrl;
+	}
+
+	public String getPaRequest() {
+		return paRequest;
+	}
+
+	public void setPaRequest(String paRequest) {
+		this.paRequest = paRequest;
+	}
+
+	public String getMd() {
+		return md;
+	}
+
+	public void setMd(String md) {
+		this.md = md;
+	}
+
+	public Map<String, String> getAdditionalData() {
+		return additionalData;
+	}
+
+	public void setAdditionalData(Map<String, String> additionalData) {
+		this.additionalData = additionalData;
+	}
+
+	/**
+	 * Reads the result from a JSON response, skipping unknown fields.
+	 */
+	public static PaymentResult readFrom(JsonReader reader) throws IOException {
+		PaymentResult result = new PaymentResult();
+		reader.beginObject();
+		while (reader.hasNext()) {
+			switch (reader.nextName()) {
+				case "pspReference":
+					result.setPspReference(reader.nextString());
+					break;
+				case "resultCode":
+					result.setResultCode(reader.nextString());
+					break;
+				case "authCode":
+					result.setAuthCode(reader.nextString());
+					break;
+				case "refusalReason":
+					result.setRefusalReason(reader.nextString());
+					break;
+				case "issuerUrl":
+					result.setIssuerUrl(reader.nextString());
+					break;
+				case "paRequest":
+					result.setPaRequest(reader.nextString());
+					break;
+				case "md":
+					result.setMd(reader.nextString());
+					break;
+				case "additionalData":
+					reader.beginObject();
+					while (reader.hasNext()) {
+						String key = reader.nextName();
+						result.additionalData.put(key, reader.nextString());
+					}
+					reader.endObject();
+					break;
+				default:
+					reader.skipValue();
+			}
+		}
+		reader.endObject();
+		return result;
+	}
+
+}
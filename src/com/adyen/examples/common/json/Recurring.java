@@ -0,0 +1,34 @@
+package com.adyen.examples.common.json;
+
+/**
+ * Recurring contract (e.g. ONECLICK or RECURRING) of a payment or recurring request
+ *
+ * @author Created by Adyen - Payments Made Easy
+ */
+public class Recurring implements JsonMessage {
+
+	private String contract;
+
+	public Recurring() {
+	}
+
+	public Recurring(String contract) {
+		this.contract = contract;
+	}
+
+	public String getContract() {
+		return contract;
+	}
+
+	public void setContract(String contract) {
+		this.contract = contract;
+	}
+
+	@Override
+	public void writeTo(JsonWriter writer) {
+		writer.beginObject();
+		writer.field("contract", contract);
+		writer.endObject();
+	}
+
+}
@@ -0,0 +1,115 @@
+package com.adyen.examples.common.json;
+
+import java.io.IOException;
+
+/**
+ * A single recurring detail (stored payment details) of a shopper
+ *
+ * The card, elv and bank containers are kept as JSON text; only one of them is set per detail.
+ *
+ * @author Created by Adyen - Payments Made Easy
+ */
+public class RecurringDetail {
+
+	private String recurringDetailReference;
+	private String variant;
+	private String creationDate;
+	private String name;
+	private String card;
+	private String elv;
+	private String bank;
+
+	public String getRecurringDetailReference() {
+		return recurringDetailReference;
+	}
+
+	public void setRecurringDetailReference(String recurringDetailReference) {
+		this.recurringDetailReference = recurringDetailReference;
+	}
+
+	public String getVariant() {
+		return variant;
+	}
+
+	public void setVariant(String variant) {
+		this.variant = variant;
+	}
+
+	public String getCreationDate() {
+		return creationDate;
+	}
+
+	public void setCreationDate(String creationDate) {
+		this.creationDate = creationDate;
+	}
+
+	public String getName() {
+		return name;
+	}
+
+	public void setName(String name) {
+		this.name = name;
+	}
+
+	public String getCard() {
+		return card;
+	}
+
+	public void setCard(String card) {
+		this.card = card;
+	}
+
+	public String getElv() {
+		return elv;
+	}
+
+	public void setElv(String elv) {
+		this.elv = elv;
+	}
+
+	public String getBank() {
+		return bank;
+	}
+
+	public void setBank(String bank) {
+		this.bank = bank;
+	}
+
+	/**
+	 * Reads the result from a JSON response, skipping unknown fields.
+	 */
+	public static RecurringDetail readFrom(JsonReader reader) throws IOException {
+		RecurringDetail result = new RecurringDetail();
+		reader.beginObject();
+		while (reader.hasNext()) {
+			switch (reader.nextName()) {
+				case "recurringDetailReference":
+					result.setRecurringDetailReference(reader.nextString());
+					break;
+				case "variant":
+					result.setVariant(reader.nextString());
+					break;
+				case "creationDate":
+					result.setCreationDate(reader.nextString());
+					break;
+				case "name":
+					result.setName(reader.nextString());
+					break;
+				case "card":
+					result.setCard(reader.nextJson());
+					break;
+				case "elv":
+					result.setElv(reader.nextJson());
+					break;
+				case "bank":
+					result.setBank(reader.nextJson());
+					break;
+				default:
+					reader.skipValue();
+			}
+		}
+		reader.endObject();
+		return result;
+	}
+
+}
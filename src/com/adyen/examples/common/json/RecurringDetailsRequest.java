@@ -0,0 +1,47 @@
+package com.adyen.examples.common.json;
+
+/**
+ * Request for the listRecurringDetails action of the Recurring API
+ *
+ * @author Created by Adyen - Payments Made Easy
+ */
+public class RecurringDetailsRequest implements JsonMessage {
+
+	private String merchantAccount;
+	private String shopperReference;
+	private Recurring recurring;
+
+	public String getMerchantAccount() {
+		return merchantAccount;
+	}
+
+	public void setMerchantAccount(String merchantAccount) {
+		this.merchantAccount = merchantAccount;
+	}
+
+	public String getShopperReference() {
+		return shopperReference;
+	}
+
+	public void setShopperReference(String shopperReference) {
+		this.shopperReference = shopperReference;
+	}
+
+	public Recurring getRecurring() {
+		return recurring;
+	}
+
+	public void setRecurring(Recurring recurring) {
+		this.recurring = recurring;
+	}
+
+	@Override
+	public void writeTo(JsonWriter writer) {
+		writer.beginObject();
+		writer.field("merchantAccount", merchantAccount);
+		writer.field("shopperReference", shopperReference);
+		writer.field("recurring", recurring);
+		writer.endObject();
+	}
+
+}
@@ -0,0 +1,93 @@
+package com.adyen.examples.common.json;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Result of the listRecurringDetails action of the Recurring API
+ *
+ * @author Created by Adyen - Payments Made Easy
+ */
+public class RecurringDetailsResult {
+
+	private String creationDate;
+	private String lastKnownShopperEmail;
+	private String shopperReference;
+	private List<RecurringDetail> details = new ArrayList<RecurringDetail>();
+
+	public String getCreationDate() {
+		return creationDate;
+	}
+
+	public void setCreationDate(String creationDate) {
+		this.creationDate = creationDate;
+	}
+
+	public String getLastKnownShopperEmail() {
+		return lastKnownShopperEmail;
+	}
+
+	public void setLastKnownShopperEmail(String lastKnownShopperEmail) {
+		this.lastKnownShopperEmail = lastKnownShopperEmail;
+	}
+
+	public String getShopperReference() {
+		return shopperReference;
+	}
+
+	public void setShopperReference(String shopperReference) {
+		this.shopperReference = shopperReference;
+	}
+
+	public List<RecurringDetail> getDetails() {
+		return details;
+	}
+
+	public void setDetails(List<RecurringDetail> details) {
+		this.details = details;
+	}
+
+	/**
+	 * Reads the result from a JSON response, skipping unknown fields.
+	 */
+	public static RecurringDetailsResult readFrom(JsonReader reader) throws IOException {
+		RecurringDetailsResult result = new RecurringDetailsResult();
+		reader.beginObject();
+		while (reader.hasNext()) {
+			switch (reader.nextName()) {
+				case "creationDate":
+					result.setCreationDate(reader.nextString());
+					break;
+				case "lastKnownShopperEmail":
+					result.setLastKnownShopperEmail(reader.nextString());
+					break;
+				case "shopperReference":
+					result.setShopperReference(reader.nextString());
+					break;
+				case "details":
+					reader.beginArray();
+					while (reader.hasNext()) {
+						// Every detail is wrapped in an object with a single RecurringDetail field
+						reader.beginObject();
+						while (reader.hasNext()) {
+							if (reader.nextName().equals("RecurringDetail")) {
+								result.details.add(RecurringDetail.readFrom(reader));
+							}
+							else {
+								reader.skipValue();
+							}
+						}
+						reader.endObject();
+					}
+					reader.endArray();
+					break;
+				default:
+					reader.skipValue();
+			}
+		}
+		reader.endObject();
+		return result;
+	}
+
+}
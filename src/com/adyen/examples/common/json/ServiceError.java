@@ -0,0 +1,102 @@
+package com.adyen.examples.common.json;
+
+import java.io.IOException;
+
+import org.apache.http.HttpResponse;
+
+/**
+ * Error details of a request that the Adyen platform did not accept or store (HTTP status other than 200 OK)
+ *
+ * @author Created by Adyen - Payments Made Easy
+ */
+public class ServiceError {
+
+	private String status;
+	private String errorCode;
+	private String message;
+	private String errorType;
+
+	/**
+	 * Reads the error details from the response. If the response does not contain JSON (e.g. a 401 Unauthorized page),
+	 * the status line is used as message.
+	 */
+	public static ServiceError from(HttpResponse httpResponse) throws IOException {
+		try {
+			return JsonCodec.read(httpResponse.getEntity(), ServiceError::readFrom);
+		} catch (JsonParseException e) {
+			ServiceError error = new ServiceError();
+			error.setStatus(String.valueOf(httpResponse.getStatusLine().getStatusCode()));
+			error.setErrorType("http");
+			error.setMessage(httpResponse.getStatusLine().toString());
+			return error;
+		}
+	}
+
+	/**
+	 * Reads the error details from a JSON response, skipping unknown fields.
+	 */
+	public static ServiceError readFrom(JsonReader reader) throws IOException {
+		ServiceError result = new ServiceError();
+		reader.beginObject();
+		while (reader.hasNext()) {
+			switch (reader.nextName()) {
+				case "status":
+					result.setStatus(reader.nextString());
+					break;
+				case "errorCode":
+					result.setErrorCode(reader.nextString());
+					break;
+				case "message":
+					result.setMessage(reader.nextString());
+					break;
+				case "errorType":
+					result.setErrorType(reader.nextString());
+					break;
+				default:
+					reader.skipValue();
+			}
+		}
+		reader.endObject();
+		return result;
+	}
+
+	public String getStatus() {
+		return status;
+	}
+
+	public void setStatus(String status) {
+		this.status = status;
+	}
+
+	public String getErrorCode() {
+		return errorCode;
+	}
+
+	public void setErrorCode(String errorCode) {
+		this.errorCode = errorCode;
+	}
+
+	public String getMessage() {
+		return message;
+	}
+
+	public void setMessage(String message) {
+		this.message = message;
+	}
+
+	public String getErrorType() {
+		return errorType;
+	}
+
+	public void setErrorType(String errorType) {
+		this.errorType = errorType;
+	}
+
+	/**
+	 * Returns the error as a single line: errorType errorCode message.
+	 */
+	public String getFaultString() {
+		return errorType + " " + errorCode + " " + message;
+	}
+
+}
@@ -0,0 +1,204 @@
+package com.adyen.examples.common.limit;
+
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.lang.management.ManagementFactory;
+import java.net.URI;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.TimeUnit;
+
+import javax.management.JMException;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+
+import com.adyen.examples.common.AdyenEndpoint;
+import com.adyen.examples.common.metrics.AdyenMetrics;
+
+/**
+ * Adaptive concurrency limits of all calls to Adyen
+ *
+ * Every operation (e.g. Payment.authorise or Recurring.listRecurringDetails, see {@link AdyenMetrics#operationOf})
+ * gets its own {@link ConcurrencyLimiter}, so a slow operation never takes the permits of another one. The limit of an
+ * operation never exceeds the connections of its endpoint, see {@link AdyenEndpoint#getMaxConnections()}.
+ *
+ * On top of that, all calls share the slots of the {@link OutboundScheduler}, by the {@link Priority} of their
+ * operation: checkout calls (authorise) have slots of their own and go before modifications and lookups, so a bulk
+ * refund job never adds latency to the checkout. A permit is only granted once the call has both a permit of its
+ * operation and a slot. The limiters and the scheduler are registered as MBeans.
+ *
+ * All outbound calls are limited, whichever way they are sent:
+ *
+ * <pre>
+ * - JSON (HTTP Client)       : in the execution chain of the shared client, see AdyenHttpClient
+ * - JSON (async HTTP Client) : by AsyncJsonCall, which rejects the call right away instead of waiting
+ * - SOAP                     : by a handler on every pooled client, see {@link LimitingSoapHandler}
+ * - Java API Library         : by a wrapper around the HTTP client of the library, see {@link LimitingClientInterface}
+ * </pre>
+ *
+ * @author Created by Adyen - Payments Made Easy
+ */
+public final class AdyenLimiters {
+
+	/**
+	 * Limiter settings
+	 * - INITIAL_LIMIT: limit of an operation before any call has been measured
+	 * - MIN_LIMIT: the limit never drops below this number of calls
+	 * - MAX_WAIT_MILLIS: how long a call waits for a permit (and a slot) before it is rejected
+	 * - MAX_WAITING: maximum number of calls waiting for a permit per operation; further calls are rejected right away
+	 * - MAX_OPERATIONS: maximum number of limited operations; further operations share the limiter of Other
+	 * - TOTAL_SLOTS: maximum number of calls to Adyen in flight at the same time, over all operations
+	 */
+	private static final int INITIAL_LIMIT = 10;
+	private static final int MIN_LIMIT = 1;
+	private static final long MAX_WAIT_MILLIS = 1000;
+	private static final int MAX_WAITING = 100;
+	private static final int MAX_OPERATIONS = 256;
+	private static final int TOTAL_SLOTS = 100;
+	private static final String OTHER_OPERATION = "Other";
+
+	private static final ConcurrentMap<String, ConcurrencyLimiter> limiters = new ConcurrentHashMap<String, ConcurrencyLimiter>();
+	private static final ConcurrentMap<Object, ObjectName> objectNames = new ConcurrentHashMap<Object, ObjectName>();
+	private static volatile OutboundScheduler scheduler;
+
+	private AdyenLimiters() {
+	}
+
+	/**
+	 * Returns a permit for a call to the given Adyen URI, waiting at most MAX_WAIT_MILLIS for one.
+	 */
+	public static Permit acquire(URI uri) throws IOException {
+		String path = uri.getPath();
+		return acquire(AdyenEndpoint.fromPath(path), AdyenMetrics.operationOf(path));
+	}
+
+	/**
+	 * Returns a permit for a call to the given operation of an endpoint, waiting at most MAX_WAIT_MILLIS for one.
+	 */
+	public static Permit acquire(AdyenEndpoint endpoint, String operation) throws IOException {
+		long startNanos = System.nanoTime();
+		Permit permit = get(endpoint, operation).acquire(MAX_WAIT_MILLIS);
+		long waitedMillis = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - startNanos);
+		return schedule(permit, operation, Math.max(1, MAX_WAIT_MILLIS - waitedMillis));
+	}
+
+	/**
+	 * Returns a permit for a call to the given Adyen URI if one is available right away.
+	 */
+	public static Permit tryAcquire(URI uri) throws LimitExceededException {
+		String path = uri.getPath();
+		String operation = AdyenMetrics.operationOf(path);
+		Permit permit = get(AdyenEndpoint.fromPath(path), operation).tryAcquire();
+		try {
+			return schedule(permit, operation, 0);
+		} catch (InterruptedIOException e) {
+			// Without waiting, the only failure is a rejection
+			throw e instanceof LimitExceededException ? (LimitExceededException) e : new LimitExceededException(e
+					.getMessage());
+		}
+	}
+
+	/**
+	 * Returns the limiter of the calls to the given Adyen URI.
+	 */
+	public static ConcurrencyLimiter forUri(URI uri) {
+		String path = uri.getPath();
+		return get(AdyenEndpoint.fromPath(path), AdyenMetrics.operationOf(path));
+	}
+
+	/**
+	 * Returns the limiter of the given operation of an endpoint, e.g. Payment.authorise.
+	 */
+	public static ConcurrencyLimiter get(AdyenEndpoint endpoint, String operation) {
+		ConcurrencyLimiter result = limiters.get(operation);
+		if (result != null) {
+			return result;
+		}
+
+		if (limiters.size() >= MAX_OPERATIONS) {
+			endpoint = AdyenEndpoint.OTHER;
+			operation = OTHER_OPERATION;
+		}
+
+		final int maxLimit = Math.max(MIN_LIMIT, endpoint.getMaxConnections());
+		return limiters.computeIfAbsent(operation,
+				k -> register(new ConcurrencyLimiter(k, INITIAL_LIMIT, MIN_LIMIT, maxLimit, MAX_WAITING)));
+	}
+
+	/**
+	 * Returns the scheduler of all calls to Adyen, creating it on first use.
+	 */
+	public static OutboundScheduler getScheduler() {
+		OutboundScheduler result = scheduler;
+		if (result == null) {
+			synchronized (AdyenLimiters.class) {
+				result = scheduler;
+				if (result == null) {
+					scheduler = result = new OutboundScheduler(TOTAL_SLOTS);
+					register(result, "com.adyen.examples:type=OutboundScheduler");
+				}
+			}
+		}
+		return result;
+	}
+
+	/**
+	 * Returns the limiters of all operations, sorted by operation.
+	 */
+	public static Collection<ConcurrencyLimiter> getLimiters() {
+		return new ArrayList<ConcurrencyLimiter>(new TreeMap<String, ConcurrencyLimiter>(limiters).values());
+	}
+
+	/**
+	 * Unregisters the MBeans and drops all limiters.
+	 */
+	public static void shutdown() {
+		MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+		for (ObjectName objectName : objectNames.values()) {
+			try {
+				server.unregisterMBean(objectName);
+			} catch (JMException e) {
+				// Already unregistered
+			}
+		}
+		objectNames.clear();
+		limiters.clear();
+		scheduler = null;
+	}
+
+	private static Permit schedule(Permit permit, String operation, long maxWaitMillis) throws InterruptedIOException {
+		Priority priority = Priority.of(operation);
+		OutboundScheduler current = getScheduler();
+		try {
+			current.acquire(priority, maxWaitMillis);
+		} catch (InterruptedIOException e) {
+			permit.cancel();
+			throw e;
+		}
+		permit.scheduled(current, priority);
+		return permit;
+	}
+
+	private static ConcurrencyLimiter register(ConcurrencyLimiter limiter) {
+		register(limiter, "com.adyen.examples:type=AdyenLimiter,operation=" + ObjectName.quote(limiter.getOperation()));
+		return limiter;
+	}
+
+	private static void register(Object mbean, String name) {
+		try {
+			MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+			ObjectName objectName = new ObjectName(name);
+			if (server.isRegistered(objectName)) {
+				server.unregisterMBean(objectName);
+			}
+			server.registerMBean(mbean, objectName);
+			objectNames.put(mbean, objectName);
+		} catch (JMException e) {
+			// Monitoring is not available, the calls are limited regardless
+		}
+	}
+
+}
@@ -0,0 +1,217 @@
+package com.adyen.examples.common.limit;
+
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Adaptive limit on the number of concurrent calls to a single Adyen operation
+ *
+ * When Adyen (or an acquirer behind it) slows down, sending more calls only makes the queue at Adyen longer. The
+ * limiter finds the number of calls the operation can handle with AIMD (additive increase, multiplicative decrease),
+ * based on the round trip time of the calls:
+ *
+ * <pre>
+ * - The no-load round trip time is the fastest call seen in the last RTT_WINDOW_SAMPLES calls.
+ * - A call that is slower than RTT_TOLERANCE times the no-load round trip time, or that failed because of overload
+ *   (see {@link Permit#setDropped()}), multiplies the limit by BACKOFF_RATIO; at most once per round trip, so a burst
+ *   of slow calls counts as one signal.
+ * - Any other call raises the limit by 1/limit, i.e. by one per round trip, as long as at least half of the limit is
+ *   in use.
+ * </pre>
+ *
+ * A call that does not get a permit waits for a bounded time, together with at most maxWaiting other calls. After
+ * that it is rejected with a {@link LimitExceededException}, without being sent to Adyen. Waiting calls are not
+ * served in strict order.
+ *
+ * Use {@link AdyenLimiters} to get the limiter of an operation.
+ *
+ * @author Created by Adyen - Payments Made Easy
+ */
+public class ConcurrencyLimiter implements ConcurrencyLimiterMXBean {
+
+	/**
+	 * Limit settings
+	 * - RTT_TOLERANCE: calls slower than this multiple of the no-load round trip time count as overload
+	 * - BACKOFF_RATIO: the limit is multiplied by this ratio on overload
+	 * - RTT_WINDOW_SAMPLES: the no-load round trip time is measured again after this number of calls, so it follows a
+	 *   lasting change in latency (e.g. after a deployment at the acquirer)
+	 */
+	private static final double RTT_TOLERANCE = 2.0;
+	private static final double BACKOFF_RATIO = 0.9;
+	private static final int RTT_WINDOW_SAMPLES = 500;
+
+	private final String operation;
+	private final int minLimit;
+	private final int maxLimit;
+	private final int maxWaiting;
+
+	private double limit;
+	private int inFlight;
+	private int waiting;
+	private long rejectedCount;
+
+	private long noLoadRttNanos = Long.MAX_VALUE;
+	private long windowMinRttNanos = Long.MAX_VALUE;
+	private int windowSamples;
+	private long lastDecreaseNanos;
+
+	public ConcurrencyLimiter(String operation, int initialLimit, int minLimit, int maxLimit, int maxWaiting) {
+		if (minLimit < 1 || maxLimit < minLimit) {
+			throw new IllegalArgumentException("Invalid limits for " + operation + ": " + minLimit + ".." + maxLimit);
+		}
+		this.operation = operation;
+		this.minLimit = minLimit;
+		this.maxLimit = maxLimit;
+		this.maxWaiting = maxWaiting;
+		this.limit = Math.max(minLimit, Math.min(maxLimit, initialLimit));
+		this.lastDecreaseNanos = System.nanoTime();
+	}
+
+	/**
+	 * Returns a permit for a call, waiting at most the given time for one to become available. Close the permit when
+	 * the call is done, preferably with try-with-resources.
+	 *
+	 * @throws LimitExceededException if no permit became available in time, or too many calls are waiting already
+	 * @throws InterruptedIOException if the thread was interrupted while waiting
+	 */
+	public synchronized Permit acquire(long maxWaitMillis) throws IOException {
+		if (inFlight < currentLimit()) {
+			return grant();
+		}
+
+		if (maxWaitMillis <= 0 || waiting >= maxWaiting) {
+			throw reject();
+		}
+
+		waiting++;
+		try {
+			long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(maxWaitMillis);
+			while (inFlight >= currentLimit()) {
+				long remaining = deadline - System.nanoTime();
+				if (remaining <= 0) {
+					throw reject();
+				}
+				TimeUnit.NANOSECONDS.timedWait(this, remaining);
+			}
+			return grant();
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new InterruptedIOException("Interrupted while waiting for a permit for " + operation);
+		} finally {
+			waiting--;
+		}
+	}
+
+	/**
+	 * Returns a permit for a call if one is available right away, for callers that must not block.
+	 *
+	 * @throws LimitExceededException if no permit is available
+	 */
+	public Permit tryAcquire() throws LimitExceededException {
+		synchronized (this) {
+			if (inFlight < currentLimit()) {
+				return grant();
+			}
+			throw reject();
+		}
+	}
+
+	/**
+	 * Releases the permit of a finished call and adjusts the limit, called by the Permit.
+	 */
+	synchronized void release(long startNanos, boolean dropped) {
+		long now = System.nanoTime();
+		long rttNanos = now - startNanos;
+		inFlight--;
+
+		if (!dropped) {
+			windowMinRttNanos = Math.min(windowMinRttNanos, rttNanos);
+			noLoadRttNanos = Math.min(noLoadRttNanos, rttNanos);
+		}
+		if (++windowSamples >= RTT_WINDOW_SAMPLES && windowMinRttNanos != Long.MAX_VALUE) {
+			noLoadRttNanos = windowMinRttNanos;
+			windowMinRttNanos = Long.MAX_VALUE;
+			windowSamples = 0;
+		}
+
+		boolean overload = dropped
+				|| (noLoadRttNanos != Long.MAX_VALUE && rttNanos > noLoadRttNanos * RTT_TOLERANCE);
+		if (overload) {
+			long roundTrip = noLoadRttNanos == Long.MAX_VALUE ? 0 : noLoadRttNanos;
+			if (now - lastDecreaseNanos >= roundTrip) {
+				limit = Math.max(minLimit, limit * BACKOFF_RATIO);
+				lastDecreaseNanos = now;
+			}
+		}
+		else if ((inFlight + 1) * 2 >= limit) {
+			limit = Math.min(maxLimit, limit + 1.0 / limit);
+		}
+
+		notifyAll();
+	}
+
+	/**
+	 * Releases the permit of a call that was never sent, without adjusting the limit, called by the Permit.
+	 */
+	synchronized void cancel() {
+		inFlight--;
+		notifyAll();
+	}
+
+	private Permit grant() {
+		inFlight++;
+		return new Permit(this, System.nanoTime());
+	}
+
+	private LimitExceededException reject() {
+		rejectedCount++;
+		return new LimitExceededException("Too many calls in flight to " + operation + " (limit " + currentLimit()
+				+ ")");
+	}
+
+	private int currentLimit() {
+		return (int) limit;
+	}
+
+	@Override
+	public String getOperation() {
+		return operation;
+	}
+
+	@Override
+	public synchronized int getLimit() {
+		return currentLimit();
+	}
+
+	@Override
+	public int getMinLimit() {
+		return minLimit;
+	}
+
+	@Override
+	public int getMaxLimit() {
+		return maxLimit;
+	}
+
+	@Override
+	public synchronized int getInFlight() {
+		return inFlight;
+	}
+
+	@Override
+	public synchronized int getWaiting() {
+		return waiting;
+	}
+
+	@Override
+	public synchronized long getRejectedCount() {
+		return rejectedCount;
+	}
+
+	@Override
+	public synchronized double getNoLoadRttMillis() {
+		return noLoadRttNanos == Long.MAX_VALUE ? 0 : noLoadRttNanos / 1000000.0;
+	}
+
+}
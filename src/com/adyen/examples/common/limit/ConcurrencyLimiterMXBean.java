@@ -0,0 +1,45 @@
+package com.adyen.examples.common.limit;
+
+/**
+ * Management interface of the {@link ConcurrencyLimiter} of a single operation, registered as
+ * com.adyen.examples:type=AdyenLimiter,operation=&lt;name&gt;
+ *
+ * @author Created by Adyen - Payments Made Easy
+ */
+public interface ConcurrencyLimiterMXBean {
+
+	/**
+	 * Name of the operation, e.g. Payment.authorise.
+	 */
+	String getOperation();
+
+	/**
+	 * Current number of calls that may be in flight at the same time.
+	 */
+	int getLimit();
+
+	int getMinLimit();
+
+	int getMaxLimit();
+
+	/**
+	 * Number of calls that are currently in flight.
+	 */
+	int getInFlight();
+
+	/**
+	 * Number of calls that are currently waiting for a permit.
+	 */
+	int getWaiting();
+
+	/**
+	 * Number of calls that were rejected, because no permit became available in time.
+	 */
+	long getRejectedCount();
+
+	/**
+	 * Round trip time of a call to the operation without load, in milliseconds.
+	 */
+	double getNoLoadRttMillis();
+
+}
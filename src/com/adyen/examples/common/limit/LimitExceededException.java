@@ -0,0 +1,23 @@
+package com.adyen.examples.common.limit;
+
+import java.io.InterruptedIOException;
+
+/**
+ * Thrown when a call to Adyen is rejected by its {@link ConcurrencyLimiter}, because too many calls to the same
+ * operation are in flight and no permit became available in time. The call has not been sent to Adyen, so it is always
+ * safe to retry it later.
+ *
+ * Like a timeout on the connection pool, it is an InterruptedIOException, so the HTTP Client does not retry the call
+ * right away.
+ *
+ * @author Created by Adyen - Payments Made Easy
+ */
+public class LimitExceededException extends InterruptedIOException {
+
+	private static final long serialVersionUID = 1L;
+
+	public LimitExceededException(String message) {
+		super(message);
+	}
+
+}
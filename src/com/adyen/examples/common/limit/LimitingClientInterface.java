@@ -0,0 +1,69 @@
+package com.adyen.examples.common.limit;
+
+import java.io.IOException;
+import java.net.URI;
+import java.util.Map;
+
+import com.adyen.Config;
+import com.adyen.httpclient.ClientInterface;
+import com.adyen.httpclient.HTTPClientException;
+
+/**
+ * Limits the calls of the Adyen Java API Library, see {@link AdyenLimiters}
+ *
+ * Wraps the HTTP client of a library Client:
+ *
+ * <pre>
+ * client.setHttpClient(new LimitingClientInterface(client.getHttpClient()));
+ * </pre>
+ *
+ * Connection errors and HTTP 429/5xx responses count as overload. When no permit becomes available in time, the call
+ * fails with a {@link LimitExceededException}.
+ *
+ * @author Created by Adyen - Payments Made Easy
+ */
+public class LimitingClientInterface implements ClientInterface {
+
+	private final ClientInterface delegate;
+
+	public LimitingClientInterface(ClientInterface delegate) {
+		this.delegate = delegate;
+	}
+
+	@Override
+	public String request(String endpoint, String json, Config config) throws IOException, HTTPClientException {
+		return request(endpoint, json, config, false);
+	}
+
+	@Override
+	public String request(String endpoint, String json, Config config, boolean isApiKeyRequired) throws IOException,
+			HTTPClientException {
+		try (Permit permit = AdyenLimiters.acquire(URI.create(endpoint))) {
+			try {
+				return delegate.request(endpoint, json, config, isApiKeyRequired);
+			} catch (HTTPClientException e) {
+				permit.setStatus(e.getCode());
+				throw e;
+			} catch (IOException e) {
+				permit.setDropped();
+				throw e;
+			}
+		}
+	}
+
+	@Override
+	public String post(String url, Map<String, String> params, Config config) throws IOException, HTTPClientException {
+		try (Permit permit = AdyenLimiters.acquire(URI.create(url))) {
+			try {
+				return delegate.post(url, params, config);
+			} catch (HTTPClientException e) {
+				permit.setStatus(e.getCode());
+				throw e;
+			} catch (IOException e) {
+				permit.setDropped();
+				throw e;
+			}
+		}
+	}
+
+}
@@ -0,0 +1,102 @@
+package com.adyen.examples.common.limit;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Set;
+
+import javax.xml.namespace.QName;
+import javax.xml.ws.Binding;
+import javax.xml.ws.BindingProvider;
+import javax.xml.ws.WebServiceException;
+import javax.xml.ws.handler.Handler;
+import javax.xml.ws.handler.MessageContext;
+import javax.xml.ws.handler.soap.SOAPHandler;
+import javax.xml.ws.handler.soap.SOAPMessageContext;
+
+import com.adyen.examples.common.AdyenEndpoint;
+
+/**
+ * Limits the SOAP calls of a client (port proxy) to Adyen, see {@link AdyenLimiters}
+ *
+ * A permit is taken before the request is sent and released when the response (or SOAP fault) arrives. A call that
+ * ends without any response, e.g. because of a timeout, counts as overload. When no permit becomes available in time,
+ * the call fails with a WebServiceException caused by a {@link LimitExceededException}.
+ *
+ * The handler keeps the permit of the current call, so it relies on a client being used by a single thread at a time,
+ * like the clients of a {@link com.adyen.examples.common.PortPool}.
+ *
+ * @author Created by Adyen - Payments Made Easy
+ */
+public class LimitingSoapHandler implements SOAPHandler<SOAPMessageContext> {
+
+	private final AdyenEndpoint endpoint;
+	private final String service;
+	private Permit permit;
+	private boolean answered;
+
+	public LimitingSoapHandler(AdyenEndpoint endpoint, String service) {
+		this.endpoint = endpoint;
+		this.service = service;
+	}
+
+	/**
+	 * Adds a limiting handler for the given service (e.g. Payment) to a new port proxy.
+	 */
+	@SuppressWarnings("rawtypes")
+	public static <T> T install(T port, AdyenEndpoint endpoint, String service) {
+		Binding binding = ((BindingProvider) port).getBinding();
+		List<Handler> handlerChain = new ArrayList<Handler>(binding.getHandlerChain());
+		handlerChain.add(new LimitingSoapHandler(endpoint, service));
+		binding.setHandlerChain(handlerChain);
+		return port;
+	}
+
+	@Override
+	public boolean handleMessage(SOAPMessageContext context) {
+		if (Boolean.TRUE.equals(context.get(MessageContext.MESSAGE_OUTBOUND_PROPERTY))) {
+			// Release the permit of a previous call that was never closed
+			close(context);
+			try {
+				permit = AdyenLimiters.acquire(endpoint, operationOf(context));
+				answered = false;
+			} catch (IOException e) {
+				throw new WebServiceException(e);
+			}
+		}
+		else {
+			answered = true;
+		}
+		return true;
+	}
+
+	@Override
+	public boolean handleFault(SOAPMessageContext context) {
+		answered = true;
+		return true;
+	}
+
+	@Override
+	public void close(MessageContext context) {
+		Permit current = permit;
+		permit = null;
+		if (current != null) {
+			if (!answered) {
+				current.setDropped();
+			}
+			current.close();
+		}
+	}
+
+	@Override
+	public Set<QName> getHeaders() {
+		return Collections.emptySet();
+	}
+
+	private String operationOf(MessageContext context) {
+		QName operation = (QName) context.get(MessageContext.WSDL_OPERATION);
+		return service + "." + (operation != null ? operation.getLocalPart() : "Other");
+	}
+
+}
@@ -0,0 +1,248 @@
+package com.adyen.examples.common.limit;
+
+import java.io.InterruptedIOException;
+import java.util.ArrayDeque;
+import java.util.EnumMap;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Schedules the calls to Adyen by priority class, see {@link Priority}
+ *
+ * All calls to Adyen share a fixed number of slots (calls in flight). Every priority class has some slots reserved for
+ * itself; the remaining slots are shared. A call takes a reserved slot of its class if one is free, otherwise a shared
+ * slot. When no slot is free, the call waits in the queue of its class.
+ *
+ * When a slot is released, the waiting calls are served by weighted fair queuing: every waiting call gets a virtual
+ * finish time of 1/weight after the previous call of its class (or after the current virtual time, if the class was
+ * idle), and the call with the earliest finish time that may use the free slot goes first. With the default weights, a
+ * flood of refunds gets one slot for every four authorisations, and can never take the slots reserved for checkout.
+ *
+ * Calls of the same class are served in order of arrival. A call that does not get a slot within its maximum wait is
+ * rejected with a {@link LimitExceededException}.
+ *
+ * @author Created by Adyen - Payments Made Easy
+ */
+public class OutboundScheduler implements OutboundSchedulerMXBean {
+
+	private static final Priority[] PRIORITIES = Priority.values();
+
+	private final int totalSlots;
+	private final int sharedSlots;
+
+	private final ReentrantLock lock = new ReentrantLock();
+	private final int[] inUse = new int[PRIORITIES.length];
+	private final long[] rejected = new long[PRIORITIES.length];
+	private final double[] lastFinishTime = new double[PRIORITIES.length];
+	private final Map<Priority, ArrayDeque<Waiter>> queues = new EnumMap<Priority, ArrayDeque<Waiter>>(Priority.class);
+	private int sharedInUse;
+	private double virtualTime;
+
+	public OutboundScheduler(int totalSlots) {
+		int reservedSlots = 0;
+		for (Priority priority : PRIORITIES) {
+			reservedSlots += priority.getReservedSlots();
+			queues.put(priority, new ArrayDeque<Waiter>());
+		}
+		if (totalSlots < reservedSlots) {
+			throw new IllegalArgumentException("Total slots " + totalSlots + " less than reserved slots " + reservedSlots);
+		}
+		this.totalSlots = totalSlots;
+		this.sharedSlots = totalSlots - reservedSlots;
+	}
+
+	/**
+	 * Takes a slot for a call of the given priority class, waiting at most the given time for one. Release the slot
+	 * with {@link #release(Priority)} when the call is done.
+	 *
+	 * @throws LimitExceededException if no slot became available in time
+	 * @throws InterruptedIOException if the thread was interrupted while waiting
+	 */
+	public void acquire(Priority priority, long maxWaitMillis) throws InterruptedIOException {
+		lock.lock();
+		try {
+			ArrayDeque<Waiter> queue = queues.get(priority);
+			double finishTime = nextFinishTime(priority);
+
+			// Calls only wait if nothing can be scheduled, so a free slot means nobody eligible is waiting
+			if (queue.isEmpty() && isEligible(priority)) {
+				take(priority, finishTime);
+				return;
+			}
+
+			if (maxWaitMillis <= 0) {
+				throw reject(priority);
+			}
+
+			Waiter waiter = new Waiter(lock.newCondition(), finishTime);
+			queue.addLast(waiter);
+			lastFinishTime[priority.ordinal()] = finishTime;
+
+			long remaining = TimeUnit.MILLISECONDS.toNanos(maxWaitMillis);
+			try {
+				while (!waiter.granted) {
+					if (remaining <= 0) {
+						queue.remove(waiter);
+						throw reject(priority);
+					}
+					remaining = waiter.condition.awaitNanos(remaining);
+				}
+			} catch (InterruptedException e) {
+				if (waiter.granted) {
+					release(priority);
+				}
+				else {
+					queue.remove(waiter);
+				}
+				Thread.currentThread().interrupt();
+				throw new InterruptedIOException("Interrupted while waiting for a slot for " + priority);
+			}
+		} finally {
+			lock.unlock();
+		}
+	}
+
+	/**
+	 * Releases the slot of a finished call, and hands it to the next waiting call.
+	 */
+	public void release(Priority priority) {
+		lock.lock();
+		try {
+			int index = priority.ordinal();
+			if (inUse[index] > priority.getReservedSlots()) {
+				sharedInUse--;
+			}
+			inUse[index]--;
+			dispatch();
+		} finally {
+			lock.unlock();
+		}
+	}
+
+	private void dispatch() {
+		while (true) {
+			Priority next = null;
+			Waiter first = null;
+			for (Priority priority : PRIORITIES) {
+				Waiter waiter = queues.get(priority).peekFirst();
+				if (waiter != null && isEligible(priority) && (first == null || waiter.finishTime < first.finishTime)) {
+					next = priority;
+					first = waiter;
+				}
+			}
+			if (next == null) {
+				return;
+			}
+
+			queues.get(next).removeFirst();
+			take(next, first.finishTime);
+			first.granted = true;
+			first.condition.signal();
+		}
+	}
+
+	private boolean isEligible(Priority priority) {
+		return inUse[priority.ordinal()] < priority.getReservedSlots() || sharedInUse < sharedSlots;
+	}
+
+	private void take(Priority priority, double finishTime) {
+		int index = priority.ordinal();
+		if (inUse[index] >= priority.getReservedSlots()) {
+			sharedInUse++;
+		}
+		inUse[index]++;
+		lastFinishTime[index] = Math.max(lastFinishTime[index], finishTime);
+		virtualTime = Math.max(virtualTime, finishTime - 1.0 / priority.getWeight());
+	}
+
+	private double nextFinishTime(Priority priority) {
+		return Math.max(virtualTime, lastFinishTime[priority.ordinal()]) + 1.0 / priority.getWeight();
+	}
+
+	private LimitExceededException reject(Priority priority) {
+		rejected[priority.ordinal()]++;
+		return new LimitExceededException("Too many calls in flight to Adyen for priority " + priority);
+	}
+
+	@Override
+	public int getTotalSlots() {
+		return totalSlots;
+	}
+
+	@Override
+	public int getSharedSlots() {
+		return sharedSlots;
+	}
+
+	@Override
+	public int getSharedInUse() {
+		lock.lock();
+		try {
+			return sharedInUse;
+		} finally {
+			lock.unlock();
+		}
+	}
+
+	@Override
+	public Map<String, Integer> getInUseByPriority() {
+		lock.lock();
+		try {
+			Map<String, Integer> result = new TreeMap<String, Integer>();
+			for (Priority priority : PRIORITIES) {
+				result.put(priority.name(), inUse[priority.ordinal()]);
+			}
+			return result;
+		} finally {
+			lock.unlock();
+		}
+	}
+
+	@Override
+	public Map<String, Integer> getWaitingByPriority() {
+		lock.lock();
+		try {
+			Map<String, Integer> result = new TreeMap<String, Integer>();
+			for (Priority priority : PRIORITIES) {
+				result.put(priority.name(), queues.get(priority).size());
+			}
+			return result;
+		} finally {
+			lock.unlock();
+		}
+	}
+
+	@Override
+	public Map<String, Long> getRejectedByPriority() {
+		lock.lock();
+		try {
+			Map<String, Long> result = new TreeMap<String, Long>();
+			for (Priority priority : PRIORITIES) {
+				result.put(priority.name(), rejected[priority.ordinal()]);
+			}
+			return result;
+		} finally {
+			lock.unlock();
+		}
+	}
+
+	/**
+	 * A call waiting for a slot.
+	 */
+	private static class Waiter {
+
+		final Condition condition;
+		final double finishTime;
+		boolean granted;
+
+		Waiter(Condition condition, double finishTime) {
+			this.condition = condition;
+			this.finishTime = finishTime;
+		}
+
+	}
+
+}
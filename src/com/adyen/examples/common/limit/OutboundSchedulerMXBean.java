@@ -0,0 +1,42 @@
+package com.adyen.examples.common.limit;
+
+import java.util.Map;
+
+/**
+ * Management interface of the {@link OutboundScheduler}, registered as com.adyen.examples:type=OutboundScheduler
+ *
+ * @author Created by Adyen - Payments Made Easy
+ */
+public interface OutboundSchedulerMXBean {
+
+	/**
+	 * Maximum number of calls to Adyen in flight at the same time, over all priority classes.
+	 */
+	int getTotalSlots();
+
+	/**
+	 * Number of slots that are not reserved for a priority class.
+	 */
+	int getSharedSlots();
+
+	/**
+	 * Number of shared slots in use.
+	 */
+	int getSharedInUse();
+
+	/**
+	 * Number of calls in flight per priority class.
+	 */
+	Map<String, Integer> getInUseByPriority();
+
+	/**
+	 * Number of calls waiting for a slot per priority class.
+	 */
+	Map<String, Integer> getWaitingByPriority();
+
+	/**
+	 * Number of calls rejected per priority class, because no slot became available in time.
+	 */
+	Map<String, Long> getRejectedByPriority();
+
+}
@@ -0,0 +1,87 @@
+package com.adyen.examples.common.limit;
+
+/**
+ * Permit for a single call to Adyen, see {@link ConcurrencyLimiter#acquire(long)}
+ *
+ * A permit includes the slot of the call in the {@link OutboundScheduler}, if any. Closing the permit releases both,
+ * and reports the round trip time of the call to the limiter. Mark calls that failed because Adyen is overloaded
+ * (timeouts, connection errors, HTTP 429 and 5xx) with {@link #setDropped()}, so the limiter backs off. Calls that
+ * Adyen answered, even with an error, are normal samples. A permit is released only once, even when it is
+ * closed again, e.g. by both the response entity and the response.
+ *
+ * @author Created by Adyen - Payments Made Easy
+ */
+public final class Permit implements AutoCloseable {
+
+	private final ConcurrencyLimiter limiter;
+	private long startNanos;
+	private OutboundScheduler scheduler;
+	private Priority priority;
+	private boolean dropped;
+	private boolean closed;
+
+	Permit(ConcurrencyLimiter limiter, long startNanos) {
+		this.limiter = limiter;
+		this.startNanos = startNanos;
+	}
+
+	/**
+	 * Marks the call as failed because of overload.
+	 */
+	public void setDropped() {
+		this.dropped = true;
+	}
+
+	/**
+	 * Marks the call as failed because of overload if the given HTTP status is 429 Too Many Requests or a 5xx status.
+	 */
+	public void setStatus(int status) {
+		if (status == 429 || status >= 500) {
+			setDropped();
+		}
+	}
+
+	public ConcurrencyLimiter getLimiter() {
+		return limiter;
+	}
+
+	/**
+	 * Priority class of the call, or null if the call has no slot in the scheduler.
+	 */
+	public Priority getPriority() {
+		return priority;
+	}
+
+	/**
+	 * Attaches the slot of the call in the scheduler. The round trip time is measured from now on, so waiting for a
+	 * slot does not count as latency of the operation.
+	 */
+	void scheduled(OutboundScheduler scheduler, Priority priority) {
+		this.scheduler = scheduler;
+		this.priority = priority;
+		this.startNanos = System.nanoTime();
+	}
+
+	/**
+	 * Releases a permit whose call was never sent, without reporting a round trip time.
+	 */
+	synchronized void cancel() {
+		if (!closed) {
+			closed = true;
+			limiter.cancel();
+		}
+	}
+
+	@Override
+	public synchronized void close() {
+		if (closed) {
+			return;
+		}
+		closed = true;
+		if (scheduler != null) {
+			scheduler.release(priority);
+		}
+		limiter.release(startNanos, dropped);
+	}
+
+}
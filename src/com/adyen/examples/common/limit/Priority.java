@@ -0,0 +1,80 @@
+package com.adyen.examples.common.limit;
+
+/**
+ * Priority classes of the calls to Adyen, see {@link OutboundScheduler}
+ *
+ * A shopper waits for the checkout calls; modifications and lookups are background work that can wait a little. Every
+ * class has a weight, which sets its share of the calls when several classes are waiting, and a number of reserved
+ * slots, which the other classes can never use.
+ *
+ * @author Created by Adyen - Payments Made Easy
+ */
+public enum Priority {
+
+	/**
+	 * Calls a shopper is waiting for: authorise, authorise3d and the payment methods of the HPP.
+	 */
+	CHECKOUT(8, 40),
+
+	/**
+	 * Modifications of payments and payouts: capture, refund, cancel, payout submit/confirm/decline and disabling
+	 * recurring contracts.
+	 */
+	MODIFICATION(2, 10),
+
+	/**
+	 * Lookups (e.g. listRecurringDetails) and all other calls.
+	 */
+	LOOKUP(1, 5);
+
+	private final int weight;
+	private final int reservedSlots;
+
+	private Priority(int weight, int reservedSlots) {
+		this.weight = weight;
+		this.reservedSlots = reservedSlots;
+	}
+
+	/**
+	 * Share of the calls of this class, relative to the other classes.
+	 */
+	public int getWeight() {
+		return weight;
+	}
+
+	/**
+	 * Number of slots that only calls of this class may use.
+	 */
+	public int getReservedSlots() {
+		return reservedSlots;
+	}
+
+	/**
+	 * Returns the priority class of an operation, e.g. CHECKOUT for Payment.authorise.
+	 */
+	public static Priority of(String operation) {
+		String action = operation.substring(operation.lastIndexOf('.') + 1);
+		switch (action) {
+			case "authorise":
+			case "authorise3d":
+			case "directory":
+				return CHECKOUT;
+			case "capture":
+			case "refund":
+			case "cancel":
+			case "cancelOrRefund":
+			case "technicalCancel":
+			case "adjustAuthorisation":
+			case "disable":
+			case "submit":
+			case "storeDetail":
+			case "storeDetailAndSubmit":
+			case "confirm":
+			case "decline":
+				return MODIFICATION;
+			default:
+				return LOOKUP;
+		}
+	}
+
+}
@@ -0,0 +1,206 @@
+package com.adyen.examples.common.metrics;
+
+import java.lang.management.ManagementFactory;
+import java.net.URI;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+import javax.management.JMException;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+
+import com.adyen.examples.common.AdyenEndpoint;
+
+/**
+ * Latency histograms and counters of all calls to Adyen and all requests to the servlets
+ *
+ * Every operation gets its own {@link OperationMetrics}, which is created on first use and registered as MBean. The
+ * outbound operations are named after the service and action that is called, e.g. Payment.authorise, for each API
+ * (JSON, SOAP or Library); the inbound operations are named after the servlet path. The metrics are also available as
+ * text, see {@link MetricsServlet}.
+ *
+ * Calls to Adyen are measured by the examples themselves, so the result code of every call can be recorded:
+ *
+ * <pre>
+ * try (OperationTimer timer = AdyenMetrics.json(apiUrl).start()) {
+ *     ...
+ *     timer.setResult(paymentResult.getResultCode());
+ * }
+ * </pre>
+ *
+ * The bytes sent to and received from Adyen are counted by the shared HTTP Clients (see {@link MetricsInterceptor}),
+ * the requests to the servlets are measured by the {@link MetricsFilter}.
+ *
+ * @author Created by Adyen - Payments Made Easy
+ */
+public final class AdyenMetrics {
+
+	public static final String OUTBOUND = "outbound";
+	public static final String INBOUND = "inbound";
+
+	public static final String JSON = "JSON";
+	public static final String SOAP = "SOAP";
+	public static final String LIBRARY = "Library";
+	public static final String HTTP = "HTTP";
+
+	/**
+	 * Metrics settings
+	 * - MAX_OPERATIONS: maximum number of operations per direction; further operations are counted as Other
+	 */
+	private static final int MAX_OPERATIONS = 256;
+	private static final String OTHER_OPERATION = "Other";
+
+	private static final String SERVLET_PATH = "/servlet/";
+
+	private static final ConcurrentMap<String, OperationMetrics> outbound = new ConcurrentHashMap<String, OperationMetrics>();
+	private static final ConcurrentMap<String, OperationMetrics> inbound = new ConcurrentHashMap<String, OperationMetrics>();
+	private static final ConcurrentMap<OperationMetrics, ObjectName> objectNames = new ConcurrentHashMap<OperationMetrics, ObjectName>();
+
+	private AdyenMetrics() {
+	}
+
+	/**
+	 * Returns the metrics of the JSON calls to the given Adyen URL.
+	 */
+	public static OperationMetrics json(String url) {
+		return json(URI.create(url));
+	}
+
+	/**
+	 * Returns the metrics of the JSON calls to the given Adyen URI.
+	 */
+	public static OperationMetrics json(URI uri) {
+		return outbound(JSON, operationOf(uri.getPath()));
+	}
+
+	/**
+	 * Returns the metrics of the SOAP calls of the given operation, e.g. Payment.authorise.
+	 */
+	public static OperationMetrics soap(String operation) {
+		return outbound(SOAP, operation);
+	}
+
+	/**
+	 * Returns the metrics of the calls of the given operation with the Adyen Java API Library, e.g. Payment.authorise.
+	 */
+	public static OperationMetrics library(String operation) {
+		return outbound(LIBRARY, operation);
+	}
+
+	/**
+	 * Returns the metrics of the calls of the given operation to Adyen.
+	 */
+	public static OperationMetrics outbound(String api, String operation) {
+		return getOrCreate(outbound, OUTBOUND, api, operation);
+	}
+
+	/**
+	 * Returns the metrics of the requests to the given servlet path.
+	 */
+	public static OperationMetrics inbound(String servletPath) {
+		return getOrCreate(inbound, INBOUND, HTTP, servletPath);
+	}
+
+	/**
+	 * Returns the metrics of all calls to Adyen, sorted by API and operation.
+	 */
+	public static Collection<OperationMetrics> getOutbound() {
+		return sorted(outbound);
+	}
+
+	/**
+	 * Returns the metrics of all requests to the servlets, sorted by servlet path.
+	 */
+	public static Collection<OperationMetrics> getInbound() {
+		return sorted(inbound);
+	}
+
+	/**
+	 * Returns the operation name of an Adyen URL path, e.g. Payment.authorise for /pal/servlet/Payment/v10/authorise
+	 * and HPP.directory for /hpp/directory.shtml.
+	 */
+	public static String operationOf(String path) {
+		if (path == null || path.isEmpty()) {
+			return OTHER_OPERATION;
+		}
+
+		String action = path.substring(path.lastIndexOf('/') + 1);
+		int extension = action.indexOf('.');
+		if (extension >= 0) {
+			action = action.substring(0, extension);
+		}
+
+		String service;
+		int servlet = path.indexOf(SERVLET_PATH);
+		int serviceEnd = servlet < 0 ? -1 : path.indexOf('/', servlet + SERVLET_PATH.length());
+		if (serviceEnd > 0) {
+			service = path.substring(servlet + SERVLET_PATH.length(), serviceEnd);
+		}
+		else {
+			service = AdyenEndpoint.fromPath(path).name();
+		}
+
+		return service + "." + action;
+	}
+
+	/**
+	 * Unregisters the MBeans and drops all metrics.
+	 */
+	public static void shutdown() {
+		MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+		for (ObjectName objectName : objectNames.values()) {
+			try {
+				server.unregisterMBean(objectName);
+			} catch (JMException e) {
+				// Already unregistered
+			}
+		}
+		objectNames.clear();
+		outbound.clear();
+		inbound.clear();
+	}
+
+	private static OperationMetrics getOrCreate(ConcurrentMap<String, OperationMetrics> metrics, String direction,
+			String api, String operation) {
+		String key = api + " " + operation;
+		OperationMetrics result = metrics.get(key);
+		if (result != null) {
+			return result;
+		}
+
+		// Limit the number of operations, e.g. in case of requests for many different paths
+		if (metrics.size() >= MAX_OPERATIONS) {
+			operation = OTHER_OPERATION;
+			key = api + " " + operation;
+		}
+
+		final String name = operation;
+		return metrics.computeIfAbsent(key, k -> register(new OperationMetrics(direction, api, name)));
+	}
+
+	private static OperationMetrics register(OperationMetrics metrics) {
+		try {
+			MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+			ObjectName objectName = new ObjectName("com.adyen.examples:type=AdyenMetrics,direction="
+					+ metrics.getDirection() + ",api=" + metrics.getApi() + ",operation="
+					+ ObjectName.quote(metrics.getOperation()));
+			if (server.isRegistered(objectName)) {
+				server.unregisterMBean(objectName);
+			}
+			server.registerMBean(metrics, objectName);
+			objectNames.put(metrics, objectName);
+		} catch (JMException e) {
+			// Monitoring is not available, the metrics are still available through the MetricsServlet
+		}
+		return metrics;
+	}
+
+	private static Collection<OperationMetrics> sorted(Map<String, OperationMetrics> metrics) {
+		return new ArrayList<OperationMetrics>(new TreeMap<String, OperationMetrics>(metrics).values());
+	}
+
+}
@@ -0,0 +1,138 @@
+package com.adyen.examples.common.metrics;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAccumulator;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Lock-free latency histogram
+ *
+ * Latencies are counted in buckets in the same way as an HDR histogram: values up to 127 microseconds have a bucket
+ * of their own, larger values are grouped in 64 buckets per power of two. Every recorded latency therefore lands in
+ * a bucket that is at most 1/64 (1.6%) wider than the value itself, from microseconds up to hours, using a fixed
+ * array of 2048 counters.
+ *
+ * Recording a latency is a single atomic increment of its bucket (plus the total and maximum), so threads never wait
+ * for each other. Summaries are computed from the counters at the time of reading; a summary taken while latencies
+ * are recorded may be off by the latencies recorded during the read.
+ *
+ * @author Created by Adyen - Payments Made Easy
+ */
+public final class LatencyHistogram {
+
+	/**
+	 * Histogram settings
+	 * - SUB_BUCKET_BITS: number of bits of precision of every bucket (2^7 = 128 sub-buckets)
+	 * - MAX_SHIFT: largest power of two (above the sub-buckets) that is counted; larger values land in the last bucket
+	 */
+	private static final int SUB_BUCKET_BITS = 7;
+	private static final int MAX_SHIFT = 30;
+
+	private static final int SUB_BUCKETS = 1 << SUB_BUCKET_BITS;
+	private static final int HALF_SUB_BUCKETS = SUB_BUCKETS / 2;
+	private static final int BUCKETS = (MAX_SHIFT + 2) * HALF_SUB_BUCKETS;
+
+	private final AtomicLongArray counts = new AtomicLongArray(BUCKETS);
+	private final LongAdder count = new LongAdder();
+	private final LongAdder totalMicros = new LongAdder();
+	private final LongAccumulator maxMicros = new LongAccumulator(Math::max, 0);
+
+	/**
+	 * Records a latency in nanoseconds.
+	 */
+	public void recordNanos(long nanos) {
+		recordMicros(TimeUnit.NANOSECONDS.toMicros(nanos));
+	}
+
+	/**
+	 * Records a latency in microseconds.
+	 */
+	public void recordMicros(long micros) {
+		long value = Math.max(0, micros);
+		counts.incrementAndGet(indexOf(value));
+		count.increment();
+		totalMicros.add(value);
+		maxMicros.accumulate(value);
+	}
+
+	public long getCount() {
+		return count.sum();
+	}
+
+	public long getTotalMicros() {
+		return totalMicros.sum();
+	}
+
+	/**
+	 * Computes the count, mean, maximum and the 50th, 90th, 99th and 99.9th percentile of the recorded latencies.
+	 */
+	public LatencySummary summarize() {
+		long[] snapshot = new long[BUCKETS];
+		long total = 0;
+		for (int i = 0; i < BUCKETS; i++) {
+			snapshot[i] = counts.get(i);
+			total += snapshot[i];
+		}
+
+		long max = maxMicros.get();
+		double mean = total == 0 ? 0 : (double) totalMicros.sum() / total;
+
+		double[] percentiles = { 50.0, 90.0, 99.0, 99.9 };
+		long[] values = new long[percentiles.length];
+
+		long cumulative = 0;
+		int next = 0;
+		for (int i = 0; i < BUCKETS && next < percentiles.length && total > 0; i++) {
+			cumulative += snapshot[i];
+			while (next < percentiles.length && cumulative >= Math.ceil(total * percentiles[next] / 100.0)) {
+				values[next++] = Math.min(highestValueOf(i), max);
+			}
+		}
+
+		return new LatencySummary(total, toMillis(mean), toMillis(values[0]), toMillis(values[1]), toMillis(values[2]),
+				toMillis(values[3]), toMillis(max));
+	}
+
+	/**
+	 * Clears all recorded latencies. Latencies recorded during the reset may be partially cleared.
+	 */
+	public void reset() {
+		for (int i = 0; i < BUCKETS; i++) {
+			counts.set(i, 0);
+		}
+		count.reset();
+		totalMicros.reset();
+		maxMicros.reset();
+	}
+
+	static int indexOf(long value) {
+		if (value < SUB_BUCKETS) {
+			return (int) value;
+		}
+
+		int shift = 63 - Long.numberOfLeadingZeros(value) - (SUB_BUCKET_BITS - 1);
+		if (shift > MAX_SHIFT) {
+			return BUCKETS - 1;
+		}
+		return (shift + 1) * HALF_SUB_BUCKETS + (int) (value >>> shift) - HALF_SUB_BUCKETS;
+	}
+
+	/**
+	 * Returns the highest value that is counted in the bucket with the given index.
+	 */
+	static long highestValueOf(int index) {
+		if (index < SUB_BUCKETS) {
+			return index;
+		}
+
+		int shift = index / HALF_SUB_BUCKETS - 1;
+		long subBucket = index % HALF_SUB_BUCKETS + HALF_SUB_BUCKETS;
+		return ((subBucket + 1) << shift) - 1;
+	}
+
+	private static double toMillis(double micros) {
+		return micros / 1000.0;
+	}
+
+}
@@ -0,0 +1,121 @@
+package com.adyen.examples.common.metrics;
+
+import java.io.IOException;
+
+import javax.servlet.AsyncEvent;
+import javax.servlet.AsyncListener;
+import javax.servlet.Filter;
+import javax.servlet.FilterChain;
+import javax.servlet.FilterConfig;
+import javax.servlet.ServletException;
+import javax.servlet.ServletRequest;
+import javax.servlet.ServletResponse;
+import javax.servlet.annotation.WebFilter;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+
+/**
+ * Measures all requests to the servlets
+ *
+ * Every request is measured per servlet path, with the HTTP status of the response as result; responses with a 5xx
+ * status count as errors. The bytes received are taken from the Content-Length of the request. Asynchronous requests
+ * are measured until the asynchronous processing is completed.
+ *
+ * @author Created by Adyen - Payments Made Easy
+ */
+@WebFilter(filterName = "MetricsFilter", urlPatterns = { "/*" }, asyncSupported = true)
+public class MetricsFilter implements Filter {
+
+	@Override
+	public void init(FilterConfig filterConfig) throws ServletException {
+	}
+
+	@Override
+	public void doFilter(ServletRequest request, ServletResponse response, FilterChain chain) throws IOException,
+			ServletException {
+
+		if (!(request instanceof HttpServletRequest) || !(response instanceof HttpServletResponse)) {
+			chain.doFilter(request, response);
+			return;
+		}
+
+		OperationMetrics metrics = AdyenMetrics.inbound(((HttpServletRequest) request).getServletPath());
+		if (request.getContentLength() > 0) {
+			metrics.addBytesReceived(request.getContentLength());
+		}
+
+		OperationTimer timer = metrics.start();
+		boolean async = false;
+		try {
+			chain.doFilter(request, response);
+
+			if (request.isAsyncStarted()) {
+				request.getAsyncContext().addListener(new TimerListener(timer));
+				async = true;
+			}
+			else {
+				setResult(timer, (HttpServletResponse) response);
+			}
+		} finally {
+			if (!async) {
+				timer.close();
+			}
+		}
+	}
+
+	@Override
+	public void destroy() {
+	}
+
+	private static void setResult(OperationTimer timer, HttpServletResponse response) {
+		int status = response.getStatus();
+		if (status >= 500) {
+			timer.setFailed(Integer.toString(status));
+		}
+		else {
+			timer.setResult(Integer.toString(status));
+		}
+	}
+
+	/**
+	 * Stops the timer of an asynchronous request when it is completed.
+	 */
+	private static class TimerListener implements AsyncListener {
+
+		private final OperationTimer timer;
+
+		TimerListener(OperationTimer timer) {
+			this.timer = timer;
+		}
+
+		@Override
+		public void onComplete(AsyncEvent event) {
+			synchronized (timer) {
+				ServletResponse response = event.getSuppliedResponse();
+				if (response instanceof HttpServletResponse) {
+					setResult(timer, (HttpServletResponse) response);
+				}
+				timer.close();
+			}
+		}
+
+		@Override
+		public void onError(AsyncEvent event) {
+			synchronized (timer) {
+				timer.close();
+			}
+		}
+
+		@Override
+		public void onTimeout(AsyncEvent event) {
+		}
+
+		@Override
+		public void onStartAsync(AsyncEvent event) {
+			// Keep measuring when the request is put in asynchronous mode again
+			event.getAsyncContext().addListener(this);
+		}
+
+	}
+
+}
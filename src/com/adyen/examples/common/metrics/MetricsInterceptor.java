@@ -0,0 +1,118 @@
+package com.adyen.examples.common.metrics;
+
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.URI;
+import java.net.URISyntaxException;
+
+import org.apache.http.HttpEntity;
+import org.apache.http.HttpEntityEnclosingRequest;
+import org.apache.http.HttpException;
+import org.apache.http.HttpRequest;
+import org.apache.http.HttpRequestInterceptor;
+import org.apache.http.HttpResponse;
+import org.apache.http.HttpResponseInterceptor;
+import org.apache.http.entity.HttpEntityWrapper;
+import org.apache.http.protocol.HttpContext;
+
+/**
+ * Counts the bytes sent to and received from Adyen by the shared HTTP Clients
+ *
+ * The bytes are added to the JSON {@link OperationMetrics} of the called URL. The size of the request is taken from
+ * its entity; the size of the response from its Content-Length, or while the response is read if its length is not
+ * known in advance.
+ *
+ * @author Created by Adyen - Payments Made Easy
+ */
+public class MetricsInterceptor implements HttpRequestInterceptor, HttpResponseInterceptor {
+
+	private static final String METRICS_ATTRIBUTE = MetricsInterceptor.class.getName() + ".metrics";
+
+	@Override
+	public void process(HttpRequest request, HttpContext context) throws HttpException, IOException {
+		OperationMetrics metrics;
+		try {
+			metrics = AdyenMetrics.json(new URI(request.getRequestLine().getUri()));
+		} catch (URISyntaxException e) {
+			return;
+		}
+		context.setAttribute(METRICS_ATTRIBUTE, metrics);
+
+		if (request instanceof HttpEntityEnclosingRequest) {
+			HttpEntity entity = ((HttpEntityEnclosingRequest) request).getEntity();
+			if (entity != null && entity.getContentLength() > 0) {
+				metrics.addBytesSent(entity.getContentLength());
+			}
+		}
+	}
+
+	@Override
+	public void process(HttpResponse response, HttpContext context) throws HttpException, IOException {
+		OperationMetrics metrics = (OperationMetrics) context.getAttribute(METRICS_ATTRIBUTE);
+		HttpEntity entity = response.getEntity();
+		if (metrics == null || entity == null) {
+			return;
+		}
+
+		if (entity.getContentLength() >= 0) {
+			metrics.addBytesReceived(entity.getContentLength());
+		}
+		else {
+			response.setEntity(new CountingEntity(entity, metrics));
+		}
+	}
+
+	/**
+	 * Response entity that counts the bytes that are read.
+	 */
+	private static class CountingEntity extends HttpEntityWrapper {
+
+		private final OperationMetrics metrics;
+
+		CountingEntity(HttpEntity entity, OperationMetrics metrics) {
+			super(entity);
+			this.metrics = metrics;
+		}
+
+		@Override
+		public InputStream getContent() throws IOException {
+			return new FilterInputStream(super.getContent()) {
+				@Override
+				public int read() throws IOException {
+					int b = super.read();
+					if (b >= 0) {
+						metrics.addBytesReceived(1);
+					}
+					return b;
+				}
+
+				@Override
+				public int read(byte[] buffer, int offset, int length) throws IOException {
+					int count = super.read(buffer, offset, length);
+					if (count > 0) {
+						metrics.addBytesReceived(count);
+					}
+					return count;
+				}
+			};
+		}
+
+		@Override
+		public void writeTo(OutputStream out) throws IOException {
+			InputStream in = getContent();
+			try {
+				byte[] buffer = new byte[4096];
+				int count;
+				while ((count = in.read(buffer)) != -1) {
+					out.write(buffer, 0, count);
+				}
+			} finally {
+				in.close();
+			}
+		}
+
+	}
+
+}
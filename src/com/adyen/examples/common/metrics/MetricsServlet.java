@@ -0,0 +1,125 @@
+package com.adyen.examples.common.metrics;
+
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.util.Collection;
+import java.util.Map;
+
+import javax.servlet.ServletException;
+import javax.servlet.annotation.WebServlet;
+import javax.servlet.http.HttpServlet;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+
+/**
+ * Metrics of all calls to Adyen and all requests to the servlets, as text
+ *
+ * The metrics are written in the Prometheus text format, so they can be read by a person as well as by a monitoring
+ * system. For every operation (see {@link AdyenMetrics}):
+ *
+ * <pre>
+ * - adyen_&lt;direction&gt;_requests_total       : number of calls per result code
+ * - adyen_&lt;direction&gt;_latency_seconds      : latency percentiles (0.5, 0.9, 0.99, 0.999) per result code
+ * - adyen_&lt;direction&gt;_latency_max_seconds  : maximum latency per result code
+ * - adyen_&lt;direction&gt;_errors_total         : number of failed calls
+ * - adyen_&lt;direction&gt;_in_flight            : number of calls in progress
+ * - adyen_&lt;direction&gt;_sent_bytes_total     : number of bytes sent
+ * - adyen_&lt;direction&gt;_received_bytes_total : number of bytes received
+ * </pre>
+ *
+ * The direction is outbound (calls to Adyen) or inbound (requests to the servlets). Like the notification servers,
+ * secure this servlet before exposing the application.
+ *
+ * @link /metrics
+ * @author Created by Adyen - Payments Made Easy
+ */
+@WebServlet(urlPatterns = { "/metrics" })
+public class MetricsServlet extends HttpServlet {
+
+	private static final double[] QUANTILES = { 0.5, 0.9, 0.99, 0.999 };
+
+	@Override
+	protected void doGet(HttpServletRequest request, HttpServletResponse response) throws ServletException, IOException {
+		response.setContentType("text/plain; version=0.0.4; charset=UTF-8");
+		response.setHeader("Cache-Control", "no-cache");
+
+		PrintWriter out = response.getWriter();
+		write(out, AdyenMetrics.OUTBOUND, AdyenMetrics.getOutbound());
+		write(out, AdyenMetrics.INBOUND, AdyenMetrics.getInbound());
+	}
+
+	private void write(PrintWriter out, String direction, Collection<OperationMetrics> operations) {
+		String prefix = "adyen_" + direction + "_";
+
+		out.println("# TYPE " + prefix + "requests_total counter");
+		for (OperationMetrics metrics : operations) {
+			for (Map.Entry<String, LatencyHistogram> entry : metrics.getResultHistograms().entrySet()) {
+				out.println(prefix + "requests_total" + labels(metrics, entry.getKey()) + " " + entry.getValue().getCount());
+			}
+		}
+
+		out.println("# TYPE " + prefix + "latency_seconds summary");
+		for (OperationMetrics metrics : operations) {
+			for (Map.Entry<String, LatencyHistogram> entry : metrics.getResultHistograms().entrySet()) {
+				LatencyHistogram histogram = entry.getValue();
+				LatencySummary summary = histogram.summarize();
+				String labels = labels(metrics, entry.getKey());
+				double[] values = {
+					summary.getP50Millis(), summary.getP90Millis(), summary.getP99Millis(), summary.getP999Millis()
+				};
+				for (int i = 0; i < QUANTILES.length; i++) {
+					String quantileLabels = labels.substring(0, labels.length() - 1) + ",quantile=\"" + QUANTILES[i] + "\"}";
+					out.println(prefix + "latency_seconds" + quantileLabels + " " + seconds(values[i]));
+				}
+				out.println(prefix + "latency_seconds_sum" + labels + " " + histogram.getTotalMicros() / 1000000.0);
+				out.println(prefix + "latency_seconds_count" + labels + " " + summary.getCount());
+			}
+		}
+
+		out.println("# TYPE " + prefix + "latency_max_seconds gauge");
+		for (OperationMetrics metrics : operations) {
+			for (Map.Entry<String, LatencyHistogram> entry : metrics.getResultHistograms().entrySet()) {
+				double max = entry.getValue().summarize().getMaxMillis();
+				out.println(prefix + "latency_max_seconds" + labels(metrics, entry.getKey()) + " " + seconds(max));
+			}
+		}
+
+		out.println("# TYPE " + prefix + "errors_total counter");
+		for (OperationMetrics metrics : operations) {
+			out.println(prefix + "errors_total" + labels(metrics, null) + " " + metrics.getErrorCount());
+		}
+
+		out.println("# TYPE " + prefix + "in_flight gauge");
+		for (OperationMetrics metrics : operations) {
+			out.println(prefix + "in_flight" + labels(metrics, null) + " " + metrics.getInFlight());
+		}
+
+		out.println("# TYPE " + prefix + "sent_bytes_total counter");
+		for (OperationMetrics metrics : operations) {
+			out.println(prefix + "sent_bytes_total" + labels(metrics, null) + " " + metrics.getBytesSent());
+		}
+
+		out.println("# TYPE " + prefix + "received_bytes_total counter");
+		for (OperationMetrics metrics : operations) {
+			out.println(prefix + "received_bytes_total" + labels(metrics, null) + " " + metrics.getBytesReceived());
+		}
+	}
+
+	private static String labels(OperationMetrics metrics, String result) {
+		StringBuilder labels = new StringBuilder("{api=\"").append(escape(metrics.getApi()))
+				.append("\",operation=\"").append(escape(metrics.getOperation())).append('"');
+		if (result != null) {
+			labels.append(",result=\"").append(escape(result)).append('"');
+		}
+		return labels.append('}').toString();
+	}
+
+	private static String escape(String value) {
+		return value.replace("\\", "\\\\").replace("\"", "\\\"").replace("\n", "\\n");
+	}
+
+	private static double seconds(double millis) {
+		return millis / 1000.0;
+	}
+
+}
@@ -0,0 +1,166 @@
+package com.adyen.examples.common.metrics;
+
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Latencies, counters and gauges of a single operation, e.g. the JSON authorise call to Adyen
+ *
+ * A call is measured with an {@link OperationTimer}, from {@link #start()} until the timer is closed. The latency is
+ * recorded in the histogram of the operation and in the histogram of the result code of the call. All counters are
+ * lock-free, so measuring a call never blocks it.
+ *
+ * Use {@link AdyenMetrics} to get the metrics of an operation.
+ *
+ * @author Created by Adyen - Payments Made Easy
+ */
+public class OperationMetrics implements OperationMetricsMXBean {
+
+	/**
+	 * Results of calls without a result code
+	 * - RESULT_SUCCESS: the call succeeded, but has no result code
+	 * - RESULT_ERROR: the call failed (no response, or rejected by Adyen)
+	 * - RESULT_UNKNOWN: the call returned an empty result code
+	 * - RESULT_OTHER: all result codes beyond the first MAX_RESULTS result codes
+	 */
+	public static final String RESULT_SUCCESS = "Success";
+	public static final String RESULT_ERROR = "Error";
+	public static final String RESULT_UNKNOWN = "Unknown";
+	public static final String RESULT_OTHER = "Other";
+
+	private static final int MAX_RESULTS = 32;
+
+	private final String direction;
+	private final String api;
+	private final String operation;
+
+	private final LongAdder inFlight = new LongAdder();
+	private final LongAdder errorCount = new LongAdder();
+	private final LongAdder bytesSent = new LongAdder();
+	private final LongAdder bytesReceived = new LongAdder();
+
+	private final LatencyHistogram latency = new LatencyHistogram();
+	private final ConcurrentMap<String, LatencyHistogram> resultLatencies = new ConcurrentHashMap<String, LatencyHistogram>();
+
+	OperationMetrics(String direction, String api, String operation) {
+		this.direction = direction;
+		this.api = api;
+		this.operation = operation;
+	}
+
+	/**
+	 * Starts measuring a call. The call is measured until the returned timer is closed.
+	 */
+	public OperationTimer start() {
+		inFlight.increment();
+		return new OperationTimer(this, System.nanoTime());
+	}
+
+	public void addBytesSent(long bytes) {
+		bytesSent.add(bytes);
+	}
+
+	public void addBytesReceived(long bytes) {
+		bytesReceived.add(bytes);
+	}
+
+	/**
+	 * Records a finished call, called by the OperationTimer.
+	 */
+	void stop(long nanos, String result, boolean failed) {
+		inFlight.decrement();
+		latency.recordNanos(nanos);
+		resultLatency(result).recordNanos(nanos);
+		if (failed) {
+			errorCount.increment();
+		}
+	}
+
+	private LatencyHistogram resultLatency(String result) {
+		LatencyHistogram histogram = resultLatencies.get(result);
+		if (histogram == null) {
+			// Limit the number of histograms, in case a call returns unexpected result codes
+			String key = resultLatencies.size() < MAX_RESULTS ? result : RESULT_OTHER;
+			histogram = resultLatencies.computeIfAbsent(key, k -> new LatencyHistogram());
+		}
+		return histogram;
+	}
+
+	@Override
+	public String getDirection() {
+		return direction;
+	}
+
+	@Override
+	public String getApi() {
+		return api;
+	}
+
+	@Override
+	public String getOperation() {
+		return operation;
+	}
+
+	@Override
+	public long getInFlight() {
+		return inFlight.sum();
+	}
+
+	@Override
+	public long getCount() {
+		return latency.getCount();
+	}
+
+	@Override
+	public long getErrorCount() {
+		return errorCount.sum();
+	}
+
+	@Override
+	public long getBytesSent() {
+		return bytesSent.sum();
+	}
+
+	@Override
+	public long getBytesReceived() {
+		return bytesReceived.sum();
+	}
+
+	@Override
+	public LatencySummary getLatency() {
+		return latency.summarize();
+	}
+
+	@Override
+	public Map<String, LatencySummary> getLatencyByResult() {
+		Map<String, LatencySummary> result = new TreeMap<String, LatencySummary>();
+		for (Map.Entry<String, LatencyHistogram> entry : resultLatencies.entrySet()) {
+			result.put(entry.getKey(), entry.getValue().summarize());
+		}
+		return result;
+	}
+
+	/**
+	 * Returns the histograms per result code, sorted by result code.
+	 */
+	public Map<String, LatencyHistogram> getResultHistograms() {
+		return new TreeMap<String, LatencyHistogram>(resultLatencies);
+	}
+
+	public LatencyHistogram getLatencyHistogram() {
+		return latency;
+	}
+
+	@Override
+	public void reset() {
+		latency.reset();
+		resultLatencies.clear();
+		errorCount.reset();
+		bytesSent.reset();
+		bytesReceived.reset();
+	}
+
+}
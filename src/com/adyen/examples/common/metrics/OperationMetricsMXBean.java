@@ -0,0 +1,60 @@
+package com.adyen.examples.common.metrics;
+
+import java.util.Map;
+
+/**
+ * Management interface of the {@link OperationMetrics} of a single operation, registered as
+ * com.adyen.examples:type=AdyenMetrics,direction=&lt;inbound|outbound&gt;,api=&lt;api&gt;,operation=&lt;name&gt;
+ *
+ * @author Created by Adyen - Payments Made Easy
+ */
+public interface OperationMetricsMXBean {
+
+	/**
+	 * Direction of the calls: outbound (calls to Adyen) or inbound (requests to the servlets).
+	 */
+	String getDirection();
+
+	/**
+	 * API used for the calls (JSON, SOAP or Library); HTTP for inbound requests.
+	 */
+	String getApi();
+
+	/**
+	 * Name of the operation, e.g. Payment.authorise, or the servlet path for inbound requests.
+	 */
+	String getOperation();
+
+	/**
+	 * Number of calls that are currently in progress.
+	 */
+	long getInFlight();
+
+	long getCount();
+
+	/**
+	 * Number of calls that failed, or returned the result code Error.
+	 */
+	long getErrorCount();
+
+	long getBytesSent();
+
+	long getBytesReceived();
+
+	/**
+	 * Latencies of all calls.
+	 */
+	LatencySummary getLatency();
+
+	/**
+	 * Latencies per result code (e.g. Authorised, Refused, RedirectShopper, Error), or per HTTP status for inbound
+	 * requests.
+	 */
+	Map<String, LatencySummary> getLatencyByResult();
+
+	/**
+	 * Clears the recorded latencies and counts. In-flight calls are not affected.
+	 */
+	void reset();
+
+}
@@ -0,0 +1,70 @@
+package com.adyen.examples.common.metrics;
+
+/**
+ * Measures a single call of an operation, see {@link OperationMetrics#start()}
+ *
+ * Set the result code of the call with {@link #setResult(String)} once the result is known, and close the timer when
+ * the call is done, preferably with try-with-resources:
+ *
+ * <pre>
+ * try (OperationTimer timer = AdyenMetrics.soap("Payment.authorise").start()) {
+ *     paymentResult = client.authorise(paymentRequest);
+ *     timer.setResult(paymentResult.getResultCode());
+ * }
+ * </pre>
+ *
+ * A call that is closed without a result (e.g. because an exception was thrown) is recorded as an Error. A timer is
+ * used by a single thread at a time, and records the call only once.
+ *
+ * @author Created by Adyen - Payments Made Easy
+ */
+public final class OperationTimer implements AutoCloseable {
+
+	private final OperationMetrics metrics;
+	private final long startNanos;
+	private String result;
+	private boolean failed;
+	private boolean closed;
+
+	OperationTimer(OperationMetrics metrics, long startNanos) {
+		this.metrics = metrics;
+		this.startNanos = startNanos;
+	}
+
+	/**
+	 * Sets the result code of the call, e.g. Authorised or Refused. The result code Error counts as a failed call.
+	 */
+	public void setResult(String result) {
+		this.result = result == null || result.isEmpty() ? OperationMetrics.RESULT_UNKNOWN : result;
+		this.failed = OperationMetrics.RESULT_ERROR.equals(result);
+	}
+
+	/**
+	 * Sets the result of a failed call, e.g. an HTTP status.
+	 */
+	public void setFailed(String result) {
+		this.result = result;
+		this.failed = true;
+	}
+
+	public OperationMetrics getMetrics() {
+		return metrics;
+	}
+
+	/**
+	 * Records the call, with its latency since the timer was started.
+	 */
+	@Override
+	public void close() {
+		if (closed) {
+			return;
+		}
+		closed = true;
+
+		if (result == null) {
+			setFailed(OperationMetrics.RESULT_ERROR);
+		}
+		metrics.stop(System.nanoTime() - startNanos, result, failed);
+	}
+
+}
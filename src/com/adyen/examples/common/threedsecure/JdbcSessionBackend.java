@@ -0,0 +1,132 @@
+package com.adyen.examples.common.threedsecure;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+
+import javax.sql.DataSource;
+
+/**
+ * Keeps the 3-D Secure sessions in a database shared by all servers
+ *
+ * Any server behind the load balancer can then complete the payment when the shopper returns from the issuer. The
+ * sessions are stored in a single table, which has to be created up front:
+ *
+ * <pre>
+ * CREATE TABLE adyen_3ds_session (
+ *     session_key VARCHAR(64) NOT NULL PRIMARY KEY,
+ *     session_data VARBINARY(2048) NOT NULL,
+ *     expires_at BIGINT NOT NULL
+ * );
+ * CREATE INDEX adyen_3ds_session_expires_at ON adyen_3ds_session (expires_at);
+ * </pre>
+ *
+ * A session is taken with a SELECT followed by a DELETE of the same row: only the server whose DELETE removes the row
+ * returns the session, so concurrent callbacks with the same MD cannot both complete the payment. This needs no
+ * locking or vendor-specific SQL such as DELETE ... RETURNING.
+ *
+ * Only standard SQL is used, so any database with a JDBC driver will do (use BYTEA or BLOB for the session data where
+ * VARBINARY is not available). The DataSource is typically configured in the server, see {@link ThreeDSecureSessions}.
+ *
+ * @author Created by Adyen - Payments Made Easy
+ */
+public class JdbcSessionBackend implements SessionBackend {
+
+	private static final String UPDATE = "UPDATE adyen_3ds_session SET session_data = ?, expires_at = ? WHERE session_key = ?";
+	private static final String INSERT = "INSERT INTO adyen_3ds_session (session_key, session_data, expires_at) VALUES (?, ?, ?)";
+	private static final String SELECT = "SELECT session_data FROM adyen_3ds_session WHERE session_key = ? AND expires_at >= ?";
+	private static final String DELETE = "DELETE FROM adyen_3ds_session WHERE session_key = ?";
+	private static final String DELETE_UNEXPIRED = "DELETE FROM adyen_3ds_session WHERE session_key = ? AND expires_at >= ?";
+	private static final String PURGE = "DELETE FROM adyen_3ds_session WHERE expires_at < ?";
+
+	private final DataSource dataSource;
+
+	public JdbcSessionBackend(DataSource dataSource) {
+		this.dataSource = dataSource;
+	}
+
+	@Override
+	public void put(String key, byte[] session, long expiresAt) {
+		try (Connection connection = dataSource.getConnection()) {
+			try (PreparedStatement update = connection.prepareStatement(UPDATE)) {
+				update.setBytes(1, session);
+				update.setLong(2, expiresAt);
+				update.setString(3, key);
+				if (update.executeUpdate() > 0) {
+					return;
+				}
+			}
+			try (PreparedStatement insert = connection.prepareStatement(INSERT)) {
+				insert.setString(1, key);
+				insert.setBytes(2, session);
+				insert.setLong(3, expiresAt);
+				insert.executeUpdate();
+			}
+		} catch (SQLException e) {
+			throw new SessionStoreException("Unable to store 3-D Secure session", e);
+		}
+	}
+
+	@Override
+	public byte[] get(String key, long now) {
+		try (Connection connection = dataSource.getConnection();
+				PreparedStatement select = connection.prepareStatement(SELECT)) {
+			select.setString(1, key);
+			select.setLong(2, now);
+			try (ResultSet resultSet = select.executeQuery()) {
+				return resultSet.next() ? resultSet.getBytes(1) : null;
+			}
+		} catch (SQLException e) {
+			throw new SessionStoreException("Unable to read 3-D Secure session", e);
+		}
+	}
+
+	@Override
+	public byte[] take(String key, long now) {
+		try (Connection connection = dataSource.getConnection()) {
+			byte[] session;
+			try (PreparedStatement select = connection.prepareStatement(SELECT)) {
+				select.setString(1, key);
+				select.setLong(2, now);
+				try (ResultSet resultSet = select.executeQuery()) {
+					session = resultSet.next() ? resultSet.getBytes(1) : null;
+				}
+			}
+			if (session == null) {
+				return null;
+			}
+			try (PreparedStatement delete = connection.prepareStatement(DELETE_UNEXPIRED)) {
+				delete.setString(1, key);
+				delete.setLong(2, now);
+				// Another server took the session in between
+				return delete.executeUpdate() > 0 ? session : null;
+			}
+		} catch (SQLException e) {
+			throw new SessionStoreException("Unable to take 3-D Secure session", e);
+		}
+	}
+
+	@Override
+	public boolean remove(String key) {
+		try (Connection connection = dataSource.getConnection();
+				PreparedStatement delete = connection.prepareStatement(DELETE)) {
+			delete.setString(1, key);
+			return delete.executeUpdate() > 0;
+		} catch (SQLException e) {
+			throw new SessionStoreException("Unable to remove 3-D Secure session", e);
+		}
+	}
+
+	@Override
+	public int purgeExpired(long now) {
+		try (Connection connection = dataSource.getConnection();
+				PreparedStatement purge = connection.prepareStatement(PURGE)) {
+			purge.setLong(1, now);
+			return purge.executeUpdate();
+		} catch (SQLException e) {
+			throw new SessionStoreException("Unable to purge 3-D Secure sessions", e);
+		}
+	}
+
+}
@@ -0,0 +1,72 @@
+package com.adyen.examples.common.threedsecure;
+
+import java.util.Iterator;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * Keeps the 3-D Secure sessions in memory, for a single server
+ *
+ * The sessions are kept in their encoded form, a small byte array per session. Use a shared backend (e.g. the
+ * {@link JdbcSessionBackend}) when several servers run behind a load balancer without sticky sessions.
+ *
+ * @author Created by Adyen - Payments Made Easy
+ */
+public class LocalSessionBackend implements SessionBackend {
+
+	private final ConcurrentMap<String, Entry> sessions = new ConcurrentHashMap<String, Entry>();
+
+	@Override
+	public void put(String key, byte[] session, long expiresAt) {
+		sessions.put(key, new Entry(session, expiresAt));
+	}
+
+	@Override
+	public byte[] get(String key, long now) {
+		Entry entry = sessions.get(key);
+		return entry != null && entry.expiresAt >= now ? entry.session : null;
+	}
+
+	@Override
+	public byte[] take(String key, long now) {
+		Entry entry = sessions.remove(key);
+		return entry != null && entry.expiresAt >= now ? entry.session : null;
+	}
+
+	@Override
+	public boolean remove(String key) {
+		return sessions.remove(key) != null;
+	}
+
+	@Override
+	public int purgeExpired(long now) {
+		int purged = 0;
+		for (Iterator<Entry> iterator = sessions.values().iterator(); iterator.hasNext();) {
+			if (iterator.next().expiresAt < now) {
+				iterator.remove();
+				purged++;
+			}
+		}
+		return purged;
+	}
+
+	/**
+	 * Number of stored sessions, including expired sessions that are not purged yet.
+	 */
+	public int size() {
+		return sessions.size();
+	}
+
+	private static final class Entry {
+
+		private final byte[] session;
+		private final long expiresAt;
+
+		private Entry(byte[] session, long expiresAt) {
+			this.session = session;
+			this.expiresAt = expiresAt;
+		}
+
+	}
+
+}
@@ -0,0 +1,46 @@
+package com.adyen.examples.common.threedsecure;
+
+/**
+ * Storage of the encoded 3-D Secure sessions, see {@link ThreeDSecureSessions}
+ *
+ * The shopper may return from the issuer on any server behind the load balancer. Without sticky sessions, all servers
+ * therefore need to share their sessions, e.g. with the {@link JdbcSessionBackend}. The {@link LocalSessionBackend}
+ * only works for a single server.
+ *
+ * Keys are short (hashed) and values are small byte arrays; a backend does not need to understand either. Methods
+ * throw SessionStoreException when the storage is not available.
+ *
+ * @author Created by Adyen - Payments Made Easy
+ */
+public interface SessionBackend {
+
+	/**
+	 * Stores a session until the given expiry time (in milliseconds since the epoch), replacing any session with the
+	 * same key.
+	 */
+	void put(String key, byte[] session, long expiresAt);
+
+	/**
+	 * Returns the session with the given key, or null if there is none or it expired before the given time.
+	 */
+	byte[] get(String key, long now);
+
+	/**
+	 * Removes the session with the given key and returns it, or returns null if there is none or it expired before the
+	 * given time. Of several concurrent calls with the same key, at most one returns the session, so a session is used
+	 * only once, even when the shopper's callback arrives twice on different servers.
+	 */
+	byte[] take(String key, long now);
+
+	/**
+	 * Removes the session with the given key. Returns false if there was no such session, e.g. because another server
+	 * removed it already.
+	 */
+	boolean remove(String key);
+
+	/**
+	 * Removes all sessions that expired before the given time, and returns their number.
+	 */
+	int purgeExpired(long now);
+
+}
@@ -0,0 +1,16 @@
+package com.adyen.examples.common.threedsecure;
+
+/**
+ * Thrown when the 3-D Secure sessions cannot be stored or read, e.g. because the database is not available.
+ *
+ * @author Created by Adyen - Payments Made Easy
+ */
+public class SessionStoreException extends RuntimeException {
+
+	private static final long serialVersionUID = 1L;
+
+	public SessionStoreException(String message, Throwable cause) {
+		super(message, cause);
+	}
+
+}
@@ -0,0 +1,150 @@
+package com.adyen.examples.common.threedsecure;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+
+/**
+ * Context of a 3-D Secure payment, from the authorise call until the shopper returns from the issuer
+ *
+ * Holds the details of the original payment request that are needed to complete (and check) the payment in the
+ * authorise3d callback. A session is stored in a compact binary form (see {@link #encode()}), so it can be kept by
+ * any {@link SessionBackend}, including a database shared by all servers.
+ *
+ * @author Created by Adyen - Payments Made Easy
+ */
+public final class ThreeDSecureSession {
+
+	private static final byte VERSION = 1;
+
+	private final String merchantAccount;
+	private final String reference;
+	private final String currency;
+	private final long value;
+	private final String shopperReference;
+	private final String shopperEmail;
+	private final String shopperIP;
+	private final long createdAt;
+
+	public ThreeDSecureSession(String merchantAccount, String reference, String currency, long value,
+			String shopperReference, String shopperEmail, String shopperIP) {
+		this(merchantAccount, reference, currency, value, shopperReference, shopperEmail, shopperIP, System
+				.currentTimeMillis());
+	}
+
+	private ThreeDSecureSession(String merchantAccount, String reference, String currency, long value,
+			String shopperReference, String shopperEmail, String shopperIP, long createdAt) {
+		this.merchantAccount = merchantAccount;
+		this.reference = reference;
+		this.currency = currency;
+		this.value = value;
+		this.shopperReference = shopperReference;
+		this.shopperEmail = shopperEmail;
+		this.shopperIP = shopperIP;
+		this.createdAt = createdAt;
+	}
+
+	public String getMerchantAccount() {
+		return merchantAccount;
+	}
+
+	public String getReference() {
+		return reference;
+	}
+
+	public String getCurrency() {
+		return currency;
+	}
+
+	/**
+	 * Amount of the payment in minor units (e.g. EUR 1,00 = 100).
+	 */
+	public long getValue() {
+		return value;
+	}
+
+	public String getShopperReference() {
+		return shopperReference;
+	}
+
+	public String getShopperEmail() {
+		return shopperEmail;
+	}
+
+	public String getShopperIP() {
+		return shopperIP;
+	}
+
+	/**
+	 * Time the session was started, in milliseconds since the epoch.
+	 */
+	public long getCreatedAt() {
+		return createdAt;
+	}
+
+	/**
+	 * Encodes the session: a version byte, followed by the fields as (nullable) modified UTF-8 strings and longs.
+	 */
+	public byte[] encode() {
+		ByteArrayOutputStream bytes = new ByteArrayOutputStream(128);
+		try (DataOutputStream out = new DataOutputStream(bytes)) {
+			out.writeByte(VERSION);
+			writeString(out, merchantAccount);
+			writeString(out, reference);
+			writeString(out, currency);
+			out.writeLong(value);
+			writeString(out, shopperReference);
+			writeString(out, shopperEmail);
+			writeString(out, shopperIP);
+			out.writeLong(createdAt);
+		} catch (IOException e) {
+			throw new IllegalStateException("Unable to encode 3-D Secure session", e);
+		}
+		return bytes.toByteArray();
+	}
+
+	/**
+	 * Decodes a session encoded by {@link #encode()}.
+	 *
+	 * @throws IllegalArgumentException if the data is not a valid session
+	 */
+	public static ThreeDSecureSession decode(byte[] data) {
+		try (DataInputStream in = new DataInputStream(new ByteArrayInputStream(data))) {
+			byte version = in.readByte();
+			if (version != VERSION) {
+				throw new IllegalArgumentException("Unsupported 3-D Secure session version: " + version);
+			}
+			String merchantAccount = readString(in);
+			String reference = readString(in);
+			String currency = readString(in);
+			long value = in.readLong();
+			String shopperReference = readString(in);
+			String shopperEmail = readString(in);
+			String shopperIP = readString(in);
+			long createdAt = in.readLong();
+			return new ThreeDSecureSession(merchantAccount, reference, currency, value, shopperReference, shopperEmail,
+					shopperIP, createdAt);
+		} catch (IOException e) {
+			throw new IllegalArgumentException("Invalid 3-D Secure session", e);
+		}
+	}
+
+	private static void writeString(DataOutputStream out, String value) throws IOException {
+		out.writeBoolean(value != null);
+		if (value != null) {
+			out.writeUTF(value);
+		}
+	}
+
+	private static String readString(DataInputStream in) throws IOException {
+		return in.readBoolean() ? in.readUTF() : null;
+	}
+
+	@Override
+	public String toString() {
+		return reference + " (" + currency + " " + value + ", " + merchantAccount + ")";
+	}
+
+}
@@ -0,0 +1,162 @@
+package com.adyen.examples.common.threedsecure;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Base64;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import javax.naming.InitialContext;
+import javax.naming.NamingException;
+import javax.sql.DataSource;
+
+/**
+ * Server-side state of 3-D Secure payments, shared between Create3dSecurePayment and Authorise3dSecurePayment
+ *
+ * Create3dSecurePayment starts a session when the shopper is redirected to the issuer, keyed by the MD (merchant data)
+ * that Adyen returned. When the shopper comes back with the MD and PaRes, Authorise3dSecurePayment takes the session
+ * (see {@link #take(String)}) and completes the payment with the original merchant account and shopper details. A
+ * callback with an unknown or expired MD is refused, instead of being sent to Adyen; so is a second callback with the
+ * same MD, e.g. a double submit of the issuer's form, as the session is taken only once. When the authorise3d call
+ * is not sent or fails with an error that is worth retrying (no response, or a 5xx status), the session is put back
+ * for the rest of its time (see {@link #putBack(String, ThreeDSecureSession)}), so the shopper can try again.
+ *
+ * The MD is not used as a key directly: sessions are stored under the (base64url) SHA-256 hash of the MD, so the
+ * backend never holds the MD itself and all keys have the same short length.
+ *
+ * By default the sessions are kept in memory (see {@link LocalSessionBackend}). When the system property
+ * com.adyen.examples.threeDSecureDataSource holds the JNDI name of a DataSource (e.g. java:comp/env/jdbc/adyen), the
+ * sessions are stored in that database instead (see {@link JdbcSessionBackend}), so any server can complete the
+ * payment. Another backend can be set with {@link #setBackend(SessionBackend)}.
+ *
+ * Expired sessions are never returned; they are purged from the backend at most once per PURGE_INTERVAL_MILLIS, by the
+ * request that starts a session.
+ *
+ * @author Created by Adyen - Payments Made Easy
+ */
+public final class ThreeDSecureSessions {
+
+	/**
+	 * Session settings
+	 * - DATA_SOURCE_PROPERTY: system property with the JNDI name of the DataSource to store the sessions in
+	 * - TTL_MILLIS: time the shopper has to complete the 3-D Secure authentication
+	 * - PURGE_INTERVAL_MILLIS: minimum time between purges of expired sessions
+	 */
+	public static final String DATA_SOURCE_PROPERTY = "com.adyen.examples.threeDSecureDataSource";
+	public static final long TTL_MILLIS = TimeUnit.MINUTES.toMillis(15);
+	private static final long PURGE_INTERVAL_MILLIS = TimeUnit.MINUTES.toMillis(1);
+
+	private static final AtomicLong lastPurge = new AtomicLong(System.currentTimeMillis());
+
+	private static volatile SessionBackend backend;
+
+	private ThreeDSecureSessions() {
+	}
+
+	/**
+	 * Starts the session of a payment that requires 3-D Secure authentication.
+	 *
+	 * @param md merchant data returned by Adyen along with the RedirectShopper result
+	 */
+	public static void start(String md, ThreeDSecureSession session) {
+		long now = System.currentTimeMillis();
+		SessionBackend sessions = getBackend();
+		sessions.put(key(md), session.encode(), now + TTL_MILLIS);
+		purgeExpired(sessions, now);
+	}
+
+	/**
+	 * Returns the session of the given MD, or null if there is none or it expired.
+	 */
+	public static ThreeDSecureSession get(String md) {
+		if (md == null || md.isEmpty()) {
+			return null;
+		}
+		byte[] session = getBackend().get(key(md), System.currentTimeMillis());
+		return session != null ? ThreeDSecureSession.decode(session) : null;
+	}
+
+	/**
+	 * Removes the session of the given MD and returns it, or returns null if there is none, it expired or it was
+	 * taken already. Take the session before the authorise3d call, so the payment is completed only once.
+	 */
+	public static ThreeDSecureSession take(String md) {
+		if (md == null || md.isEmpty()) {
+			return null;
+		}
+		byte[] session = getBackend().take(key(md), System.currentTimeMillis());
+		return session != null ? ThreeDSecureSession.decode(session) : null;
+	}
+
+	/**
+	 * Puts a taken session back until it was due to expire, so the callback can be submitted again. Call this when the
+	 * authorise3d call was not sent or failed with an error that is worth retrying; a session that expired meanwhile is
+	 * not put back.
+	 */
+	public static void putBack(String md, ThreeDSecureSession session) {
+		long expiresAt = session.getCreatedAt() + TTL_MILLIS;
+		if (md != null && !md.isEmpty() && expiresAt > System.currentTimeMillis()) {
+			getBackend().put(key(md), session.encode(), expiresAt);
+		}
+	}
+
+	/**
+	 * Ends the session of the given MD without using it, e.g. when the payment is cancelled.
+	 */
+	public static void complete(String md) {
+		getBackend().remove(key(md));
+	}
+
+	/**
+	 * Replaces the backend; sessions in the previous backend are no longer available.
+	 */
+	public static void setBackend(SessionBackend sessionBackend) {
+		backend = sessionBackend;
+	}
+
+	public static SessionBackend getBackend() {
+		SessionBackend sessions = backend;
+		if (sessions == null) {
+			synchronized (ThreeDSecureSessions.class) {
+				sessions = backend;
+				if (sessions == null) {
+					sessions = createBackend();
+					backend = sessions;
+				}
+			}
+		}
+		return sessions;
+	}
+
+	private static SessionBackend createBackend() {
+		String name = System.getProperty(DATA_SOURCE_PROPERTY);
+		if (name == null || name.trim().isEmpty()) {
+			return new LocalSessionBackend();
+		}
+
+		try {
+			DataSource dataSource = (DataSource) new InitialContext().lookup(name.trim());
+			return new JdbcSessionBackend(dataSource);
+		} catch (NamingException | ClassCastException e) {
+			throw new SessionStoreException("Invalid " + DATA_SOURCE_PROPERTY + ": " + name, e);
+		}
+	}
+
+	private static void purgeExpired(SessionBackend sessions, long now) {
+		long last = lastPurge.get();
+		if (now - last >= PURGE_INTERVAL_MILLIS && lastPurge.compareAndSet(last, now)) {
+			sessions.purgeExpired(now);
+		}
+	}
+
+	private static String key(String md) {
+		try {
+			byte[] hash = MessageDigest.getInstance("SHA-256").digest(md.getBytes(StandardCharsets.UTF_8));
+			return Base64.getUrlEncoder().withoutPadding().encodeToString(hash);
+		} catch (NoSuchAlgorithmException e) {
+			throw new IllegalStateException("SHA-256 is not available", e);
+		}
+	}
+
+}
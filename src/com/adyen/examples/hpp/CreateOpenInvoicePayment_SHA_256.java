@@ -2,19 +2,14 @@ package com.adyen.examples.hpp;
 
 import java.io.ByteArrayOutputStream;
 import java.io.IOException;
-import java.nio.charset.Charset;
 import java.security.SignatureException;
 import java.text.SimpleDateFormat;
 import java.util.Calendar;
 import java.util.Date;
 import java.util.SortedMap;
 import java.util.TreeMap;
-import java.util.stream.Collectors;
-import java.util.stream.Stream;
 import java.util.zip.GZIPOutputStream;
 
-import javax.crypto.Mac;
-import javax.crypto.spec.SecretKeySpec;
 import javax.servlet.ServletException;
 import javax.servlet.annotation.WebServlet;
 import javax.servlet.http.HttpServlet;
@@ -23,6 +18,8 @@ import javax.servlet.http.HttpServletResponse;
 
 import org.apache.commons.codec.binary.Base64;
 
+import com.adyen.examples.common.HmacSigner;
+import com.adyen.examples.common.ReferenceGenerator;
 import com.google.common.io.BaseEncoding;
 
 /**
@@ -39,8 +36,6 @@ import com.google.common.io.BaseEncoding;
 public class CreateOpenInvoicePayment_SHA_256 extends HttpServlet {
 
 	private final static String HMAC_SHA256_ALGORITHM = "HmacSHA256";
-	
-	private final static Charset C_UTF8 = Charset.forName("UTF8");
     
 	protected void doGet(HttpServletRequest request, HttpServletResponse response) throws ServletException, IOException {
 
@@ -89,7 +84,6 @@ public class CreateOpenInvoicePayment_SHA_256 extends HttpServlet {
 
 		// Generate dates
 		Calendar calendar = Calendar.getInstance();
-		Date currentDate = calendar.getTime(); // current date
 		calendar.add(Calendar.DATE, 1);
 		Date sessionDate = calendar.getTime(); // current date + 1 day
 		calendar.add(Calendar.DATE, 2);
@@ -105,7 +99,7 @@ public class CreateOpenInvoicePayment_SHA_256 extends HttpServlet {
         params.put("sessionValidity", new SimpleDateFormat("yyyy-MM-dd'T'HH:mm:ssXXX").format(sessionDate));
         params.put("shipBeforeDate", new SimpleDateFormat("yyyy-MM-dd").format(shippingDate));
         params.put("shopperLocale", "en_GB"); 
-        params.put("merchantReference", "TEST-PAYMENT-" + new SimpleDateFormat("yyyy-MM-dd-HH:mm:ss").format(currentDate));
+        params.put("merchantReference", ReferenceGenerator.next("TEST-PAYMENT-"));
         params.put("skinCode", "YourSkinCode");
         params.put("countryCode", "DE");
         params.put("shopperEmail", "YourShopperEmail");
@@ -185,15 +179,13 @@ public class CreateOpenInvoicePayment_SHA_256 extends HttpServlet {
 		 * signature must be encrypted according to the procedure below.
 		 */
 
-    	 // Calculate the data to sign
-         String signingData = Stream.concat(params.keySet().stream(), params.values().stream())
-                 .map(signingTest -> escapeVal(signingTest))
-                 .collect(Collectors.joining(":"));
+    	 // The data to sign (escaped keys and values, separated by ":") is encoded directly by the signer,
+    	 // see com.adyen.examples.common.HmacSigner#sign(SortedMap)
         
      
 		 // Create the signature and add it to the parameter map
          try {
-             params.put("merchantSig",calculateHMAC(signingData, hmacKey));
+             params.put("merchantSig",calculateHMAC(params, hmacKey));
          } catch (SignatureException e) {
              e.printStackTrace();
              return;
@@ -226,32 +218,13 @@ public class CreateOpenInvoicePayment_SHA_256 extends HttpServlet {
 		return Base64.encodeBase64String(output.toByteArray());
 	}
 
-	// To escape embedded "\" characters as "\\", and embedded ":" as "\:".
-	private static String escapeVal(String val) {
-        if(val == null) { return ""; }
-        return val.replace("\\", "\\\\").replace(":", "\\:");
-    }
-	
-	// To calculate the HMAC SHA-256 
-	private static String calculateHMAC(String data, byte[] key)  throws java.security.SignatureException {
+	// To calculate the HMAC SHA-256 (see com.adyen.examples.common.HmacSigner)
+	private static String calculateHMAC(SortedMap<String, String> params, byte[] key)  throws java.security.SignatureException {
         try {
         	
-            // Create an hmac_sha256 key from the raw key bytes
-            SecretKeySpec signingKey = new SecretKeySpec(key, HMAC_SHA256_ALGORITHM);
-           
- 
-            // Get an hmac_sha256 Mac instance and initialize with the signing key
-            Mac mac = Mac.getInstance(HMAC_SHA256_ALGORITHM);
-            
-            mac.init(signingKey);
-           
- 
-            // Compute the hmac on input data bytes
-            byte[] rawHmac = mac.doFinal(data.getBytes(C_UTF8));
-            
- 
-            // Base64-encode the hmac
-            return  BaseEncoding.base64().encode(rawHmac);
+            // Get the shared signer for the key, which keeps an initialized hmac_sha256 Mac instance per thread,
+            // and compute the Base64-encoded hmac on the signing data of the parameters
+            return HmacSigner.getInstance(HMAC_SHA256_ALGORITHM, key).sign(params);
  
         } catch (Exception e) {
             throw new SignatureException("Failed to generate HMAC : " + e.getMessage());
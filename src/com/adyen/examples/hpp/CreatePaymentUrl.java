@@ -2,7 +2,6 @@ package com.adyen.examples.hpp;
 
 import java.io.ByteArrayOutputStream;
 import java.io.IOException;
-import java.io.UnsupportedEncodingException;
 import java.net.URLEncoder;
 import java.security.GeneralSecurityException;
 import java.text.SimpleDateFormat;
@@ -10,8 +9,6 @@ import java.util.Calendar;
 import java.util.Date;
 import java.util.zip.GZIPOutputStream;
 
-import javax.crypto.Mac;
-import javax.crypto.spec.SecretKeySpec;
 import javax.servlet.ServletException;
 import javax.servlet.annotation.WebServlet;
 import javax.servlet.http.HttpServlet;
@@ -20,6 +17,9 @@ import javax.servlet.http.HttpServletResponse;
 
 import org.apache.commons.codec.binary.Base64;
 
+import com.adyen.examples.common.HmacSigner;
+import com.adyen.examples.common.ReferenceGenerator;
+
 /**
  * Create Payment URL
  * 
@@ -78,14 +78,13 @@ public class CreatePaymentUrl extends HttpServlet {
 
 		// Generate dates
 		Calendar calendar = Calendar.getInstance();
-		Date currentDate = calendar.getTime(); // current date
 		calendar.add(Calendar.DATE, 1);
 		Date sessionDate = calendar.getTime(); // current date + 1 day
 		calendar.add(Calendar.DATE, 2);
 		Date shippingDate = calendar.getTime(); // current date + 3 days
 
 		// Define variables
-		String merchantReference = "TEST-PAYMENT-" + new SimpleDateFormat("yyyy-MM-dd-HH:mm:ss").format(currentDate);
+		String merchantReference = ReferenceGenerator.next("TEST-PAYMENT-");
 		String paymentAmount = "199";
 		String currencyCode = "EUR";
 		String shipBeforeDate = new SimpleDateFormat("yyyy-MM-dd").format(shippingDate);
@@ -171,14 +170,11 @@ public class CreatePaymentUrl extends HttpServlet {
 
 	/**
 	 * Computes the Base64 encoded signature using the HMAC algorithm with the SHA-1 hashing function.
+	 * 
+	 * @see com.adyen.examples.common.HmacSigner
 	 */
-	private String calculateHMAC(String hmacKey, String signingString) throws GeneralSecurityException, UnsupportedEncodingException {
-		SecretKeySpec keySpec = new SecretKeySpec(hmacKey.getBytes(), "HmacSHA1");
-		Mac mac = Mac.getInstance("HmacSHA1");
-		mac.init(keySpec);
-
-		byte[] result = mac.doFinal(signingString.getBytes("UTF-8"));
-		return Base64.encodeBase64String(result);
+	private String calculateHMAC(String hmacKey, String signingString) throws GeneralSecurityException {
+		return HmacSigner.getInstance(HmacSigner.HMAC_SHA1, hmacKey.getBytes()).sign(signingString);
 	}
 
 }
@@ -10,18 +10,18 @@ import javax.servlet.http.HttpServletRequest;
 import javax.servlet.http.HttpServletResponse;
 
 import org.apache.http.HttpResponse;
-import org.apache.http.auth.AuthScope;
-import org.apache.http.auth.UsernamePasswordCredentials;
-import org.apache.http.client.CredentialsProvider;
 import org.apache.http.client.HttpClient;
 import org.apache.http.client.methods.HttpPost;
-import org.apache.http.entity.StringEntity;
-import org.apache.http.impl.client.BasicCredentialsProvider;
-import org.apache.http.impl.client.HttpClientBuilder;
-import org.apache.http.util.EntityUtils;
-import org.json.simple.JSONObject;
-import org.json.simple.parser.JSONParser;
-import org.json.simple.parser.ParseException;
+import org.apache.http.client.protocol.HttpClientContext;
+
+import com.adyen.examples.common.AdyenHttpClient;
+import com.adyen.examples.common.ReferenceGenerator;
+import com.adyen.examples.common.json.JsonCodec;
+import com.adyen.examples.common.json.ModificationRequest;
+import com.adyen.examples.common.json.ModificationResult;
+import com.adyen.examples.common.json.ServiceError;
+import com.adyen.examples.common.metrics.AdyenMetrics;
+import com.adyen.examples.common.metrics.OperationTimer;
 
 /**
  * Cancel a Payment (JSON)
@@ -52,13 +52,14 @@ public class CancelPayment extends HttpServlet {
 		String wsPassword = "YourWSUserPassword";
 
 		/**
-		 * Create HTTP Client (using Apache HttpComponents library) and set up Basic Authentication
+		 * Get the shared HTTP Client (using Apache HttpComponents library) and set up Basic Authentication
+		 * 
+		 * The client is created once for the whole application, so connections to Adyen are reused between requests.
+		 * 
+		 * @see com.adyen.examples.common.AdyenHttpClient
 		 */
-		CredentialsProvider provider = new BasicCredentialsProvider();
-		UsernamePasswordCredentials credentials = new UsernamePasswordCredentials(wsUser, wsPassword);
-		provider.setCredentials(AuthScope.ANY, credentials);
-
-		HttpClient client = HttpClientBuilder.create().setDefaultCredentialsProvider(provider).build();
+		HttpClient client = AdyenHttpClient.getInstance();
+		HttpClientContext context = AdyenHttpClient.createContext(apiUrl, wsUser, wsPassword);
 
 		/**
 		 * Perform cancel request by sending in a modification request, containing the following variables:
@@ -69,41 +70,34 @@ public class CancelPayment extends HttpServlet {
 		 * - reference              : Your own reference or description of the modification. (optional)
 		 * </pre>
 		 */
-		JSONObject modificationRequest = new JSONObject();
-		modificationRequest.put("merchantAccount", "YourMerchantAccount");
-		modificationRequest.put("originalReference", "PspReferenceOfTheAuthorisedPayment");
-		modificationRequest.put("reference", "YourReference");
+		ModificationRequest modificationRequest = new ModificationRequest();
+		modificationRequest.setMerchantAccount("YourMerchantAccount");
+		modificationRequest.setOriginalReference("PspReferenceOfTheAuthorisedPayment");
+		modificationRequest.setReference(ReferenceGenerator.next("TEST-CANCEL-"));
 
 		/**
 		 * Send the HTTP request with the specified variables in JSON.
 		 */
 		HttpPost httpRequest = new HttpPost(apiUrl);
-		httpRequest.addHeader("Content-Type", "application/json");
-		httpRequest.setEntity(new StringEntity(modificationRequest.toString(), "UTF-8"));
-
-		HttpResponse httpResponse = client.execute(httpRequest);
-		String paymentResponse = EntityUtils.toString(httpResponse.getEntity(), "UTF-8");
+		httpRequest.setEntity(JsonCodec.toEntity(modificationRequest));
 
 		/**
 		 * Keep in mind that you should handle errors correctly.
 		 * If the Adyen platform does not accept or store a submitted request, you will receive a HTTP response with
-		 * status different than 200 OK. In this case, the error details are populated in the paymentResponse.
+		 * status different than 200 OK. In this case, the error details are populated in the response body.
 		 */
-		
-		// Parse JSON response
-		JSONParser parser = new JSONParser();
-		JSONObject modificationResult;
-		
-		try {
-			modificationResult = (JSONObject) parser.parse(paymentResponse);
-		} catch (ParseException e) {
-			throw new ServletException(e);
-		}
-		
-		// If the request was rejected, raise an exception
-		if (httpResponse.getStatusLine().getStatusCode() != 200) {
-			String faultString = modificationResult.get("errorType") + " " + modificationResult.get("errorCode") + " " + modificationResult.get("message");
-			throw new ServletException(faultString);
+		ModificationResult modificationResult;
+		try (OperationTimer timer = AdyenMetrics.json(apiUrl).start()) {
+			HttpResponse httpResponse = client.execute(httpRequest, context);
+
+			// If the request was rejected, raise an exception
+			if (httpResponse.getStatusLine().getStatusCode() != 200) {
+				throw new ServletException(ServiceError.from(httpResponse).getFaultString());
+			}
+
+			// Read JSON response
+			modificationResult = JsonCodec.read(httpResponse.getEntity(), ModificationResult::readFrom);
+			timer.setResult(modificationResult.getResponse());
 		}
 
 		/**
@@ -117,8 +111,8 @@ public class CancelPayment extends HttpServlet {
 		PrintWriter out = response.getWriter();
 
 		out.println("Modification Result:");
-		out.println("- pspReference: " + modificationResult.get("pspReference"));
-		out.println("- response: " + modificationResult.get("response"));
+		out.println("- pspReference: " + modificationResult.getPspReference());
+		out.println("- response: " + modificationResult.getResponse());
 
 	}
 
@@ -1,6 +1,9 @@
 package com.adyen.examples.modifications.Library;
 import com.adyen.Client;
 import com.adyen.enums.Environment;
+import com.adyen.examples.common.limit.LimitingClientInterface;
+import com.adyen.examples.common.metrics.AdyenMetrics;
+import com.adyen.examples.common.metrics.OperationTimer;
 import com.adyen.model.modification.CancelOrRefundRequest;
 import com.adyen.model.modification.ModificationResult;
 import com.adyen.service.Modification;
@@ -34,6 +37,8 @@ public class CancelOrRefundPayment {
          */
         // Create new Client
         Client client = new Client("YourWSUser", "YourWSPassword", Environment.TEST, "myTestPayment");
+        // Limit the number of concurrent calls per operation, see AdyenLimiters
+        client.setHttpClient(new LimitingClientInterface(client.getHttpClient()));
         Modification modification = new Modification(client);
 
         /**
@@ -52,7 +57,11 @@ public class CancelOrRefundPayment {
         cancelOrRefundRequest.setReference("YourReference");
 
         // Cancel or Refund the Payment
-        ModificationResult modificationResult = modification.cancelOrRefund(cancelOrRefundRequest);
+        ModificationResult modificationResult;
+        try (OperationTimer timer = AdyenMetrics.library("Payment.cancelOrRefund").start()) {
+            modificationResult = modification.cancelOrRefund(cancelOrRefundRequest);
+            timer.setResult(String.valueOf(modificationResult.getResponse()));
+        }
 
         /**
          * If the message was syntactically valid and merchantAccount is correct you will receive a
@@ -1,6 +1,9 @@
 package com.adyen.examples.modifications.Library;
 import com.adyen.Client;
 import com.adyen.enums.Environment;
+import com.adyen.examples.common.limit.LimitingClientInterface;
+import com.adyen.examples.common.metrics.AdyenMetrics;
+import com.adyen.examples.common.metrics.OperationTimer;
 import com.adyen.model.modification.CancelRequest;
 import com.adyen.model.modification.ModificationResult;
 import com.adyen.service.Modification;
@@ -33,6 +36,8 @@ public class CancelPayment {
          */
         // Create new Client
         Client client = new Client("YourWSUser", "YourWSPassword", Environment.TEST, "myTestPayment");
+        // Limit the number of concurrent calls per operation, see AdyenLimiters
+        client.setHttpClient(new LimitingClientInterface(client.getHttpClient()));
         Modification modification = new Modification(client);
 
         /**
@@ -51,7 +56,11 @@ public class CancelPayment {
         cancelRequest.setReference("YourReference");
 
         // Cancel the Payment
-        ModificationResult modificationResult = modification.cancel(cancelRequest);
+        ModificationResult modificationResult;
+        try (OperationTimer timer = AdyenMetrics.library("Payment.cancel").start()) {
+            modificationResult = modification.cancel(cancelRequest);
+            timer.setResult(String.valueOf(modificationResult.getResponse()));
+        }
 
         /**
          * If the message was syntactically valid and merchantAccount is correct you will receive a
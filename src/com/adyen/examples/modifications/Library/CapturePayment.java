@@ -1,6 +1,9 @@
 package com.adyen.examples.modifications.Library;
 import com.adyen.Client;
 import com.adyen.enums.Environment;
+import com.adyen.examples.common.limit.LimitingClientInterface;
+import com.adyen.examples.common.metrics.AdyenMetrics;
+import com.adyen.examples.common.metrics.OperationTimer;
 import com.adyen.model.modification.CaptureRequest;
 import com.adyen.model.modification.ModificationResult;
 import com.adyen.service.Modification;
@@ -35,6 +38,8 @@ public class CapturePayment {
          */
         // Create new Client
         Client client = new Client("YourWSUser", "YourWSPassword", Environment.TEST, "myTestPayment");
+        // Limit the number of concurrent calls per operation, see AdyenLimiters
+        client.setHttpClient(new LimitingClientInterface(client.getHttpClient()));
         Modification modification = new Modification(client);
 
         /**
@@ -60,7 +65,11 @@ public class CapturePayment {
         captureRequest.fillAmount("YourAmount", "YourCurrency");
 
         // Capture the Payment
-        ModificationResult modificationResult = modification.capture(captureRequest);
+        ModificationResult modificationResult;
+        try (OperationTimer timer = AdyenMetrics.library("Payment.capture").start()) {
+            modificationResult = modification.capture(captureRequest);
+            timer.setResult(String.valueOf(modificationResult.getResponse()));
+        }
 
         /**
          * If the message was syntactically valid and merchantAccount is correct you will receive a
@@ -1,6 +1,9 @@
 package com.adyen.examples.modifications.Library;
 import com.adyen.Client;
 import com.adyen.enums.Environment;
+import com.adyen.examples.common.limit.LimitingClientInterface;
+import com.adyen.examples.common.metrics.AdyenMetrics;
+import com.adyen.examples.common.metrics.OperationTimer;
 import com.adyen.model.modification.RefundRequest;
 import com.adyen.model.modification.ModificationResult;
 import com.adyen.service.Modification;
@@ -33,6 +36,8 @@ public class RefundPayment {
          */
         // Create new Client
         Client client = new Client("YourWSUser", "YourWSPassword", Environment.TEST, "myTestPayment");
+        // Limit the number of concurrent calls per operation, see AdyenLimiters
+        client.setHttpClient(new LimitingClientInterface(client.getHttpClient()));
         Modification modification = new Modification(client);
 
         /**
@@ -57,7 +62,11 @@ public class RefundPayment {
         refundRequest.fillAmount("YourAmount", "YourCurrency");
 
         // Refund the Payment
-        ModificationResult modificationResult = modification.refund(refundRequest);
+        ModificationResult modificationResult;
+        try (OperationTimer timer = AdyenMetrics.library("Payment.refund").start()) {
+            modificationResult = modification.refund(refundRequest);
+            timer.setResult(String.valueOf(modificationResult.getResponse()));
+        }
 
         /**
          * If the message was syntactically valid and merchantAccount is correct you will receive a
@@ -1,19 +1,21 @@
 package com.adyen.examples.modifications.Soap;
 import java.io.IOException;
 import java.io.PrintWriter;
-import java.net.URL;
 
 import javax.servlet.ServletException;
 import javax.servlet.annotation.WebServlet;
 import javax.servlet.http.HttpServlet;
 import javax.servlet.http.HttpServletRequest;
 import javax.servlet.http.HttpServletResponse;
-import javax.xml.ws.BindingProvider;
 
+import com.adyen.examples.common.PortPool;
+import com.adyen.examples.common.ReferenceGenerator;
+import com.adyen.examples.common.SoapServices;
+import com.adyen.examples.common.metrics.AdyenMetrics;
+import com.adyen.examples.common.metrics.OperationTimer;
 import com.adyen.services.payment.ModificationRequest;
 import com.adyen.services.payment.ModificationResult;
 import com.adyen.services.payment.PaymentPortType;
-import com.adyen.services.payment.PaymentService;
 import com.adyen.services.payment.ServiceException;
 
 /**
@@ -46,16 +48,16 @@ public class CancelOrRefundPayment extends HttpServlet {
 		String wsPassword = "YourWSPassword";
 
 		/**
-		 * Create SOAP client, using classes in adyen-wsdl-cxf.jar library (generated by wsdl2java tool, Apache CXF).
+		 * Get a SOAP client, using classes in adyen-wsdl-cxf.jar library (generated by wsdl2java tool, Apache CXF).
+		 * 
+		 * The SOAP service is created only once, and the clients are pooled with HTTP Authentication already set.
+		 * Please return the client to the pool when the call is done.
 		 * 
 		 * @see WebContent/WEB-INF/lib/adyen-wsdl-cxf.jar
+		 * @see com.adyen.examples.common.SoapServices
 		 */
-		PaymentService service = new PaymentService(new URL(wsdl));
-		PaymentPortType client = service.getPaymentHttpPort();
-
-		// Set HTTP Authentication
-		((BindingProvider) client).getRequestContext().put(BindingProvider.USERNAME_PROPERTY, wsUser);
-		((BindingProvider) client).getRequestContext().put(BindingProvider.PASSWORD_PROPERTY, wsPassword);
+		PortPool<PaymentPortType> ports = SoapServices.paymentPorts(wsdl, wsUser, wsPassword);
+		PaymentPortType client = ports.borrow();
 
 		/**
 		 * Perform cancel or refund request by sending in a modificationRequest, the protocol is defined in the WSDL.
@@ -70,16 +72,19 @@ public class CancelOrRefundPayment extends HttpServlet {
 		ModificationRequest modificationRequest = new ModificationRequest();
 		modificationRequest.setMerchantAccount("YourMerchantAccount");
 		modificationRequest.setOriginalReference("PspReferenceOfTheAuthorisedPayment");
-		modificationRequest.setReference("YourReference");
+		modificationRequest.setReference(ReferenceGenerator.next("TEST-CANCEL-OR-REFUND-"));
 
 		/**
 		 * Send the cancel or refund request.
 		 */
 		ModificationResult modificationResult;
-		try {
+		try (OperationTimer timer = AdyenMetrics.soap("Payment.cancelOrRefund").start()) {
 			modificationResult = client.cancelOrRefund(modificationRequest);
+			timer.setResult(modificationResult.getResponse());
 		} catch (ServiceException e) {
 			throw new ServletException(e);
+		} finally {
+			ports.release(client);
 		}
 
 		/**
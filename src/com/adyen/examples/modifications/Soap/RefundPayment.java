@@ -1,20 +1,22 @@
 package com.adyen.examples.modifications.Soap;
 import java.io.IOException;
 import java.io.PrintWriter;
-import java.net.URL;
 
 import javax.servlet.ServletException;
 import javax.servlet.annotation.WebServlet;
 import javax.servlet.http.HttpServlet;
 import javax.servlet.http.HttpServletRequest;
 import javax.servlet.http.HttpServletResponse;
-import javax.xml.ws.BindingProvider;
 
+import com.adyen.examples.common.PortPool;
+import com.adyen.examples.common.ReferenceGenerator;
+import com.adyen.examples.common.SoapServices;
+import com.adyen.examples.common.metrics.AdyenMetrics;
+import com.adyen.examples.common.metrics.OperationTimer;
 import com.adyen.services.common.Amount;
 import com.adyen.services.payment.ModificationRequest;
 import com.adyen.services.payment.ModificationResult;
 import com.adyen.services.payment.PaymentPortType;
-import com.adyen.services.payment.PaymentService;
 import com.adyen.services.payment.ServiceException;
 
 /**
@@ -46,16 +48,16 @@ public class RefundPayment extends HttpServlet {
 		String wsPassword = "YourWSPassword";
 
 		/**
-		 * Create SOAP client, using classes in adyen-wsdl-cxf.jar library (generated by wsdl2java tool, Apache CXF).
+		 * Get a SOAP client, using classes in adyen-wsdl-cxf.jar library (generated by wsdl2java tool, Apache CXF).
+		 * 
+		 * The SOAP service is created only once, and the clients are pooled with HTTP Authentication already set.
+		 * Please return the client to the pool when the call is done.
 		 * 
 		 * @see WebContent/WEB-INF/lib/adyen-wsdl-cxf.jar
+		 * @see com.adyen.examples.common.SoapServices
 		 */
-		PaymentService service = new PaymentService(new URL(wsdl));
-		PaymentPortType client = service.getPaymentHttpPort();
-
-		// Set HTTP Authentication
-		((BindingProvider) client).getRequestContext().put(BindingProvider.USERNAME_PROPERTY, wsUser);
-		((BindingProvider) client).getRequestContext().put(BindingProvider.PASSWORD_PROPERTY, wsPassword);
+		PortPool<PaymentPortType> ports = SoapServices.paymentPorts(wsdl, wsUser, wsPassword);
+		PaymentPortType client = ports.borrow();
 
 		/**
 		 * Perform refund request by sending in a modificationRequest, the protocol is defined in the WSDL.
@@ -73,7 +75,7 @@ public class RefundPayment extends HttpServlet {
 		ModificationRequest modificationRequest = new ModificationRequest();
 		modificationRequest.setMerchantAccount("YourMerchantAccount");
 		modificationRequest.setOriginalReference("PspReferenceOfTheAuthorisedPayment");
-		modificationRequest.setReference("YourReference");
+		modificationRequest.setReference(ReferenceGenerator.next("TEST-REFUND-"));
 
 		Amount amount = new Amount();
 		amount.setCurrency("EUR");
@@ -84,10 +86,13 @@ public class RefundPayment extends HttpServlet {
 		 * Send the refund request.
 		 */
 		ModificationResult modificationResult;
-		try {
+		try (OperationTimer timer = AdyenMetrics.soap("Payment.refund").start()) {
 			modificationResult = client.refund(modificationRequest);
+			timer.setResult(modificationResult.getResponse());
 		} catch (ServiceException e) {
 			throw new ServletException(e);
+		} finally {
+			ports.release(client);
 		}
 
 		/**
@@ -0,0 +1,251 @@
+package com.adyen.examples.modifications.batch;
+
+import java.io.File;
+import java.util.Properties;
+
+/**
+ * Settings of a {@link BulkModifications} run
+ *
+ * Only the input file is required; all other settings have a default. Settings are given as key=value arguments, or
+ * as properties.
+ *
+ * @author Created by Adyen - Payments Made Easy
+ */
+public class BatchConfig {
+
+	/**
+	 * File settings
+	 * - input: CSV or JSON lines file with the modifications (see ModificationFileReader)
+	 * - output: file the results are written to, in the format of the input (default: input + ".result")
+	 * - format: csv or jsonl (default: derived from the extension of the input, csv if unknown)
+	 * - batchId: ID of the batch, e.g. captures-2016-03-01; part of the references of the modifications without one
+	 *   and of the checkpoint (default: derived from the content of the input, see BatchCheckpoint#contentId)
+	 */
+	private File input;
+	private File output;
+	private BatchFormat format;
+	private String batchId;
+
+	/**
+	 * Execution settings
+	 * - parallelism: maximum number of modifications in flight
+	 * - rate: maximum number of modifications sent per second (0 = no limit)
+	 * - maxAttempts: maximum number of attempts of a modification that failed because of a network error or an
+	 *   overloaded platform (HTTP 429 or 5xx); rejected modifications are never retried
+	 * - reportSeconds: interval of the progress report
+	 */
+	private int parallelism = 16;
+	private double rate = 100;
+	private int maxAttempts = 3;
+	private int reportSeconds = 5;
+
+	/**
+	 * JSON settings
+	 * - apiUrl: base URL of the Payment API you are using (Test/Live), the action is appended
+	 * - wsUser: your web service user
+	 * - wsPassword: your web service user's password
+	 * - merchantAccount: merchant account of the modifications that do not have one
+	 */
+	private String apiUrl = "https://pal-test.adyen.com/pal/servlet/Payment/v10/";
+	private String wsUser = "YourWSUser";
+	private String wsPassword = "YourWSPassword";
+	private String merchantAccount = "YourMerchantAccount";
+
+	/**
+	 * Reads the settings from key=value arguments.
+	 */
+	public static BatchConfig fromArguments(String[] arguments) {
+		BatchConfig config = new BatchConfig();
+		for (String argument : arguments) {
+			int separator = argument.indexOf('=');
+			if (separator < 0) {
+				throw new IllegalArgumentException("Expected key=value but was: " + argument);
+			}
+			config.set(argument.substring(0, separator).trim(), argument.substring(separator + 1).trim());
+		}
+		return config;
+	}
+
+	/**
+	 * Reads the settings from properties.
+	 */
+	public static BatchConfig fromProperties(Properties properties) {
+		BatchConfig config = new BatchConfig();
+		for (String name : properties.stringPropertyNames()) {
+			config.set(name, properties.getProperty(name).trim());
+		}
+		return config;
+	}
+
+	/**
+	 * Sets a single setting by name.
+	 */
+	public void set(String name, String value) {
+		switch (name) {
+			case "input":
+				input = new File(value);
+				break;
+			case "output":
+				output = new File(value);
+				break;
+			case "format":
+				format = BatchFormat.parse(value);
+				break;
+			case "batchId":
+				batchId = value.isEmpty() ? null : value;
+				break;
+			case "parallelism":
+				parallelism = parsePositive(name, value);
+				break;
+			case "rate":
+				rate = Double.parseDouble(value);
+				break;
+			case "maxAttempts":
+				maxAttempts = parsePositive(name, value);
+				break;
+			case "reportSeconds":
+				reportSeconds = parsePositive(name, value);
+				break;
+			case "apiUrl":
+				apiUrl = value.endsWith("/") ? value : value + "/";
+				break;
+			case "wsUser":
+				wsUser = value;
+				break;
+			case "wsPassword":
+				wsPassword = value;
+				break;
+			case "merchantAccount":
+				merchantAccount = value;
+				break;
+			default:
+				throw new IllegalArgumentException("Unknown batch setting: " + name);
+		}
+	}
+
+	public File getInput() {
+		return input;
+	}
+
+	public void setInput(File input) {
+		this.input = input;
+	}
+
+	/**
+	 * Returns the output file, by default the input file with the extension .result.
+	 */
+	public File getOutput() {
+		if (output == null && input != null) {
+			return new File(input.getPath() + ".result");
+		}
+		return output;
+	}
+
+	public void setOutput(File output) {
+		this.output = output;
+	}
+
+	/**
+	 * Returns the format, by default derived from the extension of the input file.
+	 */
+	public BatchFormat getFormat() {
+		if (format == null && input != null) {
+			return BatchFormat.forFile(input);
+		}
+		return format;
+	}
+
+	public void setFormat(BatchFormat format) {
+		this.format = format;
+	}
+
+	/**
+	 * Returns the batch ID that was set, or null if it is derived from the content of the input.
+	 */
+	public String getBatchId() {
+		return batchId;
+	}
+
+	public void setBatchId(String batchId) {
+		this.batchId = batchId;
+	}
+
+	public int getParallelism() {
+		return parallelism;
+	}
+
+	public void setParallelism(int parallelism) {
+		this.parallelism = parallelism;
+	}
+
+	public double getRate() {
+		return rate;
+	}
+
+	public void setRate(double rate) {
+		this.rate = rate;
+	}
+
+	public int getMaxAttempts() {
+		return maxAttempts;
+	}
+
+	public void setMaxAttempts(int maxAttempts) {
+		this.maxAttempts = maxAttempts;
+	}
+
+	public int getReportSeconds() {
+		return reportSeconds;
+	}
+
+	public void setReportSeconds(int reportSeconds) {
+		this.reportSeconds = reportSeconds;
+	}
+
+	public String getApiUrl() {
+		return apiUrl;
+	}
+
+	public void setApiUrl(String apiUrl) {
+		this.apiUrl = apiUrl;
+	}
+
+	public String getWsUser() {
+		return wsUser;
+	}
+
+	public void setWsUser(String wsUser) {
+		this.wsUser = wsUser;
+	}
+
+	public String getWsPassword() {
+		return wsPassword;
+	}
+
+	public void setWsPassword(String wsPassword) {
+		this.wsPassword = wsPassword;
+	}
+
+	public String getMerchantAccount() {
+		return merchantAccount;
+	}
+
+	public void setMerchantAccount(String merchantAccount) {
+		this.merchantAccount = merchantAccount;
+	}
+
+	@Override
+	public String toString() {
+		return "input=" + input + " output=" + getOutput() + " format=" + getFormat() + " batchId=" + batchId
+				+ " parallelism=" + parallelism + " rate=" + rate + " maxAttempts=" + maxAttempts + " apiUrl=" + apiUrl;
+	}
+
+	private static int parsePositive(String name, String value) {
+		int number = Integer.parseInt(value);
+		if (number < 1) {
+			throw new IllegalArgumentException(name + " must be at least 1: " + value);
+		}
+		return number;
+	}
+
+}
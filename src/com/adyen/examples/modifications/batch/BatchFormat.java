@@ -0,0 +1,42 @@
+package com.adyen.examples.modifications.batch;
+
+import java.io.File;
+
+/**
+ * Format of the input and output files of a {@link BulkModifications} run
+ *
+ * <pre>
+ * - CSV   : a header line with the column names, followed by one modification per line (RFC 4180 quoting)
+ * - JSONL : one JSON object per line (JSON lines), with the column names as fields
+ * </pre>
+ *
+ * @author Created by Adyen - Payments Made Easy
+ */
+public enum BatchFormat {
+
+	CSV, JSONL;
+
+	/**
+	 * Returns the format with the given name (csv or jsonl, case insensitive).
+	 */
+	public static BatchFormat parse(String name) {
+		switch (name.toLowerCase()) {
+			case "csv":
+				return CSV;
+			case "jsonl":
+			case "json":
+				return JSONL;
+			default:
+				throw new IllegalArgumentException("Unknown batch format: " + name);
+		}
+	}
+
+	/**
+	 * Returns the format of the given file by its extension: JSONL for .jsonl and .json files, otherwise CSV.
+	 */
+	public static BatchFormat forFile(File file) {
+		String name = file.getName().toLowerCase();
+		return name.endsWith(".jsonl") || name.endsWith(".json") ? JSONL : CSV;
+	}
+
+}
@@ -0,0 +1,162 @@
+package com.adyen.examples.modifications.batch;
+
+/**
+ * A single modification of a batch, as read from the input file
+ *
+ * The fields are taken from the file as they are; {@link #validate()} checks whether the modification can be sent.
+ * The record number (1-based, in the order of the file) identifies the modification within the batch.
+ *
+ * @author Created by Adyen - Payments Made Easy
+ */
+public final class BatchModification {
+
+	/**
+	 * The modification actions of the Payment API.
+	 */
+	public enum Action {
+
+		CAPTURE("capture", true), REFUND("refund", true), CANCEL("cancel", false), CANCEL_OR_REFUND("cancelOrRefund",
+				false);
+
+		private final String actionName;
+		private final boolean amountRequired;
+
+		private Action(String actionName, boolean amountRequired) {
+			this.actionName = actionName;
+			this.amountRequired = amountRequired;
+		}
+
+		/**
+		 * Name of the action in the API (e.g. cancelOrRefund), appended to the URL of the Payment API.
+		 */
+		public String getActionName() {
+			return actionName;
+		}
+
+		/**
+		 * Whether the action needs a modificationAmount (capture and refund).
+		 */
+		public boolean isAmountRequired() {
+			return amountRequired;
+		}
+
+		/**
+		 * Returns the action with the given API name (case insensitive), or null if there is none.
+		 */
+		public static Action forName(String name) {
+			for (Action action : values()) {
+				if (action.actionName.equalsIgnoreCase(name)) {
+					return action;
+				}
+			}
+			return null;
+		}
+
+	}
+
+	private final long number;
+	private final String action;
+	private final String merchantAccount;
+	private final String originalReference;
+	private final String currency;
+	private final String value;
+	private final String reference;
+
+	public BatchModification(long number, String action, String merchantAccount, String originalReference,
+			String currency, String value, String reference) {
+		this.number = number;
+		this.action = action;
+		this.merchantAccount = merchantAccount;
+		this.originalReference = originalReference;
+		this.currency = currency;
+		this.value = value;
+		this.reference = reference;
+	}
+
+	/**
+	 * Record number within the batch (1-based).
+	 */
+	public long getNumber() {
+		return number;
+	}
+
+	/**
+	 * Action as given in the file, see {@link #getAction()} for the parsed action.
+	 */
+	public String getActionName() {
+		return action;
+	}
+
+	/**
+	 * Returns the action, or null if the file contains an unknown action.
+	 */
+	public Action getAction() {
+		return action != null ? Action.forName(action) : null;
+	}
+
+	public String getMerchantAccount() {
+		return merchantAccount;
+	}
+
+	public String getOriginalReference() {
+		return originalReference;
+	}
+
+	public String getCurrency() {
+		return currency;
+	}
+
+	/**
+	 * Amount in minor units (e.g. EUR 1,00 = 100) as given in the file, see {@link #getAmountValue()}.
+	 */
+	public String getValue() {
+		return value;
+	}
+
+	/**
+	 * Returns the amount in minor units, or null if no (valid) amount is given.
+	 */
+	public Long getAmountValue() {
+		if (value == null) {
+			return null;
+		}
+		try {
+			return Long.valueOf(value);
+		} catch (NumberFormatException e) {
+			return null;
+		}
+	}
+
+	public String getReference() {
+		return reference;
+	}
+
+	/**
+	 * Returns why the modification cannot be sent, or null if it is valid.
+	 */
+	public String validate() {
+		if (action == null) {
+			return "Missing action (or invalid line)";
+		}
+		Action parsedAction = getAction();
+		if (parsedAction == null) {
+			return "Unknown action: " + action;
+		}
+		if (originalReference == null) {
+			return "Missing originalReference";
+		}
+		if (parsedAction.isAmountRequired()) {
+			Long amountValue = getAmountValue();
+			if (currency == null || amountValue == null || amountValue <= 0) {
+				return "Missing or invalid amount: " + currency + " " + value;
+			}
+		}
+		return null;
+	}
+
+	@Override
+	public String toString() {
+		return "#" + number + " " + action + " " + originalReference;
+	}
+
+}
@@ -0,0 +1,88 @@
+package com.adyen.examples.modifications.batch;
+
+/**
+ * Result of a single modification of a batch, as written to the output file
+ *
+ * <pre>
+ * - RECEIVED : Adyen accepted the modification (e.g. [capture-received]); the outcome follows in a notification
+ * - REJECTED : Adyen rejected the modification (e.g. an unknown originalReference); it is not retried
+ * - FAILED   : the modification could not be sent, or Adyen was unavailable, after the maximum number of attempts
+ * - INVALID  : the modification in the input file is incomplete; it is not sent
+ * </pre>
+ *
+ * @author Created by Adyen - Payments Made Easy
+ */
+public final class BatchResult {
+
+	public enum Status {
+		RECEIVED, REJECTED, FAILED, INVALID
+	}
+
+	private final BatchModification modification;
+	private final String reference;
+	private final Status status;
+	private final String pspReference;
+	private final String response;
+	private final String message;
+	private final int attempts;
+
+	public BatchResult(BatchModification modification, String reference, Status status, String pspReference,
+			String response, String message, int attempts) {
+		this.modification = modification;
+		this.reference = reference;
+		this.status = status;
+		this.pspReference = pspReference;
+		this.response = response;
+		this.message = message;
+		this.attempts = attempts;
+	}
+
+	public BatchModification getModification() {
+		return modification;
+	}
+
+	/**
+	 * Reference of the modification, as sent to Adyen.
+	 */
+	public String getReference() {
+		return reference;
+	}
+
+	public Status getStatus() {
+		return status;
+	}
+
+	/**
+	 * pspReference of the modification, if Adyen received it.
+	 */
+	public String getPspReference() {
+		return pspReference;
+	}
+
+	/**
+	 * Response of Adyen (e.g. [capture-received]), if Adyen received the modification.
+	 */
+	public String getResponse() {
+		return response;
+	}
+
+	/**
+	 * Reason the modification was rejected or failed.
+	 */
+	public String getMessage() {
+		return message;
+	}
+
+	/**
+	 * Number of times the modification was sent.
+	 */
+	public int getAttempts() {
+		return attempts;
+	}
+
+	@Override
+	public String toString() {
+		return modification + ": " + status + (message != null ? " (" + message + ")" : "");
+	}
+
+}
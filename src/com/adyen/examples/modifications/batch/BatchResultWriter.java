@@ -0,0 +1,92 @@
+package com.adyen.examples.modifications.batch;
+
+import java.io.File;
+import java.io.IOException;
+
+import com.adyen.examples.common.Csv;
+import com.adyen.examples.common.batch.BatchCheckpoint;
+import com.adyen.examples.common.batch.OrderedResultWriter;
+import com.adyen.examples.common.json.JsonWriter;
+
+/**
+ * Writes the results of a batch to the output file, in the order of the input file
+ *
+ * Modifications complete out of order, as they are sent in parallel; the writer keeps their results until they are
+ * next in line (see {@link OrderedResultWriter}), so the batch can resume at its checkpoint (see
+ * {@link BatchCheckpoint}).
+ *
+ * The output has the format of the input. A CSV output starts with a header line:
+ *
+ * <pre>
+ * record,action,merchantAccount,originalReference,reference,status,pspReference,response,message
+ * </pre>
+ *
+ * @author Created by Adyen - Payments Made Easy
+ */
+public class BatchResultWriter extends OrderedResultWriter<BatchResult> {
+
+	private static final String CSV_HEADER = "record,action,merchantAccount,originalReference,reference,status,"
+			+ "pspReference,response,message\n";
+	private static final byte[] NEWLINE = { '\n' };
+
+	private final BatchFormat format;
+	private final JsonWriter json = new JsonWriter();
+	private final StringBuilder line = new StringBuilder(256);
+
+	/**
+	 * Opens the output file. When resuming, the file is cut back to its length at the checkpoint, otherwise it is
+	 * created (or emptied).
+	 *
+	 * @param written number of modifications whose results are already written (from the checkpoint)
+	 */
+	public BatchResultWriter(File output, BatchFormat format, BatchCheckpoint checkpoint, String batchId, long written)
+			throws IOException {
+		super(output, checkpoint, batchId, written, format == BatchFormat.CSV ? CSV_HEADER : null);
+		this.format = format;
+	}
+
+	@Override
+	protected long recordNumber(BatchResult result) {
+		return result.getModification().getNumber();
+	}
+
+	@Override
+	protected void writeResult(BatchResult result) throws IOException {
+		BatchModification modification = result.getModification();
+		if (format == BatchFormat.JSONL) {
+			json.reset();
+			json.beginObject();
+			json.field("record", modification.getNumber());
+			json.field("action", modification.getActionName());
+			json.field("merchantAccount", modification.getMerchantAccount());
+			json.field("originalReference", modification.getOriginalReference());
+			json.field("reference", result.getReference());
+			json.field("status", result.getStatus().name());
+			json.field("pspReference", result.getPspReference());
+			json.field("response", result.getResponse());
+			json.field("message", result.getMessage());
+			json.endObject();
+			writeBytes(json.getBuffer(), 0, json.size());
+			writeBytes(NEWLINE);
+		}
+		else {
+			line.setLength(0);
+			line.append(modification.getNumber());
+			appendCsv(modification.getActionName());
+			appendCsv(modification.getMerchantAccount());
+			appendCsv(modification.getOriginalReference());
+			appendCsv(result.getReference());
+			appendCsv(result.getStatus().name());
+			appendCsv(result.getPspReference());
+			appendCsv(result.getResponse());
+			appendCsv(result.getMessage());
+			line.append('\n');
+			writeBytes(line.toString().getBytes(UTF8));
+		}
+	}
+
+	private void appendCsv(String value) {
+		Csv.append(line.append(','), value);
+	}
+
+}
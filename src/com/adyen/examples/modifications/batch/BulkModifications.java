@@ -0,0 +1,379 @@
+package com.adyen.examples.modifications.batch;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+import javax.management.ObjectName;
+
+import org.apache.http.HttpResponse;
+import org.apache.http.client.HttpClient;
+import org.apache.http.client.methods.HttpPost;
+import org.apache.http.client.protocol.HttpClientContext;
+
+import com.adyen.examples.common.AdyenHttpClient;
+import com.adyen.examples.common.batch.BatchCheckpoint;
+import com.adyen.examples.common.batch.BatchSupport;
+import com.adyen.examples.common.batch.ProgressReporter;
+import com.adyen.examples.common.batch.RetryBackoff;
+import com.adyen.examples.common.json.Amount;
+import com.adyen.examples.common.json.JsonCodec;
+import com.adyen.examples.common.json.ModificationRequest;
+import com.adyen.examples.common.json.ModificationResult;
+import com.adyen.examples.common.json.ServiceError;
+import com.adyen.examples.common.metrics.AdyenMetrics;
+import com.adyen.examples.common.metrics.OperationTimer;
+import com.google.common.util.concurrent.RateLimiter;
+
+/**
+ * Bulk modifications: captures, refunds and cancels for a whole file of payments (JSON)
+ *
+ * Instead of sending a single modification (see the CapturePayment, RefundPayment, CancelPayment and
+ * CancelOrRefundPayment examples), this engine streams the modifications from a CSV or JSON lines file (see
+ * {@link ModificationFileReader}), e.g. the end-of-day captures or a mass refund of hundreds of thousands of payments,
+ * and sends them to the JSON API:
+ *
+ * <pre>
+ * - parallelism : at most this number of modifications is in flight at the same time
+ * - rate        : at most this number of modifications is sent per second (Guava RateLimiter)
+ * - retries     : network errors and an overloaded platform (HTTP 429 and 5xx) are retried with exponential
+ *                 backoff; modifications that Adyen rejects are reported and not retried
+ * </pre>
+ *
+ * The calls use the shared {@link AdyenHttpClient}, so they count as modifications in the concurrency limits (see
+ * com.adyen.examples.common.limit): a bulk run never takes the slots reserved for the checkout.
+ *
+ * The results are written to the output file in the order of the input file (see {@link BatchResultWriter}), and the
+ * progress is stored in a checkpoint (see {@link BatchCheckpoint}). When the run is stopped or crashes, it resumes at
+ * the checkpoint when started again with the same settings. Modifications in flight at that moment are sent again:
+ * every modification is sent with an Idempotency-Key header (merchant account and reference), so Adyen processes it
+ * only once. Without a reference in the file, the reference is derived from the batch ID and the record number, e.g.
+ * BATCH-captures-2016-03-01-42, so it is the same after a restart. Set a batchId per batch, or leave it out to derive
+ * it from the content of the input file: the input file name alone is not enough, as the end-of-day file often has
+ * the same name every day, and the modifications of the next day would get the keys (and results) of the day before.
+ *
+ * The progress (throughput, estimated time remaining, results per status) is printed every reportSeconds and is
+ * available through JMX (see {@link BulkModificationsMBean}). Start a run with key=value settings (see
+ * {@link BatchConfig}), e.g.:
+ *
+ * <pre>
+ * java -cp "WEB-INF/classes:WEB-INF/lib/*" com.adyen.examples.modifications.batch.BulkModifications input=captures.csv parallelism=16 rate=200
+ * </pre>
+ *
+ * Stop the run with Ctrl-C; the modifications in flight are completed before the checkpoint is stored.
+ *
+ * @author Created by Adyen - Payments Made Easy
+ */
+public class BulkModifications implements BulkModificationsMBean {
+
+	/**
+	 * Engine settings
+	 * - WINDOW_PER_THREAD: maximum number of results waiting to be written per thread, as the output follows the input
+	 * - RETRY_BACKOFF_MILLIS: time to wait before the first retry, doubled for every next retry
+	 * - SHUTDOWN_SECONDS: maximum time to wait for the modifications in flight when the run stops
+	 */
+	private static final int WINDOW_PER_THREAD = 8;
+	private static final long RETRY_BACKOFF_MILLIS = 500;
+	private static final long SHUTDOWN_SECONDS = 120;
+
+	private final BatchConfig config;
+	private String referencePrefix;
+	private final RateLimiter rateLimiter;
+	private final Semaphore window;
+	private final int windowSize;
+	private final RetryBackoff retry;
+	private final ProgressReporter progress;
+
+	private final LongAdder received = new LongAdder();
+	private final LongAdder rejected = new LongAdder();
+	private final LongAdder failed = new LongAdder();
+	private final LongAdder invalid = new LongAdder();
+
+	private volatile boolean running = true;
+	private volatile IOException writeFailure;
+	private volatile ModificationFileReader reader;
+	private volatile BatchResultWriter writer;
+
+	private ObjectName objectName;
+
+	public BulkModifications(BatchConfig config) {
+		if (config.getInput() == null) {
+			throw new IllegalArgumentException("No input file");
+		}
+		this.config = config;
+
+		this.rateLimiter = config.getRate() > 0 ? RateLimiter.create(config.getRate()) : null;
+		this.windowSize = config.getParallelism() * WINDOW_PER_THREAD;
+		this.window = new Semaphore(windowSize);
+		this.retry = new RetryBackoff(config.getMaxAttempts(), RETRY_BACKOFF_MILLIS, () -> running);
+		this.progress = new ProgressReporter("bulk-progress", config.getReportSeconds(), this::getProcessedCount,
+				() -> System.out.println(this));
+	}
+
+	/**
+	 * Runs the batch, resuming at the checkpoint if there is one, and returns when all modifications are processed or
+	 * the run is stopped.
+	 */
+	public void run() throws IOException, InterruptedException {
+		File input = config.getInput();
+		File output = config.getOutput();
+		BatchFormat format = config.getFormat();
+		String batchId = config.getBatchId() != null ? config.getBatchId() : BatchCheckpoint.contentId(input);
+		referencePrefix = "BATCH-" + batchId + "-";
+
+		ExecutorService executor = Executors.newFixedThreadPool(config.getParallelism(), BatchSupport
+				.threads("bulk-modification"));
+
+		try (BatchCheckpoint checkpoint = new BatchCheckpoint(output)) {
+			long done = checkpoint.loadRecords(batchId);
+			reader = new ModificationFileReader(input, format);
+			try {
+				if (reader.skip(done) < done) {
+					throw new IOException("Checkpoint " + checkpoint + " is beyond the end of " + input);
+				}
+				writer = new BatchResultWriter(output, format, checkpoint, batchId, done);
+				try {
+					if (done > 0) {
+						System.out.println("Resuming " + input + " after " + done + " modifications");
+					}
+					objectName = BatchSupport.registerMBean(this, "BulkModifications", input.getName());
+					progress.start();
+					submitAll(executor);
+				} finally {
+					executor.shutdown();
+					if (!executor.awaitTermination(SHUTDOWN_SECONDS, TimeUnit.SECONDS)) {
+						System.err.println("Modifications still in flight, they are sent again when the batch resumes");
+					}
+					writer.close();
+				}
+			} finally {
+				reader.close();
+			}
+		} finally {
+			progress.stop();
+			BatchSupport.unregisterMBean(objectName);
+		}
+
+		System.out.println(this);
+		if (writeFailure != null) {
+			throw writeFailure;
+		}
+	}
+
+	/**
+	 * Stops sending modifications; {@link #run()} returns once the modifications in flight are completed.
+	 */
+	@Override
+	public void stop() {
+		running = false;
+	}
+
+	private void submitAll(ExecutorService executor) throws IOException, InterruptedException {
+		BatchModification modification;
+		while (running && (modification = reader.next()) != null) {
+			// Wait until the results of the earliest modifications are written
+			window.acquire();
+
+			String error = modification.validate();
+			if (error != null) {
+				complete(new BatchResult(modification, null, BatchResult.Status.INVALID, null, null, error, 0));
+				continue;
+			}
+
+			if (rateLimiter != null) {
+				rateLimiter.acquire();
+			}
+
+			final BatchModification next = modification;
+			executor.execute(new Runnable() {
+				@Override
+				public void run() {
+					complete(send(next));
+				}
+			});
+		}
+	}
+
+	/**
+	 * Sends a single modification, retrying network errors and an overloaded platform.
+	 */
+	private BatchResult send(BatchModification modification) {
+		BatchModification.Action action = modification.getAction();
+		String url = config.getApiUrl() + action.getActionName();
+		String reference = modification.getReference() != null ? modification.getReference() : referencePrefix
+				+ modification.getNumber();
+
+		ModificationRequest modificationRequest = new ModificationRequest();
+		modificationRequest.setMerchantAccount(modification.getMerchantAccount() != null ? modification
+				.getMerchantAccount() : config.getMerchantAccount());
+		modificationRequest.setOriginalReference(modification.getOriginalReference());
+		modificationRequest.setReference(reference);
+
+		if (modification.getCurrency() != null && modification.getAmountValue() != null) {
+			Amount amount = new Amount();
+			amount.setCurrency(modification.getCurrency());
+			amount.setValue(modification.getAmountValue());
+			modificationRequest.setModificationAmount(amount);
+		}
+
+		String idempotencyKey = modificationRequest.getMerchantAccount() + "/" + reference;
+		HttpClient client = AdyenHttpClient.getInstance();
+		HttpClientContext context = AdyenHttpClient.createContext(url, config.getWsUser(), config.getWsPassword());
+
+		String message = null;
+		for (int attempt = 1;; attempt++) {
+			HttpPost httpRequest = new HttpPost(url);
+			httpRequest.setHeader("Idempotency-Key", idempotencyKey);
+			httpRequest.setEntity(JsonCodec.toEntity(modificationRequest));
+
+			try (OperationTimer timer = AdyenMetrics.json(url).start()) {
+				HttpResponse httpResponse = client.execute(httpRequest, context);
+				int status = httpResponse.getStatusLine().getStatusCode();
+
+				if (status == 200) {
+					ModificationResult modificationResult = JsonCodec.read(httpResponse.getEntity(),
+							ModificationResult::readFrom);
+					timer.setResult(modificationResult.getResponse());
+					return new BatchResult(modification, reference, BatchResult.Status.RECEIVED, modificationResult
+							.getPspReference(), modificationResult.getResponse(), null, attempt);
+				}
+
+				timer.setFailed(String.valueOf(status));
+				message = status + " " + ServiceError.from(httpResponse).getMessage();
+				if (status != 429 && status < 500) {
+					return new BatchResult(modification, reference, BatchResult.Status.REJECTED, null, null, message,
+							attempt);
+				}
+			} catch (IOException e) {
+				message = e.toString();
+			}
+
+			if (!retry.awaitRetry(attempt)) {
+				return new BatchResult(modification, reference, BatchResult.Status.FAILED, null, null, message, attempt);
+			}
+		}
+	}
+
+	private void complete(BatchResult result) {
+		switch (result.getStatus()) {
+			case RECEIVED:
+				received.increment();
+				break;
+			case REJECTED:
+				rejected.increment();
+				break;
+			case FAILED:
+				failed.increment();
+				break;
+			default:
+				invalid.increment();
+		}
+
+		try {
+			window.release(writer.write(result));
+		} catch (IOException e) {
+			// Without output the progress cannot be stored, stop sending modifications
+			writeFailure = e;
+			running = false;
+			window.release(windowSize);
+		}
+	}
+
+	@Override
+	public long getProcessedCount() {
+		BatchResultWriter current = writer;
+		return current != null ? current.getWritten() : 0;
+	}
+
+	@Override
+	public long getEstimatedTotal() {
+		ModificationFileReader current = reader;
+		if (current == null || current.getPosition() == 0) {
+			return 0;
+		}
+		if (current.getPosition() >= current.getSize()) {
+			return current.getCount();
+		}
+		return current.getCount() * current.getSize() / current.getPosition();
+	}
+
+	@Override
+	public long getReceivedCount() {
+		return received.sum();
+	}
+
+	@Override
+	public long getRejectedCount() {
+		return rejected.sum();
+	}
+
+	@Override
+	public long getFailedCount() {
+		return failed.sum();
+	}
+
+	@Override
+	public long getInvalidCount() {
+		return invalid.sum();
+	}
+
+	@Override
+	public long getRetryCount() {
+		return retry.getRetryCount();
+	}
+
+	@Override
+	public int getInFlight() {
+		return windowSize - window.availablePermits();
+	}
+
+	@Override
+	public double getThroughput() {
+		return progress.getThroughput();
+	}
+
+	@Override
+	public long getEtaSeconds() {
+		return progress.getEtaSeconds(getEstimatedTotal() - getProcessedCount());
+	}
+
+	@Override
+	public String toString() {
+		long processed = getProcessedCount();
+		long total = Math.max(getEstimatedTotal(), processed);
+		return String.format("Processed %d of ~%d (%.1f%%), %.0f/s, ETA %s - received: %d, rejected: %d, failed: %d, "
+				+ "invalid: %d, retries: %d", processed, total, total > 0 ? processed * 100.0 / total : 0.0,
+				getThroughput(), ProgressReporter.formatEta(getEtaSeconds()), getReceivedCount(), getRejectedCount(),
+				getFailedCount(), getInvalidCount(), getRetryCount());
+	}
+
+	public static void main(String[] args) throws Exception {
+		BatchConfig config = BatchConfig.fromArguments(args);
+		final BulkModifications bulkModifications = new BulkModifications(config);
+		System.out.println("Bulk modifications started (" + config + ")");
+
+		final Thread main = Thread.currentThread();
+		Runtime.getRuntime().addShutdownHook(new Thread() {
+			@Override
+			public void run() {
+				bulkModifications.stop();
+				try {
+					main.join();
+				} catch (InterruptedException e) {
+					// Exit without waiting for the modifications in flight
+				}
+			}
+		});
+
+		try {
+			bulkModifications.run();
+		} finally {
+			AdyenHttpClient.shutdown();
+		}
+	}
+
+}
@@ -0,0 +1,54 @@
+package com.adyen.examples.modifications.batch;
+
+/**
+ * Management interface of a {@link BulkModifications} run, registered as
+ * com.adyen.examples:type=BulkModifications,name=&lt;input file&gt;
+ *
+ * @author Created by Adyen - Payments Made Easy
+ */
+public interface BulkModificationsMBean {
+
+	/**
+	 * Number of modifications whose results are written, including the modifications processed before a restart.
+	 */
+	long getProcessedCount();
+
+	/**
+	 * Estimated total number of modifications in the input file, extrapolated from the part read so far.
+	 */
+	long getEstimatedTotal();
+
+	long getReceivedCount();
+
+	long getRejectedCount();
+
+	long getFailedCount();
+
+	long getInvalidCount();
+
+	/**
+	 * Number of times a modification was sent again after a network error or an overloaded platform.
+	 */
+	long getRetryCount();
+
+	/**
+	 * Number of modifications sent but not yet written.
+	 */
+	int getInFlight();
+
+	/**
+	 * Number of modifications processed per second, measured over the last report interval.
+	 */
+	double getThroughput();
+
+	/**
+	 * Estimated number of seconds until the batch is complete, or -1 if not known yet.
+	 */
+	long getEtaSeconds();
+
+	/**
+	 * Stops sending modifications; the modifications in flight are completed and the checkpoint is stored.
+	 */
+	void stop();
+
+}
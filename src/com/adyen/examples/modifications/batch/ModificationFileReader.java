@@ -0,0 +1,181 @@
+package com.adyen.examples.modifications.batch;
+
+import java.io.BufferedReader;
+import java.io.ByteArrayInputStream;
+import java.io.Closeable;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.nio.charset.Charset;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import com.adyen.examples.common.Csv;
+import com.adyen.examples.common.json.JsonReader;
+
+/**
+ * Streams the modifications of a batch from a CSV or JSON lines file
+ *
+ * The file is read line by line, so its size is not limited by the memory. Both formats use the same fields:
+ *
+ * <pre>
+ * - action            : capture, refund, cancel or cancelOrRefund
+ * - originalReference : the pspReference of the payment to modify
+ * - merchantAccount   : the merchant account of the payment (optional, see BatchConfig)
+ * - currency          : the currency of the modification amount (capture and refund only)
+ * - value             : the modification amount in minor units (capture and refund only)
+ * - reference         : your reference of the modification (optional)
+ * </pre>
+ *
+ * A CSV file starts with a header line naming the columns, in any order; unknown columns are ignored:
+ *
+ * <pre>
+ * action,originalReference,currency,value
+ * capture,8514567890123456,EUR,199
+ * </pre>
+ *
+ * A JSON lines file contains an object per line:
+ *
+ * <pre>
+ * {"action":"refund","originalReference":"8514567890123456","currency":"EUR","value":199}
+ * </pre>
+ *
+ * Empty lines and lines starting with # are skipped. Empty fields are read as missing. A line that cannot be parsed
+ * is returned as a modification without action, so it is reported as invalid instead of stopping the batch.
+ *
+ * @author Created by Adyen - Payments Made Easy
+ */
+public class ModificationFileReader implements Closeable {
+
+	private static final Charset UTF8 = Charset.forName("UTF-8");
+
+	private final BatchFormat format;
+	private final long size;
+	private final BufferedReader reader;
+
+	private Map<String, Integer> columns;
+	private volatile long number;
+	private volatile long position;
+
+	public ModificationFileReader(File file, BatchFormat format) throws IOException {
+		this.format = format;
+		this.size = file.length();
+		this.reader = new BufferedReader(new InputStreamReader(new FileInputStream(file), UTF8), 65536);
+	}
+
+	/**
+	 * Returns the next modification, or null at the end of the file.
+	 */
+	public BatchModification next() throws IOException {
+		String line;
+		while ((line = reader.readLine()) != null) {
+			position += line.length() + 1;
+			if (line.isEmpty() || line.charAt(0) == '#' || line.trim().isEmpty()) {
+				continue;
+			}
+			if (format == BatchFormat.CSV && columns == null) {
+				readHeader(line);
+				continue;
+			}
+
+			number++;
+			return format == BatchFormat.CSV ? parseCsv(line) : parseJson(line);
+		}
+		return null;
+	}
+
+	/**
+	 * Skips the given number of modifications, e.g. the modifications processed before a restart. Returns the number
+	 * of modifications skipped, which is lower at the end of the file.
+	 */
+	public long skip(long count) throws IOException {
+		long skipped = 0;
+		while (skipped < count && next() != null) {
+			skipped++;
+		}
+		return skipped;
+	}
+
+	/**
+	 * Number of modifications read (or skipped) so far.
+	 */
+	public long getCount() {
+		return number;
+	}
+
+	/**
+	 * Position in the file after the last line read, counted in characters. For files with (mostly) ASCII text this
+	 * equals the number of bytes, so together with {@link #getSize()} it gives the progress through the file.
+	 */
+	public long getPosition() {
+		return position;
+	}
+
+	/**
+	 * Size of the file in bytes.
+	 */
+	public long getSize() {
+		return size;
+	}
+
+	@Override
+	public void close() throws IOException {
+		reader.close();
+	}
+
+	private void readHeader(String line) throws IOException {
+		List<String> names = Csv.split(line);
+		columns = new HashMap<String, Integer>();
+		for (int i = 0; i < names.size(); i++) {
+			columns.put(names.get(i).trim(), i);
+		}
+		if (!columns.containsKey("action") || !columns.containsKey("originalReference")) {
+			throw new IOException("CSV header must contain the columns action and originalReference: " + line);
+		}
+	}
+
+	private BatchModification parseCsv(String line) {
+		List<String> fields = Csv.split(line);
+		return new BatchModification(number, column(fields, "action"), column(fields, "merchantAccount"), column(
+				fields, "originalReference"), column(fields, "currency"), column(fields, "value"), column(fields,
+				"reference"));
+	}
+
+	private String column(List<String> fields, String name) {
+		Integer index = columns.get(name);
+		return index != null && index < fields.size() ? emptyToNull(fields.get(index).trim()) : null;
+	}
+
+	private BatchModification parseJson(String line) {
+		Map<String, String> fields = new HashMap<String, String>();
+		try {
+			JsonReader json = new JsonReader(new ByteArrayInputStream(line.getBytes(UTF8)));
+			json.beginObject();
+			while (json.hasNext()) {
+				String name = json.nextName();
+				switch (json.peek()) {
+					case STRING:
+					case NUMBER:
+					case BOOLEAN:
+					case NULL:
+						fields.put(name, emptyToNull(json.nextString()));
+						break;
+					default:
+						json.skipValue();
+				}
+			}
+			json.endObject();
+		} catch (IOException e) {
+			return new BatchModification(number, null, null, null, null, null, null);
+		}
+		return new BatchModification(number, fields.get("action"), fields.get("merchantAccount"), fields
+				.get("originalReference"), fields.get("currency"), fields.get("value"), fields.get("reference"));
+	}
+
+	private static String emptyToNull(String value) {
+		return value == null || value.isEmpty() ? null : value;
+	}
+
+}
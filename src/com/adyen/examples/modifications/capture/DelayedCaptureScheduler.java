@@ -0,0 +1,802 @@
+package com.adyen.examples.modifications.capture;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.Closeable;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.lang.management.ManagementFactory;
+import java.nio.charset.Charset;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.time.OffsetDateTime;
+import java.time.format.DateTimeParseException;
+import java.util.Arrays;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+
+import javax.management.JMException;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+
+import org.apache.http.HttpResponse;
+import org.apache.http.client.HttpClient;
+import org.apache.http.client.methods.HttpPost;
+import org.apache.http.client.protocol.HttpClientContext;
+import org.json.simple.JSONObject;
+import org.json.simple.parser.JSONParser;
+import org.json.simple.parser.ParseException;
+
+import com.adyen.examples.common.AdyenHttpClient;
+import com.adyen.examples.common.json.Amount;
+import com.adyen.examples.common.json.JsonCodec;
+import com.adyen.examples.common.json.ModificationRequest;
+import com.adyen.examples.common.json.ModificationResult;
+import com.adyen.examples.common.json.ServiceError;
+import com.adyen.examples.common.metrics.AdyenMetrics;
+import com.adyen.examples.common.metrics.OperationTimer;
+import com.adyen.examples.notifications.journal.JournalReader;
+import com.adyen.examples.notifications.journal.NotificationFields;
+import com.adyen.examples.notifications.journal.NotificationJournal;
+
+/**
+ * Captures authorised payments a fixed delay after their authorisation (JSON)
+ *
+ * Instead of scanning a database for payments to capture (see the CapturePayment examples), the scheduler follows the
+ * notification journal of a notification server (see {@link NotificationJournal}):
+ *
+ * <pre>
+ * - AUTHORISATION (success)                      : registers a capture of the authorised amount at the eventDate
+ *                                                  plus the capture delay
+ * - CANCELLATION, CANCEL_OR_REFUND, CAPTURE      : drops the pending capture of the payment (originalReference)
+ *   (success)
+ * </pre>
+ *
+ * The pending captures are timers in a {@link HashedTimingWheel}, with their data (pspReference, merchant account and
+ * amount) in parallel arrays and an open-addressing index on the pspReference, so millions of pending captures take
+ * a few hundred bytes each. Every tick the captures that are due are sent in batches through the shared
+ * {@link AdyenHttpClient}, where they count as modifications in the concurrency limits; batches follow each other
+ * until nothing is due, and when MAX_IN_FLIGHT captures are in flight the next batch is sent as soon as one of them
+ * completes. Network errors and an overloaded platform (HTTP 429 and 5xx) are retried with exponential backoff by
+ * scheduling the capture again; captures that Adyen rejects are reported and dropped.
+ *
+ * The pending captures are stored in a compact snapshot file next to the journal, together with the journal position
+ * up to which the notifications are read, every SNAPSHOT_MILLIS and when the scheduler is closed. After a restart the
+ * snapshot is loaded and the journal is read from that position, so no authorisation or cancellation is missed.
+ * Captures that were sent after the last snapshot are sent again: every capture has the reference
+ * AUTO-CAPTURE-&lt;pspReference&gt; and is sent with an Idempotency-Key, so Adyen captures it only once. Without a
+ * snapshot the scheduler starts at the end of the journal, so enabling it does not capture earlier payments. The
+ * journal keeps its segments from the position of the last snapshot (see
+ * {@link NotificationJournal#retain(String, long)}).
+ *
+ * Disable the automatic capture for the merchant account (Adyen CA >> Settings >> Merchant Settings >> Capture Delay:
+ * manual) when the payments are captured by this scheduler.
+ *
+ * @author Created by Adyen - Payments Made Easy
+ */
+public class DelayedCaptureScheduler implements Closeable, DelayedCaptureSchedulerMBean {
+
+	/**
+	 * Scheduler settings
+	 * - TICK_MILLIS: resolution of the timing wheel, and maximum time between two checks for due captures
+	 * - WHEEL_SIZE: number of buckets of the timing wheel
+	 * - READ_BATCH: maximum number of notifications read from the journal between two checks for due captures
+	 * - MAX_IN_FLIGHT: maximum number of capture requests in flight, and the size of a batch
+	 * - PARALLELISM: number of threads sending capture requests
+	 * - MAX_ATTEMPTS: maximum number of times a capture is sent
+	 * - RETRY_BACKOFF_MILLIS: time to wait before the first retry, doubled for every next retry
+	 * - SNAPSHOT_MILLIS: maximum time between two snapshots
+	 * - REFERENCE_PREFIX: prefix of the reference of the captures
+	 */
+	private static final long TICK_MILLIS = 1000;
+	private static final int WHEEL_SIZE = 8192;
+	private static final int READ_BATCH = 1024;
+	private static final int MAX_IN_FLIGHT = 256;
+	private static final int PARALLELISM = 16;
+	private static final int MAX_ATTEMPTS = 8;
+	private static final long RETRY_BACKOFF_MILLIS = 1000;
+	private static final long SNAPSHOT_MILLIS = TimeUnit.MINUTES.toMillis(1);
+	public static final String REFERENCE_PREFIX = "AUTO-CAPTURE-";
+
+	private static final int SNAPSHOT_MAGIC = 0x41444331;
+	private static final String RETENTION_NAME = "auto-capture";
+	private static final Charset UTF8 = Charset.forName("UTF-8");
+
+	private final NotificationJournal journal;
+	private final long delayMillis;
+	private final String apiUrl;
+	private final String wsUser;
+	private final String wsPassword;
+	private final String name;
+	private final File snapshotFile;
+	private final Thread thread;
+	private final ExecutorService executor;
+
+	// Guarded by lock
+	private final Object lock = new Object();
+	private final HashedTimingWheel wheel;
+	private String[] pspReferences;
+	private String[] merchantAccounts;
+	private String[] currencies;
+	private long[] values;
+	private byte[] attempts;
+	private boolean[] cancelled;
+	private int[] index;
+	private int indexSize;
+	private boolean changed;
+	private long snapshotPosition = -1;
+
+	private final AtomicInteger inFlight = new AtomicInteger();
+	private final LongAdder scheduled = new LongAdder();
+	private final LongAdder cancellations = new LongAdder();
+	private final LongAdder captured = new LongAdder();
+	private final LongAdder rejected = new LongAdder();
+	private final LongAdder failed = new LongAdder();
+	private final LongAdder retries = new LongAdder();
+
+	private volatile boolean running = true;
+	private volatile long position;
+	private volatile long lastSnapshotMillis;
+
+	private ObjectName objectName;
+
+	/**
+	 * Creates a scheduler for the notifications in the given journal.
+	 *
+	 * @param delayMillis time between the authorisation and the capture
+	 * @param apiUrl URL of the capture call of the Adyen API you are using (Test/Live)
+	 */
+	public DelayedCaptureScheduler(NotificationJournal journal, long delayMillis, String apiUrl, String wsUser,
+			String wsPassword) {
+		this.journal = journal;
+		this.delayMillis = delayMillis;
+		this.apiUrl = apiUrl;
+		this.wsUser = wsUser;
+		this.wsPassword = wsPassword;
+		this.name = journal.getDirectory().getName();
+		this.snapshotFile = new File(journal.getDirectory(), "auto-capture.snapshot");
+
+		wheel = new HashedTimingWheel(TICK_MILLIS, WHEEL_SIZE, 1024, System.currentTimeMillis());
+		allocate(wheel.getCapacity());
+		index = new int[wheel.getCapacity() * 2];
+
+		executor = Executors.newFixedThreadPool(PARALLELISM, threads("auto-capture-" + name));
+		thread = new Thread(new Runnable() {
+			@Override
+			public void run() {
+				scheduleLoop();
+			}
+		}, "auto-capture-scheduler-" + name);
+		thread.setDaemon(true);
+	}
+
+	/**
+	 * Loads the snapshot, if any, and starts following the journal. Start the scheduler before the
+	 * {@link com.adyen.examples.notifications.journal.NotificationProcessor} of the journal, so the processor does
+	 * not delete the records after the snapshot.
+	 */
+	public void start() throws IOException {
+		if (snapshotFile.exists()) {
+			loadSnapshot();
+		} else {
+			position = journal.getDurablePosition();
+		}
+		journal.retain(RETENTION_NAME, position);
+
+		registerMBean();
+		thread.start();
+	}
+
+	/**
+	 * Stops following the journal, waits for the captures in flight and stores a final snapshot.
+	 */
+	@Override
+	public void close() throws IOException {
+		running = false;
+		thread.interrupt();
+		try {
+			thread.join(TimeUnit.SECONDS.toMillis(5));
+			executor.shutdown();
+			executor.awaitTermination(30, TimeUnit.SECONDS);
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+		}
+
+		unregisterMBean();
+		storeSnapshot();
+	}
+
+	/**
+	 * Registers a capture of a payment at the given time. A payment that already has a pending capture keeps it.
+	 */
+	public void schedule(String pspReference, String merchantAccount, String currency, long value,
+			long captureAtMillis) {
+		synchronized (lock) {
+			if (find(pspReference) >= 0) {
+				return;
+			}
+
+			int id = wheel.add(captureAtMillis);
+			if (id >= pspReferences.length) {
+				allocate(wheel.getCapacity());
+			}
+			pspReferences[id] = pspReference;
+			merchantAccounts[id] = merchantAccount;
+			currencies[id] = currency;
+			values[id] = value;
+			attempts[id] = 0;
+			cancelled[id] = false;
+			insert(id);
+			changed = true;
+		}
+		scheduled.increment();
+	}
+
+	/**
+	 * Drops the pending capture of a payment. Returns false if the payment has no pending capture. A capture in flight
+	 * is not retried anymore.
+	 */
+	public boolean cancel(String pspReference) {
+		synchronized (lock) {
+			int id = find(pspReference);
+			if (id < 0 || cancelled[id]) {
+				return false;
+			}
+
+			if (wheel.isScheduled(id)) {
+				release(id);
+			} else {
+				// In flight: released when the request completes
+				cancelled[id] = true;
+			}
+			changed = true;
+		}
+		cancellations.increment();
+		return true;
+	}
+
+	/**
+	 * Applies a single notification from the journal.
+	 */
+	void handle(JSONObject notification) {
+		if (!"true".equals(String.valueOf(notification.get("success")))) {
+			return;
+		}
+
+		switch (String.valueOf(notification.get("eventCode"))) {
+			case "AUTHORISATION":
+				String pspReference = NotificationFields.string(notification, "pspReference");
+				String merchantAccount = NotificationFields.string(notification, "merchantAccountCode");
+				String currency = NotificationFields.currency(notification);
+				long value = NotificationFields.value(notification);
+
+				// Zero-value authorisations (e.g. to store card details) are not captured
+				if (pspReference != null && merchantAccount != null && currency != null && value > 0) {
+					schedule(pspReference, merchantAccount, currency, value, eventTime(notification) + delayMillis);
+				}
+				break;
+
+			case "CANCELLATION":
+			case "CANCEL_OR_REFUND":
+			case "CAPTURE":
+				String originalReference = NotificationFields.string(notification, "originalReference");
+				if (originalReference != null) {
+					cancel(originalReference);
+				}
+				break;
+		}
+	}
+
+	@Override
+	public long getCaptureDelayMillis() {
+		return delayMillis;
+	}
+
+	@Override
+	public int getPendingCount() {
+		synchronized (lock) {
+			return wheel.size();
+		}
+	}
+
+	@Override
+	public int getInFlight() {
+		return inFlight.get();
+	}
+
+	@Override
+	public long getScheduledCount() {
+		return scheduled.sum();
+	}
+
+	@Override
+	public long getCancelledCount() {
+		return cancellations.sum();
+	}
+
+	@Override
+	public long getCapturedCount() {
+		return captured.sum();
+	}
+
+	@Override
+	public long getRejectedCount() {
+		return rejected.sum();
+	}
+
+	@Override
+	public long getFailedCount() {
+		return failed.sum();
+	}
+
+	@Override
+	public long getRetryCount() {
+		return retries.sum();
+	}
+
+	@Override
+	public long getJournalLagBytes() {
+		return Math.max(0, journal.getDurablePosition() - position);
+	}
+
+	@Override
+	public long getLastSnapshotMillis() {
+		return lastSnapshotMillis;
+	}
+
+	private void scheduleLoop() {
+		JournalReader reader = journal.newReader();
+		final JSONParser parser = new JSONParser();
+		int[] due = new int[MAX_IN_FLIGHT];
+
+		try {
+			while (running) {
+				long next = reader.read(position, READ_BATCH, new JournalReader.RecordHandler() {
+					@Override
+					public void onRecord(byte[] data, long nextPosition) {
+						try {
+							handle((JSONObject) parser.parse(new String(data, UTF8)));
+						} catch (ParseException | RuntimeException e) {
+							// A notification that cannot be parsed should not block all following notifications
+							System.err.println("Unable to parse notification: " + e);
+						}
+					}
+				});
+
+				if (next == position) {
+					if (inFlight.get() >= MAX_IN_FLIGHT) {
+						// Due captures may be held back, continue as soon as a capture completes
+						awaitRoom(TICK_MILLIS);
+					} else {
+						journal.awaitRecordsAfter(position, TICK_MILLIS);
+					}
+				}
+				position = next;
+
+				while (fireDue(due) > 0) {
+					// Until nothing is due or there is no room in flight
+				}
+
+				if (System.currentTimeMillis() - lastSnapshotMillis >= SNAPSHOT_MILLIS) {
+					storeSnapshot();
+				}
+			}
+		} catch (InterruptedException e) {
+			// Scheduler is closed
+		} catch (IOException e) {
+			if (running) {
+				System.err.println("Auto-capture scheduler stopped: " + e);
+			}
+		} finally {
+			reader.close();
+		}
+	}
+
+	/**
+	 * Waits at most the given time until there is room for another capture in flight.
+	 */
+	private void awaitRoom(long timeoutMillis) throws InterruptedException {
+		long deadline = System.currentTimeMillis() + timeoutMillis;
+		synchronized (lock) {
+			long remaining = timeoutMillis;
+			while (inFlight.get() >= MAX_IN_FLIGHT && running && remaining > 0) {
+				lock.wait(remaining);
+				remaining = deadline - System.currentTimeMillis();
+			}
+		}
+	}
+
+	/**
+	 * Sends the captures that are due, as many as there is room for in flight, and returns their number.
+	 */
+	private int fireDue(int[] due) {
+		Capture[] batch;
+		synchronized (lock) {
+			int room = MAX_IN_FLIGHT - inFlight.get();
+			if (room <= 0 || wheel.size() == 0) {
+				return 0;
+			}
+			int count = wheel.expire(System.currentTimeMillis(), due, room);
+			if (count == 0) {
+				return 0;
+			}
+
+			batch = new Capture[count];
+			for (int i = 0; i < count; i++) {
+				int id = due[i];
+				attempts[id]++;
+				batch[i] = new Capture(id, pspReferences[id], merchantAccounts[id], currencies[id], values[id],
+						attempts[id]);
+			}
+			inFlight.addAndGet(count);
+		}
+
+		for (final Capture capture : batch) {
+			executor.execute(new Runnable() {
+				@Override
+				public void run() {
+					send(capture);
+				}
+			});
+		}
+		return batch.length;
+	}
+
+	/**
+	 * Sends a single capture; the result decides whether it is released or scheduled again.
+	 */
+	private void send(Capture capture) {
+		String reference = REFERENCE_PREFIX + capture.pspReference;
+
+		ModificationRequest modificationRequest = new ModificationRequest();
+		modificationRequest.setMerchantAccount(capture.merchantAccount);
+		modificationRequest.setOriginalReference(capture.pspReference);
+		modificationRequest.setReference(reference);
+
+		Amount amount = new Amount();
+		amount.setCurrency(capture.currency);
+		amount.setValue(capture.value);
+		modificationRequest.setModificationAmount(amount);
+
+		HttpClient client = AdyenHttpClient.getInstance();
+		HttpClientContext context = AdyenHttpClient.createContext(apiUrl, wsUser, wsPassword);
+		HttpPost httpRequest = new HttpPost(apiUrl);
+		httpRequest.setHeader("Idempotency-Key", capture.merchantAccount + "/" + reference);
+		httpRequest.setEntity(JsonCodec.toEntity(modificationRequest));
+
+		boolean retry;
+		String message = null;
+		try (OperationTimer timer = AdyenMetrics.json(apiUrl).start()) {
+			HttpResponse httpResponse = client.execute(httpRequest, context);
+			int status = httpResponse.getStatusLine().getStatusCode();
+
+			if (status == 200) {
+				ModificationResult modificationResult = JsonCodec.read(httpResponse.getEntity(),
+						ModificationResult::readFrom);
+				timer.setResult(modificationResult.getResponse());
+				retry = false;
+			} else {
+				timer.setFailed(String.valueOf(status));
+				message = status + " " + ServiceError.from(httpResponse).getMessage();
+				retry = status == 429 || status >= 500;
+			}
+		} catch (IOException e) {
+			message = e.toString();
+			retry = true;
+		} catch (RuntimeException e) {
+			message = e.toString();
+			retry = false;
+		}
+
+		complete(capture, retry, message);
+	}
+
+	private void complete(Capture capture, boolean retry, String message) {
+		synchronized (lock) {
+			if (inFlight.getAndDecrement() == MAX_IN_FLIGHT) {
+				// The scheduler thread may be waiting for room, see awaitRoom
+				lock.notifyAll();
+			}
+			changed = true;
+
+			if (cancelled[capture.id]) {
+				release(capture.id);
+			} else if (retry && capture.attempt < MAX_ATTEMPTS && running) {
+				// Exponential backoff with jitter, so retries of a batch do not arrive together
+				long backoff = RETRY_BACKOFF_MILLIS << Math.min(capture.attempt - 1, 10);
+				wheel.reschedule(capture.id, System.currentTimeMillis() + backoff
+						+ ThreadLocalRandom.current().nextLong(backoff));
+				retries.increment();
+			} else if (retry && !running) {
+				// Stopped while in flight: sent again after the restart
+				wheel.reschedule(capture.id, System.currentTimeMillis());
+			} else {
+				release(capture.id);
+				if (message == null) {
+					captured.increment();
+				} else if (retry) {
+					failed.increment();
+					System.err.println("Capture of " + capture.pspReference + " failed: " + message);
+				} else {
+					rejected.increment();
+					System.err.println("Capture of " + capture.pspReference + " rejected: " + message);
+				}
+			}
+		}
+	}
+
+	/**
+	 * Stores the pending captures and the journal position in the snapshot file. The snapshot is written to a
+	 * temporary file first, which then replaces the previous snapshot, so a crash never leaves a partial snapshot.
+	 *
+	 * <pre>
+	 * magic (int), journal position (long), number of captures (int), per capture: capture time (long),
+	 * value (long), attempts (byte), pspReference, merchantAccount, currency (modified UTF-8)
+	 * </pre>
+	 */
+	private void storeSnapshot() {
+		File temporary = new File(snapshotFile.getPath() + ".tmp");
+		long now = System.currentTimeMillis();
+		long storedPosition;
+
+		synchronized (lock) {
+			if (!changed && position == snapshotPosition) {
+				lastSnapshotMillis = now;
+				return;
+			}
+
+			// Captures cancelled while in flight are left out
+			int count = 0;
+			for (int id = 0; id < pspReferences.length; id++) {
+				if (pspReferences[id] != null && !cancelled[id]) {
+					count++;
+				}
+			}
+
+			try (FileOutputStream file = new FileOutputStream(temporary)) {
+				DataOutputStream out = new DataOutputStream(new BufferedOutputStream(file, 65536));
+				out.writeInt(SNAPSHOT_MAGIC);
+				out.writeLong(position);
+				out.writeInt(count);
+				for (int id = 0; id < pspReferences.length; id++) {
+					if (pspReferences[id] != null && !cancelled[id]) {
+						// A capture in flight keeps its time, so it is sent again right after a restart
+						out.writeLong(wheel.getDeadline(id));
+						out.writeLong(values[id]);
+						out.writeByte(attempts[id]);
+						out.writeUTF(pspReferences[id]);
+						out.writeUTF(merchantAccounts[id]);
+						out.writeUTF(currencies[id]);
+					}
+				}
+				out.flush();
+				file.getFD().sync();
+			} catch (IOException e) {
+				System.err.println("Unable to store the auto-capture snapshot " + snapshotFile + ": " + e);
+				return;
+			}
+			changed = false;
+			snapshotPosition = position;
+			storedPosition = position;
+		}
+
+		try {
+			Files.move(temporary.toPath(), snapshotFile.toPath(), StandardCopyOption.REPLACE_EXISTING,
+					StandardCopyOption.ATOMIC_MOVE);
+			lastSnapshotMillis = now;
+			journal.retain(RETENTION_NAME, storedPosition);
+		} catch (IOException e) {
+			System.err.println("Unable to store the auto-capture snapshot " + snapshotFile + ": " + e);
+		}
+	}
+
+	private void loadSnapshot() throws IOException {
+		try (DataInputStream in = new DataInputStream(new BufferedInputStream(new FileInputStream(snapshotFile),
+				65536))) {
+			if (in.readInt() != SNAPSHOT_MAGIC) {
+				throw new IOException(snapshotFile + " is not an auto-capture snapshot");
+			}
+			long storedPosition = in.readLong();
+			int count = in.readInt();
+
+			synchronized (lock) {
+				for (int i = 0; i < count; i++) {
+					long captureAt = in.readLong();
+					long value = in.readLong();
+					byte attempt = in.readByte();
+					String pspReference = in.readUTF();
+					String merchantAccount = in.readUTF();
+					String currency = in.readUTF();
+					schedule(pspReference, merchantAccount, currency, value, captureAt);
+					attempts[find(pspReference)] = attempt;
+				}
+				changed = false;
+			}
+
+			// A journal that was emptied starts again at its end, and records deleted meanwhile are skipped
+			JournalReader reader = journal.newReader();
+			position = Math.max(Math.min(storedPosition, journal.getDurablePosition()), reader.firstPosition());
+			reader.close();
+			snapshotPosition = position;
+			lastSnapshotMillis = System.currentTimeMillis();
+		}
+		scheduled.reset();
+	}
+
+	private void release(int id) {
+		remove(id);
+		wheel.release(id);
+		pspReferences[id] = null;
+		merchantAccounts[id] = null;
+		currencies[id] = null;
+		cancelled[id] = false;
+	}
+
+	/**
+	 * Returns the id of the pending capture of a payment, or -1 if there is none.
+	 */
+	private int find(String pspReference) {
+		int mask = index.length - 1;
+		int slot = hash(pspReference) & mask;
+		int entry;
+		while ((entry = index[slot]) != 0) {
+			if (pspReference.equals(pspReferences[entry - 1])) {
+				return entry - 1;
+			}
+			slot = (slot + 1) & mask;
+		}
+		return -1;
+	}
+
+	private void insert(int id) {
+		// Keep the index at most half full, so the probe sequences stay short
+		if ((indexSize + 1) * 2 > index.length) {
+			int[] old = index;
+			index = new int[old.length * 2];
+			for (int entry : old) {
+				if (entry != 0) {
+					index[slot(entry - 1)] = entry;
+				}
+			}
+		}
+		index[slot(id)] = id + 1;
+		indexSize++;
+	}
+
+	/**
+	 * Removes a capture from the index, shifting the entries after it back (linear probing without tombstones).
+	 */
+	private void remove(int id) {
+		int mask = index.length - 1;
+		int slot = hash(pspReferences[id]) & mask;
+		while (index[slot] != id + 1) {
+			slot = (slot + 1) & mask;
+		}
+
+		int hole = slot;
+		index[hole] = 0;
+		indexSize--;
+		for (slot = (hole + 1) & mask; index[slot] != 0; slot = (slot + 1) & mask) {
+			int home = hash(pspReferences[index[slot] - 1]) & mask;
+			// Move the entry into the hole, unless its home slot lies cyclically after the hole
+			if (((slot - home) & mask) >= ((slot - hole) & mask)) {
+				index[hole] = index[slot];
+				index[slot] = 0;
+				hole = slot;
+			}
+		}
+	}
+
+	/**
+	 * Returns the first empty slot for a capture.
+	 */
+	private int slot(int id) {
+		int mask = index.length - 1;
+		int slot = hash(pspReferences[id]) & mask;
+		while (index[slot] != 0) {
+			slot = (slot + 1) & mask;
+		}
+		return slot;
+	}
+
+	private static int hash(String key) {
+		// Spread the bits of String.hashCode, as the low bits select the slot
+		int hash = key.hashCode() * 0x9e3779b9;
+		return hash ^ (hash >>> 16);
+	}
+
+	private void allocate(int capacity) {
+		pspReferences = pspReferences != null ? Arrays.copyOf(pspReferences, capacity) : new String[capacity];
+		merchantAccounts = merchantAccounts != null ? Arrays.copyOf(merchantAccounts, capacity)
+				: new String[capacity];
+		currencies = currencies != null ? Arrays.copyOf(currencies, capacity) : new String[capacity];
+		values = values != null ? Arrays.copyOf(values, capacity) : new long[capacity];
+		attempts = attempts != null ? Arrays.copyOf(attempts, capacity) : new byte[capacity];
+		cancelled = cancelled != null ? Arrays.copyOf(cancelled, capacity) : new boolean[capacity];
+	}
+
+	/**
+	 * Returns the time of the notification (eventDate), or the current time if it cannot be read.
+	 */
+	private static long eventTime(JSONObject notification) {
+		String eventDate = NotificationFields.string(notification, "eventDate");
+		if (eventDate != null) {
+			try {
+				return OffsetDateTime.parse(eventDate).toInstant().toEpochMilli();
+			} catch (DateTimeParseException e) {
+				// Use the time the notification is read
+			}
+		}
+		return System.currentTimeMillis();
+	}
+
+	private void registerMBean() {
+		try {
+			MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+			objectName = new ObjectName("com.adyen.examples:type=DelayedCaptureScheduler,name="
+					+ ObjectName.quote(name));
+			if (server.isRegistered(objectName)) {
+				server.unregisterMBean(objectName);
+			}
+			server.registerMBean(this, objectName);
+		} catch (JMException e) {
+			// Monitoring is not available, the scheduler continues
+			objectName = null;
+		}
+	}
+
+	private void unregisterMBean() {
+		if (objectName != null) {
+			try {
+				ManagementFactory.getPlatformMBeanServer().unregisterMBean(objectName);
+			} catch (JMException e) {
+				// Already unregistered
+			}
+		}
+	}
+
+	private static ThreadFactory threads(final String name) {
+		final AtomicInteger count = new AtomicInteger();
+		return new ThreadFactory() {
+			@Override
+			public Thread newThread(Runnable runnable) {
+				Thread thread = new Thread(runnable, name + "-" + count.incrementAndGet());
+				thread.setDaemon(true);
+				return thread;
+			}
+		};
+	}
+
+	/**
+	 * A capture that is due, copied from the arrays so it can be sent without holding the lock.
+	 */
+	private static final class Capture {
+
+		final int id;
+		final String pspReference;
+		final String merchantAccount;
+		final String currency;
+		final long value;
+		final int attempt;
+
+		Capture(int id, String pspReference, String merchantAccount, String currency, long value, int attempt) {
+			this.id = id;
+			this.pspReference = pspReference;
+			this.merchantAccount = merchantAccount;
+			this.currency = currency;
+			this.value = value;
+			this.attempt = attempt;
+		}
+
+	}
+
+}
@@ -0,0 +1,63 @@
+package com.adyen.examples.modifications.capture;
+
+/**
+ * Management interface of a {@link DelayedCaptureScheduler}, registered as
+ * com.adyen.examples:type=DelayedCaptureScheduler,name=&lt;journal directory&gt;
+ *
+ * @author Created by Adyen - Payments Made Easy
+ */
+public interface DelayedCaptureSchedulerMBean {
+
+	long getCaptureDelayMillis();
+
+	/**
+	 * Number of captures waiting for their time, including the captures in flight.
+	 */
+	int getPendingCount();
+
+	/**
+	 * Number of capture requests sent but not yet answered.
+	 */
+	int getInFlight();
+
+	/**
+	 * Number of captures registered by AUTHORISATION notifications since the start.
+	 */
+	long getScheduledCount();
+
+	/**
+	 * Number of pending captures dropped by CANCELLATION, CANCEL_OR_REFUND or CAPTURE notifications since the start.
+	 */
+	long getCancelledCount();
+
+	/**
+	 * Number of captures that Adyen received ([capture-received]) since the start.
+	 */
+	long getCapturedCount();
+
+	/**
+	 * Number of captures that Adyen rejected; they are not retried.
+	 */
+	long getRejectedCount();
+
+	/**
+	 * Number of captures that could not be sent after the maximum number of attempts.
+	 */
+	long getFailedCount();
+
+	/**
+	 * Number of times a capture was sent again after a network error or an overloaded platform.
+	 */
+	long getRetryCount();
+
+	/**
+	 * Number of bytes in the journal that the scheduler has not read yet.
+	 */
+	long getJournalLagBytes();
+
+	/**
+	 * Time the last snapshot was stored (milliseconds since the epoch), or 0 if none was stored yet.
+	 */
+	long getLastSnapshotMillis();
+
+}
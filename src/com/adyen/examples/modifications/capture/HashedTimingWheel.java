@@ -0,0 +1,193 @@
+package com.adyen.examples.modifications.capture;
+
+import java.util.Arrays;
+
+/**
+ * Hashed timing wheel: millions of timers, each added, cancelled and expired in constant time
+ *
+ * The wheel is a ring of buckets, each covering one tick (e.g. a second). A timer is linked into the bucket of its
+ * deadline, modulo the number of buckets. Every tick only the bucket of that tick is checked; a timer whose deadline
+ * is one or more rotations away stays in its bucket until a later rotation. Adding and removing a timer therefore do
+ * not depend on the number of timers, unlike a priority queue.
+ *
+ * The timers are kept in primitive arrays (the deadline and the links of the bucket lists), so no object is created
+ * per timer. A timer is identified by an int id, an index into these arrays, which can be used to keep the data of the
+ * timer in arrays of your own (grow them to {@link #getCapacity()}). An expired timer keeps its id until it is
+ * released or scheduled again, so its data stays available while it is handled. Ids of released timers are reused.
+ *
+ * The wheel is not thread-safe.
+ *
+ * @author Created by Adyen - Payments Made Easy
+ */
+public class HashedTimingWheel {
+
+	private static final int NONE = -1;
+
+	private final long tickMillis;
+	private final int mask;
+	private final int[] heads;
+
+	// Per timer: the deadline, the bucket (NONE when expired or released) and the links within the bucket
+	private long[] deadlines;
+	private int[] buckets;
+	private int[] next;
+	private int[] previous;
+
+	private int used;
+	private int size;
+	private int free = NONE;
+	private long currentTick;
+
+	/**
+	 * Creates a wheel of wheelSize buckets (rounded up to a power of two) of tickMillis each, starting at the given
+	 * time.
+	 */
+	public HashedTimingWheel(long tickMillis, int wheelSize, int capacity, long nowMillis) {
+		this.tickMillis = tickMillis;
+		int buckets = Integer.highestOneBit(Math.max(2, wheelSize) - 1) << 1;
+		this.mask = buckets - 1;
+		this.heads = new int[buckets];
+		Arrays.fill(heads, NONE);
+		this.currentTick = nowMillis / tickMillis;
+		allocate(Math.max(16, capacity));
+	}
+
+	/**
+	 * Adds a timer and returns its id. A deadline in the past expires at the next call of
+	 * {@link #expire(long, int[], int)}.
+	 */
+	public int add(long deadlineMillis) {
+		int id;
+		if (free != NONE) {
+			id = free;
+			free = next[id];
+		} else {
+			if (used == deadlines.length) {
+				allocate(used * 2);
+			}
+			id = used++;
+		}
+		size++;
+		link(id, deadlineMillis);
+		return id;
+	}
+
+	/**
+	 * Schedules a timer again, e.g. to retry after it expired.
+	 */
+	public void reschedule(int id, long deadlineMillis) {
+		unlink(id);
+		link(id, deadlineMillis);
+	}
+
+	/**
+	 * Removes a timer, whether it is scheduled or expired; its id is reused.
+	 */
+	public void release(int id) {
+		unlink(id);
+		deadlines[id] = Long.MIN_VALUE;
+		next[id] = free;
+		free = id;
+		size--;
+	}
+
+	/**
+	 * Returns whether a timer is waiting for its deadline (false once it expired).
+	 */
+	public boolean isScheduled(int id) {
+		return buckets[id] != NONE;
+	}
+
+	public long getDeadline(int id) {
+		return deadlines[id];
+	}
+
+	/**
+	 * Collects the ids of the timers whose deadline has passed into due, at most maxCount, and returns the number of
+	 * ids collected. The timers are no longer scheduled, but keep their id until they are released or scheduled again.
+	 * When maxCount is reached, the remaining timers are collected by the next call.
+	 */
+	public int expire(long nowMillis, int[] due, int maxCount) {
+		maxCount = Math.min(maxCount, due.length);
+		long nowTick = nowMillis / tickMillis;
+		int count = 0;
+
+		// After a pause longer than a rotation, every bucket is checked once
+		long lastTick = Math.min(nowTick, currentTick + mask);
+		for (long tick = currentTick; tick <= lastTick; tick++) {
+			int id = heads[(int) (tick & mask)];
+			while (id != NONE) {
+				int following = next[id];
+				if (deadlines[id] / tickMillis <= nowTick) {
+					if (count == maxCount) {
+						currentTick = tick;
+						return count;
+					}
+					unlink(id);
+					due[count++] = id;
+				}
+				id = following;
+			}
+		}
+
+		currentTick = Math.max(currentTick, nowTick + 1);
+		return count;
+	}
+
+	/**
+	 * Number of timers, scheduled or expired but not yet released.
+	 */
+	public int size() {
+		return size;
+	}
+
+	/**
+	 * Number of ids the arrays can hold; ids are always lower than the capacity.
+	 */
+	public int getCapacity() {
+		return deadlines.length;
+	}
+
+	private void link(int id, long deadlineMillis) {
+		// A timer is never linked behind the current tick, where it would wait a whole rotation
+		long tick = Math.max(deadlineMillis / tickMillis, currentTick);
+		int bucket = (int) (tick & mask);
+
+		deadlines[id] = deadlineMillis;
+		buckets[id] = bucket;
+		previous[id] = NONE;
+		next[id] = heads[bucket];
+		if (heads[bucket] != NONE) {
+			previous[heads[bucket]] = id;
+		}
+		heads[bucket] = id;
+	}
+
+	private void unlink(int id) {
+		int bucket = buckets[id];
+		if (bucket == NONE) {
+			return;
+		}
+		if (previous[id] != NONE) {
+			next[previous[id]] = next[id];
+		} else {
+			heads[bucket] = next[id];
+		}
+		if (next[id] != NONE) {
+			previous[next[id]] = previous[id];
+		}
+		buckets[id] = NONE;
+		next[id] = NONE;
+		previous[id] = NONE;
+	}
+
+	private void allocate(int capacity) {
+		int oldCapacity = deadlines != null ? deadlines.length : 0;
+		deadlines = deadlines != null ? Arrays.copyOf(deadlines, capacity) : new long[capacity];
+		buckets = buckets != null ? Arrays.copyOf(buckets, capacity) : new int[capacity];
+		next = next != null ? Arrays.copyOf(next, capacity) : new int[capacity];
+		previous = previous != null ? Arrays.copyOf(previous, capacity) : new int[capacity];
+		Arrays.fill(buckets, oldCapacity, capacity, NONE);
+	}
+
+}
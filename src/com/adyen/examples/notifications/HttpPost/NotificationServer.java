@@ -1,18 +1,29 @@
 package com.adyen.examples.notifications.HttpPost;
 
+import java.io.File;
 import java.io.IOException;
 import java.io.PrintWriter;
-import java.text.SimpleDateFormat;
-import java.util.Date;
+import java.nio.charset.Charset;
 import java.util.Enumeration;
+import java.util.concurrent.TimeUnit;
 
 import javax.servlet.ServletException;
+import javax.servlet.annotation.WebInitParam;
 import javax.servlet.annotation.WebServlet;
 import javax.servlet.http.HttpServlet;
 import javax.servlet.http.HttpServletRequest;
 import javax.servlet.http.HttpServletResponse;
 
 import org.apache.commons.codec.binary.Base64;
+import org.json.simple.JSONObject;
+
+import com.adyen.examples.modifications.capture.DelayedCaptureScheduler;
+import com.adyen.examples.notifications.journal.NotificationDeduplicator;
+import com.adyen.examples.notifications.journal.NotificationJournal;
+import com.adyen.examples.notifications.journal.NotificationProcessor;
+import com.adyen.examples.notifications.journal.PaymentStateStore;
+import com.adyen.examples.notifications.journal.RecurringDetailInvalidator;
+import com.adyen.examples.notifications.report.SettlementReports;
 
 /**
  * Receive notifcations from Adyen (HTTP Post)
@@ -23,13 +34,115 @@ import org.apache.commons.codec.binary.Base64;
  * using SOAP, HTTP POST or JSON to a server of your choice. This file describes how HTTP Post notifcations can
  * be received in Java.
  * 
+ * Received notifications are appended to a durable journal (see {@link NotificationJournal}) and acknowledged as soon
+ * as they are written to disk. They are processed in the background by a {@link NotificationProcessor}, so a slow
+ * handler does not delay the acknowledgement; while the processor is stopped, notifications are refused with 503 so
+ * Adyen sends them again later. Notifications that Adyen sends again are recognised by a
+ * {@link NotificationDeduplicator} and acknowledged without saving or processing them again. The state of every
+ * payment is kept in a {@link PaymentStateStore}, which is rebuilt from its snapshot and the journal on startup and
+ * answers the PaymentStatus servlet. The journal is stored in the folder given by the init parameter journalDirectory
+ * (default: adyen-notifications/httppost in the temporary folder).
+ * 
+ * When the init parameter captureDelayMinutes is set, successful authorisations are captured after that delay by a
+ * {@link DelayedCaptureScheduler}, which follows the journal; 0 (the default) leaves the capture to Adyen.
+ * 
+ * Settlement details reports announced by REPORT_AVAILABLE notifications are downloaded to the reports folder of the
+ * journal and reconciled with the state of the payments by {@link SettlementReports}.
+ * 
  * @link /3.Notifications/HttpPost/NotificationServer
  * @author Created by Adyen - Payments Made Easy
  */
 
-@WebServlet(urlPatterns = { "/3.Notifications/HttpPost/NotificationServer" })
+@WebServlet(urlPatterns = { "/3.Notifications/HttpPost/NotificationServer" }, loadOnStartup = 1, initParams = {
+	@WebInitParam(name = "journalDirectory", value = ""),
+	@WebInitParam(name = "captureDelayMinutes", value = "0")
+})
 public class NotificationServer extends HttpServlet {
 
+	private static final Charset UTF8 = Charset.forName("UTF-8");
+
+	private NotificationJournal journal;
+	private NotificationProcessor processor;
+	private DelayedCaptureScheduler captureScheduler;
+	private SettlementReports settlementReports;
+	private final NotificationDeduplicator deduplicator = new NotificationDeduplicator();
+	private final RecurringDetailInvalidator recurringDetailInvalidator = new RecurringDetailInvalidator();
+	private final PaymentStateStore paymentStates = new PaymentStateStore();
+
+	@Override
+	public void init() throws ServletException {
+		String journalDirectory = getInitParameter("journalDirectory");
+		File directory = journalDirectory == null || journalDirectory.isEmpty()
+				? new File(System.getProperty("java.io.tmpdir"), "adyen-notifications/httppost")
+				: new File(journalDirectory);
+
+		try {
+			journal = NotificationJournal.open(directory);
+
+			// Recognise the notifications received before the restart when they are sent again
+			deduplicator.seed(journal);
+
+			/**
+			 * Settlement report settings
+			 * - reportUser: your report user (Adyen CA >> Settings >> Users, e.g. report@Company.YourCompany)
+			 * - reportPassword: your report user's password
+			 */
+			String reportUser = "YourReportUser";
+			String reportPassword = "YourReportPassword";
+
+			settlementReports = new SettlementReports(new File(directory, "reports"), reportUser, reportPassword,
+					paymentStates::getByPspReference);
+
+			processor = new NotificationProcessor(journal, this::processNotification, this::log);
+
+			// Rebuild the state of the payments from its snapshot and the notifications processed after it
+			processor.restore(paymentStates);
+			PaymentStateStore.register("httppost", paymentStates);
+
+			/**
+			 * Auto-capture settings
+			 * - captureDelayMinutes: time between the authorisation and the capture (init parameter, 0 disables)
+			 * - apiUrl: URL of the capture call of the Adyen API you are using (Test/Live)
+			 * - wsUser: your web service user
+			 * - wsPassword: your web service user's password
+			 */
+			String captureDelayMinutes = getInitParameter("captureDelayMinutes");
+			long captureDelay = captureDelayMinutes == null || captureDelayMinutes.isEmpty() ? 0 : Long
+					.parseLong(captureDelayMinutes);
+			String apiUrl = "https://pal-test.adyen.com/pal/servlet/Payment/v10/capture";
+			String wsUser = "YourWSUser";
+			String wsPassword = "YourWSPassword";
+
+			if (captureDelay > 0) {
+				captureScheduler = new DelayedCaptureScheduler(journal, TimeUnit.MINUTES.toMillis(captureDelay), apiUrl,
+						wsUser, wsPassword);
+				captureScheduler.start();
+			}
+
+			// Started after the scheduler, so the journal is kept from the position of the scheduler's snapshot
+			processor.start();
+		} catch (IOException e) {
+			throw new ServletException("Unable to open the notification journal in " + directory, e);
+		}
+	}
+
+	@Override
+	public void destroy() {
+		PaymentStateStore.unregister("httppost", paymentStates);
+		try {
+			if (captureScheduler != null) {
+				captureScheduler.close();
+			}
+			processor.close();
+			if (settlementReports != null) {
+				settlementReports.close();
+			}
+			journal.close();
+		} catch (IOException e) {
+			log("Unable to close the notification journal", e);
+		}
+	}
+
 	protected void doPost(HttpServletRequest request, HttpServletResponse response) throws ServletException, IOException {
 
 		/**
@@ -64,6 +177,13 @@ public class NotificationServer extends HttpServlet {
 			}
 		}
 
+		// Return 503 Service Unavailable while the journal is not processed, so the notifications are sent again later
+		// instead of piling up in the journal
+		if (!processor.isHealthy()) {
+			response.sendError(HttpServletResponse.SC_SERVICE_UNAVAILABLE, "Notification processing is stopped");
+			return;
+		}
+
 		/**
 		 * Handle notification
 		 * 
@@ -85,13 +205,83 @@ public class NotificationServer extends HttpServlet {
 		 * integration manual for a comprehensive list. We also recommend you to save the notification itself.
 		 */
 
-		switch (request.getParameter("eventCode")) {
+		JSONObject notification = new JSONObject();
+		Enumeration<String> paramNames = request.getParameterNames();
+		while (paramNames.hasMoreElements()) {
+			String paramName = paramNames.nextElement();
+			notification.put(paramName, request.getParameter(paramName));
+		}
+
+		// Skip a notification that is already saved (or being saved by a concurrent request); it is acknowledged again
+		// without processing it twice
+		long fingerprint = NotificationDeduplicator.fingerprint(notification);
+		if (deduplicator.tryClaim(fingerprint)) {
+
+			// Save the notification in the journal and wait until it is written to disk, together with the
+			// notifications of concurrent requests. The notification is processed in the background by
+			// processNotification.
+			long position;
+			try {
+				position = saveNotification(notification);
+			} catch (IOException e) {
+				// Forget the claim and return an error, so the notification is sent again
+				deduplicator.release(fingerprint);
+				response.sendError(HttpServletResponse.SC_INTERNAL_SERVER_ERROR, e.toString());
+				return;
+			}
+			try {
+				journal.awaitDurable(position);
+			} catch (IOException e) {
+				// The notification is in the journal and processed, so the claim is kept: it is only acknowledged when
+				// it is sent again
+				response.sendError(HttpServletResponse.SC_INTERNAL_SERVER_ERROR, e.toString());
+				return;
+			}
+		}
+
+		/**
+		 * Return [accepted]
+		 * 
+		 * Please make sure to return [accepted] to us when you have saved/processed the notification. This is essential
+		 * to let us know that you received the notification. If we do NOT receive [accepted] we try to send the
+		 * notification again, which will put all other notifications in a queue.
+		 */
+		PrintWriter out = response.getWriter();
+		out.print("[accepted]");
+
+	}
+
+	/**
+	 * Append the request parameters of a notification to the journal and return its position
+	 */
+	private long saveNotification(JSONObject notification) throws IOException {
+		return journal.append(notification.toJSONString().getBytes(UTF8));
+	}
+
+	/**
+	 * Handle a single notification, called by the NotificationProcessor for every saved notification. Notifications of
+	 * the same payment are handled in order, notifications of different payments can be handled concurrently.
+	 */
+	private void processNotification(JSONObject notification) {
+		// The authorised, captured and refunded amounts and the status of the payment are already kept in
+		// paymentStates, which the NotificationProcessor updates before it calls this method (see restore)
+
+		switch (notification.get("eventCode").toString()) {
 			case "AUTHORISATION":
 				// Handle AUTHORISATION notification.
 				// Confirms whether the payment was authorised successfully.
 				// The authorisation is successful if the "success" field has the value true.
 				// In case of an error or a refusal, it will be false and the "reason" field
 				// should be consulted for the cause of the authorisation failure.
+				// A payment that stored recurring details invalidates the cached details of the shopper.
+				// With a capture delay, the DelayedCaptureScheduler captures the payment after the delay.
+				recurringDetailInvalidator.handle(notification);
+				break;
+
+			case "RECURRING_CONTRACT":
+				// Handle RECURRING_CONTRACT notification.
+				// Recurring details were stored for the shopper, so the cached details are invalidated.
+				recurringDetailInvalidator.handle(notification);
 				break;
 
 			case "CANCELLATION":
@@ -148,52 +338,10 @@ public class NotificationServer extends HttpServlet {
 			case "REPORT_AVAILABLE":
 				// Handle REPORT_AVAILABLE notification.
 				// There is a new report available, the URL of the report is in the "reason" field.
+				// Settlement details reports are downloaded and reconciled in the background.
+				settlementReports.handle(notification);
 				break;
 		}
-
-		// Save the notification in a appropriate way. In this example, the notification is simply logged to System.out.
-		boolean notificationSaved = saveNotification(request);
-
-		/**
-		 * Return [accepted]
-		 * 
-		 * Please make sure to return [accepted] to us when you have saved/processed the notification. This is essential
-		 * to let us know that you received the notification. If we do NOT receive [accepted] we try to send the
-		 * notification again, which will put all other notifications in a queue.
-		 */
-		if (notificationSaved) {
-			PrintWriter out = response.getWriter();
-			out.print("[accepted]");
-		}
-
-	}
-
-	/**
-	 * Print all request headers and parameters of a notification to System.out
-	 */
-	private boolean saveNotification(HttpServletRequest request) {
-		System.out.println("***** Received Notification: "
-				+ new SimpleDateFormat("dd-MM-yyyy HH:mm:ss.SSS").format(new Date()));
-
-		System.out.println("Headers:");
-		Enumeration<String> headerNames = request.getHeaderNames();
-		while (headerNames.hasMoreElements()) {
-			String headerName = headerNames.nextElement();
-			System.out.println("- " + headerName + ": " + request.getHeader(headerName));
-		}
-
-		System.out.println("Parameters:");
-		Enumeration<String> paramNames = request.getParameterNames();
-		while (paramNames.hasMoreElements()) {
-			String paramName = paramNames.nextElement();
-			System.out.println("- " + paramName + ": " + request.getParameter(paramName));
-		}
-
-		System.out.println("****************************************************");
-		System.out.println();
-
-		// Indicate that the notification is saved correctly
-		return true;
 	}
 
 }
@@ -1,12 +1,13 @@
 package com.adyen.examples.notifications.JSON;
 
+import java.io.File;
 import java.io.IOException;
 import java.io.PrintWriter;
-import java.text.SimpleDateFormat;
-import java.util.Date;
-import java.util.Enumeration;
+import java.nio.charset.Charset;
+import java.util.concurrent.TimeUnit;
 
 import javax.servlet.ServletException;
+import javax.servlet.annotation.WebInitParam;
 import javax.servlet.annotation.WebServlet;
 import javax.servlet.http.HttpServlet;
 import javax.servlet.http.HttpServletRequest;
@@ -18,6 +19,14 @@ import org.json.simple.JSONObject;
 import org.json.simple.parser.JSONParser;
 import org.json.simple.parser.ParseException;
 
+import com.adyen.examples.modifications.capture.DelayedCaptureScheduler;
+import com.adyen.examples.notifications.journal.NotificationDeduplicator;
+import com.adyen.examples.notifications.journal.NotificationJournal;
+import com.adyen.examples.notifications.journal.NotificationProcessor;
+import com.adyen.examples.notifications.journal.PaymentStateStore;
+import com.adyen.examples.notifications.journal.RecurringDetailInvalidator;
+import com.adyen.examples.notifications.report.SettlementReports;
+
 /**
  * Receive notifcations from Adyen (JSON)
  * 
@@ -27,13 +36,115 @@ import org.json.simple.parser.ParseException;
  * using SOAP, HTTP POST or JSON to a server of your choice. This file describes how JSON notifcations can
  * be received in Java.
  * 
+ * Received notifications are appended to a durable journal (see {@link NotificationJournal}) and acknowledged as soon
+ * as they are written to disk. They are processed in the background by a {@link NotificationProcessor}, so a slow
+ * handler does not delay the acknowledgement; while the processor is stopped, notifications are refused with 503 so
+ * Adyen sends them again later. Notifications that Adyen sends again are recognised by a
+ * {@link NotificationDeduplicator} and acknowledged without saving or processing them again. The state of every
+ * payment is kept in a {@link PaymentStateStore}, which is rebuilt from its snapshot and the journal on startup and
+ * answers the PaymentStatus servlet. The journal is stored in the folder given by the init parameter journalDirectory
+ * (default: adyen-notifications/json in the temporary folder).
+ * 
+ * When the init parameter captureDelayMinutes is set, successful authorisations are captured after that delay by a
+ * {@link DelayedCaptureScheduler}, which follows the journal; 0 (the default) leaves the capture to Adyen.
+ * 
+ * Settlement details reports announced by REPORT_AVAILABLE notifications are downloaded to the reports folder of the
+ * journal and reconciled with the state of the payments by {@link SettlementReports}.
+ * 
  * @link /3.Notifications/JSON/NotificationServer
  * @author Created by Adyen - Payments Made Easy
  */
 
-@WebServlet(urlPatterns = { "/3.Notifications/JSON/NotificationServer" })
+@WebServlet(urlPatterns = { "/3.Notifications/JSON/NotificationServer" }, loadOnStartup = 1, initParams = {
+	@WebInitParam(name = "journalDirectory", value = ""),
+	@WebInitParam(name = "captureDelayMinutes", value = "0")
+})
 public class NotificationServer extends HttpServlet {
 
+	private static final Charset UTF8 = Charset.forName("UTF-8");
+
+	private NotificationJournal journal;
+	private NotificationProcessor processor;
+	private DelayedCaptureScheduler captureScheduler;
+	private SettlementReports settlementReports;
+	private final NotificationDeduplicator deduplicator = new NotificationDeduplicator();
+	private final RecurringDetailInvalidator recurringDetailInvalidator = new RecurringDetailInvalidator();
+	private final PaymentStateStore paymentStates = new PaymentStateStore();
+
+	@Override
+	public void init() throws ServletException {
+		String journalDirectory = getInitParameter("journalDirectory");
+		File directory = journalDirectory == null || journalDirectory.isEmpty()
+				? new File(System.getProperty("java.io.tmpdir"), "adyen-notifications/json")
+				: new File(journalDirectory);
+
+		try {
+			journal = NotificationJournal.open(directory);
+
+			// Recognise the notifications received before the restart when they are sent again
+			deduplicator.seed(journal);
+
+			/**
+			 * Settlement report settings
+			 * - reportUser: your report user (Adyen CA >> Settings >> Users, e.g. report@Company.YourCompany)
+			 * - reportPassword: your report user's password
+			 */
+			String reportUser = "YourReportUser";
+			String reportPassword = "YourReportPassword";
+
+			settlementReports = new SettlementReports(new File(directory, "reports"), reportUser, reportPassword,
+					paymentStates::getByPspReference);
+
+			processor = new NotificationProcessor(journal, this::processNotification, this::log);
+
+			// Rebuild the state of the payments from its snapshot and the notifications processed after it
+			processor.restore(paymentStates);
+			PaymentStateStore.register("json", paymentStates);
+
+			/**
+			 * Auto-capture settings
+			 * - captureDelayMinutes: time between the authorisation and the capture (init parameter, 0 disables)
+			 * - apiUrl: URL of the capture call of the Adyen API you are using (Test/Live)
+			 * - wsUser: your web service user
+			 * - wsPassword: your web service user's password
+			 */
+			String captureDelayMinutes = getInitParameter("captureDelayMinutes");
+			long captureDelay = captureDelayMinutes == null || captureDelayMinutes.isEmpty() ? 0 : Long
+					.parseLong(captureDelayMinutes);
+			String apiUrl = "https://pal-test.adyen.com/pal/servlet/Payment/v10/capture";
+			String wsUser = "YourWSUser";
+			String wsPassword = "YourWSPassword";
+
+			if (captureDelay > 0) {
+				captureScheduler = new DelayedCaptureScheduler(journal, TimeUnit.MINUTES.toMillis(captureDelay), apiUrl,
+						wsUser, wsPassword);
+				captureScheduler.start();
+			}
+
+			// Started after the scheduler, so the journal is kept from the position of the scheduler's snapshot
+			processor.start();
+		} catch (IOException e) {
+			throw new ServletException("Unable to open the notification journal in " + directory, e);
+		}
+	}
+
+	@Override
+	public void destroy() {
+		PaymentStateStore.unregister("json", paymentStates);
+		try {
+			if (captureScheduler != null) {
+				captureScheduler.close();
+			}
+			processor.close();
+			if (settlementReports != null) {
+				settlementReports.close();
+			}
+			journal.close();
+		} catch (IOException e) {
+			log("Unable to close the notification journal", e);
+		}
+	}
+
 	protected void doPost(HttpServletRequest request, HttpServletResponse response) throws ServletException, IOException {
 
 		/**
@@ -68,6 +179,13 @@ public class NotificationServer extends HttpServlet {
 			}
 		}
 
+		// Return 503 Service Unavailable while the journal is not processed, so the notifications are sent again later
+		// instead of piling up in the journal
+		if (!processor.isHealthy()) {
+			response.sendError(HttpServletResponse.SC_SERVICE_UNAVAILABLE, "Notification processing is stopped");
+			return;
+		}
+
 		/**
 		 * Handle notifications
 		 * 
@@ -104,85 +222,42 @@ public class NotificationServer extends HttpServlet {
 		
 		// Get all notification items in this request
 		JSONArray notificationItems = (JSONArray) notificationRequest.get("notificationItems");
+		long[] claimedFingerprints = new long[notificationItems.size()];
+		int notificationsClaimed = 0;
 		int notificationsSaved = 0;
+		long lastPosition = 0;
 		
-		for (Object notificationItem : notificationItems) {
-			
-			// Extract and handle single notification
-			JSONObject notification = (JSONObject) ((JSONObject) notificationItem).get("NotificationRequestItem");
-			
-			switch (notification.get("eventCode").toString()) {
-				case "AUTHORISATION":
-					// Handle AUTHORISATION notification.
-					// Confirms whether the payment was authorised successfully.
-					// The authorisation is successful if the "success" field has the value true.
-					// In case of an error or a refusal, it will be false and the "reason" field
-					// should be consulted for the cause of the authorisation failure.
-					break;
-
-				case "CANCELLATION":
-					// Handle CANCELLATION notification.
-					// Confirms that the payment was cancelled successfully.
-					break;
-
-				case "REFUND":
-					// Handle REFUND notification.
-					// Confirms that the payment was refunded successfully.
-					break;
-
-				case "CANCEL_OR_REFUND":
-					// Handle CANCEL_OR_REFUND notification.
-					// Confirms that the payment was refunded or cancelled successfully.
-					break;
-
-				case "CAPTURE":
-					// Handle CAPTURE notification.
-					// Confirms that the payment was successfully captured.
-					break;
-
-				case "REFUNDED_REVERSED":
-					// Handle REFUNDED_REVERSED notification.
-					// Tells you that the refund for this payment was successfully reversed.
-					break;
-
-				case "CAPTURE_FAILED":
-					// Handle AUTHORISATION notification.
-					// Tells you that the capture on the authorised payment failed.
-					break;
-
-				case "REQUEST_FOR_INFORMATION":
-					// Handle REQUEST_FOR_INFORMATION notification.
-					// Information requested for this payment.
-					break;
-
-				case "NOTIFICATION_OF_CHARGEBACK":
-					// Handle NOTIFICATION_OF_CHARGEBACK notification.
-					// Chargeback is pending, but can still be defended.
-					break;
-
-				case "CHARGEBACK":
-					// Handle CHARGEBACK notification.
-					// Payment was charged back. This is not sent if a REQUEST_FOR_INFORMATION or NOTIFICATION_OF_CHARGEBACK
-					// notification has already been sent.
-					break;
-
-				case "CHARGEBACK_REVERSED":
-					// Handle CHARGEBACK_REVERSED notification.
-					// Chargeback has been reversed (cancelled).
-					break;
-
-				case "REPORT_AVAILABLE":
-					// Handle REPORT_AVAILABLE notification.
-					// There is a new report available, the URL of the report is in the "reason" field.
-					break;
+		try {
+			for (Object notificationItem : notificationItems) {
+				
+				// Extract and handle single notification
+				JSONObject notification = (JSONObject) ((JSONObject) notificationItem).get("NotificationRequestItem");
+				
+				// Skip notifications that are already saved (or being saved by a concurrent request, or earlier in this
+				// request); they are acknowledged again without processing them twice
+				long fingerprint = NotificationDeduplicator.fingerprint(notification);
+				if (!deduplicator.tryClaim(fingerprint)) {
+					continue;
+				}
+				claimedFingerprints[notificationsClaimed++] = fingerprint;
+				
+				// Save the notification in the journal; it is processed in the background by processNotification
+				lastPosition = saveNotification(notification);
+				notificationsSaved++;
+				
 			}
 
-			// Save the notification in a appropriate way.
-			// In this example, the notification is simply logged to System.out.
-			if (saveNotification(request, notification)) {
-				notificationsSaved++;
+			// Wait until all notifications are written to disk, together with the notifications of concurrent requests
+			journal.awaitDurable(lastPosition);
+		} catch (IOException e) {
+			// Forget the claims of the notifications that were not saved and return an error, so the notifications are
+			// sent again. The saved notifications are in the journal and processed, so their claims are kept and they
+			// are only acknowledged when they are sent again.
+			for (int i = notificationsSaved; i < notificationsClaimed; i++) {
+				deduplicator.release(claimedFingerprints[i]);
 			}
-			
+			response.sendError(HttpServletResponse.SC_INTERNAL_SERVER_ERROR, e.toString());
+			return;
 		}
 
 		/**
@@ -192,40 +267,105 @@ public class NotificationServer extends HttpServlet {
 		 * essential to let us know that you received the notification. If we do NOT receive [accepted] we try to send
 		 * the notification again, which will put all other notifications in a queue.
 		 */
-		boolean allNotificationsSaved = notificationsSaved == notificationItems.size();
+		JSONObject notificationResponse = new JSONObject();
+		notificationResponse.put("notificationResponse", "[accepted]");
 		
-		if (allNotificationsSaved) {
-			JSONObject notificationResponse = new JSONObject();
-			notificationResponse.put("notificationResponse", "[accepted]");
-			
-			PrintWriter out = response.getWriter();
-			out.print(notificationResponse);
-		}
+		PrintWriter out = response.getWriter();
+		out.print(notificationResponse);
 
 	}
 
 	/**
-	 * Print all request headers and parameters of a notification to System.out
+	 * Append a notification to the journal and return its position
 	 */
-	private boolean saveNotification(HttpServletRequest request, JSONObject notification) {
-		System.out.println("***** Received Notification: "
-				+ new SimpleDateFormat("dd-MM-yyyy HH:mm:ss.SSS").format(new Date()));
-
-		System.out.println("Headers:");
-		Enumeration<String> headerNames = request.getHeaderNames();
-		while (headerNames.hasMoreElements()) {
-			String headerName = headerNames.nextElement();
-			System.out.println("- " + headerName + ": " + request.getHeader(headerName));
-		}
-
-		System.out.println("Parameters:");
-		System.out.println(notification.toString());
-
-		System.out.println("****************************************************");
-		System.out.println();
+	private long saveNotification(JSONObject notification) throws IOException {
+		return journal.append(notification.toJSONString().getBytes(UTF8));
+	}
 
-		// Indicate that the notification is saved correctly
-		return true;
+	/**
+	 * Handle a single notification, called by the NotificationProcessor for every saved notification. Notifications of
+	 * the same payment are handled in order, notifications of different payments can be handled concurrently.
+	 */
+	private void processNotification(JSONObject notification) {
+		// The authorised, captured and refunded amounts and the status of the payment are already kept in
+		// paymentStates, which the NotificationProcessor updates before it calls this method (see restore)
+
+		switch (notification.get("eventCode").toString()) {
+			case "AUTHORISATION":
+				// Handle AUTHORISATION notification.
+				// Confirms whether the payment was authorised successfully.
+				// The authorisation is successful if the "success" field has the value true.
+				// In case of an error or a refusal, it will be false and the "reason" field
+				// should be consulted for the cause of the authorisation failure.
+				// A payment that stored recurring details invalidates the cached details of the shopper.
+				// With a capture delay, the DelayedCaptureScheduler captures the payment after the delay.
+				recurringDetailInvalidator.handle(notification);
+				break;
+
+			case "RECURRING_CONTRACT":
+				// Handle RECURRING_CONTRACT notification.
+				// Recurring details were stored for the shopper, so the cached details are invalidated.
+				recurringDetailInvalidator.handle(notification);
+				break;
+
+			case "CANCELLATION":
+				// Handle CANCELLATION notification.
+				// Confirms that the payment was cancelled successfully.
+				break;
+
+			case "REFUND":
+				// Handle REFUND notification.
+				// Confirms that the payment was refunded successfully.
+				break;
+
+			case "CANCEL_OR_REFUND":
+				// Handle CANCEL_OR_REFUND notification.
+				// Confirms that the payment was refunded or cancelled successfully.
+				break;
+
+			case "CAPTURE":
+				// Handle CAPTURE notification.
+				// Confirms that the payment was successfully captured.
+				break;
+
+			case "REFUNDED_REVERSED":
+				// Handle REFUNDED_REVERSED notification.
+				// Tells you that the refund for this payment was successfully reversed.
+				break;
+
+			case "CAPTURE_FAILED":
+				// Handle AUTHORISATION notification.
+				// Tells you that the capture on the authorised payment failed.
+				break;
+
+			case "REQUEST_FOR_INFORMATION":
+				// Handle REQUEST_FOR_INFORMATION notification.
+				// Information requested for this payment.
+				break;
+
+			case "NOTIFICATION_OF_CHARGEBACK":
+				// Handle NOTIFICATION_OF_CHARGEBACK notification.
+				// Chargeback is pending, but can still be defended.
+				break;
+
+			case "CHARGEBACK":
+				// Handle CHARGEBACK notification.
+				// Payment was charged back. This is not sent if a REQUEST_FOR_INFORMATION or NOTIFICATION_OF_CHARGEBACK
+				// notification has already been sent.
+				break;
+
+			case "CHARGEBACK_REVERSED":
+				// Handle CHARGEBACK_REVERSED notification.
+				// Chargeback has been reversed (cancelled).
+				break;
+
+			case "REPORT_AVAILABLE":
+				// Handle REPORT_AVAILABLE notification.
+				// There is a new report available, the URL of the report is in the "reason" field.
+				// Settlement details reports are downloaded and reconciled in the background.
+				settlementReports.handle(notification);
+				break;
+		}
 	}
 
 }
@@ -0,0 +1,94 @@
+package com.adyen.examples.notifications;
+
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.net.InetAddress;
+
+import javax.servlet.ServletException;
+import javax.servlet.annotation.WebServlet;
+import javax.servlet.http.HttpServlet;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+
+import org.json.simple.JSONArray;
+import org.json.simple.JSONObject;
+
+import com.adyen.examples.notifications.journal.PaymentState;
+import com.adyen.examples.notifications.journal.PaymentStateStore;
+
+/**
+ * Status of a payment, as known from its notifications (JSON)
+ *
+ * The notification servers keep the state of every payment in memory (see {@link PaymentStateStore}), so the status
+ * of a payment is answered without calling Adyen or querying a database. Query a payment by its pspReference or by
+ * its merchantReference:
+ *
+ * <pre>
+ * GET /3.Notifications/PaymentStatus?pspReference=8814598372361548
+ * GET /3.Notifications/PaymentStatus?merchantReference=TEST-PAYMENT-2016-03-01
+ * </pre>
+ *
+ * The response contains the status, the authorised, captured and refunded amounts (in minor units) and the flags of
+ * the payment (see {@link PaymentState}). An unknown payment returns 404 Not Found. Only requests from the local host
+ * are answered; other requests return 403 Forbidden.
+ *
+ * @link /3.Notifications/PaymentStatus
+ * @author Created by Adyen - Payments Made Easy
+ */
+@WebServlet(urlPatterns = { "/3.Notifications/PaymentStatus" })
+public class PaymentStatus extends HttpServlet {
+
+	@Override
+	protected void doGet(HttpServletRequest request, HttpServletResponse response) throws ServletException, IOException {
+		if (!InetAddress.getByName(request.getRemoteAddr()).isLoopbackAddress()) {
+			response.sendError(HttpServletResponse.SC_FORBIDDEN);
+			return;
+		}
+
+		String pspReference = request.getParameter("pspReference");
+		String merchantReference = request.getParameter("merchantReference");
+		if (pspReference == null && merchantReference == null) {
+			response.sendError(HttpServletResponse.SC_BAD_REQUEST, "Provide a pspReference or merchantReference");
+			return;
+		}
+
+		// The payment is in the store of the notification server that received its notifications
+		PaymentState state = null;
+		for (PaymentStateStore store : PaymentStateStore.getStores()) {
+			state = pspReference != null ? store.getByPspReference(pspReference)
+					: store.getByMerchantReference(merchantReference);
+			if (state != null) {
+				break;
+			}
+		}
+
+		if (state == null) {
+			response.sendError(HttpServletResponse.SC_NOT_FOUND);
+			return;
+		}
+
+		JSONArray flags = new JSONArray();
+		for (String flag : state.getFlagNames()) {
+			flags.add(flag);
+		}
+
+		JSONObject payment = new JSONObject();
+		payment.put("pspReference", state.getPspReference());
+		payment.put("merchantReference", state.getMerchantReference());
+		payment.put("merchantAccount", state.getMerchantAccount());
+		payment.put("status", state.getStatus().name());
+		payment.put("currency", state.getCurrency());
+		payment.put("authorisedValue", state.getAuthorisedValue());
+		payment.put("capturedValue", state.getCapturedValue());
+		payment.put("refundedValue", state.getRefundedValue());
+		payment.put("flags", flags);
+		payment.put("lastEventCode", state.getLastEventCode());
+		payment.put("notificationCount", state.getNotificationCount());
+
+		response.setContentType("application/json; charset=UTF-8");
+		response.setHeader("Cache-Control", "no-cache");
+		PrintWriter out = response.getWriter();
+		out.print(payment.toJSONString());
+	}
+
+}
@@ -0,0 +1,87 @@
+package com.adyen.examples.notifications.journal;
+
+import java.io.Closeable;
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.Charset;
+import java.nio.file.StandardOpenOption;
+
+import org.json.simple.JSONObject;
+
+/**
+ * File of the notifications that could not be processed, next to the journal (failed-notifications.jsonl)
+ *
+ * When a handler keeps failing on a notification, the {@link NotificationProcessor} appends it here before it moves
+ * past it, so it is not lost: one JSON object per line, with the notification, the error and the time it failed. A
+ * journal record that cannot be parsed is written as it was received, in the field record instead of notification. The
+ * notifications can be looked into and processed again, e.g. by posting them to the notification server once the
+ * cause is fixed. Every line is forced to disk before the processor continues.
+ *
+ * @author Created by Adyen - Payments Made Easy
+ */
+class DeadLetterFile implements Closeable {
+
+	static final String FILE_NAME = "failed-notifications.jsonl";
+
+	private static final Charset UTF8 = Charset.forName("UTF-8");
+
+	private final File file;
+	private FileChannel channel;
+
+	DeadLetterFile(File directory) {
+		this.file = new File(directory, FILE_NAME);
+	}
+
+	/**
+	 * Appends a notification and the error it failed with, and forces it to disk.
+	 */
+	@SuppressWarnings("unchecked")
+	void append(JSONObject notification, Throwable error) throws IOException {
+		JSONObject line = new JSONObject();
+		line.put("notification", notification);
+		write(line, error);
+	}
+
+	/**
+	 * Appends a journal record that is not a notification and the error it failed with, and forces it to disk.
+	 */
+	@SuppressWarnings("unchecked")
+	void append(byte[] record, Throwable error) throws IOException {
+		JSONObject line = new JSONObject();
+		line.put("record", new String(record, UTF8));
+		write(line, error);
+	}
+
+	@SuppressWarnings("unchecked")
+	private synchronized void write(JSONObject line, Throwable error) throws IOException {
+		if (channel == null) {
+			// Opened on the first failure, so there is no file as long as everything is processed
+			channel = FileChannel.open(file.toPath(), StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+					StandardOpenOption.APPEND);
+		}
+
+		line.put("error", error.toString());
+		line.put("failedAt", System.currentTimeMillis());
+
+		ByteBuffer buffer = ByteBuffer.wrap((line.toJSONString() + "\n").getBytes(UTF8));
+		while (buffer.hasRemaining()) {
+			channel.write(buffer);
+		}
+		channel.force(false);
+	}
+
+	File getFile() {
+		return file;
+	}
+
+	@Override
+	public synchronized void close() throws IOException {
+		if (channel != null) {
+			channel.close();
+			channel = null;
+		}
+	}
+
+}
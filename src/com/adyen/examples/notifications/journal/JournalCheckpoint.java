@@ -0,0 +1,45 @@
+package com.adyen.examples.notifications.journal;
+
+import java.io.Closeable;
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+
+/**
+ * Journal position up to which the notifications are processed, stored in a file next to the journal
+ *
+ * The checkpoint is written after the notifications are processed, so after a restart processing resumes at the
+ * checkpoint. Notifications processed after the last checkpoint are processed again (at-least-once).
+ *
+ * @author Created by Adyen - Payments Made Easy
+ */
+public class JournalCheckpoint implements Closeable {
+
+	private final RandomAccessFile file;
+
+	public JournalCheckpoint(File directory, String name) throws IOException {
+		file = new RandomAccessFile(new File(directory, name + ".checkpoint"), "rw");
+	}
+
+	/**
+	 * Returns the stored position, or -1 if no position is stored yet.
+	 */
+	public synchronized long load() throws IOException {
+		if (file.length() < 8) {
+			return -1;
+		}
+		file.seek(0);
+		return file.readLong();
+	}
+
+	public synchronized void store(long position) throws IOException {
+		file.seek(0);
+		file.writeLong(position);
+	}
+
+	@Override
+	public synchronized void close() throws IOException {
+		file.close();
+	}
+
+}
@@ -0,0 +1,119 @@
+package com.adyen.examples.notifications.journal;
+
+import java.io.Closeable;
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+
+/**
+ * Sequential reader of the durable records in a {@link NotificationJournal}
+ *
+ * A reader is not thread-safe; every consumer of the journal should use its own reader.
+ *
+ * @author Created by Adyen - Payments Made Easy
+ */
+public class JournalReader implements Closeable {
+
+	/**
+	 * Receives the records read from the journal.
+	 */
+	public interface RecordHandler {
+
+		/**
+		 * Handles a single record. The nextPosition is the position directly after this record.
+		 */
+		void onRecord(byte[] data, long nextPosition) throws IOException;
+
+	}
+
+	private final NotificationJournal journal;
+	private final int segmentSize;
+
+	private MappedByteBuffer segment;
+	private long segmentBase = -1;
+
+	JournalReader(NotificationJournal journal) {
+		this.journal = journal;
+		this.segmentSize = journal.getSegmentSize();
+	}
+
+	/**
+	 * Reads the durable records from the given position, at most maxRecords, and returns the position after the last
+	 * record read. Returns the given position if there are no new durable records.
+	 */
+	public long read(long position, int maxRecords, RecordHandler handler) throws IOException {
+		long limit = journal.getDurablePosition();
+		int count = 0;
+
+		while (position < limit && count < maxRecords) {
+			long base = segmentBaseOf(position);
+			if (base != segmentBase) {
+				mapSegment(base);
+			}
+
+			int offset = (int) (position - base);
+			int length = offset + NotificationJournal.HEADER_SIZE <= segmentSize ? segment.getInt(offset) : 0;
+
+			if (length <= 0) {
+				// End of this segment, continue with the next one
+				position = base + segmentSize;
+				continue;
+			}
+
+			byte[] data = new byte[length];
+			ByteBuffer view = segment.duplicate();
+			view.position(offset + NotificationJournal.HEADER_SIZE);
+			view.get(data);
+
+			position = base + offset + NotificationJournal.HEADER_SIZE + length;
+			handler.onRecord(data, position);
+			count++;
+		}
+
+		return position;
+	}
+
+	/**
+	 * Reads all durable records from the given position and returns the position after the last record.
+	 */
+	public long readAll(long position, RecordHandler handler) throws IOException {
+		long next;
+		while ((next = read(position, 1024, handler)) != position) {
+			position = next;
+		}
+		return position;
+	}
+
+	/**
+	 * Returns the position of the first record in the journal.
+	 */
+	public long firstPosition() {
+		long[] segments = journal.listSegments();
+		return segments.length == 0 ? 0 : segments[0];
+	}
+
+	@Override
+	public void close() {
+		segment = null;
+		segmentBase = -1;
+	}
+
+	private long segmentBaseOf(long position) {
+		return position - (position % segmentSize);
+	}
+
+	private void mapSegment(long base) throws IOException {
+		File file = journal.segmentFile(base);
+		RandomAccessFile randomAccessFile = new RandomAccessFile(file, "r");
+		try {
+			segment = randomAccessFile.getChannel().map(FileChannel.MapMode.READ_ONLY, 0, segmentSize);
+			segmentBase = base;
+		} finally {
+			randomAccessFile.close();
+		}
+	}
+
+}
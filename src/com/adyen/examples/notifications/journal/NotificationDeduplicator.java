@@ -0,0 +1,357 @@
+package com.adyen.examples.notifications.journal;
+
+import java.io.IOException;
+import java.nio.charset.Charset;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.json.simple.JSONObject;
+import org.json.simple.parser.JSONParser;
+import org.json.simple.parser.ParseException;
+
+/**
+ * Memory-bounded cache of recently received notifications, to recognise notifications that Adyen sends again
+ *
+ * A notification is identified by a 64-bit fingerprint of its pspReference, eventCode, success and merchantReference.
+ * The fingerprints are stored in open-addressing hash tables of primitive longs, so no objects are created per
+ * notification. To evict old fingerprints, each segment has two generations: new fingerprints go into the current
+ * generation, and when it is older than half the time-to-live (or full), the previous generation is dropped and the
+ * current one becomes the previous. A fingerprint is therefore remembered for at least half and at most the whole
+ * time-to-live, and memory never exceeds the fixed size of the tables.
+ *
+ * Optionally, a Bloom filter per generation is checked first, so most new notifications are recognised without
+ * probing the tables.
+ *
+ * A notification server claims a notification before it saves it (see {@link #tryClaim(long)}): the check and the
+ * claim are a single step, so of two concurrent deliveries of a notification (or two copies in one request) only one
+ * is saved. If saving fails, the claim is released (see {@link #release(long)}), so the notification sent again is
+ * not treated as a duplicate. After a restart the fingerprints are seeded from the notifications still in the journal
+ * (see {@link #seed(NotificationJournal)}).
+ *
+ * @author Created by Adyen - Payments Made Easy
+ */
+public class NotificationDeduplicator {
+
+	/**
+	 * Deduplication settings
+	 * - DEFAULT_MAX_ENTRIES: maximum number of fingerprints remembered
+	 * - DEFAULT_TTL_MILLIS: how long a fingerprint is remembered
+	 * - SEGMENTS: number of independently locked segments
+	 * - BLOOM_BITS_PER_ENTRY: size of the Bloom filters, in bits per fingerprint
+	 * - BLOOM_HASHES: number of bits set in the Bloom filters per fingerprint
+	 */
+	public static final int DEFAULT_MAX_ENTRIES = 1000000;
+	public static final long DEFAULT_TTL_MILLIS = TimeUnit.DAYS.toMillis(1);
+	private static final int SEGMENTS = 16;
+	private static final int BLOOM_BITS_PER_ENTRY = 10;
+	private static final int BLOOM_HASHES = 3;
+
+	private static final Charset UTF8 = Charset.forName("UTF-8");
+
+	private static final long FNV_OFFSET_BASIS = 0xcbf29ce484222325L;
+	private static final long FNV_PRIME = 0x100000001b3L;
+
+	private final Segment[] segments = new Segment[SEGMENTS];
+	private final long ttlMillis;
+	private final AtomicLong duplicateCount = new AtomicLong();
+
+	public NotificationDeduplicator() {
+		this(DEFAULT_MAX_ENTRIES, DEFAULT_TTL_MILLIS, true);
+	}
+
+	public NotificationDeduplicator(int maxEntries, long ttlMillis, boolean bloomFilter) {
+		this.ttlMillis = ttlMillis;
+
+		// Each segment holds two generations
+		int entriesPerGeneration = Math.max(16, maxEntries / SEGMENTS / 2);
+		for (int i = 0; i < SEGMENTS; i++) {
+			segments[i] = new Segment(entriesPerGeneration, bloomFilter);
+		}
+	}
+
+	/**
+	 * Returns the fingerprint of a notification.
+	 */
+	public static long fingerprint(JSONObject notification) {
+		long hash = FNV_OFFSET_BASIS;
+		hash = hash(hash, notification.get("pspReference"));
+		hash = hash(hash, notification.get("eventCode"));
+		hash = hash(hash, notification.get("success"));
+		hash = hash(hash, notification.get("merchantReference"));
+
+		// Final mix, so all bits depend on all input
+		hash ^= hash >>> 33;
+		hash *= 0xff51afd7ed558ccdL;
+		hash ^= hash >>> 33;
+
+		// 0 marks an empty slot
+		return hash == 0 ? 1 : hash;
+	}
+
+	/**
+	 * Returns true if a notification with this fingerprint was recorded within the time-to-live.
+	 */
+	public boolean isDuplicate(long fingerprint) {
+		boolean duplicate = segmentOf(fingerprint).contains(fingerprint, System.currentTimeMillis());
+		if (duplicate) {
+			duplicateCount.incrementAndGet();
+		}
+		return duplicate;
+	}
+
+	/**
+	 * Records a notification with this fingerprint as received.
+	 */
+	public void record(long fingerprint) {
+		segmentOf(fingerprint).add(fingerprint, System.currentTimeMillis());
+	}
+
+	/**
+	 * Records a notification with this fingerprint as received, unless it was recorded within the time-to-live.
+	 * Returns false for a duplicate, and true if the caller claimed the notification and has to save it.
+	 */
+	public boolean tryClaim(long fingerprint) {
+		boolean claimed = segmentOf(fingerprint).claim(fingerprint, System.currentTimeMillis());
+		if (!claimed) {
+			duplicateCount.incrementAndGet();
+		}
+		return claimed;
+	}
+
+	/**
+	 * Forgets a claimed notification that could not be saved, so it is accepted when it is sent again.
+	 */
+	public void release(long fingerprint) {
+		segmentOf(fingerprint).remove(fingerprint);
+	}
+
+	/**
+	 * Records the notifications that are still in the journal, so notifications received before a restart are
+	 * recognised when they are sent again. Returns the number of notifications recorded.
+	 */
+	public long seed(NotificationJournal journal) throws IOException {
+		final JSONParser parser = new JSONParser();
+		final long[] count = new long[1];
+		JournalReader reader = journal.newReader();
+		try {
+			reader.readAll(reader.firstPosition(), new JournalReader.RecordHandler() {
+				@Override
+				public void onRecord(byte[] data, long nextPosition) {
+					try {
+						record(fingerprint((JSONObject) parser.parse(new String(data, UTF8))));
+						count[0]++;
+					} catch (ParseException | RuntimeException e) {
+						// Not a notification
+					}
+				}
+			});
+		} finally {
+			reader.close();
+		}
+		return count[0];
+	}
+
+	/**
+	 * Number of duplicate notifications recognised.
+	 */
+	public long getDuplicateCount() {
+		return duplicateCount.get();
+	}
+
+	private Segment segmentOf(long fingerprint) {
+		return segments[(int) (fingerprint >>> 60) & (SEGMENTS - 1)];
+	}
+
+	private static long hash(long hash, Object value) {
+		if (value != null) {
+			for (byte b : value.toString().getBytes(UTF8)) {
+				hash ^= (b & 0xff);
+				hash *= FNV_PRIME;
+			}
+		}
+
+		// Separator, so ("ab", "c") and ("a", "bc") differ
+		hash ^= 0xff;
+		hash *= FNV_PRIME;
+		return hash;
+	}
+
+	/**
+	 * A set of fingerprints with fixed capacity, using linear probing.
+	 */
+	private static final class Generation {
+
+		private final long[] table;
+		private final int mask;
+		private final int maxEntries;
+		private final long[] bloom;
+		private final int bloomMask;
+		private final long createdAt;
+		private int size;
+
+		private Generation(int maxEntries, boolean bloomFilter, long createdAt) {
+			// Keep the load factor at or below 0.5, so probe sequences stay short
+			int capacity = Integer.highestOneBit(maxEntries * 2 - 1) << 1;
+			this.table = new long[capacity];
+			this.mask = capacity - 1;
+			this.maxEntries = maxEntries;
+			this.createdAt = createdAt;
+
+			if (bloomFilter) {
+				int bloomBits = Integer.highestOneBit(maxEntries * BLOOM_BITS_PER_ENTRY - 1) << 1;
+				this.bloom = new long[bloomBits >>> 6];
+				this.bloomMask = bloomBits - 1;
+			}
+			else {
+				this.bloom = null;
+				this.bloomMask = 0;
+			}
+		}
+
+		private boolean contains(long fingerprint) {
+			if (bloom != null && !mightContain(fingerprint)) {
+				return false;
+			}
+
+			for (int i = (int) fingerprint & mask; ; i = (i + 1) & mask) {
+				long entry = table[i];
+				if (entry == fingerprint) {
+					return true;
+				}
+				if (entry == 0) {
+					return false;
+				}
+			}
+		}
+
+		/**
+		 * Adds the fingerprint; returns false if the generation is full.
+		 */
+		private boolean add(long fingerprint) {
+			if (size >= maxEntries) {
+				return false;
+			}
+
+			for (int i = (int) fingerprint & mask; ; i = (i + 1) & mask) {
+				long entry = table[i];
+				if (entry == fingerprint) {
+					return true;
+				}
+				if (entry == 0) {
+					table[i] = fingerprint;
+					size++;
+					if (bloom != null) {
+						addToBloom(fingerprint);
+					}
+					return true;
+				}
+			}
+		}
+
+		/**
+		 * Removes the fingerprint, shifting the entries after it back (linear probing without tombstones). The Bloom
+		 * filter keeps its bits, which only costs a probe of the table.
+		 */
+		private void remove(long fingerprint) {
+			int hole = (int) fingerprint & mask;
+			while (table[hole] != fingerprint) {
+				if (table[hole] == 0) {
+					return;
+				}
+				hole = (hole + 1) & mask;
+			}
+
+			table[hole] = 0;
+			size--;
+			for (int i = (hole + 1) & mask; table[i] != 0; i = (i + 1) & mask) {
+				int home = (int) table[i] & mask;
+				// Move the entry into the hole, unless its home slot lies cyclically after the hole
+				if (((i - home) & mask) >= ((i - hole) & mask)) {
+					table[hole] = table[i];
+					table[i] = 0;
+					hole = i;
+				}
+			}
+		}
+
+		private boolean mightContain(long fingerprint) {
+			int h1 = (int) (fingerprint >>> 32);
+			int h2 = (int) fingerprint;
+			for (int k = 1; k <= BLOOM_HASHES; k++) {
+				int bit = (h1 + k * h2) & bloomMask;
+				if ((bloom[bit >>> 6] & (1L << bit)) == 0) {
+					return false;
+				}
+			}
+			return true;
+		}
+
+		private void addToBloom(long fingerprint) {
+			int h1 = (int) (fingerprint >>> 32);
+			int h2 = (int) fingerprint;
+			for (int k = 1; k <= BLOOM_HASHES; k++) {
+				int bit = (h1 + k * h2) & bloomMask;
+				bloom[bit >>> 6] |= 1L << bit;
+			}
+		}
+
+	}
+
+	private final class Segment {
+
+		private final int entriesPerGeneration;
+		private final boolean bloomFilter;
+		private Generation current;
+		private Generation previous;
+
+		private Segment(int entriesPerGeneration, boolean bloomFilter) {
+			this.entriesPerGeneration = entriesPerGeneration;
+			this.bloomFilter = bloomFilter;
+			this.current = new Generation(entriesPerGeneration, bloomFilter, System.currentTimeMillis());
+		}
+
+		private synchronized boolean contains(long fingerprint, long now) {
+			expire(now);
+			return current.contains(fingerprint) || (previous != null && previous.contains(fingerprint));
+		}
+
+		private synchronized boolean claim(long fingerprint, long now) {
+			if (contains(fingerprint, now)) {
+				return false;
+			}
+			add(fingerprint, now);
+			return true;
+		}
+
+		private synchronized void remove(long fingerprint) {
+			current.remove(fingerprint);
+			if (previous != null) {
+				previous.remove(fingerprint);
+			}
+		}
+
+		private synchronized void add(long fingerprint, long now) {
+			expire(now);
+			if (!current.add(fingerprint)) {
+				rotate(now);
+				current.add(fingerprint);
+			}
+		}
+
+		private void expire(long now) {
+			if (now - current.createdAt >= ttlMillis / 2) {
+				rotate(now);
+				if (now - previous.createdAt >= ttlMillis) {
+					previous = null;
+				}
+			}
+		}
+
+		private void rotate(long now) {
+			previous = current;
+			current = new Generation(entriesPerGeneration, bloomFilter, now);
+		}
+
+	}
+
+}
@@ -0,0 +1,55 @@
+package com.adyen.examples.notifications.journal;
+
+import org.json.simple.JSONObject;
+
+/**
+ * Reads the fields of a journaled notification
+ *
+ * The journal holds JSON notifications as received, and HTTP POST notifications as their request parameters (see the
+ * NotificationServer examples). The fields are read the same way from both: the amount is an object within a JSON
+ * notification and the parameters value and currency of an HTTP POST notification, and a field that is empty counts
+ * as missing.
+ *
+ * @author Created by Adyen - Payments Made Easy
+ */
+public final class NotificationFields {
+
+	private NotificationFields() {
+	}
+
+	/**
+	 * Returns the amount in minor units, or 0 if it is missing or not a number.
+	 */
+	public static long value(JSONObject notification) {
+		Object amount = notification.get("amount");
+		Object value = amount instanceof JSONObject ? ((JSONObject) amount).get("value") : notification.get("value");
+		if (value instanceof Number) {
+			return ((Number) value).longValue();
+		}
+		try {
+			return value != null ? Long.parseLong(value.toString().trim()) : 0;
+		} catch (NumberFormatException e) {
+			return 0;
+		}
+	}
+
+	/**
+	 * Returns the currency of the amount, or null if it is missing.
+	 */
+	public static String currency(JSONObject notification) {
+		Object amount = notification.get("amount");
+		if (amount instanceof JSONObject) {
+			return string((JSONObject) amount, "currency");
+		}
+		return string(notification, "currency");
+	}
+
+	/**
+	 * Returns a field as a String, or null if it is missing or empty.
+	 */
+	public static String string(JSONObject notification, String name) {
+		Object value = notification.get(name);
+		return value != null && !value.toString().isEmpty() ? value.toString() : null;
+	}
+
+}
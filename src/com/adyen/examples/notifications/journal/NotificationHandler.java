@@ -0,0 +1,14 @@
+package com.adyen.examples.notifications.journal;
+
+import org.json.simple.JSONObject;
+
+/**
+ * Handles a single notification (NotificationRequestItem) read from the {@link NotificationJournal}
+ *
+ * @author Created by Adyen - Payments Made Easy
+ */
+public interface NotificationHandler {
+
+	void handle(JSONObject notification);
+
+}
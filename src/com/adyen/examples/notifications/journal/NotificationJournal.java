@@ -0,0 +1,411 @@
+package com.adyen.examples.notifications.journal;
+
+import java.io.Closeable;
+import java.io.File;
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.io.RandomAccessFile;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.LockSupport;
+import java.util.zip.CRC32;
+
+/**
+ * Durable append-only journal of notifications
+ *
+ * Notifications are appended to memory-mapped segment files of a fixed size. When a segment is full, a new segment is
+ * started (rolled). A record is only durable once it is written to disk; instead of forcing the segment to disk for
+ * every record, a background thread forces all records appended since the previous flush at once (group commit).
+ * Many concurrent notification requests therefore share a single fsync.
+ *
+ * Record layout: length (int), CRC32 of the data (int), data (length bytes). A length of 0 marks the end of the
+ * records in a segment. Positions are logical: the file name of a segment is the position of its first record.
+ *
+ * Every consumer of the journal (the processor, the auto-capture scheduler, snapshots of state kept in memory) tells
+ * from which position it still needs the records (see {@link #retain(String, long)}). Segments that every consumer
+ * has passed are deleted, so the journal only keeps the records that are not fully processed yet.
+ *
+ * @author Created by Adyen - Payments Made Easy
+ */
+public class NotificationJournal implements Closeable {
+
+	/**
+	 * Journal settings
+	 * - DEFAULT_SEGMENT_SIZE: size of a segment file in bytes
+	 * - SEGMENT_SUFFIX: file extension of the segment files
+	 */
+	public static final int DEFAULT_SEGMENT_SIZE = 64 * 1024 * 1024;
+	static final String SEGMENT_SUFFIX = ".journal";
+	static final int HEADER_SIZE = 8;
+
+	private final File directory;
+	private final int segmentSize;
+
+	private final Object writeLock = new Object();
+	private final Object durableLock = new Object();
+
+	// Guarded by writeLock
+	private FileChannel segmentChannel;
+	private MappedByteBuffer segment;
+	private long segmentBase;
+	private long writePosition;
+
+	private volatile long durablePosition;
+	private volatile boolean closed;
+	private volatile IOException flushFailure;
+
+	private final Thread flusher;
+
+	// Position from which each consumer still needs the records
+	private final Map<String, Long> retainedPositions = new ConcurrentHashMap<String, Long>();
+	private final Object retentionLock = new Object();
+
+	private NotificationJournal(File directory, int segmentSize) throws IOException {
+		this.directory = directory;
+		this.segmentSize = segmentSize;
+
+		if (!directory.isDirectory() && !directory.mkdirs()) {
+			throw new IOException("Unable to create journal directory " + directory);
+		}
+
+		recover();
+
+		flusher = new Thread(new Runnable() {
+			@Override
+			public void run() {
+				flushLoop();
+			}
+		}, "notification-journal-flusher");
+		flusher.setDaemon(true);
+		flusher.start();
+	}
+
+	/**
+	 * Opens (or creates) the journal in the given directory, with the default segment size.
+	 */
+	public static NotificationJournal open(File directory) throws IOException {
+		return new NotificationJournal(directory, DEFAULT_SEGMENT_SIZE);
+	}
+
+	/**
+	 * Opens (or creates) the journal in the given directory.
+	 */
+	public static NotificationJournal open(File directory, int segmentSize) throws IOException {
+		return new NotificationJournal(directory, segmentSize);
+	}
+
+	/**
+	 * Appends a record to the journal and returns the position directly after it.
+	 *
+	 * The record is not durable yet; use {@link #awaitDurable(long)} with the returned position before acknowledging
+	 * the notification.
+	 */
+	public long append(byte[] data) throws IOException {
+		if (data.length == 0 || data.length > segmentSize - 2 * HEADER_SIZE) {
+			throw new IOException("Invalid record size: " + data.length);
+		}
+
+		CRC32 crc = new CRC32();
+		crc.update(data, 0, data.length);
+
+		long endPosition;
+		synchronized (writeLock) {
+			checkOpen();
+
+			if (segment.remaining() < HEADER_SIZE + data.length + HEADER_SIZE) {
+				rollSegment();
+			}
+
+			segment.putInt(data.length);
+			segment.putInt((int) crc.getValue());
+			segment.put(data);
+
+			writePosition = segmentBase + segment.position();
+			endPosition = writePosition;
+		}
+
+		LockSupport.unpark(flusher);
+		return endPosition;
+	}
+
+	/**
+	 * Waits until all records up to the given position are written to disk.
+	 */
+	public void awaitDurable(long position) throws IOException {
+		if (durablePosition >= position) {
+			return;
+		}
+
+		synchronized (durableLock) {
+			while (durablePosition < position) {
+				if (flushFailure != null) {
+					throw new IOException("Unable to write the notification journal", flushFailure);
+				}
+				checkOpen();
+				try {
+					durableLock.wait();
+				} catch (InterruptedException e) {
+					Thread.currentThread().interrupt();
+					throw new InterruptedIOException("Interrupted while waiting for the notification journal");
+				}
+			}
+		}
+	}
+
+	/**
+	 * Appends a record and waits until it is written to disk.
+	 */
+	public long appendDurable(byte[] data) throws IOException {
+		long position = append(data);
+		awaitDurable(position);
+		return position;
+	}
+
+	/**
+	 * Position up to which all records are written to disk. Only durable records are read by a {@link JournalReader}.
+	 */
+	public long getDurablePosition() {
+		return durablePosition;
+	}
+
+	/**
+	 * Waits at most the given time until records beyond the given position are durable, and returns the durable
+	 * position.
+	 */
+	public long awaitRecordsAfter(long position, long timeoutMillis) throws InterruptedException {
+		long deadline = System.currentTimeMillis() + timeoutMillis;
+		synchronized (durableLock) {
+			long remaining = timeoutMillis;
+			while (durablePosition <= position && !closed && remaining > 0) {
+				durableLock.wait(remaining);
+				remaining = deadline - System.currentTimeMillis();
+			}
+		}
+		return durablePosition;
+	}
+
+	/**
+	 * Records the position from which a consumer still needs the records (e.g. its checkpoint), and deletes the
+	 * segments before the position of every consumer. A consumer calls this with the position it starts from before
+	 * it reads, and again whenever it moves on; all consumers have to start before any of them moves on, or the
+	 * records a consumer has not read yet may be deleted. The segment that is written to is never deleted.
+	 */
+	public void retain(String consumer, long position) {
+		retainedPositions.put(consumer, position);
+
+		synchronized (retentionLock) {
+			long retained = Long.MAX_VALUE;
+			for (long consumerPosition : retainedPositions.values()) {
+				retained = Math.min(retained, consumerPosition);
+			}
+
+			long current;
+			synchronized (writeLock) {
+				current = segmentBase;
+			}
+
+			for (long base : listSegments()) {
+				if (base >= current || base + segmentSize > retained) {
+					break;
+				}
+				// A segment that is still mapped by a reader may not be deleted on every platform; it is tried again
+				segmentFile(base).delete();
+			}
+		}
+	}
+
+	/**
+	 * Creates a reader for the durable records of this journal.
+	 */
+	public JournalReader newReader() {
+		return new JournalReader(this);
+	}
+
+	public File getDirectory() {
+		return directory;
+	}
+
+	int getSegmentSize() {
+		return segmentSize;
+	}
+
+	boolean isClosed() {
+		return closed;
+	}
+
+	/**
+	 * Returns the positions of all segments, in ascending order.
+	 */
+	long[] listSegments() {
+		File[] files = directory.listFiles();
+		List<Long> bases = new ArrayList<Long>();
+		if (files != null) {
+			for (File file : files) {
+				String name = file.getName();
+				if (name.endsWith(SEGMENT_SUFFIX)) {
+					try {
+						bases.add(Long.parseLong(name.substring(0, name.length() - SEGMENT_SUFFIX.length())));
+					} catch (NumberFormatException e) {
+						// Not a segment file
+					}
+				}
+			}
+		}
+
+		long[] result = new long[bases.size()];
+		for (int i = 0; i < result.length; i++) {
+			result[i] = bases.get(i);
+		}
+		Arrays.sort(result);
+		return result;
+	}
+
+	File segmentFile(long base) {
+		return new File(directory, String.format("%020d%s", base, SEGMENT_SUFFIX));
+	}
+
+	@Override
+	public void close() throws IOException {
+		synchronized (writeLock) {
+			if (closed) {
+				return;
+			}
+			closed = true;
+		}
+
+		flusher.interrupt();
+		try {
+			flusher.join(TimeUnit.SECONDS.toMillis(5));
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+		}
+
+		synchronized (writeLock) {
+			segment.force();
+			segmentChannel.close();
+		}
+
+		synchronized (durableLock) {
+			durableLock.notifyAll();
+		}
+	}
+
+	/**
+	 * Opens the last segment and finds the end of its valid records.
+	 */
+	private void recover() throws IOException {
+		long[] segments = listSegments();
+		long base = segments.length == 0 ? 0 : segments[segments.length - 1];
+
+		mapSegment(base);
+
+		while (segment.remaining() >= HEADER_SIZE) {
+			int start = segment.position();
+			int length = segment.getInt();
+			int checksum = segment.getInt();
+
+			if (length <= 0 || length > segment.remaining()) {
+				segment.position(start);
+				break;
+			}
+
+			byte[] data = new byte[length];
+			segment.get(data);
+
+			CRC32 crc = new CRC32();
+			crc.update(data, 0, length);
+			if ((int) crc.getValue() != checksum) {
+				// Torn write: the record was never acknowledged, so it is safe to overwrite it
+				segment.position(start);
+				break;
+			}
+		}
+
+		// Clear a possibly torn record, so readers see the end of the segment
+		if (segment.remaining() >= HEADER_SIZE) {
+			segment.putLong(segment.position(), 0L);
+		}
+
+		writePosition = segmentBase + segment.position();
+		durablePosition = writePosition;
+	}
+
+	private void mapSegment(long base) throws IOException {
+		RandomAccessFile file = new RandomAccessFile(segmentFile(base), "rw");
+		if (file.length() < segmentSize) {
+			file.setLength(segmentSize);
+		}
+
+		segmentChannel = file.getChannel();
+		segment = segmentChannel.map(FileChannel.MapMode.READ_WRITE, 0, segmentSize);
+		segmentBase = base;
+	}
+
+	/**
+	 * Closes the current segment (forcing it to disk) and starts a new one. Called while holding the writeLock.
+	 */
+	private void rollSegment() throws IOException {
+		segment.putInt(0);
+		segment.force();
+		segmentChannel.close();
+
+		mapSegment(segmentBase + segmentSize);
+		writePosition = segmentBase;
+	}
+
+	private void flushLoop() {
+		while (!closed) {
+			long target;
+			MappedByteBuffer buffer;
+			long base;
+			synchronized (writeLock) {
+				target = writePosition;
+				buffer = segment;
+				base = segmentBase;
+			}
+
+			if (target == durablePosition) {
+				// append unparks this thread after moving the writePosition, and close interrupts it. A permit given
+				// before parking makes park return at once, so no record is missed.
+				LockSupport.park(this);
+				if (closed) {
+					return;
+				}
+				continue;
+			}
+
+			try {
+				// Records in earlier segments were forced when the segment was rolled
+				if (target > base) {
+					buffer.force();
+				}
+			} catch (RuntimeException e) {
+				flushFailure = new IOException("Unable to force the notification journal", e);
+			}
+
+			synchronized (durableLock) {
+				if (flushFailure == null) {
+					durablePosition = target;
+				}
+				durableLock.notifyAll();
+			}
+
+			if (flushFailure != null) {
+				return;
+			}
+		}
+	}
+
+	private void checkOpen() throws IOException {
+		if (closed) {
+			throw new IOException("Notification journal is closed");
+		}
+	}
+
+}
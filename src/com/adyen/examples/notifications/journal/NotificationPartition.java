@@ -0,0 +1,215 @@
+package com.adyen.examples.notifications.journal;
+
+import java.io.IOException;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.json.simple.JSONObject;
+
+/**
+ * A partition of the {@link NotificationProcessor}: a queue of notifications and the worker thread that handles them
+ *
+ * All notifications of a payment are put in the same partition, so they are handled in the order they were received.
+ *
+ * Every notification is applied to the restored states of the processor (see
+ * {@link NotificationProcessor.SnapshotHandler}) with its journal position, and then handed to the handler.
+ *
+ * A notification whose handler fails is tried again with exponential backoff, up to MAX_ATTEMPTS times. When it still
+ * fails, it is written to the {@link DeadLetterFile} and the partition moves on; the position only moves past a
+ * notification once it is handled or written there. The notifications of the other partitions are not held up.
+ *
+ * @author Created by Adyen - Payments Made Easy
+ */
+class NotificationPartition {
+
+	/**
+	 * Retry settings
+	 * - MAX_ATTEMPTS: number of times a failing notification is handled before it is written to the dead letter file
+	 * - RETRY_BACKOFF_MILLIS: time to wait before the first retry, doubled for every next retry
+	 * - MAX_BACKOFF_MILLIS: maximum time between two retries
+	 */
+	private static final int MAX_ATTEMPTS = 5;
+	private static final long RETRY_BACKOFF_MILLIS = 100;
+	private static final long MAX_BACKOFF_MILLIS = TimeUnit.SECONDS.toMillis(30);
+
+	private static final class Entry {
+
+		private final JSONObject notification;
+		private final long nextPosition;
+		private final long enqueuedAt;
+
+		private Entry(JSONObject notification, long nextPosition) {
+			this.notification = notification;
+			this.nextPosition = nextPosition;
+			this.enqueuedAt = System.currentTimeMillis();
+		}
+
+	}
+
+	private final BlockingQueue<Entry> queue;
+	private final NotificationHandler handler;
+	private final List<NotificationProcessor.SnapshotHandler> states;
+	private final DeadLetterFile deadLetters;
+	private final NotificationProcessor.ErrorLog log;
+	private final Thread worker;
+
+	// Only written by the thread that calls enqueue
+	private long enqueuedPosition;
+	private long enqueuedCount;
+
+	private volatile long completedPosition;
+	private volatile long oldestEnqueuedAt;
+	private final AtomicLong processedCount = new AtomicLong();
+	private final AtomicLong failedCount = new AtomicLong();
+	private final AtomicLong retryCount = new AtomicLong();
+
+	private volatile boolean running = true;
+
+	NotificationPartition(String name, int capacity, NotificationHandler handler,
+			List<NotificationProcessor.SnapshotHandler> states, DeadLetterFile deadLetters,
+			NotificationProcessor.ErrorLog log, long startPosition) {
+		this.queue = new ArrayBlockingQueue<Entry>(capacity);
+		this.handler = handler;
+		this.states = states;
+		this.deadLetters = deadLetters;
+		this.log = log;
+		this.enqueuedPosition = startPosition;
+		this.completedPosition = startPosition;
+
+		worker = new Thread(new Runnable() {
+			@Override
+			public void run() {
+				processLoop();
+			}
+		}, name);
+		worker.setDaemon(true);
+	}
+
+	void start() {
+		worker.start();
+	}
+
+	/**
+	 * Adds a notification to the queue, waiting for space if the queue is full.
+	 */
+	void enqueue(JSONObject notification, long nextPosition) throws InterruptedException {
+		queue.put(new Entry(notification, nextPosition));
+		enqueuedPosition = nextPosition;
+		enqueuedCount++;
+	}
+
+	/**
+	 * Returns the journal position from which this partition still has notifications to handle, or the given position
+	 * if all its notifications are handled. Called by the thread that calls enqueue.
+	 */
+	long pendingPosition(long dispatchedPosition) {
+		long completed = completedPosition;
+		return completed == enqueuedPosition ? dispatchedPosition : completed;
+	}
+
+	int getQueueDepth() {
+		return queue.size();
+	}
+
+	/**
+	 * Number of notifications put in this partition that are not handled yet.
+	 */
+	long getLagRecords() {
+		return enqueuedCount - processedCount.get() - failedCount.get();
+	}
+
+	/**
+	 * Time in milliseconds the notification currently handled has been waiting, or 0 if the partition is idle.
+	 */
+	long getLagMillis() {
+		long enqueuedAt = oldestEnqueuedAt;
+		return enqueuedAt == 0 ? 0 : System.currentTimeMillis() - enqueuedAt;
+	}
+
+	long getProcessedCount() {
+		return processedCount.get();
+	}
+
+	/**
+	 * Number of notifications written to the dead letter file.
+	 */
+	long getFailedCount() {
+		return failedCount.get();
+	}
+
+	long getRetryCount() {
+		return retryCount.get();
+	}
+
+	void shutdown() {
+		running = false;
+		worker.interrupt();
+		try {
+			worker.join(TimeUnit.SECONDS.toMillis(5));
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+		}
+	}
+
+	private void processLoop() {
+		while (running) {
+			Entry entry;
+			try {
+				entry = queue.take();
+			} catch (InterruptedException e) {
+				return;
+			}
+
+			oldestEnqueuedAt = entry.enqueuedAt;
+			try {
+				handle(entry.notification, entry.nextPosition);
+			} catch (InterruptedException e) {
+				// Closed while retrying: the notification is handled again after the restart
+				return;
+			}
+			oldestEnqueuedAt = 0;
+			completedPosition = entry.nextPosition;
+		}
+	}
+
+	/**
+	 * Handles a notification, retrying with backoff; returns when it is handled or written to the dead letter file.
+	 */
+	private void handle(JSONObject notification, long nextPosition) throws InterruptedException {
+		long backoff = RETRY_BACKOFF_MILLIS;
+		for (int attempt = 1; ; attempt++) {
+			RuntimeException failure;
+			try {
+				for (NotificationProcessor.SnapshotHandler state : states) {
+					state.handle(notification, nextPosition);
+				}
+				handler.handle(notification);
+				processedCount.incrementAndGet();
+				return;
+			} catch (RuntimeException e) {
+				failure = e;
+			}
+
+			if (attempt >= MAX_ATTEMPTS) {
+				try {
+					// A notification that cannot be processed should not block all following notifications
+					deadLetters.append(notification, failure);
+					failedCount.incrementAndGet();
+					log.log("Unable to process notification, written to " + deadLetters.getFile(), failure);
+					return;
+				} catch (IOException e) {
+					// Not lost: keep trying until it is handled or written
+					log.log("Unable to write a failed notification to " + deadLetters.getFile(), e);
+				}
+			}
+
+			retryCount.incrementAndGet();
+			Thread.sleep(backoff);
+			backoff = Math.min(backoff * 2, MAX_BACKOFF_MILLIS);
+		}
+	}
+
+}
@@ -0,0 +1,548 @@
+package com.adyen.examples.notifications.journal;
+
+import java.io.Closeable;
+import java.io.File;
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.lang.management.ManagementFactory;
+import java.nio.charset.Charset;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.TimeUnit;
+
+import javax.management.JMException;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+
+import org.json.simple.JSONObject;
+import org.json.simple.parser.JSONParser;
+import org.json.simple.parser.ParseException;
+
+/**
+ * Processes the notifications in a {@link NotificationJournal} in the background
+ *
+ * The notification servers acknowledge a notification as soon as it is stored in the journal. This processor follows
+ * the journal and hands every stored notification to the {@link NotificationHandler}, independent of the request
+ * that received it. After a restart, processing resumes at the last checkpoint.
+ *
+ * Notifications are divided over a number of partitions (one worker thread each) by the hash of the payment they
+ * belong to: the originalReference for modifications, otherwise the pspReference. All notifications of a payment
+ * (e.g. AUTHORISATION, CAPTURE, REFUND) are handled in order, while notifications of different payments are handled
+ * in parallel. The checkpoint only moves past a notification once every partition has handled it, and the segments of
+ * the journal before the checkpoint are no longer retained for the processor (see
+ * {@link NotificationJournal#retain(String, long)}).
+ *
+ * A notification whose handler throws is retried with backoff, and written to a {@link DeadLetterFile} when it keeps
+ * failing, so the checkpoint never moves past a notification that is lost. A record that cannot be parsed is written
+ * there as well. When the journal cannot be read or the checkpoint cannot be stored, the processor tries again with
+ * backoff from the last notification it handed to a partition; {@link #isHealthy()} is false until it succeeds, so the
+ * notification servers can refuse new notifications while the journal is not processed. Errors are reported to the
+ * {@link ErrorLog} given to the processor, e.g. the log of the servlet.
+ *
+ * State that is kept in memory (e.g. a {@link PaymentStateStore}) is rebuilt after a restart from its last snapshot
+ * and the notifications after it (see {@link #restore(SnapshotHandler)}), and then kept up to date by the processor,
+ * which hands it every notification together with its journal position before the handler. The processor stores a
+ * new snapshot of the state every SNAPSHOT_MILLIS and when it is closed, so the journal only has to be kept from the
+ * last snapshot.
+ *
+ * Queue depth, lag and throughput are available through JMX (see {@link NotificationProcessorMBean}).
+ *
+ * @author Created by Adyen - Payments Made Easy
+ */
+public class NotificationProcessor implements Closeable, NotificationProcessorMBean {
+
+	/**
+	 * Processor settings
+	 * - DEFAULT_PARTITIONS: number of partitions (worker threads)
+	 * - QUEUE_CAPACITY: maximum number of notifications waiting in a partition
+	 * - BATCH_SIZE: maximum number of notifications read from the journal between two checkpoints
+	 * - POLL_MILLIS: maximum time to wait for new notifications before checking again
+	 * - SNAPSHOT_MILLIS: time between two snapshots of the restored state
+	 * - RETRY_BACKOFF_MILLIS: time to wait before reading the journal again after a failure, doubled for every next one
+	 * - MAX_BACKOFF_MILLIS: maximum time between two attempts
+	 */
+	public static final int DEFAULT_PARTITIONS = Runtime.getRuntime().availableProcessors();
+	private static final int QUEUE_CAPACITY = 1024;
+	private static final int BATCH_SIZE = 256;
+	private static final long POLL_MILLIS = 1000;
+	private static final long SNAPSHOT_MILLIS = TimeUnit.MINUTES.toMillis(5);
+	private static final long RETRY_BACKOFF_MILLIS = 100;
+	private static final long MAX_BACKOFF_MILLIS = TimeUnit.SECONDS.toMillis(30);
+
+	private static final Charset UTF8 = Charset.forName("UTF-8");
+	private static final String RETENTION_NAME = "processor";
+
+	/**
+	 * State kept in memory that is rebuilt from the journal, and stored in a snapshot next to the journal. Applying a
+	 * notification to the state must be idempotent, as the notifications between the snapshot and the checkpoint can
+	 * be applied again.
+	 */
+	public interface SnapshotHandler {
+
+		/**
+		 * Applies a notification; the position is the journal position right after it. Only the notifications with a
+		 * position after the position of the last snapshot can be applied again.
+		 */
+		void handle(JSONObject notification, long position);
+
+		/**
+		 * Loads the last snapshot from the journal directory and returns the position it was stored at, or -1 if there
+		 * is no snapshot.
+		 */
+		long loadSnapshot(File directory) throws IOException;
+
+		/**
+		 * Stores a snapshot in the journal directory, which contains at least the notifications before the position.
+		 */
+		void storeSnapshot(File directory, long position) throws IOException;
+
+	}
+
+	/**
+	 * Receives the errors of the processor; a servlet can pass its own log method (this::log).
+	 */
+	public interface ErrorLog {
+
+		void log(String message, Throwable error);
+
+	}
+
+	private static final ErrorLog STANDARD_ERROR = new ErrorLog() {
+		@Override
+		public void log(String message, Throwable error) {
+			System.err.println(message + ": " + error);
+		}
+	};
+
+	private final NotificationJournal journal;
+	private final NotificationHandler handler;
+	private final ErrorLog log;
+	private final JournalCheckpoint checkpoint;
+	private final DeadLetterFile deadLetters;
+	private final String name;
+	private final int partitionCount;
+	private final Thread thread;
+
+	private NotificationPartition[] partitions;
+	private ObjectName objectName;
+	private final List<SnapshotHandler> snapshotHandlers = new CopyOnWriteArrayList<SnapshotHandler>();
+	private long snapshotPosition = -1;
+	private long snapshotMillis;
+
+	// Only used by the processor thread
+	private long dispatchedPosition;
+
+	private volatile boolean running = true;
+	private volatile Exception failure;
+	private volatile long checkpointPosition;
+	private volatile double throughput;
+
+	public NotificationProcessor(NotificationJournal journal, NotificationHandler handler) throws IOException {
+		this(journal, handler, STANDARD_ERROR);
+	}
+
+	public NotificationProcessor(NotificationJournal journal, NotificationHandler handler, ErrorLog log)
+			throws IOException {
+		this(journal, handler, journal.getDirectory().getName(), DEFAULT_PARTITIONS, log);
+	}
+
+	public NotificationProcessor(NotificationJournal journal, NotificationHandler handler, String name, int partitionCount)
+			throws IOException {
+		this(journal, handler, name, partitionCount, STANDARD_ERROR);
+	}
+
+	public NotificationProcessor(NotificationJournal journal, NotificationHandler handler, String name,
+			int partitionCount, ErrorLog log) throws IOException {
+		this.journal = journal;
+		this.handler = handler;
+		this.log = log;
+		this.checkpoint = new JournalCheckpoint(journal.getDirectory(), "processed");
+		this.deadLetters = new DeadLetterFile(journal.getDirectory());
+		this.name = name;
+		this.partitionCount = partitionCount;
+
+		thread = new Thread(new Runnable() {
+			@Override
+			public void run() {
+				processLoop();
+			}
+		}, "notification-processor-" + name);
+		thread.setDaemon(true);
+	}
+
+	public void start() throws IOException {
+		long position = checkpoint.load();
+		if (position < 0) {
+			JournalReader reader = journal.newReader();
+			position = reader.firstPosition();
+			reader.close();
+		}
+		checkpointPosition = position;
+		journal.retain(RETENTION_NAME, position);
+
+		partitions = new NotificationPartition[partitionCount];
+		for (int i = 0; i < partitionCount; i++) {
+			partitions[i] = new NotificationPartition("notification-worker-" + name + "-" + i, QUEUE_CAPACITY, handler,
+					snapshotHandlers, deadLetters, log, position);
+			partitions[i].start();
+		}
+
+		registerMBean();
+		thread.start();
+	}
+
+	/**
+	 * Hands every notification that was handled before the last checkpoint to the given handler, in the order of the
+	 * journal, and returns the number of notifications replayed. Call this before {@link #start()}: the processor
+	 * then continues with the notifications after the checkpoint, so every notification reaches the handler once.
+	 */
+	public long replay(NotificationHandler handler) throws IOException {
+		return replay(handler, null, -1);
+	}
+
+	/**
+	 * Loads the snapshot of a state, replays the notifications after it (see {@link #replay(NotificationHandler)})
+	 * and keeps the journal from the snapshot. The state is stored in a new snapshot every SNAPSHOT_MILLIS and when the
+	 * processor is closed. Call this before {@link #start()}. Returns the number of notifications replayed.
+	 */
+	public long restore(SnapshotHandler state) throws IOException {
+		long position = state.loadSnapshot(journal.getDirectory());
+
+		JournalReader reader = journal.newReader();
+		position = Math.max(position, reader.firstPosition());
+		reader.close();
+
+		journal.retain(snapshotRetentionName(snapshotHandlers.size()), position);
+		long count = replay(null, state, position);
+		snapshotHandlers.add(state);
+		return count;
+	}
+
+	private long replay(final NotificationHandler handler, final SnapshotHandler state, long from) throws IOException {
+		final long checkpointed = checkpoint.load();
+		if (checkpointed < 0) {
+			return 0;
+		}
+
+		final long[] count = new long[1];
+		JournalReader reader = journal.newReader();
+		try {
+			long position = Math.max(from, reader.firstPosition());
+			while (position < checkpointed) {
+				long next = reader.read(position, BATCH_SIZE, new JournalReader.RecordHandler() {
+					@Override
+					public void onRecord(byte[] data, long nextPosition) {
+						// The last batch can read past the checkpoint; those notifications are handled by the processor
+						if (nextPosition > checkpointed) {
+							return;
+						}
+						JSONObject notification;
+						try {
+							notification = parse(data);
+						} catch (ParseException | RuntimeException e) {
+							// Written to the dead letter file when it was processed
+							return;
+						}
+						if (state != null) {
+							state.handle(notification, nextPosition);
+						} else {
+							handler.handle(notification);
+						}
+						count[0]++;
+					}
+				});
+				if (next == position) {
+					break;
+				}
+				position = next;
+			}
+		} finally {
+			reader.close();
+		}
+		return count[0];
+	}
+
+	@Override
+	public void close() throws IOException {
+		running = false;
+		thread.interrupt();
+		try {
+			thread.join(TimeUnit.SECONDS.toMillis(5));
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+		}
+
+		if (partitions != null) {
+			for (NotificationPartition partition : partitions) {
+				partition.shutdown();
+			}
+			storeSnapshots();
+		}
+
+		unregisterMBean();
+		checkpoint.close();
+		deadLetters.close();
+	}
+
+	/**
+	 * Returns the partition for a notification: all notifications of the same payment get the same partition.
+	 */
+	static int partitionOf(JSONObject notification, int partitionCount) {
+		Object reference = notification.get("originalReference");
+		if (reference == null || reference.toString().isEmpty()) {
+			reference = notification.get("pspReference");
+		}
+		if (reference == null) {
+			return 0;
+		}
+
+		int hash = reference.toString().hashCode();
+		hash ^= (hash >>> 16);
+		return (hash & Integer.MAX_VALUE) % partitionCount;
+	}
+
+	@Override
+	public int getPartitionCount() {
+		return partitionCount;
+	}
+
+	@Override
+	public int getQueueDepth() {
+		int depth = 0;
+		for (NotificationPartition partition : partitions) {
+			depth += partition.getQueueDepth();
+		}
+		return depth;
+	}
+
+	@Override
+	public int[] getPartitionQueueDepths() {
+		int[] depths = new int[partitionCount];
+		for (int i = 0; i < partitionCount; i++) {
+			depths[i] = partitions[i].getQueueDepth();
+		}
+		return depths;
+	}
+
+	@Override
+	public long[] getPartitionLagRecords() {
+		long[] lags = new long[partitionCount];
+		for (int i = 0; i < partitionCount; i++) {
+			lags[i] = partitions[i].getLagRecords();
+		}
+		return lags;
+	}
+
+	@Override
+	public long[] getPartitionLagMillis() {
+		long[] lags = new long[partitionCount];
+		for (int i = 0; i < partitionCount; i++) {
+			lags[i] = partitions[i].getLagMillis();
+		}
+		return lags;
+	}
+
+	@Override
+	public long getJournalLagBytes() {
+		return Math.max(0, journal.getDurablePosition() - checkpointPosition);
+	}
+
+	@Override
+	public long getProcessedCount() {
+		long count = 0;
+		for (NotificationPartition partition : partitions) {
+			count += partition.getProcessedCount();
+		}
+		return count;
+	}
+
+	@Override
+	public long getFailedCount() {
+		long count = 0;
+		for (NotificationPartition partition : partitions) {
+			count += partition.getFailedCount();
+		}
+		return count;
+	}
+
+	@Override
+	public long getRetryCount() {
+		long count = 0;
+		for (NotificationPartition partition : partitions) {
+			count += partition.getRetryCount();
+		}
+		return count;
+	}
+
+	@Override
+	public double getThroughput() {
+		return throughput;
+	}
+
+	/**
+	 * Returns whether the processor follows the journal: false before it is started, after it stopped, and while it
+	 * retries after a failure to read the journal or store the checkpoint.
+	 */
+	@Override
+	public boolean isHealthy() {
+		return running && thread.isAlive() && failure == null;
+	}
+
+	@Override
+	public String getFailure() {
+		Exception e = failure;
+		return e == null ? null : e.toString();
+	}
+
+	private void processLoop() {
+		long measuredAt = System.nanoTime();
+		long measuredCount = 0;
+		long backoff = RETRY_BACKOFF_MILLIS;
+		dispatchedPosition = checkpointPosition;
+
+		while (running) {
+			JournalReader reader = journal.newReader();
+			try {
+				while (running) {
+					// Continues after the last notification handed to a partition, also after a failure halfway a batch
+					long position = dispatchedPosition;
+					long next = reader.read(position, BATCH_SIZE, new JournalReader.RecordHandler() {
+						@Override
+						public void onRecord(byte[] data, long nextPosition) throws IOException {
+							dispatch(data, nextPosition);
+						}
+					});
+
+					if (next == position) {
+						journal.awaitRecordsAfter(position, POLL_MILLIS);
+					}
+					dispatchedPosition = next;
+
+					storeCheckpoint(next);
+					failure = null;
+					backoff = RETRY_BACKOFF_MILLIS;
+					if (System.currentTimeMillis() - snapshotMillis >= SNAPSHOT_MILLIS) {
+						storeSnapshots();
+					}
+
+					long now = System.nanoTime();
+					if (now - measuredAt >= TimeUnit.SECONDS.toNanos(1)) {
+						long count = getProcessedCount() + getFailedCount();
+						throughput = (count - measuredCount) * 1e9 / (now - measuredAt);
+						measuredCount = count;
+						measuredAt = now;
+					}
+				}
+			} catch (InterruptedException e) {
+				// Processor is closed
+				return;
+			} catch (IOException | RuntimeException e) {
+				if (!running) {
+					return;
+				}
+				failure = e;
+				log.log("Unable to process the notification journal, trying again in " + backoff + " ms", e);
+				try {
+					Thread.sleep(backoff);
+				} catch (InterruptedException interrupted) {
+					return;
+				}
+				backoff = Math.min(backoff * 2, MAX_BACKOFF_MILLIS);
+			} finally {
+				reader.close();
+			}
+		}
+	}
+
+	private void dispatch(byte[] data, long nextPosition) throws IOException {
+		JSONObject notification;
+		try {
+			notification = parse(data);
+		} catch (ParseException | RuntimeException e) {
+			// A notification that cannot be parsed should not block all following notifications
+			deadLetters.append(data, e);
+			log.log("Unable to parse notification, written to " + deadLetters.getFile(), e);
+			dispatchedPosition = nextPosition;
+			return;
+		}
+
+		try {
+			partitions[partitionOf(notification, partitionCount)].enqueue(notification, nextPosition);
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new InterruptedIOException("Processor is closed");
+		}
+		dispatchedPosition = nextPosition;
+	}
+
+	private static JSONObject parse(byte[] data) throws ParseException {
+		return (JSONObject) new JSONParser().parse(new String(data, UTF8));
+	}
+
+	/**
+	 * Stores the position up to which every partition has handled all notifications.
+	 */
+	private void storeCheckpoint(long dispatchedPosition) throws IOException {
+		long position = dispatchedPosition;
+		for (NotificationPartition partition : partitions) {
+			position = Math.min(position, partition.pendingPosition(dispatchedPosition));
+		}
+
+		if (position != checkpointPosition) {
+			checkpoint.store(position);
+			checkpointPosition = position;
+			journal.retain(RETENTION_NAME, position);
+		}
+	}
+
+	/**
+	 * Stores the snapshots of the restored states at the checkpoint, and keeps the journal from there.
+	 */
+	private synchronized void storeSnapshots() {
+		snapshotMillis = System.currentTimeMillis();
+		long position = checkpointPosition;
+		if (position == snapshotPosition) {
+			return;
+		}
+
+		for (int i = 0; i < snapshotHandlers.size(); i++) {
+			try {
+				snapshotHandlers.get(i).storeSnapshot(journal.getDirectory(), position);
+				journal.retain(snapshotRetentionName(i), position);
+			} catch (IOException e) {
+				log.log("Unable to store a snapshot in " + journal.getDirectory(), e);
+				return;
+			}
+		}
+		snapshotPosition = position;
+	}
+
+	private static String snapshotRetentionName(int index) {
+		return "snapshot-" + index;
+	}
+
+	private void registerMBean() {
+		try {
+			MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+			objectName = new ObjectName("com.adyen.examples:type=NotificationProcessor,name=" + ObjectName.quote(name));
+			if (server.isRegistered(objectName)) {
+				server.unregisterMBean(objectName);
+			}
+			server.registerMBean(this, objectName);
+		} catch (JMException e) {
+			// Monitoring is not available, processing continues
+			objectName = null;
+		}
+	}
+
+	private void unregisterMBean() {
+		if (objectName != null) {
+			try {
+				ManagementFactory.getPlatformMBeanServer().unregisterMBean(objectName);
+			} catch (JMException e) {
+				// Already unregistered
+			}
+		}
+	}
+
+}
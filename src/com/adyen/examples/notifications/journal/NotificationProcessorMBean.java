@@ -0,0 +1,62 @@
+package com.adyen.examples.notifications.journal;
+
+/**
+ * Management interface of the {@link NotificationProcessor}, registered as
+ * com.adyen.examples:type=NotificationProcessor,name=&lt;name&gt;
+ *
+ * @author Created by Adyen - Payments Made Easy
+ */
+public interface NotificationProcessorMBean {
+
+	int getPartitionCount();
+
+	/**
+	 * Number of notifications waiting in all partition queues.
+	 */
+	int getQueueDepth();
+
+	int[] getPartitionQueueDepths();
+
+	/**
+	 * Number of notifications put in each partition that are not handled yet.
+	 */
+	long[] getPartitionLagRecords();
+
+	/**
+	 * Time in milliseconds the notification currently handled by each partition has been waiting.
+	 */
+	long[] getPartitionLagMillis();
+
+	/**
+	 * Number of journal bytes that are durable but not yet checkpointed as processed.
+	 */
+	long getJournalLagBytes();
+
+	long getProcessedCount();
+
+	/**
+	 * Number of notifications that kept failing and were written to the dead letter file.
+	 */
+	long getFailedCount();
+
+	/**
+	 * Number of times a failed notification was handled again.
+	 */
+	long getRetryCount();
+
+	/**
+	 * Number of notifications handled per second, measured over the last second.
+	 */
+	double getThroughput();
+
+	/**
+	 * Whether the processor follows the journal; false when it stopped or retries a failure.
+	 */
+	boolean isHealthy();
+
+	/**
+	 * The failure the processor is retrying, or null.
+	 */
+	String getFailure();
+
+}
@@ -0,0 +1,174 @@
+package com.adyen.examples.notifications.journal;
+
+/**
+ * State of a single payment, as known from its notifications (see {@link PaymentStateStore})
+ *
+ * The amounts are in minor units (e.g. EUR 1,00 = 100). The status is derived from the amounts and the flags:
+ *
+ * <pre>
+ * - PENDING            : no successful AUTHORISATION received yet (only modifications of the payment)
+ * - REFUSED            : the authorisation failed
+ * - AUTHORISED         : authorised, nothing captured yet
+ * - PARTIALLY_CAPTURED : part of the authorised amount is captured
+ * - CAPTURED           : the authorised amount is captured
+ * - PARTIALLY_REFUNDED : part of the captured amount is refunded
+ * - REFUNDED           : the captured amount is refunded
+ * - CANCELLED          : the authorisation is cancelled
+ * - CHARGED_BACK       : the shopper charged the payment back (and the chargeback was not reversed)
+ * </pre>
+ *
+ * @author Created by Adyen - Payments Made Easy
+ */
+public final class PaymentState {
+
+	public enum Status {
+		PENDING, REFUSED, AUTHORISED, PARTIALLY_CAPTURED, CAPTURED, PARTIALLY_REFUNDED, REFUNDED, CANCELLED,
+		CHARGED_BACK
+	}
+
+	/**
+	 * Flags of a payment
+	 * - AUTHORISED: a successful AUTHORISATION was received
+	 * - REFUSED: a failed AUTHORISATION was received
+	 * - CANCELLED: a successful CANCELLATION (or CANCEL_OR_REFUND of a payment that was not captured) was received
+	 * - CAPTURE_FAILED: a capture failed (CAPTURE_FAILED, or CAPTURE with success false)
+	 * - REFUND_FAILED: a REFUND with success false was received
+	 * - REFUND_REVERSED: a REFUNDED_REVERSED was received
+	 * - DISPUTED: a REQUEST_FOR_INFORMATION or NOTIFICATION_OF_CHARGEBACK was received
+	 * - CHARGED_BACK: a CHARGEBACK was received, and no CHARGEBACK_REVERSED after it
+	 * - CHARGEBACK_REVERSED: a CHARGEBACK_REVERSED was received
+	 */
+	public static final int AUTHORISED = 1;
+	public static final int REFUSED = 1 << 1;
+	public static final int CANCELLED = 1 << 2;
+	public static final int CAPTURE_FAILED = 1 << 3;
+	public static final int REFUND_FAILED = 1 << 4;
+	public static final int REFUND_REVERSED = 1 << 5;
+	public static final int DISPUTED = 1 << 6;
+	public static final int CHARGED_BACK = 1 << 7;
+	public static final int CHARGEBACK_REVERSED = 1 << 8;
+
+	private static final String[] FLAG_NAMES = {
+		"AUTHORISED", "REFUSED", "CANCELLED", "CAPTURE_FAILED", "REFUND_FAILED", "REFUND_REVERSED", "DISPUTED",
+		"CHARGED_BACK", "CHARGEBACK_REVERSED"
+	};
+
+	private final String pspReference;
+	private final String merchantReference;
+	private final String merchantAccount;
+	private final String currency;
+	private final long authorisedValue;
+	private final long capturedValue;
+	private final long refundedValue;
+	private final int flags;
+	private final String lastEventCode;
+	private final int notificationCount;
+
+	PaymentState(String pspReference, String merchantReference, String merchantAccount, String currency,
+			long authorisedValue, long capturedValue, long refundedValue, int flags, String lastEventCode,
+			int notificationCount) {
+		this.pspReference = pspReference;
+		this.merchantReference = merchantReference;
+		this.merchantAccount = merchantAccount;
+		this.currency = currency;
+		this.authorisedValue = authorisedValue;
+		this.capturedValue = capturedValue;
+		this.refundedValue = refundedValue;
+		this.flags = flags;
+		this.lastEventCode = lastEventCode;
+		this.notificationCount = notificationCount;
+	}
+
+	/**
+	 * The pspReference of the payment (the originalReference of its modifications).
+	 */
+	public String getPspReference() {
+		return pspReference;
+	}
+
+	public String getMerchantReference() {
+		return merchantReference;
+	}
+
+	public String getMerchantAccount() {
+		return merchantAccount;
+	}
+
+	public String getCurrency() {
+		return currency;
+	}
+
+	public long getAuthorisedValue() {
+		return authorisedValue;
+	}
+
+	public long getCapturedValue() {
+		return capturedValue;
+	}
+
+	public long getRefundedValue() {
+		return refundedValue;
+	}
+
+	public int getFlags() {
+		return flags;
+	}
+
+	public boolean hasFlag(int flag) {
+		return (flags & flag) != 0;
+	}
+
+	/**
+	 * Returns the names of the flags that are set, e.g. [AUTHORISED, DISPUTED].
+	 */
+	public String[] getFlagNames() {
+		String[] names = new String[Integer.bitCount(flags)];
+		int count = 0;
+		for (int i = 0; i < FLAG_NAMES.length; i++) {
+			if ((flags & (1 << i)) != 0) {
+				names[count++] = FLAG_NAMES[i];
+			}
+		}
+		return names;
+	}
+
+	/**
+	 * The eventCode of the last notification of the payment.
+	 */
+	public String getLastEventCode() {
+		return lastEventCode;
+	}
+
+	/**
+	 * Number of notifications of the payment, including failed ones.
+	 */
+	public int getNotificationCount() {
+		return notificationCount;
+	}
+
+	public Status getStatus() {
+		if (hasFlag(CHARGED_BACK)) {
+			return Status.CHARGED_BACK;
+		}
+		if (hasFlag(CANCELLED)) {
+			return Status.CANCELLED;
+		}
+		if (refundedValue > 0) {
+			return refundedValue >= capturedValue ? Status.REFUNDED : Status.PARTIALLY_REFUNDED;
+		}
+		if (capturedValue > 0) {
+			return capturedValue >= authorisedValue ? Status.CAPTURED : Status.PARTIALLY_CAPTURED;
+		}
+		if (hasFlag(AUTHORISED)) {
+			return Status.AUTHORISED;
+		}
+		return hasFlag(REFUSED) ? Status.REFUSED : Status.PENDING;
+	}
+
+	@Override
+	public String toString() {
+		return pspReference + " " + getStatus() + " " + currency + " authorised=" + authorisedValue + " captured="
+				+ capturedValue + " refunded=" + refundedValue;
+	}
+
+}
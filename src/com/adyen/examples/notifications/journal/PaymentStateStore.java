@@ -0,0 +1,588 @@
+package com.adyen.examples.notifications.journal;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.Collection;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+import org.json.simple.JSONObject;
+
+/**
+ * In-memory state of all payments, updated by their notifications
+ *
+ * Every payment is a record: an index into parallel arrays of references, amounts (authorised, captured and refunded,
+ * as primitive longs in minor units) and flags (see {@link PaymentState}). The records are found through two
+ * open-addressing hash tables (linear probing) of primitive ints, one on the pspReference and one on the
+ * merchantReference, so a lookup creates no objects except the returned {@link PaymentState}. The arrays and tables
+ * double in size when they are full; records are never removed.
+ *
+ * A modification (CAPTURE, REFUND, ...) is applied to the payment of its originalReference. When a merchantReference
+ * is used for several payments, it finds the payment with the most recent notification.
+ *
+ * Every notification is applied once: the store keeps the fingerprints of the notifications it applied (see
+ * {@link NotificationDeduplicator#fingerprint(JSONObject)}) with their journal position, and ignores a notification
+ * that is processed again after a restart, so amounts are never counted twice. Only the notifications after the last
+ * snapshot can be replayed, so the fingerprints of the notifications before it are dropped when a snapshot is stored:
+ * the fingerprints take 32 bytes per notification received since the last snapshot, not per notification ever
+ * received. Notifications that Adyen sends again are recognised by the {@link NotificationDeduplicator} of the
+ * notification server before they reach the journal.
+ *
+ * The store is updated by the notification servers for every processed notification. It is stored in a snapshot next
+ * to the journal now and then, and rebuilt after a restart from the snapshot and the notifications after it (see
+ * {@link NotificationProcessor#restore(NotificationProcessor.SnapshotHandler)}), so the journal before the snapshot
+ * can be deleted. Register the store (see {@link #register(String, PaymentStateStore)}) to make it available to the
+ * PaymentStatus servlet.
+ *
+ * @author Created by Adyen - Payments Made Easy
+ */
+public class PaymentStateStore implements NotificationProcessor.SnapshotHandler {
+
+	/**
+	 * Store settings
+	 * - DEFAULT_CAPACITY: number of payments the arrays are created for
+	 */
+	public static final int DEFAULT_CAPACITY = 1024;
+
+	private static final String SNAPSHOT_FILE = "payment-states.snapshot";
+	private static final int SNAPSHOT_MAGIC = 0x50535332;
+
+	private static final String[] EVENT_CODES = {
+		"AUTHORISATION", "CANCELLATION", "REFUND", "CANCEL_OR_REFUND", "CAPTURE", "REFUNDED_REVERSED", "CAPTURE_FAILED",
+		"REQUEST_FOR_INFORMATION", "NOTIFICATION_OF_CHARGEBACK", "CHARGEBACK", "CHARGEBACK_REVERSED"
+	};
+	private static final int AUTHORISATION = 0;
+
+	private static final Map<String, PaymentStateStore> stores = new ConcurrentHashMap<String, PaymentStateStore>();
+
+	private final ReadWriteLock lock = new ReentrantReadWriteLock();
+
+	// Guarded by lock
+	private int size;
+	private String[] pspReferences;
+	private String[] merchantReferences;
+	private String[] merchantAccounts;
+	private String[] currencies;
+	private long[] authorisedValues;
+	private long[] capturedValues;
+	private long[] refundedValues;
+	private int[] flags;
+	private byte[] lastEvents;
+	private int[] notificationCounts;
+
+	// Fingerprints of the applied notifications and their journal positions, open addressing (0 is an empty slot)
+	private long[] applied = new long[1024];
+	private long[] appliedPositions = new long[1024];
+	private int appliedSize;
+
+	// Hash tables of record index + 1 (0 is an empty slot)
+	private int[] pspReferenceTable;
+	private int[] merchantReferenceTable;
+
+	public PaymentStateStore() {
+		this(DEFAULT_CAPACITY);
+	}
+
+	public PaymentStateStore(int capacity) {
+		allocate(Math.max(16, capacity));
+	}
+
+	/**
+	 * Makes a store available to the PaymentStatus servlet under the given name (e.g. the notification server it
+	 * belongs to), replacing a store registered before under the same name.
+	 */
+	public static void register(String name, PaymentStateStore store) {
+		stores.put(name, store);
+	}
+
+	public static void unregister(String name, PaymentStateStore store) {
+		stores.remove(name, store);
+	}
+
+	/**
+	 * Returns all registered stores.
+	 */
+	public static Collection<PaymentStateStore> getStores() {
+		return stores.values();
+	}
+
+	/**
+	 * Applies a notification to the state of its payment; the position is the journal position right after it.
+	 * Notifications with other event codes (e.g. REPORT_AVAILABLE) are ignored.
+	 */
+	@Override
+	public void handle(JSONObject notification, long position) {
+		int event = eventOf(notification.get("eventCode"));
+		String pspReference = NotificationFields.string(notification, "originalReference");
+		if (pspReference == null) {
+			pspReference = NotificationFields.string(notification, "pspReference");
+		}
+		if (event < 0 || pspReference == null) {
+			return;
+		}
+
+		boolean success = "true".equals(String.valueOf(notification.get("success")));
+		String merchantReference = NotificationFields.string(notification, "merchantReference");
+		String merchantAccount = NotificationFields.string(notification, "merchantAccountCode");
+		long value = NotificationFields.value(notification);
+		long fingerprint = NotificationDeduplicator.fingerprint(notification);
+
+		lock.writeLock().lock();
+		try {
+			if (!addApplied(fingerprint, position)) {
+				// Applied before
+				return;
+			}
+
+			int record = find(pspReferenceTable, pspReferences, pspReference);
+			if (record < 0) {
+				record = add(pspReference);
+			}
+			if (merchantReference != null && (merchantReferences[record] == null || event == AUTHORISATION)) {
+				// Keep the merchantReference of the payment; a modification may carry a reference of its own
+				merchantReferences[record] = merchantReference;
+				put(merchantReferenceTable, merchantReferences, merchantReference, record);
+			}
+			if (merchantAccount != null && merchantAccounts[record] == null) {
+				merchantAccounts[record] = merchantAccount;
+			}
+			if (currencies[record] == null) {
+				currencies[record] = NotificationFields.currency(notification);
+			}
+
+			apply(record, event, success, value);
+			lastEvents[record] = (byte) event;
+			notificationCounts[record]++;
+		} finally {
+			lock.writeLock().unlock();
+		}
+	}
+
+	/**
+	 * Returns the state of the payment with the given pspReference, or null if no notification of the payment was
+	 * received.
+	 */
+	public PaymentState getByPspReference(String pspReference) {
+		lock.readLock().lock();
+		try {
+			return state(find(pspReferenceTable, pspReferences, pspReference));
+		} finally {
+			lock.readLock().unlock();
+		}
+	}
+
+	/**
+	 * Returns the state of the last payment with the given merchantReference, or null if there is none.
+	 */
+	public PaymentState getByMerchantReference(String merchantReference) {
+		lock.readLock().lock();
+		try {
+			return state(find(merchantReferenceTable, merchantReferences, merchantReference));
+		} finally {
+			lock.readLock().unlock();
+		}
+	}
+
+	/**
+	 * Number of payments in the store.
+	 */
+	public int getSize() {
+		lock.readLock().lock();
+		try {
+			return size;
+		} finally {
+			lock.readLock().unlock();
+		}
+	}
+
+	/**
+	 * Loads the snapshot from the given (journal) directory and returns the journal position it was stored at, or -1
+	 * if there is no snapshot.
+	 */
+	@Override
+	public long loadSnapshot(File directory) throws IOException {
+		File file = new File(directory, SNAPSHOT_FILE);
+		if (!file.exists()) {
+			return -1;
+		}
+
+		try (DataInputStream in = new DataInputStream(new BufferedInputStream(new FileInputStream(file), 65536))) {
+			if (in.readInt() != SNAPSHOT_MAGIC) {
+				throw new IOException(file + " is not a payment state snapshot");
+			}
+			long position = in.readLong();
+			int count = in.readInt();
+			int appliedCount = in.readInt();
+
+			lock.writeLock().lock();
+			try {
+				allocate(Math.max(16, count));
+				size = 0;
+				for (int i = 0; i < count; i++) {
+					int record = add(in.readUTF());
+					merchantReferences[record] = readString(in);
+					merchantAccounts[record] = readString(in);
+					currencies[record] = readString(in);
+					authorisedValues[record] = in.readLong();
+					capturedValues[record] = in.readLong();
+					refundedValues[record] = in.readLong();
+					flags[record] = in.readInt();
+					lastEvents[record] = in.readByte();
+					notificationCounts[record] = in.readInt();
+					if (merchantReferences[record] != null) {
+						put(merchantReferenceTable, merchantReferences, merchantReferences[record], record);
+					}
+				}
+
+				allocateApplied(appliedCount);
+				for (int i = 0; i < appliedCount; i++) {
+					addApplied(in.readLong(), in.readLong());
+				}
+			} finally {
+				lock.writeLock().unlock();
+			}
+			return position;
+		}
+	}
+
+	/**
+	 * Stores the store in a snapshot in the given (journal) directory, together with the journal position from which
+	 * the notifications have to be replayed onto it. The snapshot is written to a temporary file first, which then
+	 * replaces the previous snapshot, so a crash never leaves a partial snapshot. Only the fingerprints of the
+	 * notifications after the position are stored, and the others are dropped once the snapshot is in place.
+	 *
+	 * <pre>
+	 * magic (int), journal position (long), number of payments (int), number of fingerprints (int),
+	 * per payment: pspReference, merchantReference, merchantAccount, currency (modified UTF-8), authorised, captured,
+	 * refunded value (long), flags (int), last event (byte), number of notifications (int),
+	 * per fingerprint: fingerprint, journal position (long)
+	 * </pre>
+	 */
+	@Override
+	public void storeSnapshot(File directory, long position) throws IOException {
+		File file = new File(directory, SNAPSHOT_FILE);
+		File temporary = new File(file.getPath() + ".tmp");
+
+		lock.readLock().lock();
+		try (FileOutputStream stream = new FileOutputStream(temporary)) {
+			int appliedCount = 0;
+			for (int slot = 0; slot < applied.length; slot++) {
+				if (applied[slot] != 0 && appliedPositions[slot] > position) {
+					appliedCount++;
+				}
+			}
+
+			DataOutputStream out = new DataOutputStream(new BufferedOutputStream(stream, 65536));
+			out.writeInt(SNAPSHOT_MAGIC);
+			out.writeLong(position);
+			out.writeInt(size);
+			out.writeInt(appliedCount);
+			for (int record = 0; record < size; record++) {
+				out.writeUTF(pspReferences[record]);
+				writeString(out, merchantReferences[record]);
+				writeString(out, merchantAccounts[record]);
+				writeString(out, currencies[record]);
+				out.writeLong(authorisedValues[record]);
+				out.writeLong(capturedValues[record]);
+				out.writeLong(refundedValues[record]);
+				out.writeInt(flags[record]);
+				out.writeByte(lastEvents[record]);
+				out.writeInt(notificationCounts[record]);
+			}
+			for (int slot = 0; slot < applied.length; slot++) {
+				if (applied[slot] != 0 && appliedPositions[slot] > position) {
+					out.writeLong(applied[slot]);
+					out.writeLong(appliedPositions[slot]);
+				}
+			}
+			out.flush();
+			stream.getFD().sync();
+		} finally {
+			lock.readLock().unlock();
+		}
+
+		Files.move(temporary.toPath(), file.toPath(), StandardCopyOption.REPLACE_EXISTING,
+				StandardCopyOption.ATOMIC_MOVE);
+
+		// The notifications before the snapshot are not replayed any more
+		lock.writeLock().lock();
+		try {
+			dropApplied(position);
+		} finally {
+			lock.writeLock().unlock();
+		}
+	}
+
+	private void apply(int record, int event, boolean success, long value) {
+		switch (EVENT_CODES[event]) {
+			case "AUTHORISATION":
+				if (success) {
+					authorisedValues[record] = value;
+					flags[record] = (flags[record] | PaymentState.AUTHORISED) & ~PaymentState.REFUSED;
+				} else if ((flags[record] & PaymentState.AUTHORISED) == 0) {
+					flags[record] |= PaymentState.REFUSED;
+				}
+				break;
+
+			case "CAPTURE":
+				if (success) {
+					capturedValues[record] += value;
+				} else {
+					flags[record] |= PaymentState.CAPTURE_FAILED;
+				}
+				break;
+
+			case "CAPTURE_FAILED":
+				// Sent after a successful CAPTURE, when the capture failed at the acquirer
+				capturedValues[record] -= value;
+				flags[record] |= PaymentState.CAPTURE_FAILED;
+				break;
+
+			case "REFUND":
+				if (success) {
+					refundedValues[record] += value;
+				} else {
+					flags[record] |= PaymentState.REFUND_FAILED;
+				}
+				break;
+
+			case "REFUNDED_REVERSED":
+				refundedValues[record] -= value;
+				flags[record] |= PaymentState.REFUND_REVERSED;
+				break;
+
+			case "CANCELLATION":
+				if (success) {
+					flags[record] |= PaymentState.CANCELLED;
+				}
+				break;
+
+			case "CANCEL_OR_REFUND":
+				// Adyen refunds the payment when it is captured, and cancels it otherwise
+				if (success) {
+					if (capturedValues[record] > 0) {
+						refundedValues[record] += value > 0 ? value : capturedValues[record] - refundedValues[record];
+					} else {
+						flags[record] |= PaymentState.CANCELLED;
+					}
+				}
+				break;
+
+			case "REQUEST_FOR_INFORMATION":
+			case "NOTIFICATION_OF_CHARGEBACK":
+				flags[record] |= PaymentState.DISPUTED;
+				break;
+
+			case "CHARGEBACK":
+				flags[record] |= PaymentState.CHARGED_BACK;
+				break;
+
+			case "CHARGEBACK_REVERSED":
+				flags[record] = (flags[record] | PaymentState.CHARGEBACK_REVERSED) & ~PaymentState.CHARGED_BACK;
+				break;
+		}
+	}
+
+	private PaymentState state(int record) {
+		if (record < 0) {
+			return null;
+		}
+		return new PaymentState(pspReferences[record], merchantReferences[record], merchantAccounts[record],
+				currencies[record], authorisedValues[record], capturedValues[record], refundedValues[record],
+				flags[record], EVENT_CODES[lastEvents[record]], notificationCounts[record]);
+	}
+
+	private int add(String pspReference) {
+		if (size == pspReferences.length) {
+			grow();
+		}
+		int record = size++;
+		pspReferences[record] = pspReference;
+		put(pspReferenceTable, pspReferences, pspReference, record);
+		return record;
+	}
+
+	/**
+	 * Returns the record of a key, or -1 if the key is not in the table.
+	 */
+	private static int find(int[] table, String[] keys, String key) {
+		if (key == null) {
+			return -1;
+		}
+		int mask = table.length - 1;
+		int slot = hash(key) & mask;
+		int entry;
+		while ((entry = table[slot]) != 0) {
+			if (key.equals(keys[entry - 1])) {
+				return entry - 1;
+			}
+			slot = (slot + 1) & mask;
+		}
+		return -1;
+	}
+
+	/**
+	 * Points the slot of a key to the given record, replacing the record the key pointed to before.
+	 */
+	private static void put(int[] table, String[] keys, String key, int record) {
+		int mask = table.length - 1;
+		int slot = hash(key) & mask;
+		int entry;
+		while ((entry = table[slot]) != 0 && !key.equals(keys[entry - 1])) {
+			slot = (slot + 1) & mask;
+		}
+		table[slot] = record + 1;
+	}
+
+	private static int hash(String key) {
+		// Spread the bits of String.hashCode, as the low bits select the slot
+		int hash = key.hashCode() * 0x9e3779b9;
+		return hash ^ (hash >>> 16);
+	}
+
+	private void allocate(int capacity) {
+		pspReferences = new String[capacity];
+		merchantReferences = new String[capacity];
+		merchantAccounts = new String[capacity];
+		currencies = new String[capacity];
+		authorisedValues = new long[capacity];
+		capturedValues = new long[capacity];
+		refundedValues = new long[capacity];
+		flags = new int[capacity];
+		lastEvents = new byte[capacity];
+		notificationCounts = new int[capacity];
+
+		// Keep the tables at most half full, so the probe sequences stay short
+		int tableSize = Integer.highestOneBit(capacity - 1) << 2;
+		pspReferenceTable = new int[tableSize];
+		merchantReferenceTable = new int[tableSize];
+	}
+
+	private void grow() {
+		String[] oldPspReferences = pspReferences;
+		String[] oldMerchantReferences = merchantReferences;
+		String[] oldMerchantAccounts = merchantAccounts;
+		String[] oldCurrencies = currencies;
+		long[] oldAuthorisedValues = authorisedValues;
+		long[] oldCapturedValues = capturedValues;
+		long[] oldRefundedValues = refundedValues;
+		int[] oldFlags = flags;
+		byte[] oldLastEvents = lastEvents;
+		int[] oldNotificationCounts = notificationCounts;
+
+		allocate(size * 2);
+		System.arraycopy(oldPspReferences, 0, pspReferences, 0, size);
+		System.arraycopy(oldMerchantReferences, 0, merchantReferences, 0, size);
+		System.arraycopy(oldMerchantAccounts, 0, merchantAccounts, 0, size);
+		System.arraycopy(oldCurrencies, 0, currencies, 0, size);
+		System.arraycopy(oldAuthorisedValues, 0, authorisedValues, 0, size);
+		System.arraycopy(oldCapturedValues, 0, capturedValues, 0, size);
+		System.arraycopy(oldRefundedValues, 0, refundedValues, 0, size);
+		System.arraycopy(oldFlags, 0, flags, 0, size);
+		System.arraycopy(oldLastEvents, 0, lastEvents, 0, size);
+		System.arraycopy(oldNotificationCounts, 0, notificationCounts, 0, size);
+
+		// Rehash in record order, so a merchantReference ends up at its most recent payment again
+		for (int record = 0; record < size; record++) {
+			put(pspReferenceTable, pspReferences, pspReferences[record], record);
+			if (merchantReferences[record] != null) {
+				put(merchantReferenceTable, merchantReferences, merchantReferences[record], record);
+			}
+		}
+	}
+
+	/**
+	 * Adds the fingerprint of a notification to the applied notifications; returns false if it was applied before.
+	 */
+	private boolean addApplied(long fingerprint, long position) {
+		// Keep the table at most half full, so the probe sequences stay short
+		if ((appliedSize + 1) * 2 > applied.length) {
+			rehashApplied(applied.length * 2, Long.MIN_VALUE);
+		}
+
+		int mask = applied.length - 1;
+		int slot = (int) (fingerprint ^ (fingerprint >>> 32)) & mask;
+		long entry;
+		while ((entry = applied[slot]) != 0) {
+			if (entry == fingerprint) {
+				return false;
+			}
+			slot = (slot + 1) & mask;
+		}
+		applied[slot] = fingerprint;
+		appliedPositions[slot] = position;
+		appliedSize++;
+		return true;
+	}
+
+	/**
+	 * Drops the fingerprints of the notifications up to the given journal position, and shrinks the table to the
+	 * fingerprints that are left.
+	 */
+	private void dropApplied(long position) {
+		int left = 0;
+		for (int slot = 0; slot < applied.length; slot++) {
+			if (applied[slot] != 0 && appliedPositions[slot] > position) {
+				left++;
+			}
+		}
+		rehashApplied(tableSize(left), position);
+	}
+
+	private void rehashApplied(int tableSize, long dropUpTo) {
+		long[] oldApplied = applied;
+		long[] oldPositions = appliedPositions;
+		applied = new long[tableSize];
+		appliedPositions = new long[tableSize];
+		appliedSize = 0;
+		for (int slot = 0; slot < oldApplied.length; slot++) {
+			if (oldApplied[slot] != 0 && oldPositions[slot] > dropUpTo) {
+				addApplied(oldApplied[slot], oldPositions[slot]);
+			}
+		}
+	}
+
+	private void allocateApplied(int count) {
+		applied = new long[tableSize(count)];
+		appliedPositions = new long[applied.length];
+		appliedSize = 0;
+	}
+
+	/**
+	 * Returns the size of a table for the given number of fingerprints, at most half full.
+	 */
+	private static int tableSize(int count) {
+		return Integer.highestOneBit(Math.max(512, count) - 1) << 2;
+	}
+
+	private static void writeString(DataOutputStream out, String value) throws IOException {
+		out.writeBoolean(value != null);
+		if (value != null) {
+			out.writeUTF(value);
+		}
+	}
+
+	private static String readString(DataInputStream in) throws IOException {
+		return in.readBoolean() ? in.readUTF() : null;
+	}
+
+	private static int eventOf(Object eventCode) {
+		for (int i = 0; i < EVENT_CODES.length; i++) {
+			if (EVENT_CODES[i].equals(eventCode)) {
+				return i;
+			}
+		}
+		return -1;
+	}
+
+}
@@ -0,0 +1,63 @@
+package com.adyen.examples.notifications.journal;
+
+import org.json.simple.JSONObject;
+
+import com.adyen.examples.common.RecurringDetailCache;
+
+/**
+ * Drops cached recurring details (see {@link RecurringDetailCache}) when a notification tells that details of a
+ * shopper were stored
+ *
+ * <pre>
+ * - RECURRING_CONTRACT : details were stored; the shopper is in additionalData (shopperReference).
+ * - AUTHORISATION      : a payment stored or used details when additionalData contains recurring.shopperReference.
+ * </pre>
+ *
+ * The additionalData fields have to be enabled for the notifications: Adyen CA >> Settings >> Server Communication
+ * (Recurring details). When a RECURRING_CONTRACT notification does not tell the shopper, the details of all shoppers
+ * of the merchant account are dropped. Only successful notifications are handled.
+ *
+ * @author Created by Adyen - Payments Made Easy
+ */
+public class RecurringDetailInvalidator implements NotificationHandler {
+
+	@Override
+	public void handle(JSONObject notification) {
+		if (!"true".equals(String.valueOf(notification.get("success")))) {
+			return;
+		}
+
+		Object eventCode = notification.get("eventCode");
+		String merchantAccount = String.valueOf(notification.get("merchantAccountCode"));
+		String shopperReference = additionalData(notification, "recurring.shopperReference");
+
+		if ("RECURRING_CONTRACT".equals(eventCode)) {
+			if (shopperReference == null) {
+				shopperReference = additionalData(notification, "shopperReference");
+			}
+			if (shopperReference != null) {
+				RecurringDetailCache.invalidateShopper(merchantAccount, shopperReference);
+			} else {
+				RecurringDetailCache.invalidateMerchantAccount(merchantAccount);
+			}
+		} else if ("AUTHORISATION".equals(eventCode) && shopperReference != null) {
+			RecurringDetailCache.invalidateShopper(merchantAccount, shopperReference);
+		}
+	}
+
+	/**
+	 * Returns an additionalData field: an object within JSON notifications, and request parameters with the prefix
+	 * additionalData. for HTTP POST notifications.
+	 */
+	private static String additionalData(JSONObject notification, String name) {
+		Object value;
+		Object additionalData = notification.get("additionalData");
+		if (additionalData instanceof JSONObject) {
+			value = ((JSONObject) additionalData).get(name);
+		} else {
+			value = notification.get("additionalData." + name);
+		}
+		return value != null && !value.toString().isEmpty() ? value.toString() : null;
+	}
+
+}
@@ -0,0 +1,244 @@
+package com.adyen.examples.notifications.report;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.charset.Charset;
+import java.util.Arrays;
+
+/**
+ * Zero-copy CSV tokenizer over a (memory-mapped) buffer
+ *
+ * The tokenizer reads a line at a time and only records where the fields start and end in the buffer; nothing is
+ * copied and no objects are created per line. A field is only turned into a String or a number when it is asked for,
+ * so the columns that are not needed cost nothing but the scan.
+ *
+ * Fields are separated by commas and may be quoted ("Adyen, Inc."), with doubled quotes inside quoted fields. Lines
+ * end with LF or CRLF; empty lines are skipped. Line breaks inside quoted fields are not supported, as the file is
+ * divided over threads at line breaks (see {@link SettlementReportProcessor}).
+ *
+ * A tokenizer is not thread-safe; every thread uses its own tokenizer over its own part of the file.
+ *
+ * @author Created by Adyen - Payments Made Easy
+ */
+final class CsvTokenizer {
+
+	private static final Charset UTF8 = Charset.forName("UTF-8");
+
+	private final ByteBuffer buffer;
+	private final int limit;
+	private final int end;
+	private final boolean endOfFile;
+
+	private int position;
+	private int count;
+	private int[] starts = new int[32];
+	private int[] ends = new int[32];
+	private boolean[] escaped = new boolean[32];
+
+	/**
+	 * Creates a tokenizer for the lines that start before limit. A line that starts before limit is read to its end,
+	 * which must be within the buffer (end), unless the buffer ends at the end of the file.
+	 */
+	CsvTokenizer(ByteBuffer buffer, int position, int limit, boolean endOfFile) {
+		this.buffer = buffer;
+		this.position = position;
+		this.limit = limit;
+		this.end = buffer.limit();
+		this.endOfFile = endOfFile;
+	}
+
+	/**
+	 * Reads the next line, and returns false if there are no more lines.
+	 */
+	boolean next() throws IOException {
+		while (position < limit) {
+			count = 0;
+			int i = position;
+
+			while (true) {
+				int start = i;
+				boolean quotes = false;
+
+				if (i < end && buffer.get(i) == '"') {
+					start = ++i;
+					while (true) {
+						if (i >= end) {
+							throw new IOException("Unterminated quoted field at " + start);
+						}
+						if (buffer.get(i) == '"') {
+							if (i + 1 < end && buffer.get(i + 1) == '"') {
+								quotes = true;
+								i += 2;
+								continue;
+							}
+							break;
+						}
+						i++;
+					}
+					add(start, i, quotes);
+
+					// Skip the closing quote, and anything up to the next separator
+					i++;
+					while (i < end && !isSeparator(buffer.get(i))) {
+						i++;
+					}
+				} else {
+					while (i < end && !isSeparator(buffer.get(i))) {
+						i++;
+					}
+					add(start, i, false);
+				}
+
+				if (i >= end) {
+					if (!endOfFile) {
+						throw new IOException("Line at " + position + " is longer than the part of the file mapped");
+					}
+					break;
+				}
+
+				byte b = buffer.get(i++);
+				if (b == ',') {
+					continue;
+				}
+				if (b == '\r' && i < end && buffer.get(i) == '\n') {
+					i++;
+				}
+				break;
+			}
+
+			position = i;
+			if (count > 1 || ends[0] > starts[0]) {
+				return true;
+			}
+		}
+		return false;
+	}
+
+	/**
+	 * Position after the current line.
+	 */
+	int getPosition() {
+		return position;
+	}
+
+	int getFieldCount() {
+		return count;
+	}
+
+	boolean isEmpty(int field) {
+		return field < 0 || field >= count || ends[field] == starts[field];
+	}
+
+	/**
+	 * Returns whether a field equals the given ASCII value, without creating a String.
+	 */
+	boolean equals(int field, byte[] value) {
+		if (field < 0 || field >= count || ends[field] - starts[field] != value.length) {
+			return false;
+		}
+		int start = starts[field];
+		for (int i = 0; i < value.length; i++) {
+			if (buffer.get(start + i) != value[i]) {
+				return false;
+			}
+		}
+		return true;
+	}
+
+	/**
+	 * Returns the first bytes of a field packed into an int, e.g. to recognise a currency code without a String.
+	 */
+	int prefix(int field, int length) {
+		if (field < 0 || field >= count) {
+			return 0;
+		}
+		int key = 0;
+		int stop = Math.min(starts[field] + length, ends[field]);
+		for (int i = starts[field]; i < stop; i++) {
+			key = (key << 8) | (buffer.get(i) & 0xff);
+		}
+		return key;
+	}
+
+	/**
+	 * Returns a hash (FNV-1a) of the bytes of a field without creating a String, or 0 if the field is empty.
+	 */
+	int hash(int field) {
+		if (isEmpty(field)) {
+			return 0;
+		}
+		int hash = 0x811c9dc5;
+		for (int i = starts[field]; i < ends[field]; i++) {
+			hash = (hash ^ (buffer.get(i) & 0xff)) * 0x01000193;
+		}
+		return hash;
+	}
+
+	/**
+	 * Returns a field as a String, or null if it is empty.
+	 */
+	String toString(int field) {
+		if (isEmpty(field)) {
+			return null;
+		}
+		byte[] bytes = new byte[ends[field] - starts[field]];
+		for (int i = 0; i < bytes.length; i++) {
+			bytes[i] = buffer.get(starts[field] + i);
+		}
+		String value = new String(bytes, UTF8);
+		return escaped[field] ? value.replace("\"\"", "\"") : value;
+	}
+
+	/**
+	 * Parses a decimal field (e.g. 1234.5 or -0.07) into a long with the given number of decimals, e.g. 123450 for
+	 * 2 decimals. Decimals beyond the scale are cut off; an empty field is 0.
+	 */
+	long toDecimal(int field, int scale) {
+		if (isEmpty(field)) {
+			return 0;
+		}
+
+		long value = 0;
+		int decimals = -1;
+		boolean negative = false;
+		for (int i = starts[field]; i < ends[field]; i++) {
+			byte b = buffer.get(i);
+			if (b >= '0' && b <= '9') {
+				if (decimals < 0) {
+					value = value * 10 + (b - '0');
+				} else if (decimals < scale) {
+					value = value * 10 + (b - '0');
+					decimals++;
+				}
+			} else if (b == '.' && decimals < 0) {
+				decimals = 0;
+			} else if (b == '-' && i == starts[field]) {
+				negative = true;
+			} else if (b != ' ' && b != '+') {
+				throw new NumberFormatException("Not a decimal: " + toString(field));
+			}
+		}
+
+		for (int i = Math.max(decimals, 0); i < scale; i++) {
+			value *= 10;
+		}
+		return negative ? -value : value;
+	}
+
+	private void add(int start, int stop, boolean quotes) {
+		if (count == starts.length) {
+			starts = Arrays.copyOf(starts, count * 2);
+			ends = Arrays.copyOf(ends, count * 2);
+			escaped = Arrays.copyOf(escaped, count * 2);
+		}
+		starts[count] = start;
+		ends[count] = stop;
+		escaped[count] = quotes;
+		count++;
+	}
+
+	private static boolean isSeparator(byte b) {
+		return b == ',' || b == '\n' || b == '\r';
+	}
+
+}
@@ -0,0 +1,321 @@
+package com.adyen.examples.notifications.report;
+
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.Charset;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.function.Function;
+
+import com.adyen.examples.common.Csv;
+import com.adyen.examples.notifications.journal.PaymentState;
+
+/**
+ * Reconciles a settlement details report with the payments known from the notifications
+ *
+ * The report is read by a {@link SettlementReportProcessor}, and every thread adds the rows it reads to a worker of
+ * its own: the settled, refunded and charged back amounts per pspReference, and the totals per currency. The workers
+ * are then merged and every payment is compared with its state (see {@link PaymentState}):
+ *
+ * <pre>
+ * - UNKNOWN_PAYMENT    : the payment is in the report, but no notification of it was received
+ * - CURRENCY           : the report has another currency than the payment
+ * - SETTLED_AMOUNT     : more is settled than was captured
+ * - REFUNDED_AMOUNT    : more is refunded than the REFUND notifications tell
+ * - CHARGEBACK_UNKNOWN : the payment is charged back, but no CHARGEBACK notification was received
+ * </pre>
+ *
+ * The amounts of a payment are summed over all its rows, so they are kept in memory until the report is read. To
+ * keep that memory bounded, a report larger than PASS_BYTES is read in several passes: every pass only sums the
+ * payments whose pspReference falls in its group (by a hash of the pspReference, computed without creating a String),
+ * and compares them before the next pass starts. The mapped report stays in the page cache between the passes.
+ *
+ * A report covers a single day, so a payment that is captured but not (fully) settled yet is not a mismatch. The
+ * mismatches are written to a CSV file, e.g. for a person to look into:
+ *
+ * <pre>
+ * pspReference,merchantAccount,currency,reason,reportValue,knownValue
+ * </pre>
+ *
+ * @author Created by Adyen - Payments Made Easy
+ */
+public class Reconciliation {
+
+	/**
+	 * Reconciliation settings
+	 * - PASS_BYTES: size of the part of a report whose payments are kept in memory at once; a larger report is read
+	 *   in several passes
+	 */
+	private static final long PASS_BYTES = 64 * 1024 * 1024;
+
+	private static final Charset UTF8 = Charset.forName("UTF-8");
+
+	// Amounts per payment: settled, refunded, charged back
+	private static final int SETTLED = 0;
+	private static final int REFUNDED = 1;
+	private static final int CHARGED_BACK = 2;
+
+	// Totals per currency: gross credit, gross debit, net credit, net debit, fees
+	private static final int TOTALS = 5;
+
+	private final Function<String, PaymentState> payments;
+	private final File mismatchFile;
+
+	/**
+	 * @param payments returns the state of a payment by its pspReference, or null if it is unknown, e.g.
+	 *        {@link com.adyen.examples.notifications.journal.PaymentStateStore#getByPspReference(String)}
+	 * @param mismatchFile the CSV file the mismatches are written to
+	 */
+	public Reconciliation(Function<String, PaymentState> payments, File mismatchFile) {
+		this.payments = payments;
+		this.mismatchFile = mismatchFile;
+	}
+
+	/**
+	 * Reads the report with the given processor, compares the payments with their state and writes the mismatches.
+	 */
+	public ReconciliationResult reconcile(SettlementReportProcessor processor, File report) throws IOException {
+		int passes = (int) Math.max(1, (report.length() + PASS_BYTES - 1) / PASS_BYTES);
+		Map<String, long[]> totals = new TreeMap<String, long[]>();
+		long[] rowCounts = new long[SettlementRow.Type.values().length];
+		long[] counts = new long[3];
+
+		// Written to a temporary file first, so a mismatch file is always complete
+		File tmp = new File(mismatchFile.getPath() + ".tmp");
+		Writer writer = new OutputStreamWriter(new FileOutputStream(tmp), UTF8);
+		try (Writer out = new BufferedWriter(writer, 65536)) {
+			out.write("pspReference,merchantAccount,currency,reason,reportValue,knownValue\n");
+
+			for (int pass = 0; pass < passes; pass++) {
+				final int group = pass;
+				final List<Worker> workers = new ArrayList<Worker>();
+				processor.process(report, () -> {
+					Worker worker = new Worker(group, passes);
+					synchronized (workers) {
+						workers.add(worker);
+					}
+					return worker;
+				});
+
+				if (pass == 0) {
+					// Rows and totals are counted in the first pass only
+					merge(workers, totals, rowCounts);
+				}
+				compare(workers, out, counts);
+			}
+		}
+		Files.move(tmp.toPath(), mismatchFile.toPath(), StandardCopyOption.REPLACE_EXISTING,
+				StandardCopyOption.ATOMIC_MOVE);
+
+		return new ReconciliationResult(rowCounts, counts[0], counts[1], counts[2], totals, mismatchFile);
+	}
+
+	private static void merge(List<Worker> workers, Map<String, long[]> totals, long[] rowCounts) {
+		for (Worker worker : workers) {
+			for (Map.Entry<String, long[]> entry : worker.totals.entrySet()) {
+				long[] total = totals.get(entry.getKey());
+				if (total == null) {
+					totals.put(entry.getKey(), entry.getValue());
+				} else {
+					for (int i = 0; i < TOTALS; i++) {
+						total[i] += entry.getValue()[i];
+					}
+				}
+			}
+			for (int i = 0; i < rowCounts.length; i++) {
+				rowCounts[i] += worker.rowCounts[i];
+			}
+		}
+	}
+
+	/**
+	 * Merges the payments of the workers of a pass, compares them with their state and writes the mismatches. Adds
+	 * the number of payments, matched and mismatched payments to counts.
+	 */
+	private void compare(List<Worker> workers, Writer out, long[] counts) throws IOException {
+		Map<String, Payment> merged = workers.size() == 1 ? workers.get(0).payments : new HashMap<String, Payment>();
+		if (workers.size() > 1) {
+			for (Worker worker : workers) {
+				for (Map.Entry<String, Payment> entry : worker.payments.entrySet()) {
+					Payment payment = merged.get(entry.getKey());
+					if (payment == null) {
+						merged.put(entry.getKey(), entry.getValue());
+					} else {
+						payment.add(entry.getValue());
+					}
+				}
+				// Not needed any more, so the memory of this pass can be reclaimed while it is compared
+				worker.payments.clear();
+			}
+		}
+
+		StringBuilder line = new StringBuilder(128);
+		for (Map.Entry<String, Payment> entry : merged.entrySet()) {
+			String pspReference = entry.getKey();
+			Payment payment = entry.getValue();
+			PaymentState state = payments.apply(pspReference);
+
+			int before = line.length();
+			if (state == null) {
+				mismatch(line, pspReference, payment, "UNKNOWN_PAYMENT", payment.amounts[SETTLED], 0);
+			} else if (state.getCurrency() != null && !state.getCurrency().equals(payment.currency)) {
+				mismatch(line, pspReference, payment, "CURRENCY", 0, 0);
+			} else {
+				if (payment.amounts[SETTLED] > state.getCapturedValue()) {
+					mismatch(line, pspReference, payment, "SETTLED_AMOUNT", payment.amounts[SETTLED], state
+							.getCapturedValue());
+				}
+				if (payment.amounts[REFUNDED] > state.getRefundedValue()) {
+					mismatch(line, pspReference, payment, "REFUNDED_AMOUNT", payment.amounts[REFUNDED], state
+							.getRefundedValue());
+				}
+				if (payment.amounts[CHARGED_BACK] > 0 && !state.hasFlag(PaymentState.CHARGED_BACK)) {
+					mismatch(line, pspReference, payment, "CHARGEBACK_UNKNOWN", payment.amounts[CHARGED_BACK],
+							0);
+				}
+			}
+
+			counts[0]++;
+			if (line.length() > before) {
+				counts[2]++;
+			} else {
+				counts[1]++;
+			}
+			if (line.length() >= 32768) {
+				out.append(line);
+				line.setLength(0);
+			}
+		}
+		out.append(line);
+	}
+
+	private static void mismatch(StringBuilder line, String pspReference, Payment payment, String reason,
+			long reportValue, long knownValue) {
+		Csv.append(line, pspReference);
+		Csv.append(line.append(','), payment.merchantAccount);
+		Csv.append(line.append(','), payment.currency);
+		line.append(',').append(reason).append(',').append(reportValue).append(',').append(knownValue).append('\n');
+	}
+
+	/**
+	 * Amounts of a single payment in the report.
+	 */
+	private static final class Payment {
+
+		final String merchantAccount;
+		final String currency;
+		final long[] amounts = new long[3];
+
+		Payment(String merchantAccount, String currency) {
+			this.merchantAccount = merchantAccount;
+			this.currency = currency;
+		}
+
+		void add(Payment other) {
+			for (int i = 0; i < amounts.length; i++) {
+				amounts[i] += other.amounts[i];
+			}
+		}
+
+	}
+
+	/**
+	 * Adds the rows read by one thread in one pass; only the rows of the payments (settled, refunded, charged back) in
+	 * the group of the pass create objects.
+	 */
+	private static final class Worker implements SettlementHandler {
+
+		final int group;
+		final int groups;
+		final Map<String, Payment> payments = new HashMap<String, Payment>();
+		final Map<String, long[]> totals = new HashMap<String, long[]>();
+		final long[] rowCounts = new long[SettlementRow.Type.values().length];
+
+		// Totals of the last currency seen, as most reports have a single currency
+		private String lastCurrency;
+		private long[] lastTotals;
+
+		Worker(int group, int groups) {
+			this.group = group;
+			this.groups = groups;
+		}
+
+		@Override
+		public void onRow(SettlementRow row) {
+			SettlementRow.Type type = row.getType();
+			if (group == 0) {
+				rowCounts[type.ordinal()]++;
+
+				long[] total = totals(row);
+				total[0] += row.getGrossCredit();
+				total[1] += row.getGrossDebit();
+				total[2] += row.getNetCredit();
+				total[3] += row.getNetDebit();
+				total[4] += row.getFees();
+			}
+
+			if (type == SettlementRow.Type.OTHER) {
+				return;
+			}
+			if (groups > 1 && Math.floorMod(row.getPspReferenceHash(), groups) != group) {
+				return;
+			}
+
+			String pspReference = row.getPspReference();
+			if (pspReference == null) {
+				return;
+			}
+			Payment payment = payments.get(pspReference);
+			if (payment == null) {
+				payment = new Payment(row.getMerchantAccount(), row.getGrossCurrency());
+				payments.put(pspReference, payment);
+			}
+
+			switch (type) {
+				case SETTLED:
+					payment.amounts[SETTLED] += row.getGrossCredit() - row.getGrossDebit();
+					break;
+				case REFUNDED:
+					payment.amounts[REFUNDED] += row.getGrossDebit() - row.getGrossCredit();
+					break;
+				case REFUNDED_REVERSED:
+					payment.amounts[REFUNDED] -= row.getGrossCredit() - row.getGrossDebit();
+					break;
+				case CHARGEBACK:
+					payment.amounts[CHARGED_BACK] += row.getGrossDebit() - row.getGrossCredit();
+					break;
+				case CHARGEBACK_REVERSED:
+					payment.amounts[CHARGED_BACK] -= row.getGrossCredit() - row.getGrossDebit();
+					break;
+				default:
+			}
+		}
+
+		private long[] totals(SettlementRow row) {
+			String currency = row.getNetCurrency() != null ? row.getNetCurrency() : row.getGrossCurrency();
+			if (currency == null) {
+				currency = "";
+			}
+			if (!currency.equals(lastCurrency)) {
+				lastTotals = totals.get(currency);
+				if (lastTotals == null) {
+					lastTotals = new long[TOTALS];
+					totals.put(currency, lastTotals);
+				}
+				lastCurrency = currency;
+			}
+			return lastTotals;
+		}
+
+	}
+
+}
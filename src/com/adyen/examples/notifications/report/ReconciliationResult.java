@@ -0,0 +1,103 @@
+package com.adyen.examples.notifications.report;
+
+import java.io.File;
+import java.util.Map;
+
+/**
+ * Outcome of a {@link Reconciliation}: the number of rows and payments, the totals per currency and the file with
+ * the mismatches
+ *
+ * @author Created by Adyen - Payments Made Easy
+ */
+public final class ReconciliationResult {
+
+	private final long[] rowCounts;
+	private final long payments;
+	private final long matched;
+	private final long mismatched;
+	private final Map<String, long[]> totals;
+	private final File mismatchFile;
+
+	ReconciliationResult(long[] rowCounts, long payments, long matched, long mismatched, Map<String, long[]> totals,
+			File mismatchFile) {
+		this.rowCounts = rowCounts;
+		this.payments = payments;
+		this.matched = matched;
+		this.mismatched = mismatched;
+		this.totals = totals;
+		this.mismatchFile = mismatchFile;
+	}
+
+	public long getRowCount() {
+		long total = 0;
+		for (long count : rowCounts) {
+			total += count;
+		}
+		return total;
+	}
+
+	public long getRowCount(SettlementRow.Type type) {
+		return rowCounts[type.ordinal()];
+	}
+
+	public long getPaymentCount() {
+		return payments;
+	}
+
+	public long getMatchedCount() {
+		return matched;
+	}
+
+	public long getMismatchedCount() {
+		return mismatched;
+	}
+
+	/**
+	 * Returns the currencies in the report, e.g. to get their totals.
+	 */
+	public Iterable<String> getCurrencies() {
+		return totals.keySet();
+	}
+
+	/**
+	 * Gross credit minus gross debit of a currency, in minor units.
+	 */
+	public long getGrossTotal(String currency) {
+		long[] total = totals.get(currency);
+		return total == null ? 0 : total[0] - total[1];
+	}
+
+	/**
+	 * Net credit minus net debit of a currency (the amount paid out), in minor units.
+	 */
+	public long getNetTotal(String currency) {
+		long[] total = totals.get(currency);
+		return total == null ? 0 : total[2] - total[3];
+	}
+
+	/**
+	 * Commission, markup, scheme fees and interchange of a currency, in minor units.
+	 */
+	public long getFees(String currency) {
+		long[] total = totals.get(currency);
+		return total == null ? 0 : total[4];
+	}
+
+	public File getMismatchFile() {
+		return mismatchFile;
+	}
+
+	@Override
+	public String toString() {
+		StringBuilder result = new StringBuilder();
+		result.append(getRowCount()).append(" rows, ").append(payments).append(" payments, ").append(matched)
+				.append(" matched, ").append(mismatched).append(" mismatched");
+		for (String currency : totals.keySet()) {
+			result.append("; ").append(currency.isEmpty() ? "?" : currency).append(" gross ")
+					.append(getGrossTotal(currency)).append(" net ").append(getNetTotal(currency)).append(" fees ")
+					.append(getFees(currency));
+		}
+		return result.toString();
+	}
+
+}
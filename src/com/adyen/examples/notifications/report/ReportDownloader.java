@@ -0,0 +1,74 @@
+package com.adyen.examples.notifications.report;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+
+import org.apache.http.HttpEntity;
+import org.apache.http.client.methods.CloseableHttpResponse;
+import org.apache.http.client.methods.HttpGet;
+import org.apache.http.client.protocol.HttpClientContext;
+
+import com.adyen.examples.common.AdyenHttpClient;
+
+/**
+ * Downloads a report to disk
+ *
+ * The report is streamed from the response to a temporary file with a small buffer, so its size does not matter,
+ * and only moved to its name when it is complete. A report that was downloaded before is not downloaded again.
+ *
+ * Reports are downloaded with the shared client (see {@link AdyenHttpClient}), using Basic Authentication with the
+ * credentials of a report user (Settings > Users in the Adyen Customer Area, e.g. report@Company.YourCompany).
+ *
+ * @author Created by Adyen - Payments Made Easy
+ */
+public class ReportDownloader {
+
+	private final String reportUser;
+	private final String reportPassword;
+
+	public ReportDownloader(String reportUser, String reportPassword) {
+		this.reportUser = reportUser;
+		this.reportPassword = reportPassword;
+	}
+
+	/**
+	 * Downloads the report at the given URL to the given file, unless the file exists already.
+	 */
+	public File download(String url, File file) throws IOException {
+		if (file.isFile()) {
+			return file;
+		}
+
+		File tmp = new File(file.getPath() + ".tmp");
+		HttpGet httpRequest = new HttpGet(url);
+		HttpClientContext context = AdyenHttpClient.createContext(url, reportUser, reportPassword);
+
+		try (CloseableHttpResponse httpResponse = AdyenHttpClient.getInstance().execute(httpRequest, context)) {
+			int status = httpResponse.getStatusLine().getStatusCode();
+			HttpEntity entity = httpResponse.getEntity();
+			if (status != 200 || entity == null) {
+				throw new IOException("Unable to download " + url + ": " + httpResponse.getStatusLine());
+			}
+
+			try (InputStream in = entity.getContent(); OutputStream out = new FileOutputStream(tmp)) {
+				byte[] buffer = new byte[65536];
+				int length;
+				while ((length = in.read(buffer)) >= 0) {
+					out.write(buffer, 0, length);
+				}
+			}
+		} catch (IOException e) {
+			tmp.delete();
+			throw e;
+		}
+
+		Files.move(tmp.toPath(), file.toPath(), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+		return file;
+	}
+
+}
@@ -0,0 +1,15 @@
+package com.adyen.examples.notifications.report;
+
+/**
+ * Handles the rows of a settlement details report, as they are read by a {@link SettlementReportProcessor}
+ *
+ * Every thread of the processor has its own handler, so a handler does not need to be thread-safe. The row is only
+ * valid during the call.
+ *
+ * @author Created by Adyen - Payments Made Easy
+ */
+public interface SettlementHandler {
+
+	void onRow(SettlementRow row);
+
+}
@@ -0,0 +1,158 @@
+package com.adyen.examples.notifications.report;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
+
+/**
+ * Reads a settlement details report (CSV) in parallel, without loading it into memory
+ *
+ * The report is memory-mapped and divided into as many parts as there are threads. Every part starts after a line
+ * break, so every line is read by exactly one thread: a thread reads the lines that start within its part, including
+ * the last one, which may end in the next part. The lines are split into fields in place by a {@link CsvTokenizer}
+ * and handed to the {@link SettlementHandler} of the thread as a {@link SettlementRow}. The processor itself keeps no
+ * rows, so the memory it uses does not depend on the size of the report; what a handler keeps is up to the handler
+ * (see {@link Reconciliation}, which reads a large report in several passes to bound it). The operating system reads
+ * the mapped file ahead and keeps it in its page cache.
+ *
+ * The first line of the report must be the header line, naming the columns (see {@link SettlementRow}).
+ *
+ * @author Created by Adyen - Payments Made Easy
+ */
+public class SettlementReportProcessor {
+
+	/**
+	 * Processor settings
+	 * - DEFAULT_THREADS: number of threads reading the report
+	 * - MIN_PART_SIZE: minimum number of bytes read by a thread, so a small report is not divided
+	 * - MAX_PART_SIZE: maximum number of bytes mapped by a thread at once (a mapping is limited to 2 GB)
+	 * - MAX_LINE_LENGTH: maximum length of a line in bytes
+	 */
+	public static final int DEFAULT_THREADS = Runtime.getRuntime().availableProcessors();
+	private static final long MIN_PART_SIZE = 1024 * 1024;
+	private static final long MAX_PART_SIZE = 1024 * 1024 * 1024;
+	private static final int MAX_LINE_LENGTH = 64 * 1024;
+
+	private final int threads;
+
+	public SettlementReportProcessor() {
+		this(DEFAULT_THREADS);
+	}
+
+	public SettlementReportProcessor(int threads) {
+		this.threads = Math.max(1, threads);
+	}
+
+	/**
+	 * Reads all rows of a report, every thread with a handler of its own, and returns the number of rows read.
+	 */
+	public long process(File report, Supplier<? extends SettlementHandler> handlers) throws IOException {
+		try (RandomAccessFile file = new RandomAccessFile(report, "r")) {
+			FileChannel channel = file.getChannel();
+			long size = channel.size();
+
+			// Read the header line
+			MappedByteBuffer headerBuffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, Math.min(size,
+					MAX_LINE_LENGTH));
+			CsvTokenizer headerTokenizer = new CsvTokenizer(headerBuffer, 0, 1, size <= MAX_LINE_LENGTH);
+			if (!headerTokenizer.next()) {
+				throw new IOException("The report " + report + " is empty");
+			}
+			String[] names = new String[headerTokenizer.getFieldCount()];
+			for (int i = 0; i < names.length; i++) {
+				names[i] = headerTokenizer.toString(i);
+			}
+			SettlementRow.Header header = new SettlementRow.Header(names);
+			long dataStart = headerTokenizer.getPosition();
+
+			// Divide the rest of the report into parts
+			long dataSize = size - dataStart;
+			int parts = (int) Math.max(Math.min(threads, dataSize / MIN_PART_SIZE), (dataSize + MAX_PART_SIZE - 1)
+					/ MAX_PART_SIZE);
+			parts = Math.max(parts, 1);
+
+			if (parts == 1) {
+				return processPart(channel, header, dataStart, size, size, handlers.get());
+			}
+
+			ExecutorService executor = Executors.newFixedThreadPool(Math.min(parts, threads),
+					threads("settlement-report"));
+			try {
+				List<Future<Long>> futures = new ArrayList<Future<Long>>(parts);
+				for (int i = 0; i < parts; i++) {
+					final long start = dataStart + dataSize * i / parts;
+					final long end = dataStart + dataSize * (i + 1) / parts;
+					final SettlementHandler handler = handlers.get();
+					futures.add(executor.submit(() -> processPart(channel, header, start, end, size, handler)));
+				}
+
+				long rows = 0;
+				for (Future<Long> future : futures) {
+					rows += future.get();
+				}
+				return rows;
+			} catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+				throw new IOException("Interrupted while reading " + report, e);
+			} catch (ExecutionException e) {
+				if (e.getCause() instanceof IOException) {
+					throw (IOException) e.getCause();
+				}
+				throw new IOException("Unable to read " + report, e.getCause());
+			} finally {
+				executor.shutdownNow();
+			}
+		}
+	}
+
+	/**
+	 * Reads the lines that start between start and end.
+	 */
+	private static long processPart(FileChannel channel, SettlementRow.Header header, long start, long end, long size,
+			SettlementHandler handler) throws IOException {
+		// Map from the byte before the part, to see whether the part starts at the beginning of a line
+		long mapStart = start - 1;
+		long mapEnd = Math.min(size, end + MAX_LINE_LENGTH);
+		MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, mapStart, mapEnd - mapStart);
+
+		// Skip the rest of the line that the previous part reads
+		int position = 0;
+		while (position < buffer.limit() && buffer.get(position) != '\n') {
+			position++;
+		}
+		position++;
+
+		CsvTokenizer tokenizer = new CsvTokenizer(buffer, position, (int) (end - mapStart), mapEnd == size);
+		SettlementRow row = new SettlementRow(tokenizer, header);
+		long rows = 0;
+		while (tokenizer.next()) {
+			handler.onRow(row);
+			rows++;
+		}
+		return rows;
+	}
+
+	private static ThreadFactory threads(final String name) {
+		final AtomicInteger count = new AtomicInteger();
+		return new ThreadFactory() {
+			@Override
+			public Thread newThread(Runnable runnable) {
+				Thread thread = new Thread(runnable, name + "-" + count.incrementAndGet());
+				thread.setDaemon(true);
+				return thread;
+			}
+		};
+	}
+
+}
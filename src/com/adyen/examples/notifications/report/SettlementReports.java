@@ -0,0 +1,137 @@
+package com.adyen.examples.notifications.report;
+
+import java.io.Closeable;
+import java.io.File;
+import java.io.IOException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Function;
+
+import org.json.simple.JSONObject;
+
+import com.adyen.examples.notifications.journal.NotificationHandler;
+import com.adyen.examples.notifications.journal.PaymentState;
+
+/**
+ * Downloads, reads and reconciles the settlement details reports announced by REPORT_AVAILABLE notifications
+ *
+ * The name of the report is in the pspReference field of the notification and its URL in the reason field. Only
+ * settlement details reports (settlement_detail_report_batch_N.csv) are handled; other reports are ignored. A report
+ * is handled in the background, one at a time, so the notifications are not held up:
+ *
+ * <pre>
+ * - download  : the report is streamed to the reports folder (see {@link ReportDownloader})
+ * - read      : the report is memory-mapped and read by several threads (see {@link SettlementReportProcessor})
+ * - reconcile : the payments in the report are compared with the notifications (see {@link Reconciliation})
+ * </pre>
+ *
+ * The mismatches are written next to the report (settlement_detail_report_batch_N.csv.mismatches.csv). A report
+ * that already has a mismatch file is not processed again, e.g. when Adyen sends the notification again.
+ *
+ * @author Created by Adyen - Payments Made Easy
+ */
+public class SettlementReports implements NotificationHandler, Closeable {
+
+	private static final String SETTLEMENT_REPORT = "settlement_detail_report";
+	private static final String MISMATCH_SUFFIX = ".mismatches.csv";
+
+	private final File directory;
+	private final ReportDownloader downloader;
+	private final SettlementReportProcessor processor;
+	private final Function<String, PaymentState> payments;
+	private final ExecutorService executor = Executors.newSingleThreadExecutor(threads("settlement-reports"));
+
+	/**
+	 * @param directory the folder the reports are downloaded to
+	 * @param reportUser your report user (e.g. report@Company.YourCompany)
+	 * @param reportPassword your report user's password
+	 * @param payments returns the state of a payment by its pspReference, or null if it is unknown
+	 */
+	public SettlementReports(File directory, String reportUser, String reportPassword,
+			Function<String, PaymentState> payments) throws IOException {
+		if (!directory.isDirectory() && !directory.mkdirs()) {
+			throw new IOException("Unable to create the reports folder " + directory);
+		}
+		this.directory = directory;
+		this.downloader = new ReportDownloader(reportUser, reportPassword);
+		this.processor = new SettlementReportProcessor();
+		this.payments = payments;
+	}
+
+	@Override
+	public void handle(JSONObject notification) {
+		if (!"REPORT_AVAILABLE".equals(notification.get("eventCode"))
+				|| !"true".equals(String.valueOf(notification.get("success")))) {
+			return;
+		}
+
+		Object name = notification.get("pspReference");
+		Object url = notification.get("reason");
+		if (name == null || url == null || !name.toString().contains(SETTLEMENT_REPORT)) {
+			return;
+		}
+
+		// The name is used as file name, so anything that could leave the reports folder is replaced
+		final File report = new File(directory, name.toString().replaceAll("[^A-Za-z0-9._-]", "_"));
+		final String reportUrl = url.toString();
+		executor.execute(new Runnable() {
+			@Override
+			public void run() {
+				try {
+					process(reportUrl, report);
+				} catch (IOException | RuntimeException e) {
+					System.err.println("Unable to process the report " + report.getName() + ": " + e);
+				}
+			}
+		});
+	}
+
+	/**
+	 * Downloads, reads and reconciles a report, and returns the result; null if it was processed before.
+	 */
+	public ReconciliationResult process(String url, File report) throws IOException {
+		File mismatchFile = new File(report.getPath() + MISMATCH_SUFFIX);
+		if (mismatchFile.exists()) {
+			return null;
+		}
+
+		long start = System.nanoTime();
+		downloader.download(url, report);
+
+		Reconciliation reconciliation = new Reconciliation(payments, mismatchFile);
+		ReconciliationResult result = reconciliation.reconcile(processor, report);
+
+		System.out.println("Reconciled " + report.getName() + " in "
+				+ TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start) + " ms: " + result);
+		return result;
+	}
+
+	/**
+	 * Waits for the report being processed, if any, and stops.
+	 */
+	@Override
+	public void close() {
+		executor.shutdown();
+		try {
+			if (!executor.awaitTermination(30, TimeUnit.SECONDS)) {
+				executor.shutdownNow();
+			}
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+		}
+	}
+
+	private static ThreadFactory threads(final String name) {
+		return new ThreadFactory() {
+			@Override
+			public Thread newThread(Runnable runnable) {
+				Thread thread = new Thread(runnable, name);
+				thread.setDaemon(true);
+				return thread;
+			}
+		};
+	}
+
+}
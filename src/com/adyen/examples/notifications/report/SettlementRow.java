@@ -0,0 +1,229 @@
+package com.adyen.examples.notifications.report;
+
+import java.io.IOException;
+import java.nio.charset.Charset;
+import java.util.Currency;
+
+/**
+ * A line of a settlement details report, read in place from the mapped file (see {@link CsvTokenizer})
+ *
+ * A row is a view on the current line of a tokenizer and is reused for every line; only use it during
+ * {@link SettlementHandler#onRow(SettlementRow)}. The columns used are:
+ *
+ * <pre>
+ * - Psp Reference, Merchant Account, Merchant Reference
+ * - Type                                : Settled, Refunded, Chargeback, ChargebackReversed, Fee, MerchantPayout, ...
+ * - Gross Currency, Gross Debit (GC), Gross Credit (GC)
+ * - Net Currency, Net Debit (NC), Net Credit (NC)
+ * - Commission (NC), Markup (NC), Scheme Fees (NC), Interchange (NC) : optional
+ * </pre>
+ *
+ * Amounts are returned in minor units of their currency (e.g. EUR 1,00 = 100), like the amounts in the API.
+ *
+ * @author Created by Adyen - Payments Made Easy
+ */
+public final class SettlementRow {
+
+	private static final Charset UTF8 = Charset.forName("UTF-8");
+
+	private static final byte[] SETTLED = "Settled".getBytes(UTF8);
+	private static final byte[] SETTLED_BULK = "SettledBulk".getBytes(UTF8);
+	private static final byte[] REFUNDED = "Refunded".getBytes(UTF8);
+	private static final byte[] REFUNDED_BULK = "RefundedBulk".getBytes(UTF8);
+	private static final byte[] REFUNDED_REVERSED = "RefundedReversed".getBytes(UTF8);
+	private static final byte[] CHARGEBACK = "Chargeback".getBytes(UTF8);
+	private static final byte[] SECOND_CHARGEBACK = "SecondChargeback".getBytes(UTF8);
+	private static final byte[] CHARGEBACK_REVERSED = "ChargebackReversed".getBytes(UTF8);
+
+	/**
+	 * Types of rows that are reconciled; all other types (fees, payouts, corrections) are OTHER.
+	 */
+	public enum Type {
+		SETTLED, REFUNDED, REFUNDED_REVERSED, CHARGEBACK, CHARGEBACK_REVERSED, OTHER
+	}
+
+	private final CsvTokenizer tokenizer;
+	private final int pspReference;
+	private final int merchantAccount;
+	private final int merchantReference;
+	private final int type;
+	private final int grossCurrency;
+	private final int grossDebit;
+	private final int grossCredit;
+	private final int netCurrency;
+	private final int netDebit;
+	private final int netCredit;
+	private final int[] fees;
+
+	// Decimals of the last currency seen, as most reports have a single currency
+	private int currencyKey = -1;
+	private int currencyDecimals;
+
+	/**
+	 * Creates a row for the lines of a tokenizer, with the columns of the header line.
+	 */
+	SettlementRow(CsvTokenizer tokenizer, Header header) {
+		this.tokenizer = tokenizer;
+		this.pspReference = header.pspReference;
+		this.merchantAccount = header.merchantAccount;
+		this.merchantReference = header.merchantReference;
+		this.type = header.type;
+		this.grossCurrency = header.grossCurrency;
+		this.grossDebit = header.grossDebit;
+		this.grossCredit = header.grossCredit;
+		this.netCurrency = header.netCurrency;
+		this.netDebit = header.netDebit;
+		this.netCredit = header.netCredit;
+		this.fees = header.fees;
+	}
+
+	public Type getType() {
+		if (tokenizer.equals(type, SETTLED) || tokenizer.equals(type, SETTLED_BULK)) {
+			return Type.SETTLED;
+		}
+		if (tokenizer.equals(type, REFUNDED) || tokenizer.equals(type, REFUNDED_BULK)) {
+			return Type.REFUNDED;
+		}
+		if (tokenizer.equals(type, REFUNDED_REVERSED)) {
+			return Type.REFUNDED_REVERSED;
+		}
+		if (tokenizer.equals(type, CHARGEBACK) || tokenizer.equals(type, SECOND_CHARGEBACK)) {
+			return Type.CHARGEBACK;
+		}
+		if (tokenizer.equals(type, CHARGEBACK_REVERSED)) {
+			return Type.CHARGEBACK_REVERSED;
+		}
+		return Type.OTHER;
+	}
+
+	/**
+	 * The type as written in the report, e.g. Fee.
+	 */
+	public String getTypeName() {
+		return tokenizer.toString(type);
+	}
+
+	public String getPspReference() {
+		return tokenizer.toString(pspReference);
+	}
+
+	/**
+	 * Hash of the pspReference, read in place, e.g. to divide the payments into groups without creating a String.
+	 */
+	int getPspReferenceHash() {
+		return tokenizer.hash(pspReference);
+	}
+
+	public String getMerchantAccount() {
+		return tokenizer.toString(merchantAccount);
+	}
+
+	public String getMerchantReference() {
+		return tokenizer.toString(merchantReference);
+	}
+
+	public String getGrossCurrency() {
+		return tokenizer.toString(grossCurrency);
+	}
+
+	public long getGrossDebit() {
+		return tokenizer.toDecimal(grossDebit, decimals(grossCurrency));
+	}
+
+	public long getGrossCredit() {
+		return tokenizer.toDecimal(grossCredit, decimals(grossCurrency));
+	}
+
+	public String getNetCurrency() {
+		return tokenizer.toString(netCurrency);
+	}
+
+	public long getNetDebit() {
+		return tokenizer.toDecimal(netDebit, decimals(netCurrency));
+	}
+
+	public long getNetCredit() {
+		return tokenizer.toDecimal(netCredit, decimals(netCurrency));
+	}
+
+	/**
+	 * Sum of the commission, markup, scheme fees and interchange, in the net currency.
+	 */
+	public long getFees() {
+		long total = 0;
+		for (int fee : fees) {
+			total += tokenizer.toDecimal(fee, decimals(netCurrency));
+		}
+		return total;
+	}
+
+	/**
+	 * Returns the number of decimals of the currency in a column, e.g. 2 for EUR and 0 for JPY.
+	 */
+	private int decimals(int column) {
+		int key = tokenizer.prefix(column, 3);
+		if (key != currencyKey) {
+			String code = tokenizer.toString(column);
+			int decimals = 2;
+			if (code != null) {
+				try {
+					decimals = Math.max(0, Currency.getInstance(code.trim()).getDefaultFractionDigits());
+				} catch (IllegalArgumentException e) {
+					// Unknown currency, assume 2 decimals
+				}
+			}
+			currencyKey = key;
+			currencyDecimals = decimals;
+		}
+		return currencyDecimals;
+	}
+
+	/**
+	 * Column numbers of a settlement details report, read from its header line.
+	 */
+	static final class Header {
+
+		final int pspReference;
+		final int merchantAccount;
+		final int merchantReference;
+		final int type;
+		final int grossCurrency;
+		final int grossDebit;
+		final int grossCredit;
+		final int netCurrency;
+		final int netDebit;
+		final int netCredit;
+		final int[] fees;
+
+		Header(String[] names) throws IOException {
+			pspReference = column(names, "Psp Reference", true);
+			merchantAccount = column(names, "Merchant Account", false);
+			merchantReference = column(names, "Merchant Reference", false);
+			type = column(names, "Type", true);
+			grossCurrency = column(names, "Gross Currency", true);
+			grossDebit = column(names, "Gross Debit (GC)", true);
+			grossCredit = column(names, "Gross Credit (GC)", true);
+			netCurrency = column(names, "Net Currency", false);
+			netDebit = column(names, "Net Debit (NC)", false);
+			netCredit = column(names, "Net Credit (NC)", false);
+			fees = new int[] {
+				column(names, "Commission (NC)", false), column(names, "Markup (NC)", false),
+				column(names, "Scheme Fees (NC)", false), column(names, "Interchange (NC)", false)
+			};
+		}
+
+		private static int column(String[] names, String name, boolean required) throws IOException {
+			for (int i = 0; i < names.length; i++) {
+				if (name.equalsIgnoreCase(names[i])) {
+					return i;
+				}
+			}
+			if (required) {
+				throw new IOException("The report has no column " + name + "; is it a settlement details report?");
+			}
+			return -1;
+		}
+
+	}
+
+}
@@ -1,7 +1,6 @@
 package com.adyen.examples.paymentmethods.JSON;
 import java.io.IOException;
 import java.io.PrintWriter;
-import java.io.UnsupportedEncodingException;
 import java.security.GeneralSecurityException;
 import java.text.SimpleDateFormat;
 import java.util.ArrayList;
@@ -9,25 +8,29 @@ import java.util.Calendar;
 import java.util.Collections;
 import java.util.Date;
 import java.util.List;
+import java.util.concurrent.ExecutionException;
 
-import javax.crypto.Mac;
-import javax.crypto.spec.SecretKeySpec;
 import javax.servlet.ServletException;
 import javax.servlet.annotation.WebServlet;
 import javax.servlet.http.HttpServlet;
 import javax.servlet.http.HttpServletRequest;
 import javax.servlet.http.HttpServletResponse;
 
-import org.apache.commons.codec.binary.Base64;
 import org.apache.http.HttpResponse;
 import org.apache.http.NameValuePair;
 import org.apache.http.client.HttpClient;
 import org.apache.http.client.entity.UrlEncodedFormEntity;
 import org.apache.http.client.methods.HttpPost;
-import org.apache.http.impl.client.HttpClientBuilder;
 import org.apache.http.message.BasicNameValuePair;
 import org.apache.http.util.EntityUtils;
 
+import com.adyen.examples.common.AdyenHttpClient;
+import com.adyen.examples.common.HmacSigner;
+import com.adyen.examples.common.PaymentMethodCache;
+import com.adyen.examples.common.metrics.AdyenMetrics;
+import com.adyen.examples.common.metrics.OperationMetrics;
+import com.adyen.examples.common.metrics.OperationTimer;
+
 /**
  * Get Payment Methods(JSON)
  * 
@@ -50,6 +53,8 @@ import org.apache.http.util.EntityUtils;
 @WebServlet(urlPatterns = { "/6.PaymentMethods/GetPaymentMethods" })
 public class GetPaymentMethods extends HttpServlet {
 
+	private static final PaymentMethodCache<String> paymentMethodCache = new PaymentMethodCache<String>();
+
 	protected void doGet(HttpServletRequest request, HttpServletResponse response) throws ServletException, IOException {
 
 		/**
@@ -66,6 +71,39 @@ public class GetPaymentMethods extends HttpServlet {
 		/**
 		 * The following fields are required for the directory service.
 		 */
+		String paymentAmount = "100";
+		String currencyCode = "EUR";
+		String skinCode = "YourSkinCode";
+		String merchantAccount = "YourMerchantAccount";
+
+		/**
+		 * The payment methods rarely change, so they are cached (see PaymentMethodCache). The directory service is only
+		 * called when the payment methods for this skin, merchant account, currency and amount are not cached yet, or
+		 * in the background when the cached payment methods are stale.
+		 */
+		PaymentMethodCache.Key key = PaymentMethodCache.Key.of(skinCode, merchantAccount, null, currencyCode,
+				paymentAmount);
+
+		String result;
+		try {
+			result = paymentMethodCache.get(key,
+					() -> requestPaymentMethods(apiUrl, hmacKey, paymentAmount, currencyCode, skinCode, merchantAccount));
+		} catch (ExecutionException e) {
+			throw new ServletException(e.getCause());
+		}
+
+		/**
+		 * The result contains a JSON array containing the available payment methods for the merchant account.
+		 */
+		PrintWriter out = response.getWriter();
+		out.println(result);
+	}
+
+	/**
+	 * Requests the payment methods from the directory service.
+	 */
+	private String requestPaymentMethods(String apiUrl, String hmacKey, String paymentAmount, String currencyCode,
+			String skinCode, String merchantAccount) throws ServletException, IOException {
 
 		// Generate date
 		Calendar calendar = Calendar.getInstance();
@@ -74,10 +112,6 @@ public class GetPaymentMethods extends HttpServlet {
 
 		// Define variables
 		String merchantReference = "Request payment methods";
-		String paymentAmount = "100";
-		String currencyCode = "EUR";
-		String skinCode = "YourSkinCode";
-		String merchantAccount = "YourMerchantAccount";
 		String sessionValidity = new SimpleDateFormat("yyyy-MM-dd'T'HH:mm:ssXXX").format(sessionDate);
 
 		// Calculate merchant signature
@@ -104,43 +138,42 @@ public class GetPaymentMethods extends HttpServlet {
 			);
 
 		/**
-		 * Create HTTP Client (using Apache HttpComponents library) and send the request with the specified variables.
+		 * Get the shared HTTP Client (using Apache HttpComponents library) and send the request with the specified
+		 * variables.
+		 * 
+		 * @see com.adyen.examples.common.AdyenHttpClient
 		 */
-		HttpClient client = HttpClientBuilder.create().build();
+		HttpClient client = AdyenHttpClient.getInstance();
 
 		HttpPost httpPost = new HttpPost(apiUrl);
 		httpPost.setEntity(new UrlEncodedFormEntity(postParameters));
 
-		HttpResponse httpResponse = client.execute(httpPost);
-		String result = EntityUtils.toString(httpResponse.getEntity(), "UTF-8");
-
-		/**
-		 * Keep in mind that you should handle errors correctly.
-		 */
-		if (httpResponse.getStatusLine().getStatusCode() == 500) {
-			throw new ServletException(result);
-		}
-		else if (httpResponse.getStatusLine().getStatusCode() != 200) {
-			throw new ServletException(httpResponse.getStatusLine().toString());
+		try (OperationTimer timer = AdyenMetrics.json(apiUrl).start()) {
+			HttpResponse httpResponse = client.execute(httpPost);
+			String result = EntityUtils.toString(httpResponse.getEntity(), "UTF-8");
+
+			/**
+			 * Keep in mind that you should handle errors correctly.
+			 */
+			if (httpResponse.getStatusLine().getStatusCode() == 500) {
+				throw new ServletException(result);
+			}
+			else if (httpResponse.getStatusLine().getStatusCode() != 200) {
+				throw new ServletException(httpResponse.getStatusLine().toString());
+			}
+
+			timer.setResult(OperationMetrics.RESULT_SUCCESS);
+			return result;
 		}
-
-		/**
-		 * The result contains a JSON array containing the available payment methods for the merchant account.
-		 */
-		PrintWriter out = response.getWriter();
-		out.println(result);
 	}
 
 	/**
 	 * Computes the Base64 encoded signature using the HMAC algorithm with the SHA-1 hashing function.
+	 * 
+	 * @see com.adyen.examples.common.HmacSigner
 	 */
-	private String calculateHMAC(String hmacKey, String signingString) throws GeneralSecurityException, UnsupportedEncodingException {
-		SecretKeySpec keySpec = new SecretKeySpec(hmacKey.getBytes(), "HmacSHA1");
-		Mac mac = Mac.getInstance("HmacSHA1");
-		mac.init(keySpec);
-
-		byte[] result = mac.doFinal(signingString.getBytes("UTF-8"));
-		return Base64.encodeBase64String(result);
+	private String calculateHMAC(String hmacKey, String signingString) throws GeneralSecurityException {
+		return HmacSigner.getInstance(HmacSigner.HMAC_SHA1, hmacKey.getBytes()).sign(signingString);
 	}
 
 }
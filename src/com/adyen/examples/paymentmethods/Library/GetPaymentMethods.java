@@ -2,10 +2,16 @@ package com.adyen.examples.paymentmethods.Library;
 import com.adyen.Client;
 import com.adyen.Config;
 import com.adyen.enums.Environment;
+import com.adyen.examples.common.CacheLoaders;
+import com.adyen.examples.common.PaymentMethodCache;
+import com.adyen.examples.common.metrics.AdyenMetrics;
+import com.adyen.examples.common.metrics.OperationMetrics;
+import com.adyen.examples.common.metrics.OperationTimer;
 import com.adyen.model.hpp.DirectoryLookupRequest;
 import com.adyen.model.hpp.PaymentMethod;
 import com.adyen.service.HostedPaymentPages;
 import java.util.List;
+import java.util.concurrent.ExecutionException;
 
 /**
  * Get Payment Methods(Java Library)
@@ -27,6 +33,8 @@ import java.util.List;
  */
 public class GetPaymentMethods {
 
+    private static final PaymentMethodCache<List<PaymentMethod>> paymentMethodCache = new PaymentMethodCache<List<PaymentMethod>>();
+
     public void getPaymentMethods() throws Exception{
 
         /**
@@ -67,8 +75,26 @@ public class GetPaymentMethods {
          * The result is a PaymentMethod List containing the available payment methods for the merchant account.
          */
         // Retrieve Payment Methods and store them in a List
+        // The Payment Methods are cached (see PaymentMethodCache), so the directory service is only called when they
+        // are not cached yet, or in the background when the cached Payment Methods are stale.
         HostedPaymentPages hostedPaymentPages = new HostedPaymentPages(client);
-        List<PaymentMethod> paymentMethods = hostedPaymentPages.getPaymentMethods(directoryLookupRequest);
+        PaymentMethodCache.Key key = PaymentMethodCache.Key.of(directoryLookupRequest.getSkinCode(),
+                directoryLookupRequest.getMerchantAccount(), directoryLookupRequest.getCountryCode(),
+                directoryLookupRequest.getCurrencyCode(), directoryLookupRequest.getPaymentAmount());
+
+        List<PaymentMethod> paymentMethods;
+        try {
+            paymentMethods = paymentMethodCache.get(key, () -> {
+                try (OperationTimer timer = AdyenMetrics.library("HPP.directory").start()) {
+                    List<PaymentMethod> result = hostedPaymentPages.getPaymentMethods(directoryLookupRequest);
+                    timer.setResult(OperationMetrics.RESULT_SUCCESS);
+                    return result;
+                }
+            });
+        } catch (ExecutionException e) {
+            // Rethrow what the call to Adyen threw
+            throw CacheLoaders.cause(e);
+        }
 
         System.out.println("Payment Methods:");
         System.out.println(paymentMethods);
@@ -2,19 +2,20 @@ package com.adyen.examples.payout.Soap;
 
 import java.io.IOException;
 import java.io.PrintWriter;
-import java.net.URL;
 
 import javax.servlet.ServletException;
 import javax.servlet.annotation.WebServlet;
 import javax.servlet.http.HttpServlet;
 import javax.servlet.http.HttpServletRequest;
 import javax.servlet.http.HttpServletResponse;
-import javax.xml.ws.BindingProvider;
 
+import com.adyen.examples.common.PortPool;
+import com.adyen.examples.common.SoapServices;
+import com.adyen.examples.common.metrics.AdyenMetrics;
+import com.adyen.examples.common.metrics.OperationTimer;
 import com.adyen.services.payout.ModifyRequest;
 import com.adyen.services.payout.ModifyResponse;
 import com.adyen.services.payout.PayoutPortType;
-import com.adyen.services.payout.PayoutService;
 
 /**
  * Confirm Payout Request (SOAP)
@@ -46,16 +47,16 @@ public class ConfirmPayoutRequest extends HttpServlet {
 		String wsPassword = "YourWSPassword";
 
 		/**
-		 * Create SOAP client, using classes in adyen-wsdl-cxf.jar library (generated by wsdl2java tool, Apache CXF).
+		 * Get a SOAP client, using classes in adyen-wsdl-cxf.jar library (generated by wsdl2java tool, Apache CXF).
+		 * 
+		 * The SOAP service is created only once, and the clients are pooled with HTTP Authentication already set.
+		 * Please return the client to the pool when the call is done.
 		 * 
 		 * @see WebContent/WEB-INF/lib/adyen-wsdl-cxf.jar
+		 * @see com.adyen.examples.common.SoapServices
 		 */
-		PayoutService service = new PayoutService(new URL(wsdl));
-		PayoutPortType client = service.getPayoutHttpPort();
-
-		// Set HTTP Authentication
-		((BindingProvider) client).getRequestContext().put(BindingProvider.USERNAME_PROPERTY, wsUser);
-		((BindingProvider) client).getRequestContext().put(BindingProvider.PASSWORD_PROPERTY, wsPassword);
+		PortPool<PayoutPortType> ports = SoapServices.payoutPorts(wsdl, wsUser, wsPassword);
+		PayoutPortType client = ports.borrow();
 
 		/**
 		 * You can confirm a Payout by sending a confirm request to the Payout service. The following fields are sent:
@@ -72,7 +73,13 @@ public class ConfirmPayoutRequest extends HttpServlet {
 		/**
 		 * Send the confirm payout request.
 		 */
-		ModifyResponse confirmResult = client.confirm(confirmRequest);
+		ModifyResponse confirmResult;
+		try (OperationTimer timer = AdyenMetrics.soap("Payout.confirm").start()) {
+			confirmResult = client.confirm(confirmRequest);
+			timer.setResult(confirmResult.getResponse());
+		} finally {
+			ports.release(client);
+		}
 
 		/**
 		 * If the message is syntactically valid and merchantAccount is correct you will receive a confirmResponse with
@@ -2,22 +2,22 @@ package com.adyen.examples.payout.Soap;
 
 import java.io.IOException;
 import java.io.PrintWriter;
-import java.net.URL;
-import java.text.SimpleDateFormat;
-import java.util.Date;
 
 import javax.servlet.ServletException;
 import javax.servlet.annotation.WebServlet;
 import javax.servlet.http.HttpServlet;
 import javax.servlet.http.HttpServletRequest;
 import javax.servlet.http.HttpServletResponse;
-import javax.xml.ws.BindingProvider;
 
+import com.adyen.examples.common.PortPool;
+import com.adyen.examples.common.ReferenceGenerator;
+import com.adyen.examples.common.SoapServices;
+import com.adyen.examples.common.metrics.AdyenMetrics;
+import com.adyen.examples.common.metrics.OperationTimer;
 import com.adyen.services.common.Amount;
 import com.adyen.services.payment.BankAccount;
 import com.adyen.services.payment.Recurring;
 import com.adyen.services.payout.PayoutPortType;
-import com.adyen.services.payout.PayoutService;
 import com.adyen.services.payout.StoreDetailAndSubmitRequest;
 import com.adyen.services.payout.StoreDetailAndSubmitResponse2;
 
@@ -52,16 +52,16 @@ public class StorePayoutDetailsAndSubmit extends HttpServlet {
 		String wsPassword = "YourWSPassword";
 
 		/**
-		 * Create SOAP client, using classes in adyen-wsdl-cxf.jar library (generated by wsdl2java tool, Apache CXF).
+		 * Get a SOAP client, using classes in adyen-wsdl-cxf.jar library (generated by wsdl2java tool, Apache CXF).
+		 * 
+		 * The SOAP service is created only once, and the clients are pooled with HTTP Authentication already set.
+		 * Please return the client to the pool when the call is done.
 		 * 
 		 * @see WebContent/WEB-INF/lib/adyen-wsdl-cxf.jar
+		 * @see com.adyen.examples.common.SoapServices
 		 */
-		PayoutService service = new PayoutService(new URL(wsdl));
-		PayoutPortType client = service.getPayoutHttpPort();
-
-		// Set HTTP Authentication
-		((BindingProvider) client).getRequestContext().put(BindingProvider.USERNAME_PROPERTY, wsUser);
-		((BindingProvider) client).getRequestContext().put(BindingProvider.PASSWORD_PROPERTY, wsPassword);
+		PortPool<PayoutPortType> ports = SoapServices.payoutPorts(wsdl, wsUser, wsPassword);
+		PayoutPortType client = ports.borrow();
 
 		/**
 		 * To submit the payout details and make a payout request, call the storeDetailAndSubmit action on the Payout
@@ -96,7 +96,7 @@ public class StorePayoutDetailsAndSubmit extends HttpServlet {
 		// Create new store details and submit request
 		StoreDetailAndSubmitRequest payoutRequest = new StoreDetailAndSubmitRequest();
 		payoutRequest.setMerchantAccount("YourMerchantAccount");
-		payoutRequest.setReference("TEST-PAYOUT-" + new SimpleDateFormat("yyyy-MM-dd-HH:mm:ss").format(new Date()));
+		payoutRequest.setReference(ReferenceGenerator.next("TEST-PAYOUT-"));
 		payoutRequest.setShopperEmail("test@shopper.com");
 		payoutRequest.setShopperReference("ShopperReference");
 		payoutRequest.setShopperStatement("ShopperStatement");
@@ -125,7 +125,13 @@ public class StorePayoutDetailsAndSubmit extends HttpServlet {
 		/**
 		 * Send the store details and submit request.
 		 */
-		StoreDetailAndSubmitResponse2 storeDetailsAndSubmitResult = client.storeDetailAndSubmit(payoutRequest);
+		StoreDetailAndSubmitResponse2 storeDetailsAndSubmitResult;
+		try (OperationTimer timer = AdyenMetrics.soap("Payout.storeDetailAndSubmit").start()) {
+			storeDetailsAndSubmitResult = client.storeDetailAndSubmit(payoutRequest);
+			timer.setResult(storeDetailsAndSubmitResult.getResultCode());
+		} finally {
+			ports.release(client);
+		}
 
 		/**
 		 * If the message is syntactically valid and merchantAccount is correct you will receive a
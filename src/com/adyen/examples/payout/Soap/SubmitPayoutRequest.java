@@ -2,21 +2,21 @@ package com.adyen.examples.payout.Soap;
 
 import java.io.IOException;
 import java.io.PrintWriter;
-import java.net.URL;
-import java.text.SimpleDateFormat;
-import java.util.Date;
 
 import javax.servlet.ServletException;
 import javax.servlet.annotation.WebServlet;
 import javax.servlet.http.HttpServlet;
 import javax.servlet.http.HttpServletRequest;
 import javax.servlet.http.HttpServletResponse;
-import javax.xml.ws.BindingProvider;
 
+import com.adyen.examples.common.PortPool;
+import com.adyen.examples.common.ReferenceGenerator;
+import com.adyen.examples.common.SoapServices;
+import com.adyen.examples.common.metrics.AdyenMetrics;
+import com.adyen.examples.common.metrics.OperationTimer;
 import com.adyen.services.common.Amount;
 import com.adyen.services.payment.Recurring;
 import com.adyen.services.payout.PayoutPortType;
-import com.adyen.services.payout.PayoutService;
 import com.adyen.services.payout.SubmitRequest;
 import com.adyen.services.payout.SubmitResponse2;
 
@@ -50,16 +50,16 @@ public class SubmitPayoutRequest extends HttpServlet {
 		String wsPassword = "YourWSPassword";
 
 		/**
-		 * Create SOAP client, using classes in adyen-wsdl-cxf.jar library (generated by wsdl2java tool, Apache CXF).
+		 * Get a SOAP client, using classes in adyen-wsdl-cxf.jar library (generated by wsdl2java tool, Apache CXF).
+		 * 
+		 * The SOAP service is created only once, and the clients are pooled with HTTP Authentication already set.
+		 * Please return the client to the pool when the call is done.
 		 * 
 		 * @see WebContent/WEB-INF/lib/adyen-wsdl-cxf.jar
+		 * @see com.adyen.examples.common.SoapServices
 		 */
-		PayoutService service = new PayoutService(new URL(wsdl));
-		PayoutPortType client = service.getPayoutHttpPort();
-
-		// Set HTTP Authentication
-		((BindingProvider) client).getRequestContext().put(BindingProvider.USERNAME_PROPERTY, wsUser);
-		((BindingProvider) client).getRequestContext().put(BindingProvider.PASSWORD_PROPERTY, wsPassword);
+		PortPool<PayoutPortType> ports = SoapServices.payoutPorts(wsdl, wsUser, wsPassword);
+		PayoutPortType client = ports.borrow();
 
 		/**
 		 * Initiate a Payout request is done by calling the submit action on the Payout Service with a submit request.
@@ -91,7 +91,7 @@ public class SubmitPayoutRequest extends HttpServlet {
 		// Create new submit request
 		SubmitRequest submitRequest = new SubmitRequest();
 		submitRequest.setMerchantAccount("YourMerchantAccount");
-		submitRequest.setReference("TEST-PAYOUT-" + new SimpleDateFormat("yyyy-MM-dd-HH:mm:ss").format(new Date()));
+		submitRequest.setReference(ReferenceGenerator.next("TEST-PAYOUT-"));
 		submitRequest.setShopperEmail("test@shopper.com");
 		submitRequest.setShopperReference("ShopperReference");
 		submitRequest.setShopperStatement("ShopperStatement");
@@ -113,7 +113,13 @@ public class SubmitPayoutRequest extends HttpServlet {
 		/**
 		 * Send the submit payout request.
 		 */
-		SubmitResponse2 submitResult = client.submit(submitRequest);
+		SubmitResponse2 submitResult;
+		try (OperationTimer timer = AdyenMetrics.soap("Payout.submit").start()) {
+			submitResult = client.submit(submitRequest);
+			timer.setResult(submitResult.getResultCode());
+		} finally {
+			ports.release(client);
+		}
 
 		/**
 		 * If the message is syntactically valid and merchantAccount is correct you will receive a submitResponse with
@@ -0,0 +1,305 @@
+package com.adyen.examples.payout.batch;
+
+import java.io.File;
+import java.util.Properties;
+
+/**
+ * Settings of a {@link PayoutPipeline} run
+ *
+ * Only the stage and the input file are required; all other settings have a default. Settings are given as key=value
+ * arguments, or as properties.
+ *
+ * @author Created by Adyen - Payments Made Easy
+ */
+public class PayoutConfig {
+
+	/**
+	 * File settings
+	 * - stage: submit or review (see PayoutStage)
+	 * - input: CSV file with the payout instructions (submit), or the review file (review), see PayoutFileReader
+	 * - output: file the results are written to (default: input + ".review.csv" for submit, input + ".done.csv" for
+	 *   review)
+	 * - defaultDecision: decision written in the review file for the submitted payouts: none (the reviewer fills in
+	 *   every decision) or confirm (the reviewer only marks the payouts to decline)
+	 * - batchId: ID of the batch, e.g. sellers-2016-03-01; part of the references of the payouts without one and of
+	 *   the checkpoint (default: derived from the content of the input, see BatchCheckpoint#contentId)
+	 */
+	private PayoutStage stage;
+	private File input;
+	private File output;
+	private PayoutInstruction.Decision defaultDecision;
+	private String batchId;
+
+	/**
+	 * Execution settings
+	 * - parallelism: maximum number of payouts in flight
+	 * - rate: maximum number of payouts sent per second (0 = no limit)
+	 * - maxAttempts: maximum number of attempts of a payout that failed because of a network error or an overloaded
+	 *   platform; payouts that Adyen rejects (SOAP fault) are never retried
+	 * - reportSeconds: interval of the progress report
+	 */
+	private int parallelism = 16;
+	private double rate = 50;
+	private int maxAttempts = 3;
+	private int reportSeconds = 5;
+
+	/**
+	 * SOAP settings
+	 * - wsdl: the WSDL url you are using (Test/Live)
+	 * - wsUser: your web service user to store Payout details, and to initiate a Payout (submit)
+	 * - wsPassword: your web service user's password
+	 * - reviewUser: your web service user to confirm and decline Payouts (review)
+	 * - reviewPassword: your review web service user's password
+	 * - merchantAccount: merchant account of the payouts that do not have one
+	 */
+	private String wsdl = "https://pal-test.adyen.com/pal/servlet/Soap/Payout?wsdl";
+	private String wsUser = "YourWSUser";
+	private String wsPassword = "YourWSPassword";
+	private String reviewUser = "YourReviewWSUser";
+	private String reviewPassword = "YourReviewWSPassword";
+	private String merchantAccount = "YourMerchantAccount";
+
+	/**
+	 * Reads the settings from key=value arguments.
+	 */
+	public static PayoutConfig fromArguments(String[] arguments) {
+		PayoutConfig config = new PayoutConfig();
+		for (String argument : arguments) {
+			int separator = argument.indexOf('=');
+			if (separator < 0) {
+				throw new IllegalArgumentException("Expected key=value but was: " + argument);
+			}
+			config.set(argument.substring(0, separator).trim(), argument.substring(separator + 1).trim());
+		}
+		return config;
+	}
+
+	/**
+	 * Reads the settings from properties.
+	 */
+	public static PayoutConfig fromProperties(Properties properties) {
+		PayoutConfig config = new PayoutConfig();
+		for (String name : properties.stringPropertyNames()) {
+			config.set(name, properties.getProperty(name).trim());
+		}
+		return config;
+	}
+
+	/**
+	 * Sets a single setting by name.
+	 */
+	public void set(String name, String value) {
+		switch (name) {
+			case "stage":
+				stage = PayoutStage.forName(value);
+				break;
+			case "input":
+				input = new File(value);
+				break;
+			case "output":
+				output = new File(value);
+				break;
+			case "defaultDecision":
+				if ("none".equalsIgnoreCase(value) || value.isEmpty()) {
+					defaultDecision = null;
+				} else {
+					defaultDecision = PayoutInstruction.Decision.forName(value);
+					if (defaultDecision != PayoutInstruction.Decision.CONFIRM) {
+						throw new IllegalArgumentException("defaultDecision must be none or confirm: " + value);
+					}
+				}
+				break;
+			case "batchId":
+				batchId = value.isEmpty() ? null : value;
+				break;
+			case "parallelism":
+				parallelism = parsePositive(name, value);
+				break;
+			case "rate":
+				rate = Double.parseDouble(value);
+				break;
+			case "maxAttempts":
+				maxAttempts = parsePositive(name, value);
+				break;
+			case "reportSeconds":
+				reportSeconds = parsePositive(name, value);
+				break;
+			case "wsdl":
+				wsdl = value;
+				break;
+			case "wsUser":
+				wsUser = value;
+				break;
+			case "wsPassword":
+				wsPassword = value;
+				break;
+			case "reviewUser":
+				reviewUser = value;
+				break;
+			case "reviewPassword":
+				reviewPassword = value;
+				break;
+			case "merchantAccount":
+				merchantAccount = value;
+				break;
+			default:
+				throw new IllegalArgumentException("Unknown payout setting: " + name);
+		}
+	}
+
+	/**
+	 * Checks the settings that have no default.
+	 */
+	public void validate() {
+		if (stage == null) {
+			throw new IllegalArgumentException("No stage (submit or review)");
+		}
+		if (input == null) {
+			throw new IllegalArgumentException("No input file");
+		}
+	}
+
+	public PayoutStage getStage() {
+		return stage;
+	}
+
+	public void setStage(PayoutStage stage) {
+		this.stage = stage;
+	}
+
+	public File getInput() {
+		return input;
+	}
+
+	public void setInput(File input) {
+		this.input = input;
+	}
+
+	/**
+	 * Returns the output file, by default next to the input file.
+	 */
+	public File getOutput() {
+		if (output == null && input != null) {
+			return new File(input.getPath() + (stage == PayoutStage.REVIEW ? ".done.csv" : ".review.csv"));
+		}
+		return output;
+	}
+
+	public void setOutput(File output) {
+		this.output = output;
+	}
+
+	public PayoutInstruction.Decision getDefaultDecision() {
+		return defaultDecision;
+	}
+
+	public void setDefaultDecision(PayoutInstruction.Decision defaultDecision) {
+		this.defaultDecision = defaultDecision;
+	}
+
+	/**
+	 * Returns the batch ID that was set, or null if it is derived from the content of the input.
+	 */
+	public String getBatchId() {
+		return batchId;
+	}
+
+	public void setBatchId(String batchId) {
+		this.batchId = batchId;
+	}
+
+	public int getParallelism() {
+		return parallelism;
+	}
+
+	public void setParallelism(int parallelism) {
+		this.parallelism = parallelism;
+	}
+
+	public double getRate() {
+		return rate;
+	}
+
+	public void setRate(double rate) {
+		this.rate = rate;
+	}
+
+	public int getMaxAttempts() {
+		return maxAttempts;
+	}
+
+	public void setMaxAttempts(int maxAttempts) {
+		this.maxAttempts = maxAttempts;
+	}
+
+	public int getReportSeconds() {
+		return reportSeconds;
+	}
+
+	public void setReportSeconds(int reportSeconds) {
+		this.reportSeconds = reportSeconds;
+	}
+
+	public String getWsdl() {
+		return wsdl;
+	}
+
+	public void setWsdl(String wsdl) {
+		this.wsdl = wsdl;
+	}
+
+	public String getWsUser() {
+		return wsUser;
+	}
+
+	public void setWsUser(String wsUser) {
+		this.wsUser = wsUser;
+	}
+
+	public String getWsPassword() {
+		return wsPassword;
+	}
+
+	public void setWsPassword(String wsPassword) {
+		this.wsPassword = wsPassword;
+	}
+
+	public String getReviewUser() {
+		return reviewUser;
+	}
+
+	public void setReviewUser(String reviewUser) {
+		this.reviewUser = reviewUser;
+	}
+
+	public String getReviewPassword() {
+		return reviewPassword;
+	}
+
+	public void setReviewPassword(String reviewPassword) {
+		this.reviewPassword = reviewPassword;
+	}
+
+	public String getMerchantAccount() {
+		return merchantAccount;
+	}
+
+	public void setMerchantAccount(String merchantAccount) {
+		this.merchantAccount = merchantAccount;
+	}
+
+	@Override
+	public String toString() {
+		return "stage=" + stage + " input=" + input + " output=" + getOutput() + " batchId=" + batchId
+				+ " parallelism=" + parallelism + " rate=" + rate + " maxAttempts=" + maxAttempts + " wsdl=" + wsdl;
+	}
+
+	private static int parsePositive(String name, String value) {
+		int number = Integer.parseInt(value);
+		if (number < 1) {
+			throw new IllegalArgumentException(name + " must be at least 1: " + value);
+		}
+		return number;
+	}
+
+}
@@ -0,0 +1,159 @@
+package com.adyen.examples.payout.batch;
+
+import java.io.BufferedReader;
+import java.io.Closeable;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.nio.charset.Charset;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import com.adyen.examples.common.Csv;
+
+/**
+ * Streams the payouts of a batch from a CSV file
+ *
+ * The file is read line by line, so its size is not limited by the memory. It starts with a header line naming the
+ * columns, in any order; unknown columns are ignored. The payout instructions of the submit stage have the fields:
+ *
+ * <pre>
+ * - shopperReference  : the reference of the seller (shopper) to pay out to
+ * - currency          : the currency of the payout
+ * - value             : the payout amount in minor units (e.g. EUR 1,00 = 100)
+ * - iban, ownerName, countryCode, bic, bankName : the bank account of the seller (bic and bankName are optional)
+ * - shopperEmail, shopperStatement              : optional
+ * - merchantAccount   : the merchant account of the payout (optional, see PayoutConfig)
+ * - reference         : your reference of the payout (optional)
+ * </pre>
+ *
+ * For example:
+ *
+ * <pre>
+ * shopperReference,currency,value,iban,ownerName,countryCode
+ * seller-1042,EUR,12950,NL13TEST0123456789,A. Seller,NL
+ * </pre>
+ *
+ * The review file (written by the submit stage, see {@link PayoutResultWriter}) has the same fields, together with the
+ * pspReference of the submitted payout and the decision (confirm or decline) of the reviewer.
+ *
+ * Empty lines and lines starting with # are skipped. Empty fields are read as missing.
+ *
+ * @author Created by Adyen - Payments Made Easy
+ */
+public class PayoutFileReader implements Closeable {
+
+	private static final Charset UTF8 = Charset.forName("UTF-8");
+
+	private final PayoutStage stage;
+	private final long size;
+	private final BufferedReader reader;
+
+	private Map<String, Integer> columns;
+	private volatile long number;
+	private volatile long position;
+
+	public PayoutFileReader(File file, PayoutStage stage) throws IOException {
+		this.stage = stage;
+		this.size = file.length();
+		this.reader = new BufferedReader(new InputStreamReader(new FileInputStream(file), UTF8), 65536);
+	}
+
+	/**
+	 * Returns the next payout, or null at the end of the file.
+	 */
+	public PayoutInstruction next() throws IOException {
+		String line;
+		while ((line = reader.readLine()) != null) {
+			position += line.length() + 1;
+			if (line.isEmpty() || line.charAt(0) == '#' || line.trim().isEmpty()) {
+				continue;
+			}
+			if (columns == null) {
+				readHeader(line);
+				continue;
+			}
+
+			number++;
+			return parse(line);
+		}
+		return null;
+	}
+
+	/**
+	 * Skips the given number of payouts, e.g. the payouts processed before a restart. Returns the number of payouts
+	 * skipped, which is lower at the end of the file.
+	 */
+	public long skip(long count) throws IOException {
+		long skipped = 0;
+		while (skipped < count && next() != null) {
+			skipped++;
+		}
+		return skipped;
+	}
+
+	/**
+	 * Number of payouts read (or skipped) so far.
+	 */
+	public long getCount() {
+		return number;
+	}
+
+	/**
+	 * Position in the file after the last line read, counted in characters (see
+	 * {@link com.adyen.examples.modifications.batch.ModificationFileReader#getPosition()}).
+	 */
+	public long getPosition() {
+		return position;
+	}
+
+	/**
+	 * Size of the file in bytes.
+	 */
+	public long getSize() {
+		return size;
+	}
+
+	@Override
+	public void close() throws IOException {
+		reader.close();
+	}
+
+	private void readHeader(String line) throws IOException {
+		List<String> names = Csv.split(line);
+		columns = new HashMap<String, Integer>();
+		for (int i = 0; i < names.size(); i++) {
+			columns.put(names.get(i).trim(), i);
+		}
+
+		if (stage == PayoutStage.REVIEW) {
+			if (!columns.containsKey("pspReference") || !columns.containsKey("decision")) {
+				throw new IOException("The review file must contain the columns pspReference and decision: " + line);
+			}
+		} else if (!columns.containsKey("shopperReference") || !columns.containsKey("currency")
+				|| !columns.containsKey("value")) {
+			throw new IOException("CSV header must contain the columns shopperReference, currency and value: " + line);
+		}
+	}
+
+	private PayoutInstruction parse(String line) {
+		List<String> fields = Csv.split(line);
+		return new PayoutInstruction(number, column(fields, "reference"), column(fields, "merchantAccount"), column(
+				fields, "shopperReference"), column(fields, "shopperEmail"), column(fields, "shopperStatement"),
+				column(fields, "currency"), column(fields, "value"), column(fields, "iban"), column(fields, "bic"),
+				column(fields, "bankName"), column(fields, "countryCode"), column(fields, "ownerName"), column(fields,
+						"pspReference"), column(fields, "decision"));
+	}
+
+	private String column(List<String> fields, String name) {
+		Integer index = columns.get(name);
+		if (index == null || index >= fields.size()) {
+			return null;
+		}
+		String value = fields.get(index).trim();
+		return value.isEmpty() ? null : value;
+	}
+
+}
@@ -0,0 +1,205 @@
+package com.adyen.examples.payout.batch;
+
+/**
+ * A single payout of a batch, as read from the input file or the review file
+ *
+ * The fields are taken from the file as they are; {@link #validate(PayoutStage)} checks whether the payout can be
+ * sent in a stage. The row number (1-based, in the order of the file) identifies the payout within the file.
+ *
+ * @author Created by Adyen - Payments Made Easy
+ */
+public final class PayoutInstruction {
+
+	/**
+	 * The decisions of the review stage.
+	 */
+	public enum Decision {
+
+		CONFIRM("confirm"), DECLINE("decline");
+
+		private final String actionName;
+
+		private Decision(String actionName) {
+			this.actionName = actionName;
+		}
+
+		/**
+		 * Name of the decision in the review file and of the action in the Payout service (confirm or decline).
+		 */
+		public String getActionName() {
+			return actionName;
+		}
+
+		/**
+		 * Returns the decision with the given name (case insensitive), or null if there is none.
+		 */
+		public static Decision forName(String name) {
+			for (Decision decision : values()) {
+				if (decision.actionName.equalsIgnoreCase(name)) {
+					return decision;
+				}
+			}
+			return null;
+		}
+
+	}
+
+	private final long row;
+	private final String reference;
+	private final String merchantAccount;
+	private final String shopperReference;
+	private final String shopperEmail;
+	private final String shopperStatement;
+	private final String currency;
+	private final String value;
+	private final String iban;
+	private final String bic;
+	private final String bankName;
+	private final String countryCode;
+	private final String ownerName;
+	private final String pspReference;
+	private final String decision;
+
+	public PayoutInstruction(long row, String reference, String merchantAccount, String shopperReference,
+			String shopperEmail, String shopperStatement, String currency, String value, String iban, String bic,
+			String bankName, String countryCode, String ownerName, String pspReference, String decision) {
+		this.row = row;
+		this.reference = reference;
+		this.merchantAccount = merchantAccount;
+		this.shopperReference = shopperReference;
+		this.shopperEmail = shopperEmail;
+		this.shopperStatement = shopperStatement;
+		this.currency = currency;
+		this.value = value;
+		this.iban = iban;
+		this.bic = bic;
+		this.bankName = bankName;
+		this.countryCode = countryCode;
+		this.ownerName = ownerName;
+		this.pspReference = pspReference;
+		this.decision = decision;
+	}
+
+	/**
+	 * Row number within the file (1-based).
+	 */
+	public long getRow() {
+		return row;
+	}
+
+	public String getReference() {
+		return reference;
+	}
+
+	public String getMerchantAccount() {
+		return merchantAccount;
+	}
+
+	public String getShopperReference() {
+		return shopperReference;
+	}
+
+	public String getShopperEmail() {
+		return shopperEmail;
+	}
+
+	public String getShopperStatement() {
+		return shopperStatement;
+	}
+
+	public String getCurrency() {
+		return currency;
+	}
+
+	/**
+	 * Amount in minor units (e.g. EUR 1,00 = 100) as given in the file, see {@link #getAmountValue()}.
+	 */
+	public String getValue() {
+		return value;
+	}
+
+	/**
+	 * Returns the amount in minor units, or null if no (valid) amount is given.
+	 */
+	public Long getAmountValue() {
+		if (value == null) {
+			return null;
+		}
+		try {
+			return Long.valueOf(value);
+		} catch (NumberFormatException e) {
+			return null;
+		}
+	}
+
+	public String getIban() {
+		return iban;
+	}
+
+	public String getBic() {
+		return bic;
+	}
+
+	public String getBankName() {
+		return bankName;
+	}
+
+	public String getCountryCode() {
+		return countryCode;
+	}
+
+	public String getOwnerName() {
+		return ownerName;
+	}
+
+	/**
+	 * The pspReference of the submitted payout (review file only).
+	 */
+	public String getPspReference() {
+		return pspReference;
+	}
+
+	/**
+	 * Decision as given in the review file, see {@link #getDecision()} for the parsed decision.
+	 */
+	public String getDecisionName() {
+		return decision;
+	}
+
+	/**
+	 * Returns the decision, or null if the review file contains no (or an unknown) decision.
+	 */
+	public Decision getDecision() {
+		return decision != null ? Decision.forName(decision) : null;
+	}
+
+	/**
+	 * Returns why the payout cannot be sent in the given stage, or null if it is valid.
+	 */
+	public String validate(PayoutStage stage) {
+		if (stage == PayoutStage.REVIEW) {
+			if (decision != null && getDecision() == null) {
+				return "Unknown decision: " + decision;
+			}
+			return null;
+		}
+
+		if (shopperReference == null) {
+			return "Missing shopperReference (or invalid line)";
+		}
+		Long amountValue = getAmountValue();
+		if (currency == null || amountValue == null || amountValue <= 0) {
+			return "Missing or invalid amount: " + currency + " " + value;
+		}
+		if (iban == null || ownerName == null || countryCode == null) {
+			return "Missing bank account (iban, ownerName and countryCode are required)";
+		}
+		return null;
+	}
+
+	@Override
+	public String toString() {
+		return "#" + row + " " + shopperReference + " " + currency + " " + value;
+	}
+
+}
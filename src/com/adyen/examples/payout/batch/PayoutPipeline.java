@@ -0,0 +1,561 @@
+package com.adyen.examples.payout.batch;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.Collections;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+import javax.management.ObjectName;
+import javax.xml.ws.BindingProvider;
+import javax.xml.ws.WebServiceException;
+import javax.xml.ws.handler.MessageContext;
+import javax.xml.ws.soap.SOAPFaultException;
+
+import com.adyen.examples.common.PortPool;
+import com.adyen.examples.common.SoapServices;
+import com.adyen.examples.common.batch.BatchCheckpoint;
+import com.adyen.examples.common.batch.BatchSupport;
+import com.adyen.examples.common.batch.ProgressReporter;
+import com.adyen.examples.common.batch.RetryBackoff;
+import com.adyen.examples.common.metrics.AdyenMetrics;
+import com.adyen.examples.common.metrics.OperationTimer;
+import com.adyen.services.common.Amount;
+import com.adyen.services.payment.BankAccount;
+import com.adyen.services.payment.Recurring;
+import com.adyen.services.payout.ModifyRequest;
+import com.adyen.services.payout.ModifyResponse;
+import com.adyen.services.payout.PayoutPortType;
+import com.adyen.services.payout.StoreDetailAndSubmitRequest;
+import com.adyen.services.payout.StoreDetailAndSubmitResponse2;
+import com.google.common.util.concurrent.RateLimiter;
+
+/**
+ * Payout pipeline: store-and-submit and review of a whole file of payouts (SOAP)
+ *
+ * Instead of a single payout (see the StorePayoutDetailsAndSubmit, ConfirmPayoutRequest and DeclinePayoutRequest
+ * examples), this pipeline pays out to thousands of sellers at once, in the two steps of the Payout process:
+ *
+ * <pre>
+ * 1. submit : the payout instructions are streamed from a CSV file (see {@link PayoutFileReader}) and sent with
+ *             storeDetailAndSubmit, using the web service user that initiates payouts. The results are written to
+ *             the review file (see {@link PayoutResultWriter}), which is the queue of payouts waiting for review.
+ * 2. review : the reviewer fills in the decision (confirm or decline) of every payout in the review file; this stage
+ *             sends the confirm and decline requests, using the web service user that reviews payouts. Payouts
+ *             without a decision are skipped, so they can be reviewed in a later run.
+ * </pre>
+ *
+ * Both stages send the requests in parallel through the shared pool of Payout clients (see {@link SoapServices}):
+ *
+ * <pre>
+ * - parallelism : at most this number of requests is in flight at the same time
+ * - rate        : at most this number of requests is sent per second (Guava RateLimiter)
+ * - retries     : network errors and an overloaded platform are retried with exponential backoff; requests that
+ *                 Adyen rejects (SOAP fault) are reported and not retried
+ * </pre>
+ *
+ * The results are written in the order of the input file, and the progress is stored in a checkpoint (see
+ * {@link BatchCheckpoint}). When a stage is stopped or crashes, it resumes at the checkpoint when started again with
+ * the same settings. Requests in flight at that moment are sent again with the same Idempotency-Key header (merchant
+ * account and reference for a submit, merchant account, pspReference and decision for a review), so a seller is never
+ * paid out twice. Without a reference in the file, the reference is derived from the batch ID and the row number,
+ * e.g. PAYOUT-sellers-2016-03-01-42, so it is the same after a restart. Set a batchId per batch, or leave it out to
+ * derive it from the content of the input file; a file that has the same name every day must not reuse the keys of
+ * the day before.
+ *
+ * The progress and the throughput of every step (read, submit or confirm and decline, write) are printed every
+ * reportSeconds and are available through JMX (see {@link PayoutPipelineMBean}). Run the stages with key=value
+ * settings (see {@link PayoutConfig}), e.g.:
+ *
+ * <pre>
+ * java -cp "WEB-INF/classes:WEB-INF/lib/*" com.adyen.examples.payout.batch.PayoutPipeline stage=submit input=sellers.csv
+ * java -cp "WEB-INF/classes:WEB-INF/lib/*" com.adyen.examples.payout.batch.PayoutPipeline stage=review input=sellers.csv.review.csv
+ * </pre>
+ *
+ * Stop a run with Ctrl-C; the requests in flight are completed before the checkpoint is stored.
+ *
+ * @author Created by Adyen - Payments Made Easy
+ */
+public class PayoutPipeline implements PayoutPipelineMBean {
+
+	/**
+	 * Pipeline settings
+	 * - WINDOW_PER_THREAD: maximum number of results waiting to be written per thread, as the output follows the input
+	 * - RETRY_BACKOFF_MILLIS: time to wait before the first retry, doubled for every next retry
+	 * - SHUTDOWN_SECONDS: maximum time to wait for the requests in flight when the run stops
+	 */
+	private static final int WINDOW_PER_THREAD = 8;
+	private static final long RETRY_BACKOFF_MILLIS = 500;
+	private static final long SHUTDOWN_SECONDS = 120;
+
+	/**
+	 * Sends a single request with a Payout client.
+	 */
+	private interface PayoutCall {
+
+		PayoutResult send(PayoutPortType client, int attempt);
+
+	}
+
+	private final PayoutConfig config;
+	private final PortPool<PayoutPortType> ports;
+	private String referencePrefix;
+	private final RateLimiter rateLimiter;
+	private final Semaphore window;
+	private final int windowSize;
+	private final RetryBackoff retry;
+	private final ProgressReporter progress;
+
+	private final StageCounter read = new StageCounter();
+	private final StageCounter submit = new StageCounter();
+	private final StageCounter confirm = new StageCounter();
+	private final StageCounter decline = new StageCounter();
+	private final StageCounter write = new StageCounter();
+
+	private final LongAdder received = new LongAdder();
+	private final LongAdder rejected = new LongAdder();
+	private final LongAdder failed = new LongAdder();
+	private final LongAdder invalid = new LongAdder();
+	private final LongAdder skipped = new LongAdder();
+
+	private volatile boolean running = true;
+	private volatile IOException writeFailure;
+	private volatile PayoutFileReader reader;
+	private volatile PayoutResultWriter writer;
+
+	private ObjectName objectName;
+
+	/**
+	 * Creates a pipeline using the pooled Payout clients of the web service user of the stage.
+	 */
+	public PayoutPipeline(PayoutConfig config) {
+		this(config, config.getStage() == PayoutStage.REVIEW
+				? SoapServices.payoutPorts(config.getWsdl(), config.getReviewUser(), config.getReviewPassword())
+				: SoapServices.payoutPorts(config.getWsdl(), config.getWsUser(), config.getWsPassword()));
+	}
+
+	public PayoutPipeline(PayoutConfig config, PortPool<PayoutPortType> ports) {
+		config.validate();
+		this.config = config;
+		this.ports = ports;
+
+		this.rateLimiter = config.getRate() > 0 ? RateLimiter.create(config.getRate()) : null;
+		this.windowSize = config.getParallelism() * WINDOW_PER_THREAD;
+		this.window = new Semaphore(windowSize);
+		this.retry = new RetryBackoff(config.getMaxAttempts(), RETRY_BACKOFF_MILLIS, () -> running);
+		this.progress = new ProgressReporter("payout-progress", config.getReportSeconds(), this::getProcessedCount,
+				this::report);
+	}
+
+	/**
+	 * Runs the stage, resuming at the checkpoint if there is one, and returns when all payouts are processed or the
+	 * run is stopped.
+	 */
+	public void run() throws IOException, InterruptedException {
+		File input = config.getInput();
+		File output = config.getOutput();
+		String batchId = config.getBatchId() != null ? config.getBatchId() : BatchCheckpoint.contentId(input);
+		referencePrefix = "PAYOUT-" + batchId + "-";
+
+		ExecutorService executor = Executors.newFixedThreadPool(config.getParallelism(), BatchSupport
+				.threads("payout-" + getStage()));
+
+		try (BatchCheckpoint checkpoint = new BatchCheckpoint(output)) {
+			long done = checkpoint.loadRecords(batchId);
+			reader = new PayoutFileReader(input, config.getStage());
+			try {
+				if (reader.skip(done) < done) {
+					throw new IOException("Checkpoint " + checkpoint + " is beyond the end of " + input);
+				}
+				writer = new PayoutResultWriter(output, checkpoint, batchId, done);
+				try {
+					if (done > 0) {
+						System.out.println("Resuming " + input + " after " + done + " payouts");
+					}
+					objectName = BatchSupport.registerMBean(this, "PayoutPipeline", getStage() + "-" + input.getName());
+					progress.start();
+					sendAll(executor);
+				} finally {
+					executor.shutdown();
+					if (!executor.awaitTermination(SHUTDOWN_SECONDS, TimeUnit.SECONDS)) {
+						System.err.println("Payouts still in flight, they are sent again when the stage resumes");
+					}
+					writer.close();
+				}
+			} finally {
+				reader.close();
+			}
+		} finally {
+			progress.stop();
+			BatchSupport.unregisterMBean(objectName);
+		}
+
+		System.out.println(this);
+		if (writeFailure != null) {
+			throw writeFailure;
+		}
+	}
+
+	/**
+	 * Stops sending payouts; {@link #run()} returns once the requests in flight are completed.
+	 */
+	@Override
+	public void stop() {
+		running = false;
+	}
+
+	private void sendAll(ExecutorService executor) throws IOException, InterruptedException {
+		PayoutInstruction instruction;
+		while (running && (instruction = reader.next()) != null) {
+			// Wait until the results of the earliest payouts are written
+			window.acquire();
+			read.increment();
+
+			String error = instruction.validate(config.getStage());
+			if (error != null) {
+				complete(result(instruction, PayoutResult.Status.INVALID, null, error, 0));
+				continue;
+			}
+			if (config.getStage() == PayoutStage.REVIEW) {
+				if (instruction.getPspReference() == null) {
+					complete(result(instruction, PayoutResult.Status.SKIPPED, null, "Not submitted", 0));
+					continue;
+				}
+				if (instruction.getDecision() == null) {
+					complete(result(instruction, PayoutResult.Status.SKIPPED, null, "No decision", 0));
+					continue;
+				}
+			}
+
+			if (rateLimiter != null) {
+				rateLimiter.acquire();
+			}
+
+			final PayoutInstruction next = instruction;
+			executor.execute(new Runnable() {
+				@Override
+				public void run() {
+					complete(config.getStage() == PayoutStage.REVIEW ? review(next) : submit(next));
+				}
+			});
+		}
+	}
+
+	/**
+	 * Stores the bank details of the seller and submits the payout.
+	 */
+	private PayoutResult submit(final PayoutInstruction instruction) {
+		final StoreDetailAndSubmitRequest payoutRequest = new StoreDetailAndSubmitRequest();
+		payoutRequest.setMerchantAccount(merchantAccountOf(instruction));
+		payoutRequest.setReference(referenceOf(instruction));
+		payoutRequest.setShopperReference(instruction.getShopperReference());
+		payoutRequest.setShopperEmail(instruction.getShopperEmail());
+		payoutRequest.setShopperStatement(instruction.getShopperStatement());
+
+		Recurring recurring = new Recurring();
+		recurring.setContract("PAYOUT");
+		payoutRequest.setRecurring(recurring);
+
+		BankAccount bankAccount = new BankAccount();
+		bankAccount.setIban(instruction.getIban());
+		bankAccount.setBic(instruction.getBic());
+		bankAccount.setBankName(instruction.getBankName());
+		bankAccount.setCountryCode(instruction.getCountryCode());
+		bankAccount.setOwnerName(instruction.getOwnerName());
+		payoutRequest.setBank(bankAccount);
+
+		Amount amount = new Amount();
+		amount.setCurrency(instruction.getCurrency());
+		amount.setValue(instruction.getAmountValue());
+		payoutRequest.setAmount(amount);
+
+		final String decision = config.getDefaultDecision() != null ? config.getDefaultDecision().getActionName() : null;
+		String idempotencyKey = payoutRequest.getMerchantAccount() + "/" + payoutRequest.getReference();
+
+		return send(instruction, "Payout.storeDetailAndSubmit", idempotencyKey, submit, (client, attempt) -> {
+			StoreDetailAndSubmitResponse2 payoutResult = client.storeDetailAndSubmit(payoutRequest);
+			boolean submitted = "[payout-submit-received]".equals(payoutResult.getResultCode());
+			return new PayoutResult(instruction, payoutRequest.getMerchantAccount(), payoutRequest.getReference(),
+					submitted ? PayoutResult.Status.RECEIVED : PayoutResult.Status.REJECTED,
+					payoutResult.getPspReference(), submitted ? decision : null, payoutResult.getResultCode(),
+					payoutResult.getRefusalReason(), attempt);
+		});
+	}
+
+	/**
+	 * Confirms or declines a submitted payout, as decided by the reviewer.
+	 */
+	private PayoutResult review(final PayoutInstruction instruction) {
+		final PayoutInstruction.Decision decision = instruction.getDecision();
+		final ModifyRequest modifyRequest = new ModifyRequest();
+		modifyRequest.setMerchantAccount(merchantAccountOf(instruction));
+		modifyRequest.setOriginalReference(instruction.getPspReference());
+
+		final String expectedResponse = "[payout-" + decision.getActionName() + "-received]";
+		String idempotencyKey = modifyRequest.getMerchantAccount() + "/" + instruction.getPspReference() + "/"
+				+ decision.getActionName();
+
+		return send(instruction, "Payout." + decision.getActionName(), idempotencyKey,
+				decision == PayoutInstruction.Decision.CONFIRM ? confirm : decline, (client, attempt) -> {
+					ModifyResponse modifyResult = decision == PayoutInstruction.Decision.CONFIRM ? client
+							.confirm(modifyRequest) : client.decline(modifyRequest);
+					boolean accepted = expectedResponse.equals(modifyResult.getResponse());
+					return result(instruction, accepted ? PayoutResult.Status.RECEIVED
+							: PayoutResult.Status.REJECTED, modifyResult.getResponse(), null, attempt);
+				});
+	}
+
+	/**
+	 * Sends a single request with the Idempotency-Key header, retrying network errors and an overloaded platform.
+	 */
+	private PayoutResult send(PayoutInstruction instruction, String operation, String idempotencyKey,
+			StageCounter stage, PayoutCall call) {
+		Map<String, ?> headers = Collections.singletonMap("Idempotency-Key", Collections.singletonList(idempotencyKey));
+
+		String message = null;
+		for (int attempt = 1;; attempt++) {
+			PayoutPortType client = ports.borrow();
+			Map<String, Object> requestContext = ((BindingProvider) client).getRequestContext();
+			requestContext.put(MessageContext.HTTP_REQUEST_HEADERS, headers);
+
+			stage.increment();
+			try (OperationTimer timer = AdyenMetrics.soap(operation).start()) {
+				PayoutResult result = call.send(client, attempt);
+				timer.setResult(result.getResultCode());
+				return result;
+			} catch (SOAPFaultException e) {
+				// Adyen rejected the request, e.g. an invalid bank account or a payout that is already confirmed
+				return result(instruction, PayoutResult.Status.REJECTED, null, e.getMessage(), attempt);
+			} catch (WebServiceException e) {
+				// A network error, an overloaded platform, or no permit of the limiter in time
+				message = e.toString();
+			} finally {
+				// The client goes back to the pool, without the header of this payout
+				requestContext.remove(MessageContext.HTTP_REQUEST_HEADERS);
+				ports.release(client);
+			}
+
+			if (!retry.awaitRetry(attempt)) {
+				return result(instruction, PayoutResult.Status.FAILED, null, message, attempt);
+			}
+		}
+	}
+
+	/**
+	 * Creates a result that keeps the pspReference and decision of the file (review), or has none (submit).
+	 */
+	private PayoutResult result(PayoutInstruction instruction, PayoutResult.Status status, String resultCode,
+			String message, int attempts) {
+		return new PayoutResult(instruction, merchantAccountOf(instruction), referenceOf(instruction), status,
+				instruction.getPspReference(), instruction.getDecisionName(), resultCode, message, attempts);
+	}
+
+	private String merchantAccountOf(PayoutInstruction instruction) {
+		return instruction.getMerchantAccount() != null ? instruction.getMerchantAccount() : config
+				.getMerchantAccount();
+	}
+
+	private String referenceOf(PayoutInstruction instruction) {
+		return instruction.getReference() != null ? instruction.getReference() : referencePrefix
+				+ instruction.getRow();
+	}
+
+	private void complete(PayoutResult result) {
+		switch (result.getStatus()) {
+			case RECEIVED:
+				received.increment();
+				break;
+			case REJECTED:
+				rejected.increment();
+				break;
+			case FAILED:
+				failed.increment();
+				break;
+			case SKIPPED:
+				skipped.increment();
+				break;
+			default:
+				invalid.increment();
+		}
+
+		try {
+			int written = writer.write(result);
+			write.add(written);
+			window.release(written);
+		} catch (IOException e) {
+			// Without output the progress cannot be stored, stop sending payouts
+			writeFailure = e;
+			running = false;
+			window.release(windowSize);
+		}
+	}
+
+	/**
+	 * Samples the throughput of every step and prints the progress, every reportSeconds.
+	 */
+	private void report() {
+		for (StageCounter stage : new StageCounter[] { read, submit, confirm, decline, write }) {
+			stage.sample();
+		}
+		System.out.println(this);
+	}
+
+	@Override
+	public String getStage() {
+		return config.getStage().name().toLowerCase();
+	}
+
+	@Override
+	public long getProcessedCount() {
+		PayoutResultWriter current = writer;
+		return current != null ? current.getWritten() : 0;
+	}
+
+	@Override
+	public long getEstimatedTotal() {
+		PayoutFileReader current = reader;
+		if (current == null || current.getPosition() == 0) {
+			return 0;
+		}
+		if (current.getPosition() >= current.getSize()) {
+			return current.getCount();
+		}
+		return current.getCount() * current.getSize() / current.getPosition();
+	}
+
+	@Override
+	public long getReceivedCount() {
+		return received.sum();
+	}
+
+	@Override
+	public long getRejectedCount() {
+		return rejected.sum();
+	}
+
+	@Override
+	public long getFailedCount() {
+		return failed.sum();
+	}
+
+	@Override
+	public long getInvalidCount() {
+		return invalid.sum();
+	}
+
+	@Override
+	public long getSkippedCount() {
+		return skipped.sum();
+	}
+
+	@Override
+	public long getRetryCount() {
+		return retry.getRetryCount();
+	}
+
+	@Override
+	public int getInFlight() {
+		return windowSize - window.availablePermits();
+	}
+
+	@Override
+	public double getReadThroughput() {
+		return read.throughput;
+	}
+
+	@Override
+	public double getSubmitThroughput() {
+		return submit.throughput;
+	}
+
+	@Override
+	public double getConfirmThroughput() {
+		return confirm.throughput;
+	}
+
+	@Override
+	public double getDeclineThroughput() {
+		return decline.throughput;
+	}
+
+	@Override
+	public double getWriteThroughput() {
+		return write.throughput;
+	}
+
+	@Override
+	public long getEtaSeconds() {
+		return progress.getEtaSeconds(getEstimatedTotal() - getProcessedCount());
+	}
+
+	@Override
+	public String toString() {
+		long processed = getProcessedCount();
+		long total = Math.max(getEstimatedTotal(), processed);
+		String steps = config.getStage() == PayoutStage.REVIEW ? String.format("confirm %.0f/s, decline %.0f/s",
+				confirm.throughput, decline.throughput) : String.format("submit %.0f/s", submit.throughput);
+		return String.format("Processed %d of ~%d (%.1f%%), ETA %s - read %.0f/s, %s, write %.0f/s - received: %d, "
+				+ "rejected: %d, failed: %d, invalid: %d, skipped: %d, retries: %d", processed, total,
+				total > 0 ? processed * 100.0 / total : 0.0, ProgressReporter.formatEta(getEtaSeconds()),
+				read.throughput, steps, write.throughput, getReceivedCount(), getRejectedCount(), getFailedCount(),
+				getInvalidCount(), getSkippedCount(), getRetryCount());
+	}
+
+	/**
+	 * Counts the work of a single step of the pipeline, and its throughput over the last report interval.
+	 */
+	private static final class StageCounter {
+
+		private final LongAdder count = new LongAdder();
+		private long lastCount;
+		private long lastNanos = System.nanoTime();
+		private volatile double throughput;
+
+		void increment() {
+			count.increment();
+		}
+
+		void add(long value) {
+			count.add(value);
+		}
+
+		void sample() {
+			long current = count.sum();
+			long now = System.nanoTime();
+			throughput = now > lastNanos ? (current - lastCount) * 1e9 / (now - lastNanos) : 0;
+			lastCount = current;
+			lastNanos = now;
+		}
+
+	}
+
+	public static void main(String[] args) throws Exception {
+		PayoutConfig config = PayoutConfig.fromArguments(args);
+		final PayoutPipeline pipeline = new PayoutPipeline(config);
+		System.out.println("Payout " + pipeline.getStage() + " started (" + config + ")");
+
+		final Thread main = Thread.currentThread();
+		Runtime.getRuntime().addShutdownHook(new Thread() {
+			@Override
+			public void run() {
+				pipeline.stop();
+				try {
+					main.join();
+				} catch (InterruptedException e) {
+					// Exit without waiting for the payouts in flight
+				}
+			}
+		});
+
+		try {
+			pipeline.run();
+		} finally {
+			SoapServices.shutdown();
+		}
+	}
+
+}
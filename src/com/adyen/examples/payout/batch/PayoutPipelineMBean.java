@@ -0,0 +1,78 @@
+package com.adyen.examples.payout.batch;
+
+/**
+ * Management interface of a {@link PayoutPipeline} run, registered as
+ * com.adyen.examples:type=PayoutPipeline,name=&lt;stage&gt;-&lt;input file&gt;
+ *
+ * @author Created by Adyen - Payments Made Easy
+ */
+public interface PayoutPipelineMBean {
+
+	String getStage();
+
+	/**
+	 * Number of payouts whose results are written, including the payouts processed before a restart.
+	 */
+	long getProcessedCount();
+
+	/**
+	 * Estimated total number of payouts in the input file, extrapolated from the part read so far.
+	 */
+	long getEstimatedTotal();
+
+	long getReceivedCount();
+
+	long getRejectedCount();
+
+	long getFailedCount();
+
+	long getInvalidCount();
+
+	long getSkippedCount();
+
+	/**
+	 * Number of times a request was sent again after a network error or an overloaded platform.
+	 */
+	long getRetryCount();
+
+	/**
+	 * Number of payouts read but not yet written.
+	 */
+	int getInFlight();
+
+	/**
+	 * Number of payouts read from the input file per second, measured over the last report interval.
+	 */
+	double getReadThroughput();
+
+	/**
+	 * Number of storeDetailAndSubmit calls per second, measured over the last report interval.
+	 */
+	double getSubmitThroughput();
+
+	/**
+	 * Number of confirm calls per second, measured over the last report interval.
+	 */
+	double getConfirmThroughput();
+
+	/**
+	 * Number of decline calls per second, measured over the last report interval.
+	 */
+	double getDeclineThroughput();
+
+	/**
+	 * Number of results written per second, measured over the last report interval.
+	 */
+	double getWriteThroughput();
+
+	/**
+	 * Estimated number of seconds until the batch is complete, or -1 if unknown.
+	 */
+	long getEtaSeconds();
+
+	/**
+	 * Stops sending payouts; the run completes the payouts in flight and stores its checkpoint.
+	 */
+	void stop();
+
+}
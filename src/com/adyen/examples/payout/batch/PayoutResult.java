@@ -0,0 +1,105 @@
+package com.adyen.examples.payout.batch;
+
+/**
+ * Result of a single payout of a batch, as written to the output file
+ *
+ * <pre>
+ * - RECEIVED : Adyen accepted the payout (submit), or the confirm or decline (review)
+ * - REJECTED : Adyen refused the payout or rejected the request (SOAP fault); it is not retried
+ * - FAILED   : the request could not be sent, or Adyen was unavailable, after the maximum number of attempts
+ * - INVALID  : the payout in the file is incomplete; it is not sent
+ * - SKIPPED  : review only: the payout has no decision, or was not submitted; nothing is sent
+ * </pre>
+ *
+ * @author Created by Adyen - Payments Made Easy
+ */
+public final class PayoutResult {
+
+	public enum Status {
+		RECEIVED, REJECTED, FAILED, INVALID, SKIPPED
+	}
+
+	private final PayoutInstruction instruction;
+	private final String merchantAccount;
+	private final String reference;
+	private final Status status;
+	private final String pspReference;
+	private final String decision;
+	private final String resultCode;
+	private final String message;
+	private final int attempts;
+
+	public PayoutResult(PayoutInstruction instruction, String merchantAccount, String reference, Status status,
+			String pspReference, String decision, String resultCode, String message, int attempts) {
+		this.instruction = instruction;
+		this.merchantAccount = merchantAccount;
+		this.reference = reference;
+		this.status = status;
+		this.pspReference = pspReference;
+		this.decision = decision;
+		this.resultCode = resultCode;
+		this.message = message;
+		this.attempts = attempts;
+	}
+
+	public PayoutInstruction getInstruction() {
+		return instruction;
+	}
+
+	/**
+	 * The merchant account the payout was submitted with.
+	 */
+	public String getMerchantAccount() {
+		return merchantAccount;
+	}
+
+	/**
+	 * The reference the payout was submitted with.
+	 */
+	public String getReference() {
+		return reference;
+	}
+
+	public Status getStatus() {
+		return status;
+	}
+
+	/**
+	 * The pspReference of the payout.
+	 */
+	public String getPspReference() {
+		return pspReference;
+	}
+
+	/**
+	 * The decision written to the output: the default decision (submit) or the decision of the reviewer (review).
+	 */
+	public String getDecision() {
+		return decision;
+	}
+
+	/**
+	 * The resultCode (submit) or response (confirm and decline) of Adyen, e.g. [payout-submit-received].
+	 */
+	public String getResultCode() {
+		return resultCode;
+	}
+
+	/**
+	 * Why the payout was refused, rejected, failed, invalid or skipped.
+	 */
+	public String getMessage() {
+		return message;
+	}
+
+	public int getAttempts() {
+		return attempts;
+	}
+
+	@Override
+	public String toString() {
+		return instruction + " " + status + " " + pspReference + " " + resultCode + (message != null ? " " + message
+				: "");
+	}
+
+}
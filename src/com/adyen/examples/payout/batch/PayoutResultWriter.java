@@ -0,0 +1,80 @@
+package com.adyen.examples.payout.batch;
+
+import java.io.File;
+import java.io.IOException;
+
+import com.adyen.examples.common.Csv;
+import com.adyen.examples.common.batch.BatchCheckpoint;
+import com.adyen.examples.common.batch.OrderedResultWriter;
+
+/**
+ * Writes the results of a payout batch to a CSV file, in the order of the input file
+ *
+ * Payouts complete out of order, as they are sent in parallel; the writer keeps their results until they are next in
+ * line (see {@link OrderedResultWriter}), so the batch can resume at its checkpoint (see {@link BatchCheckpoint}). The
+ * file has the columns of the input, followed by the results:
+ *
+ * <pre>
+ * row,reference,merchantAccount,shopperReference,shopperEmail,shopperStatement,currency,value,iban,bic,bankName,
+ * countryCode,ownerName,pspReference,decision,status,resultCode,message
+ * </pre>
+ *
+ * The output of the submit stage is the review file: the reviewer fills in the decision column (confirm or decline),
+ * and the review stage reads it back. Note that the file contains the bank details of the sellers.
+ *
+ * @author Created by Adyen - Payments Made Easy
+ */
+public class PayoutResultWriter extends OrderedResultWriter<PayoutResult> {
+
+	private static final String HEADER = "row,reference,merchantAccount,shopperReference,shopperEmail,shopperStatement,"
+			+ "currency,value,iban,bic,bankName,countryCode,ownerName,pspReference,decision,status,resultCode,message\n";
+
+	private final StringBuilder line = new StringBuilder(512);
+
+	/**
+	 * Opens the output file. When resuming, the file is cut back to its length at the checkpoint, otherwise it is
+	 * created (or emptied).
+	 *
+	 * @param written number of payouts whose results are already written (from the checkpoint)
+	 */
+	public PayoutResultWriter(File output, BatchCheckpoint checkpoint, String batchId, long written)
+			throws IOException {
+		super(output, checkpoint, batchId, written, HEADER);
+	}
+
+	@Override
+	protected long recordNumber(PayoutResult result) {
+		return result.getInstruction().getRow();
+	}
+
+	@Override
+	protected void writeResult(PayoutResult result) throws IOException {
+		PayoutInstruction instruction = result.getInstruction();
+		line.setLength(0);
+		line.append(instruction.getRow());
+		appendCsv(result.getReference());
+		appendCsv(result.getMerchantAccount());
+		appendCsv(instruction.getShopperReference());
+		appendCsv(instruction.getShopperEmail());
+		appendCsv(instruction.getShopperStatement());
+		appendCsv(instruction.getCurrency());
+		appendCsv(instruction.getValue());
+		appendCsv(instruction.getIban());
+		appendCsv(instruction.getBic());
+		appendCsv(instruction.getBankName());
+		appendCsv(instruction.getCountryCode());
+		appendCsv(instruction.getOwnerName());
+		appendCsv(result.getPspReference());
+		appendCsv(result.getDecision());
+		appendCsv(result.getStatus().name());
+		appendCsv(result.getResultCode());
+		appendCsv(result.getMessage());
+		line.append('\n');
+		writeBytes(line.toString().getBytes(UTF8));
+	}
+
+	private void appendCsv(String value) {
+		Csv.append(line.append(','), value);
+	}
+
+}
@@ -0,0 +1,29 @@
+package com.adyen.examples.payout.batch;
+
+/**
+ * The two stages of a payout batch, see {@link PayoutPipeline}
+ *
+ * <pre>
+ * - SUBMIT : store the bank details and submit the payouts (storeDetailAndSubmit), writing the review file
+ * - REVIEW : confirm or decline the submitted payouts, as decided in the review file
+ * </pre>
+ *
+ * @author Created by Adyen - Payments Made Easy
+ */
+public enum PayoutStage {
+
+	SUBMIT, REVIEW;
+
+	/**
+	 * Returns the stage with the given name (case insensitive).
+	 */
+	public static PayoutStage forName(String name) {
+		for (PayoutStage stage : values()) {
+			if (stage.name().equalsIgnoreCase(name)) {
+				return stage;
+			}
+		}
+		throw new IllegalArgumentException("Unknown stage: " + name + " (expected submit or review)");
+	}
+
+}
@@ -1,8 +1,6 @@
 package com.adyen.examples.recurring.JSON;
 import java.io.IOException;
 import java.io.PrintWriter;
-import java.text.SimpleDateFormat;
-import java.util.Date;
 
 import javax.servlet.ServletException;
 import javax.servlet.annotation.WebServlet;
@@ -11,18 +9,21 @@ import javax.servlet.http.HttpServletRequest;
 import javax.servlet.http.HttpServletResponse;
 
 import org.apache.http.HttpResponse;
-import org.apache.http.auth.AuthScope;
-import org.apache.http.auth.UsernamePasswordCredentials;
-import org.apache.http.client.CredentialsProvider;
 import org.apache.http.client.HttpClient;
 import org.apache.http.client.methods.HttpPost;
-import org.apache.http.entity.StringEntity;
-import org.apache.http.impl.client.BasicCredentialsProvider;
-import org.apache.http.impl.client.HttpClientBuilder;
-import org.apache.http.util.EntityUtils;
-import org.json.simple.JSONObject;
-import org.json.simple.parser.JSONParser;
-import org.json.simple.parser.ParseException;
+import org.apache.http.client.protocol.HttpClientContext;
+
+import com.adyen.examples.common.AdyenHttpClient;
+import com.adyen.examples.common.ReferenceGenerator;
+import com.adyen.examples.common.json.Amount;
+import com.adyen.examples.common.json.Card;
+import com.adyen.examples.common.json.JsonCodec;
+import com.adyen.examples.common.json.PaymentRequest;
+import com.adyen.examples.common.json.PaymentResult;
+import com.adyen.examples.common.json.Recurring;
+import com.adyen.examples.common.json.ServiceError;
+import com.adyen.examples.common.metrics.AdyenMetrics;
+import com.adyen.examples.common.metrics.OperationTimer;
 
 /**
  * Create Recurring Payment (JSON)
@@ -54,13 +55,14 @@ public class CreateRecurringPayment extends HttpServlet {
 		String wsPassword = "YourWSPassword";
 
 		/**
-		 * Create HTTP Client (using Apache HttpComponents library) and set up Basic Authentication
+		 * Get the shared HTTP Client (using Apache HttpComponents library) and set up Basic Authentication
+		 * 
+		 * The client is created once for the whole application, so connections to Adyen are reused between requests.
+		 * 
+		 * @see com.adyen.examples.common.AdyenHttpClient
 		 */
-		CredentialsProvider provider = new BasicCredentialsProvider();
-		UsernamePasswordCredentials credentials = new UsernamePasswordCredentials(wsUser, wsPassword);
-		provider.setCredentials(AuthScope.ANY, credentials);
-
-		HttpClient client = HttpClientBuilder.create().setDefaultCredentialsProvider(provider).build();
+		HttpClient client = AdyenHttpClient.getInstance();
+		HttpClientContext context = AdyenHttpClient.createContext(apiUrl, wsUser, wsPassword);
 
 		/**
 		 * A recurring payment can be submitted with a HTTP Post request to the API, containing the following variables:
@@ -92,63 +94,56 @@ public class CreateRecurringPayment extends HttpServlet {
 		 */
 		
 		// Create new payment request
-		JSONObject paymentRequest = new JSONObject();
-		paymentRequest.put("merchantAccount", "YourMerchantAccount");
-		paymentRequest.put("reference", "TEST-PAYMENT-" + new SimpleDateFormat("yyyy-MM-dd-HH:mm:ss").format(new Date()));
-		paymentRequest.put("shopperIP", "123.123.123.123");
-		paymentRequest.put("shopperEmail", "test@example.com");
-		paymentRequest.put("shopperReference", "TheShopperReference");
-		paymentRequest.put("fraudOffset", "0");
+		PaymentRequest paymentRequest = new PaymentRequest();
+		paymentRequest.setMerchantAccount("YourMerchantAccount");
+		paymentRequest.setReference(ReferenceGenerator.next("TEST-PAYMENT-"));
+		paymentRequest.setShopperIP("123.123.123.123");
+		paymentRequest.setShopperEmail("test@example.com");
+		paymentRequest.setShopperReference("TheShopperReference");
+		paymentRequest.setFraudOffset(0L);
 		
 		// Set amount
-		JSONObject amount = new JSONObject();
-		amount.put("currency", "EUR");
-		amount.put("value", "199");
-		paymentRequest.put("amount", amount);
+		Amount amount = new Amount();
+		amount.setCurrency("EUR");
+		amount.setValue(199);
+		paymentRequest.setAmount(amount);
 
 		// Set recurring contract
-		paymentRequest.put("selectedRecurringDetailReference", "LATEST");
-		paymentRequest.put("shopperInteraction", "Ecommerce");
+		paymentRequest.setSelectedRecurringDetailReference("LATEST");
+		paymentRequest.setShopperInteraction("Ecommerce");
 
-		JSONObject recurring = new JSONObject();
-		recurring.put("contract", "ONECLICK");
-		paymentRequest.put("recurring", recurring);
+		Recurring recurring = new Recurring();
+		recurring.setContract("ONECLICK");
+		paymentRequest.setRecurring(recurring);
 		
 		// CVC is only required for OneClick card payments
-		JSONObject card = new JSONObject();
-		card.put("cvc", "737");
-		paymentRequest.put("card", card);
+		Card card = new Card();
+		card.setCvc("737");
+		paymentRequest.setCard(card);
 
 		/**
 		 * Send the HTTP request with the specified variables in JSON.
 		 */
 		HttpPost httpRequest = new HttpPost(apiUrl);
-		httpRequest.addHeader("Content-Type", "application/json");
-		httpRequest.setEntity(new StringEntity(paymentRequest.toString(), "UTF-8"));
-
-		HttpResponse httpResponse = client.execute(httpRequest);
-		String paymentResponse = EntityUtils.toString(httpResponse.getEntity(), "UTF-8");
+		httpRequest.setEntity(JsonCodec.toEntity(paymentRequest));
 
 		/**
 		 * Keep in mind that you should handle errors correctly.
 		 * If the Adyen platform does not accept or store a submitted request, you will receive a HTTP response with
-		 * status different than 200 OK. In this case, the error details are populated in the paymentResponse.
+		 * status different than 200 OK. In this case, the error details are populated in the response body.
 		 */
-		
-		// Parse JSON response
-		JSONParser parser = new JSONParser();
-		JSONObject paymentResult;
-		
-		try {
-			paymentResult = (JSONObject) parser.parse(paymentResponse);
-		} catch (ParseException e) {
-			throw new ServletException(e);
-		}
-		
-		// If the request was rejected, raise an exception
-		if (httpResponse.getStatusLine().getStatusCode() != 200) {
-			String faultString = paymentResult.get("errorType") + " " + paymentResult.get("errorCode") + " " + paymentResult.get("message");
-			throw new ServletException(faultString);
+		PaymentResult paymentResult;
+		try (OperationTimer timer = AdyenMetrics.json(apiUrl).start()) {
+			HttpResponse httpResponse = client.execute(httpRequest, context);
+
+			// If the request was rejected, raise an exception
+			if (httpResponse.getStatusLine().getStatusCode() != 200) {
+				throw new ServletException(ServiceError.from(httpResponse).getFaultString());
+			}
+
+			// Read JSON response
+			paymentResult = JsonCodec.read(httpResponse.getEntity(), PaymentResult::readFrom);
+			timer.setResult(paymentResult.getResultCode());
 		}
 
 		/**
@@ -165,10 +160,10 @@ public class CreateRecurringPayment extends HttpServlet {
 		PrintWriter out = response.getWriter();
 
 		out.println("Payment Result:");
-		out.println("- pspReference: " + paymentResult.get("pspReference"));
-		out.println("- resultCode: " + paymentResult.get("resultCode"));
-		out.println("- authCode: " + paymentResult.get("authCode"));
-		out.println("- refusalReason: " + paymentResult.get("refusalReason"));
+		out.println("- pspReference: " + paymentResult.getPspReference());
+		out.println("- resultCode: " + paymentResult.getResultCode());
+		out.println("- authCode: " + paymentResult.getAuthCode());
+		out.println("- refusalReason: " + paymentResult.getRefusalReason());
 
 	}
 
@@ -9,18 +9,18 @@ import javax.servlet.http.HttpServletRequest;
 import javax.servlet.http.HttpServletResponse;
 
 import org.apache.http.HttpResponse;
-import org.apache.http.auth.AuthScope;
-import org.apache.http.auth.UsernamePasswordCredentials;
-import org.apache.http.client.CredentialsProvider;
 import org.apache.http.client.HttpClient;
 import org.apache.http.client.methods.HttpPost;
-import org.apache.http.entity.StringEntity;
-import org.apache.http.impl.client.BasicCredentialsProvider;
-import org.apache.http.impl.client.HttpClientBuilder;
-import org.apache.http.util.EntityUtils;
-import org.json.simple.JSONObject;
-import org.json.simple.parser.JSONParser;
-import org.json.simple.parser.ParseException;
+import org.apache.http.client.protocol.HttpClientContext;
+
+import com.adyen.examples.common.AdyenHttpClient;
+import com.adyen.examples.common.RecurringDetailCache;
+import com.adyen.examples.common.json.DisableRequest;
+import com.adyen.examples.common.json.DisableResult;
+import com.adyen.examples.common.json.JsonCodec;
+import com.adyen.examples.common.json.ServiceError;
+import com.adyen.examples.common.metrics.AdyenMetrics;
+import com.adyen.examples.common.metrics.OperationTimer;
 
 /**
  * Disable recurring contract (JSON)
@@ -51,13 +51,14 @@ public class DisableRecurringContract extends HttpServlet {
 		String wsPassword = "YourWSPassword";
 
 		/**
-		 * Create HTTP Client (using Apache HttpComponents library) and set up Basic Authentication
+		 * Get the shared HTTP Client (using Apache HttpComponents library) and set up Basic Authentication
+		 * 
+		 * The client is created once for the whole application, so connections to Adyen are reused between requests.
+		 * 
+		 * @see com.adyen.examples.common.AdyenHttpClient
 		 */
-		CredentialsProvider provider = new BasicCredentialsProvider();
-		UsernamePasswordCredentials credentials = new UsernamePasswordCredentials(wsUser, wsPassword);
-		provider.setCredentials(AuthScope.ANY, credentials);
-
-		HttpClient client = HttpClientBuilder.create().setDefaultCredentialsProvider(provider).build();
+		HttpClient client = AdyenHttpClient.getInstance();
+		HttpClientContext context = AdyenHttpClient.createContext(apiUrl, wsUser, wsPassword);
 
 		/**
 		 * The recurring details request should contain the following variables:
@@ -71,43 +72,40 @@ public class DisableRecurringContract extends HttpServlet {
 		 *                                the contract! This means that you can not add new details anymore.
 		 * </pre>
 		 */
-		JSONObject recurringRequest = new JSONObject();
-		recurringRequest.put("merchantAccount", "YourMerchantAccount");
-		recurringRequest.put("shopperReference", "TheShopperReference");
-		recurringRequest.put("recurringDetailReference", "TheDetailReferenceOfTheContract");
+		DisableRequest recurringRequest = new DisableRequest();
+		recurringRequest.setMerchantAccount("YourMerchantAccount");
+		recurringRequest.setShopperReference("TheShopperReference");
+		recurringRequest.setRecurringDetailReference("TheDetailReferenceOfTheContract");
 
 		/**
 		 * Send the HTTP request with the specified variables in JSON.
 		 */
 		HttpPost httpRequest = new HttpPost(apiUrl);
-		httpRequest.addHeader("Content-Type", "application/json");
-		httpRequest.setEntity(new StringEntity(recurringRequest.toString(), "UTF-8"));
-
-		HttpResponse httpResponse = client.execute(httpRequest);
-		String recurringResponse = EntityUtils.toString(httpResponse.getEntity(), "UTF-8");
+		httpRequest.setEntity(JsonCodec.toEntity(recurringRequest));
 
 		/**
 		 * Keep in mind that you should handle errors correctly.
 		 * If the Adyen platform does not accept or store a submitted request, you will receive a HTTP response with
-		 * status different than 200 OK. In this case, the error details are populated in the recurringResponse.
+		 * status different than 200 OK. In this case, the error details are populated in the response body.
 		 */
-		
-		// Parse JSON response
-		JSONParser parser = new JSONParser();
-		JSONObject recurringResult;
-		
-		try {
-			recurringResult = (JSONObject) parser.parse(recurringResponse);
-		} catch (ParseException e) {
-			throw new ServletException(e);
-		}
-		
-		// If the request was rejected, raise an exception
-		if (httpResponse.getStatusLine().getStatusCode() != 200) {
-			String faultString = recurringResult.get("errorType") + " " + recurringResult.get("errorCode") + " " + recurringResult.get("message");
-			throw new ServletException(faultString);
+		DisableResult recurringResult;
+		try (OperationTimer timer = AdyenMetrics.json(apiUrl).start()) {
+			HttpResponse httpResponse = client.execute(httpRequest, context);
+
+			// If the request was rejected, raise an exception
+			if (httpResponse.getStatusLine().getStatusCode() != 200) {
+				throw new ServletException(ServiceError.from(httpResponse).getFaultString());
+			}
+
+			// Read JSON response
+			recurringResult = JsonCodec.read(httpResponse.getEntity(), DisableResult::readFrom);
+			timer.setResult(recurringResult.getResponse());
 		}
 
+		// The details of the shopper changed, so they may no longer be shown from the cache (see RecurringDetailCache)
+		RecurringDetailCache.invalidateShopper(recurringRequest.getMerchantAccount(),
+				recurringRequest.getShopperReference());
+
 		/**
 		 * The response will be a result object with a single field response. If a single detail was disabled the value
 		 * of this field will be [detail-successfully-disabled] or, if all details are disabled, the value is
@@ -116,7 +114,7 @@ public class DisableRecurringContract extends HttpServlet {
 		PrintWriter out = response.getWriter();
 
 		out.println("Disable Recurring Result:");
-		out.println("- response: " + recurringResult.get("response"));
+		out.println("- response: " + recurringResult.getResponse());
 	}
 
 }
@@ -1,6 +1,7 @@
 package com.adyen.examples.recurring.JSON;
 import java.io.IOException;
 import java.io.PrintWriter;
+import java.util.concurrent.ExecutionException;
 
 import javax.servlet.ServletException;
 import javax.servlet.annotation.WebServlet;
@@ -9,19 +10,21 @@ import javax.servlet.http.HttpServletRequest;
 import javax.servlet.http.HttpServletResponse;
 
 import org.apache.http.HttpResponse;
-import org.apache.http.auth.AuthScope;
-import org.apache.http.auth.UsernamePasswordCredentials;
-import org.apache.http.client.CredentialsProvider;
 import org.apache.http.client.HttpClient;
 import org.apache.http.client.methods.HttpPost;
-import org.apache.http.entity.StringEntity;
-import org.apache.http.impl.client.BasicCredentialsProvider;
-import org.apache.http.impl.client.HttpClientBuilder;
-import org.apache.http.util.EntityUtils;
-import org.json.simple.JSONArray;
-import org.json.simple.JSONObject;
-import org.json.simple.parser.JSONParser;
-import org.json.simple.parser.ParseException;
+import org.apache.http.client.protocol.HttpClientContext;
+
+import com.adyen.examples.common.AdyenHttpClient;
+import com.adyen.examples.common.RecurringDetailCache;
+import com.adyen.examples.common.json.JsonCodec;
+import com.adyen.examples.common.json.Recurring;
+import com.adyen.examples.common.json.RecurringDetail;
+import com.adyen.examples.common.json.RecurringDetailsRequest;
+import com.adyen.examples.common.json.RecurringDetailsResult;
+import com.adyen.examples.common.json.ServiceError;
+import com.adyen.examples.common.metrics.AdyenMetrics;
+import com.adyen.examples.common.metrics.OperationMetrics;
+import com.adyen.examples.common.metrics.OperationTimer;
 
 /**
  * Retrieve recurring contract details (JSON)
@@ -39,6 +42,8 @@ import org.json.simple.parser.ParseException;
 @WebServlet(urlPatterns = { "/5.Recurring/JSON/RetrieveRecurringContract" })
 public class RetrieveRecurringContract extends HttpServlet {
 
+	private static final RecurringDetailCache<RecurringDetailsResult> recurringDetailCache = new RecurringDetailCache<RecurringDetailsResult>();
+
 	protected void doGet(HttpServletRequest request, HttpServletResponse response) throws ServletException, IOException {
 
 		/**
@@ -51,15 +56,6 @@ public class RetrieveRecurringContract extends HttpServlet {
 		String wsUser = "YourWSUser";
 		String wsPassword = "YourWSPassword";
 
-		/**
-		 * Create HTTP Client (using Apache HttpComponents library) and set up Basic Authentication
-		 */
-		CredentialsProvider provider = new BasicCredentialsProvider();
-		UsernamePasswordCredentials credentials = new UsernamePasswordCredentials(wsUser, wsPassword);
-		provider.setCredentials(AuthScope.ANY, credentials);
-
-		HttpClient client = HttpClientBuilder.create().setDefaultCredentialsProvider(provider).build();
-
 		/**
 		 * The recurring details request should contain the following variables:
 		 * 
@@ -73,44 +69,27 @@ public class RetrieveRecurringContract extends HttpServlet {
 		 *                            initially then this field can be either ONECLICK or RECURRING.
 		 * </pre>
 		 */
-		JSONObject recurringRequest = new JSONObject();
-		recurringRequest.put("merchantAccount", "YourMerchantAccount");
-		recurringRequest.put("shopperReference", "TheShopperReference");
-
-		JSONObject recurring = new JSONObject();
-		recurring.put("contract", "ONECLICK");
-		recurringRequest.put("recurring", recurring);
-
-		/**
-		 * Send the HTTP request with the specified variables in JSON.
-		 */
-		HttpPost httpRequest = new HttpPost(apiUrl);
-		httpRequest.addHeader("Content-Type", "application/json");
-		httpRequest.setEntity(new StringEntity(recurringRequest.toString(), "UTF-8"));
+		RecurringDetailsRequest recurringRequest = new RecurringDetailsRequest();
+		recurringRequest.setMerchantAccount("YourMerchantAccount");
+		recurringRequest.setShopperReference("TheShopperReference");
 
-		HttpResponse httpResponse = client.execute(httpRequest);
-		String recurringResponse = EntityUtils.toString(httpResponse.getEntity(), "UTF-8");
+		Recurring recurring = new Recurring();
+		recurring.setContract("ONECLICK");
+		recurringRequest.setRecurring(recurring);
 
 		/**
-		 * Keep in mind that you should handle errors correctly.
-		 * If the Adyen platform does not accept or store a submitted request, you will receive a HTTP response with
-		 * status different than 200 OK. In this case, the error details are populated in the recurringResponse.
+		 * The details of a shopper only change when details are stored or disabled, so they are cached (see
+		 * RecurringDetailCache). The Recurring service is only called when the details of this shopper are not cached
+		 * yet; the cached details are dropped by DisableRecurringContract and by the RECURRING_CONTRACT and
+		 * AUTHORISATION notifications (see NotificationServer).
 		 */
-		
-		// Parse JSON response
-		JSONParser parser = new JSONParser();
-		JSONObject recurringResult;
-		
+		RecurringDetailsResult recurringResult;
 		try {
-			recurringResult = (JSONObject) parser.parse(recurringResponse);
-		} catch (ParseException e) {
-			throw new ServletException(e);
-		}
-		
-		// If the request was rejected, raise an exception
-		if (httpResponse.getStatusLine().getStatusCode() != 200) {
-			String faultString = recurringResult.get("errorType") + " " + recurringResult.get("errorCode") + " " + recurringResult.get("message");
-			throw new ServletException(faultString);
+			recurringResult = recurringDetailCache.get(recurringRequest.getMerchantAccount(),
+					recurringRequest.getShopperReference(), recurring.getContract(),
+					() -> requestRecurringDetails(apiUrl, wsUser, wsPassword, recurringRequest));
+		} catch (ExecutionException e) {
+			throw new ServletException(e.getCause());
 		}
 
 		/**
@@ -138,24 +117,64 @@ public class RetrieveRecurringContract extends HttpServlet {
 		PrintWriter out = response.getWriter();
 
 		out.println("Recurring Details Result:");
-		out.println("- creationDate: " + recurringResult.get("creationDate"));
-		out.println("- lastKnownShopperEmail: " + recurringResult.get("lastKnownShopperEmail"));
-		out.println("- shopperReference: " + recurringResult.get("shopperReference"));
+		out.println("- creationDate: " + recurringResult.getCreationDate());
+		out.println("- lastKnownShopperEmail: " + recurringResult.getLastKnownShopperEmail());
+		out.println("- shopperReference: " + recurringResult.getShopperReference());
 		out.println("- recurringDetail:");
 		
-		JSONArray recurringDetails = (JSONArray) recurringResult.get("details");
-
-		for (Object recurringDetail : recurringDetails) {
-			JSONObject detail = (JSONObject) ((JSONObject) recurringDetail).get("RecurringDetail");
-			out.println("  > * recurringDetailReference: " + detail.get("recurringDetailReference"));
-			out.println("    * variant: " + detail.get("variant"));
-			out.println("    * creationDate: " + detail.get("creationDate"));
-			out.println("    * bank: " + detail.get("bank"));
-			out.println("    * card: " + detail.get("card"));
-			out.println("    * elv: " + detail.get("elv"));
-			out.println("    * name: " + detail.get("name"));
+		for (RecurringDetail detail : recurringResult.getDetails()) {
+			out.println("  > * recurringDetailReference: " + detail.getRecurringDetailReference());
+			out.println("    * variant: " + detail.getVariant());
+			out.println("    * creationDate: " + detail.getCreationDate());
+			out.println("    * bank: " + detail.getBank());
+			out.println("    * card: " + detail.getCard());
+			out.println("    * elv: " + detail.getElv());
+			out.println("    * name: " + detail.getName());
 		}
 		
 	}
 
+	/**
+	 * Requests the recurring details from the Recurring service.
+	 */
+	private RecurringDetailsResult requestRecurringDetails(String apiUrl, String wsUser, String wsPassword,
+			RecurringDetailsRequest recurringRequest) throws ServletException, IOException {
+
+		/**
+		 * Get the shared HTTP Client (using Apache HttpComponents library) and set up Basic Authentication
+		 * 
+		 * The client is created once for the whole application, so connections to Adyen are reused between requests.
+		 * 
+		 * @see com.adyen.examples.common.AdyenHttpClient
+		 */
+		HttpClient client = AdyenHttpClient.getInstance();
+		HttpClientContext context = AdyenHttpClient.createContext(apiUrl, wsUser, wsPassword);
+
+		/**
+		 * Send the HTTP request with the specified variables in JSON.
+		 */
+		HttpPost httpRequest = new HttpPost(apiUrl);
+		httpRequest.setEntity(JsonCodec.toEntity(recurringRequest));
+
+		/**
+		 * Keep in mind that you should handle errors correctly.
+		 * If the Adyen platform does not accept or store a submitted request, you will receive a HTTP response with
+		 * status different than 200 OK. In this case, the error details are populated in the response body.
+		 */
+		try (OperationTimer timer = AdyenMetrics.json(apiUrl).start()) {
+			HttpResponse httpResponse = client.execute(httpRequest, context);
+
+			// If the request was rejected, raise an exception
+			if (httpResponse.getStatusLine().getStatusCode() != 200) {
+				throw new ServletException(ServiceError.from(httpResponse).getFaultString());
+			}
+
+			// Read JSON response
+			RecurringDetailsResult recurringResult = JsonCodec.read(httpResponse.getEntity(),
+					RecurringDetailsResult::readFrom);
+			timer.setResult(OperationMetrics.RESULT_SUCCESS);
+			return recurringResult;
+		}
+	}
+
 }
@@ -1,6 +1,9 @@
 package com.adyen.examples.recurring.Library;
 import com.adyen.Client;
 import com.adyen.enums.Environment;
+import com.adyen.examples.common.limit.LimitingClientInterface;
+import com.adyen.examples.common.metrics.AdyenMetrics;
+import com.adyen.examples.common.metrics.OperationTimer;
 import com.adyen.model.AbstractPaymentRequest;
 import com.adyen.model.PaymentRequest;
 import com.adyen.model.PaymentResult;
@@ -36,6 +39,8 @@ public class CreateRecurringPayment {
          */
         // Create new Client
         Client client = new Client("YourWSUser", "YourWSPassword", Environment.TEST, "myTestPayment");
+        // Limit the number of concurrent calls per operation, see AdyenLimiters
+        client.setHttpClient(new LimitingClientInterface(client.getHttpClient()));
         Payment payment = new Payment(client);
 
         /**
@@ -86,7 +91,11 @@ public class CreateRecurringPayment {
         paymentRequest.setSelectedRecurringDetailReference("LATEST");
 
         // Authorise the Payment Request
-        PaymentResult paymentResult = payment.authorise(paymentRequest);
+        PaymentResult paymentResult;
+        try (OperationTimer timer = AdyenMetrics.library("Payment.authorise").start()) {
+            paymentResult = payment.authorise(paymentRequest);
+            timer.setResult(String.valueOf(paymentResult.getResultCode()));
+        }
 
         /**
          * If the payment passes validation a risk analysis will be done and, depending on the outcome, an authorisation
@@ -1,6 +1,10 @@
 package com.adyen.examples.recurring.Library;
 import com.adyen.Client;
 import com.adyen.enums.Environment;
+import com.adyen.examples.common.RecurringDetailCache;
+import com.adyen.examples.common.limit.LimitingClientInterface;
+import com.adyen.examples.common.metrics.AdyenMetrics;
+import com.adyen.examples.common.metrics.OperationTimer;
 import com.adyen.model.recurring.DisableRequest;
 import com.adyen.model.recurring.DisableResult;
 import com.adyen.service.Recurring;
@@ -33,6 +37,8 @@ public class DisableRecurringContract {
          */
         // Create new Client
         Client client = new Client("YourWSUser", "YourWSPassword", Environment.TEST, "myTestPayment");
+        // Limit the number of concurrent calls per operation, see AdyenLimiters
+        client.setHttpClient(new LimitingClientInterface(client.getHttpClient()));
         Recurring recurring = new Recurring(client);
 
         /**
@@ -53,7 +59,14 @@ public class DisableRecurringContract {
         disableRequest.setShopperReference("YourShopperReference");
         disableRequest.setMerchantAccount("YourMerchantAccount");
         disableRequest.setRecurringDetailReference("YourRecurringDetailReference");
-        DisableResult result = recurring.disable(disableRequest);
+        DisableResult result;
+        try (OperationTimer timer = AdyenMetrics.library("Recurring.disable").start()) {
+            result = recurring.disable(disableRequest);
+            timer.setResult(result.getResponse());
+        }
+
+        // The details of the shopper changed, so they may no longer be shown from the cache (see RecurringDetailCache)
+        RecurringDetailCache.invalidateShopper(disableRequest.getMerchantAccount(), disableRequest.getShopperReference());
 
         /**
          * The response will be a result object with a single field response. If a single detail was disabled the value
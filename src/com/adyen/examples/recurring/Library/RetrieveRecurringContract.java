@@ -1,12 +1,19 @@
 package com.adyen.examples.recurring.Library;
 import com.adyen.Client;
 import com.adyen.enums.Environment;
+import com.adyen.examples.common.CacheLoaders;
+import com.adyen.examples.common.RecurringDetailCache;
+import com.adyen.examples.common.limit.LimitingClientInterface;
+import com.adyen.examples.common.metrics.AdyenMetrics;
+import com.adyen.examples.common.metrics.OperationMetrics;
+import com.adyen.examples.common.metrics.OperationTimer;
 import com.adyen.model.recurring.RecurringDetailsRequest;
 import com.adyen.model.recurring.RecurringDetailsResult;
 import com.adyen.model.recurring.RecurringDetail;
 import com.adyen.service.Recurring;
 
 import java.util.List;
+import java.util.concurrent.ExecutionException;
 
 /**
  * Retrieve recurring contract details (Java Library)
@@ -23,6 +30,8 @@ import java.util.List;
 
 public class RetrieveRecurringContract {
 
+    private static final RecurringDetailCache<RecurringDetailsResult> recurringDetailCache = new RecurringDetailCache<RecurringDetailsResult>();
+
     public void retrieveRecurringDetails() throws Exception{
 
         /**
@@ -36,6 +45,8 @@ public class RetrieveRecurringContract {
          */
         // Create new Client
         Client client = new Client("YourWSUser", "YourWSPassword", Environment.TEST, "myTestPayment");
+        // Limit the number of concurrent calls per operation, see AdyenLimiters
+        client.setHttpClient(new LimitingClientInterface(client.getHttpClient()));
         Recurring recurring = new Recurring(client);
 
         /**
@@ -55,7 +66,25 @@ public class RetrieveRecurringContract {
         recurringDetailsRequest.setShopperReference("YourShopperReference");
         recurringDetailsRequest.setMerchantAccount("YourMerchantAccount");
         recurringDetailsRequest.selectRecurringContract();
-        RecurringDetailsResult result = recurring.listRecurringDetails(recurringDetailsRequest);
+
+        // The Recurring Details are cached (see RecurringDetailCache), so the Recurring service is only called when the
+        // details of this shopper are not cached yet. DisableRecurringContract and the RECURRING_CONTRACT and
+        // AUTHORISATION notifications drop the cached details of the shopper.
+        RecurringDetailsResult result;
+        try {
+            result = recurringDetailCache.get(recurringDetailsRequest.getMerchantAccount(),
+                    recurringDetailsRequest.getShopperReference(),
+                    String.valueOf(recurringDetailsRequest.getRecurring().getContract()), () -> {
+                try (OperationTimer timer = AdyenMetrics.library("Recurring.listRecurringDetails").start()) {
+                    RecurringDetailsResult details = recurring.listRecurringDetails(recurringDetailsRequest);
+                    timer.setResult(OperationMetrics.RESULT_SUCCESS);
+                    return details;
+                }
+            });
+        } catch (ExecutionException e) {
+            // Rethrow what the call to Adyen threw
+            throw CacheLoaders.cause(e);
+        }
 
         /**
          * The RecurringDetailsResult object will contain the following getters:
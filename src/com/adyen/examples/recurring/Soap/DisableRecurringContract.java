@@ -2,19 +2,21 @@ package com.adyen.examples.recurring.Soap;
 
 import java.io.IOException;
 import java.io.PrintWriter;
-import java.net.URL;
 
 import javax.servlet.ServletException;
 import javax.servlet.annotation.WebServlet;
 import javax.servlet.http.HttpServlet;
 import javax.servlet.http.HttpServletRequest;
 import javax.servlet.http.HttpServletResponse;
-import javax.xml.ws.BindingProvider;
 
+import com.adyen.examples.common.PortPool;
+import com.adyen.examples.common.RecurringDetailCache;
+import com.adyen.examples.common.SoapServices;
+import com.adyen.examples.common.metrics.AdyenMetrics;
+import com.adyen.examples.common.metrics.OperationTimer;
 import com.adyen.services.recurring.DisableRequest;
 import com.adyen.services.recurring.DisableResult;
 import com.adyen.services.recurring.RecurringPortType;
-import com.adyen.services.recurring.RecurringService;
 import com.adyen.services.recurring.ServiceException;
 
 /**
@@ -46,16 +48,16 @@ public class DisableRecurringContract extends HttpServlet {
 		String wsPassword = "YourWSPassword";
 
 		/**
-		 * Create SOAP client, using classes in adyen-wsdl-cxf.jar library (generated by wsdl2java tool, Apache CXF).
+		 * Get a SOAP client, using classes in adyen-wsdl-cxf.jar library (generated by wsdl2java tool, Apache CXF).
+		 * 
+		 * The SOAP service is created only once, and the clients are pooled with HTTP Authentication already set.
+		 * Please return the client to the pool when the call is done.
 		 * 
 		 * @see WebContent/WEB-INF/lib/adyen-wsdl-cxf.jar
+		 * @see com.adyen.examples.common.SoapServices
 		 */
-		RecurringService service = new RecurringService(new URL(wsdl));
-		RecurringPortType client = service.getRecurringHttpPort();
-
-		// Set HTTP Authentication
-		((BindingProvider) client).getRequestContext().put(BindingProvider.USERNAME_PROPERTY, wsUser);
-		((BindingProvider) client).getRequestContext().put(BindingProvider.PASSWORD_PROPERTY, wsPassword);
+		PortPool<RecurringPortType> ports = SoapServices.recurringPorts(wsdl, wsUser, wsPassword);
+		RecurringPortType client = ports.borrow();
 
 		/**
 		 * The disable recurring contract request should contain the following variables:
@@ -79,12 +81,19 @@ public class DisableRecurringContract extends HttpServlet {
 		 * Send the disable recurring contract request.
 		 */
 		DisableResult recurringResult;
-		try {
+		try (OperationTimer timer = AdyenMetrics.soap("Recurring.disable").start()) {
 			recurringResult = client.disable(recurringRequest);
+			timer.setResult(recurringResult.getResponse());
 		} catch (ServiceException e) {
 			throw new ServletException(e);
+		} finally {
+			ports.release(client);
 		}
 
+		// The details of the shopper changed, so they may no longer be shown from the cache (see RecurringDetailCache)
+		RecurringDetailCache.invalidateShopper(recurringRequest.getMerchantAccount(),
+				recurringRequest.getShopperReference());
+
 		/**
 		 * The response will be a result object with a single field response. If a single detail was disabled the value
 		 * of this field will be [detail-successfully-disabled] or, if all details are disabled, the value is
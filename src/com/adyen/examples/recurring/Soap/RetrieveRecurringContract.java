@@ -2,21 +2,25 @@ package com.adyen.examples.recurring.Soap;
 
 import java.io.IOException;
 import java.io.PrintWriter;
-import java.net.URL;
+import java.util.concurrent.ExecutionException;
 
 import javax.servlet.ServletException;
 import javax.servlet.annotation.WebServlet;
 import javax.servlet.http.HttpServlet;
 import javax.servlet.http.HttpServletRequest;
 import javax.servlet.http.HttpServletResponse;
-import javax.xml.ws.BindingProvider;
 
+import com.adyen.examples.common.PortPool;
+import com.adyen.examples.common.RecurringDetailCache;
+import com.adyen.examples.common.SoapServices;
+import com.adyen.examples.common.metrics.AdyenMetrics;
+import com.adyen.examples.common.metrics.OperationMetrics;
+import com.adyen.examples.common.metrics.OperationTimer;
 import com.adyen.services.payment.Recurring;
 import com.adyen.services.recurring.RecurringDetail;
 import com.adyen.services.recurring.RecurringDetailsRequest;
 import com.adyen.services.recurring.RecurringDetailsResult;
 import com.adyen.services.recurring.RecurringPortType;
-import com.adyen.services.recurring.RecurringService;
 import com.adyen.services.recurring.ServiceException;
 
 /**
@@ -35,6 +39,8 @@ import com.adyen.services.recurring.ServiceException;
 @WebServlet(urlPatterns = { "/5.Recurring/Soap/RetrieveRecurringContract" })
 public class RetrieveRecurringContract extends HttpServlet {
 
+	private static final RecurringDetailCache<RecurringDetailsResult> recurringDetailCache = new RecurringDetailCache<RecurringDetailsResult>();
+
 	protected void doGet(HttpServletRequest request, HttpServletResponse response) throws ServletException, IOException {
 
 		/**
@@ -47,18 +53,6 @@ public class RetrieveRecurringContract extends HttpServlet {
 		String wsUser = "YourWSUser";
 		String wsPassword = "YourWSPassword";
 
-		/**
-		 * Create SOAP client, using classes in adyen-wsdl-cxf.jar library (generated by wsdl2java tool, Apache CXF).
-		 * 
-		 * @see WebContent/WEB-INF/lib/adyen-wsdl-cxf.jar
-		 */
-		RecurringService service = new RecurringService(new URL(wsdl));
-		RecurringPortType client = service.getRecurringHttpPort();
-
-		// Set HTTP Authentication
-		((BindingProvider) client).getRequestContext().put(BindingProvider.USERNAME_PROPERTY, wsUser);
-		((BindingProvider) client).getRequestContext().put(BindingProvider.PASSWORD_PROPERTY, wsPassword);
-
 		/**
 		 * The recurring details request should contain the following variables:
 		 * 
@@ -84,13 +78,18 @@ public class RetrieveRecurringContract extends HttpServlet {
 		recurringRequest.setRecurring(recurring);
 
 		/**
-		 * Send the recurring details request.
+		 * The details of a shopper only change when details are stored or disabled, so they are cached (see
+		 * RecurringDetailCache). The Recurring service is only called when the details of this shopper are not cached
+		 * yet; the cached details are dropped by DisableRecurringContract and by the RECURRING_CONTRACT and
+		 * AUTHORISATION notifications (see NotificationServer).
 		 */
 		RecurringDetailsResult recurringResult;
 		try {
-			recurringResult = client.listRecurringDetails(recurringRequest);
-		} catch (ServiceException e) {
-			throw new ServletException(e);
+			recurringResult = recurringDetailCache.get(recurringRequest.getMerchantAccount(),
+					recurringRequest.getShopperReference(), recurring.getContract(),
+					() -> requestRecurringDetails(wsdl, wsUser, wsPassword, recurringRequest));
+		} catch (ExecutionException e) {
+			throw new ServletException(e.getCause());
 		}
 
 		/**
@@ -135,4 +134,36 @@ public class RetrieveRecurringContract extends HttpServlet {
 		
 	}
 
+	/**
+	 * Requests the recurring details from the Recurring service.
+	 */
+	private RecurringDetailsResult requestRecurringDetails(String wsdl, String wsUser, String wsPassword,
+			RecurringDetailsRequest recurringRequest) throws ServletException {
+
+		/**
+		 * Get a SOAP client, using classes in adyen-wsdl-cxf.jar library (generated by wsdl2java tool, Apache CXF).
+		 * 
+		 * The SOAP service is created only once, and the clients are pooled with HTTP Authentication already set.
+		 * Please return the client to the pool when the call is done.
+		 * 
+		 * @see WebContent/WEB-INF/lib/adyen-wsdl-cxf.jar
+		 * @see com.adyen.examples.common.SoapServices
+		 */
+		PortPool<RecurringPortType> ports = SoapServices.recurringPorts(wsdl, wsUser, wsPassword);
+		RecurringPortType client = ports.borrow();
+
+		/**
+		 * Send the recurring details request.
+		 */
+		try (OperationTimer timer = AdyenMetrics.soap("Recurring.listRecurringDetails").start()) {
+			RecurringDetailsResult recurringResult = client.listRecurringDetails(recurringRequest);
+			timer.setResult(OperationMetrics.RESULT_SUCCESS);
+			return recurringResult;
+		} catch (ServiceException e) {
+			throw new ServletException(e);
+		} finally {
+			ports.release(client);
+		}
+	}
+
 }
@@ -0,0 +1,98 @@
+package com.adyen.examples.recurring.billing;
+
+/**
+ * A single charge of a billing run, as read from the input file
+ *
+ * The row number (1-based, in the order of the file) identifies the charge in the result log.
+ *
+ * @author Created by Adyen - Payments Made Easy
+ */
+public final class BillingCharge {
+
+	private final long row;
+	private final String shopperReference;
+	private final String merchantAccount;
+	private final String currency;
+	private final String amount;
+	private final String reference;
+
+	public BillingCharge(long row, String shopperReference, String merchantAccount, String currency, String amount,
+			String reference) {
+		this.row = row;
+		this.shopperReference = shopperReference;
+		this.merchantAccount = merchantAccount;
+		this.currency = currency;
+		this.amount = amount;
+		this.reference = reference;
+	}
+
+	/**
+	 * Row number within the input file (1-based).
+	 */
+	public long getRow() {
+		return row;
+	}
+
+	public String getShopperReference() {
+		return shopperReference;
+	}
+
+	/**
+	 * Merchant account as given in the file, or null to use the merchant account of the run.
+	 */
+	public String getMerchantAccount() {
+		return merchantAccount;
+	}
+
+	public String getCurrency() {
+		return currency;
+	}
+
+	/**
+	 * Amount in minor units (e.g. EUR 1,00 = 100) as given in the file, see {@link #getAmountValue()}.
+	 */
+	public String getAmount() {
+		return amount;
+	}
+
+	/**
+	 * Returns the amount in minor units, or null if no valid amount is given.
+	 */
+	public Long getAmountValue() {
+		if (amount == null) {
+			return null;
+		}
+		try {
+			return Long.valueOf(amount);
+		} catch (NumberFormatException e) {
+			return null;
+		}
+	}
+
+	/**
+	 * Reference as given in the file (e.g. a subscription ID), or null.
+	 */
+	public String getReference() {
+		return reference;
+	}
+
+	/**
+	 * Returns why the charge cannot be sent, or null if it is valid.
+	 */
+	public String validate() {
+		if (shopperReference == null) {
+			return "Missing shopperReference (or invalid line)";
+		}
+		Long value = getAmountValue();
+		if (currency == null || value == null || value <= 0) {
+			return "Missing or invalid amount: " + currency + " " + amount;
+		}
+		return null;
+	}
+
+	@Override
+	public String toString() {
+		return "#" + row + " " + shopperReference + " " + currency + " " + amount;
+	}
+
+}
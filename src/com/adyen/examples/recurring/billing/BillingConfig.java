@@ -0,0 +1,308 @@
+package com.adyen.examples.recurring.billing;
+
+import java.io.File;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Properties;
+
+/**
+ * Settings of a {@link BillingRun}
+ *
+ * Only the input file and the run ID are required; all other settings have a default. Settings are given as key=value
+ * arguments, or as properties.
+ *
+ * @author Created by Adyen - Payments Made Easy
+ */
+public class BillingConfig {
+
+	/**
+	 * Run settings
+	 * - input: CSV file with the charges of the run (see BillingFileReader)
+	 * - runId: unique ID of the billing run (e.g. 2016-03), part of the payment references
+	 * - resultLog: append-only log of the results (default: input + "." + runId + "-" + nodeIndex + ".log")
+	 * - nodeIndex: index of this node (0 - nodeCount-1)
+	 * - nodeCount: number of nodes sharing the run; every node charges the shoppers whose hash falls in its share
+	 */
+	private File input;
+	private String runId;
+	private File resultLog;
+	private int nodeIndex = 0;
+	private int nodeCount = 1;
+
+	/**
+	 * Execution settings
+	 * - threads: number of worker threads (partitions) on this node
+	 * - rate: maximum number of payments per second per merchant account, for all nodes together (0 = no limit)
+	 * - merchantRates: rate per merchant account, overriding the rate (e.g. MerchantA:50,MerchantB:20)
+	 * - maxAttempts: maximum number of attempts of a payment that failed because of a network error or an overloaded
+	 *   platform (HTTP 429 or 5xx)
+	 * - reportSeconds: interval of the progress report
+	 */
+	private int threads = 32;
+	private double rate = 100;
+	private Map<String, Double> merchantRates = new HashMap<String, Double>();
+	private int maxAttempts = 3;
+	private int reportSeconds = 10;
+
+	/**
+	 * JSON settings
+	 * - apiUrl: URL of the Adyen API you are using (Test/Live)
+	 * - wsUser: your web service user
+	 * - wsPassword: your web service user's password
+	 * - merchantAccount: merchant account of the charges that do not have one
+	 */
+	private String apiUrl = "https://pal-test.adyen.com/pal/servlet/Payment/v10/authorise";
+	private String wsUser = "YourWSUser";
+	private String wsPassword = "YourWSUserPassword";
+	private String merchantAccount = "YourMerchantAccount";
+
+	/**
+	 * Reads the settings from key=value arguments.
+	 */
+	public static BillingConfig fromArguments(String[] arguments) {
+		BillingConfig config = new BillingConfig();
+		for (String argument : arguments) {
+			int separator = argument.indexOf('=');
+			if (separator < 0) {
+				throw new IllegalArgumentException("Expected key=value but was: " + argument);
+			}
+			config.set(argument.substring(0, separator).trim(), argument.substring(separator + 1).trim());
+		}
+		return config;
+	}
+
+	/**
+	 * Reads the settings from properties.
+	 */
+	public static BillingConfig fromProperties(Properties properties) {
+		BillingConfig config = new BillingConfig();
+		for (String name : properties.stringPropertyNames()) {
+			config.set(name, properties.getProperty(name).trim());
+		}
+		return config;
+	}
+
+	/**
+	 * Sets a single setting by name.
+	 */
+	public void set(String name, String value) {
+		switch (name) {
+			case "input":
+				input = new File(value);
+				break;
+			case "runId":
+				runId = value;
+				break;
+			case "resultLog":
+				resultLog = new File(value);
+				break;
+			case "nodeIndex":
+				nodeIndex = Integer.parseInt(value);
+				break;
+			case "nodeCount":
+				nodeCount = parsePositive(name, value);
+				break;
+			case "threads":
+				threads = parsePositive(name, value);
+				break;
+			case "rate":
+				rate = Double.parseDouble(value);
+				break;
+			case "merchantRates":
+				merchantRates = parseRates(value);
+				break;
+			case "maxAttempts":
+				maxAttempts = parsePositive(name, value);
+				break;
+			case "reportSeconds":
+				reportSeconds = parsePositive(name, value);
+				break;
+			case "apiUrl":
+				apiUrl = value;
+				break;
+			case "wsUser":
+				wsUser = value;
+				break;
+			case "wsPassword":
+				wsPassword = value;
+				break;
+			case "merchantAccount":
+				merchantAccount = value;
+				break;
+			default:
+				throw new IllegalArgumentException("Unknown billing setting: " + name);
+		}
+	}
+
+	/**
+	 * Checks the settings that have no default.
+	 */
+	public void validate() {
+		if (input == null) {
+			throw new IllegalArgumentException("No input file");
+		}
+		if (runId == null || runId.isEmpty()) {
+			throw new IllegalArgumentException("No runId");
+		}
+		if (nodeIndex < 0 || nodeIndex >= nodeCount) {
+			throw new IllegalArgumentException("nodeIndex must be between 0 and " + (nodeCount - 1) + ": " + nodeIndex);
+		}
+	}
+
+	public File getInput() {
+		return input;
+	}
+
+	public void setInput(File input) {
+		this.input = input;
+	}
+
+	public String getRunId() {
+		return runId;
+	}
+
+	public void setRunId(String runId) {
+		this.runId = runId;
+	}
+
+	/**
+	 * Returns the result log, by default next to the input file, per run and node.
+	 */
+	public File getResultLog() {
+		if (resultLog == null && input != null) {
+			return new File(input.getPath() + "." + runId + "-" + nodeIndex + ".log");
+		}
+		return resultLog;
+	}
+
+	public void setResultLog(File resultLog) {
+		this.resultLog = resultLog;
+	}
+
+	public int getNodeIndex() {
+		return nodeIndex;
+	}
+
+	public void setNodeIndex(int nodeIndex) {
+		this.nodeIndex = nodeIndex;
+	}
+
+	public int getNodeCount() {
+		return nodeCount;
+	}
+
+	public void setNodeCount(int nodeCount) {
+		this.nodeCount = nodeCount;
+	}
+
+	public int getThreads() {
+		return threads;
+	}
+
+	public void setThreads(int threads) {
+		this.threads = threads;
+	}
+
+	public double getRate() {
+		return rate;
+	}
+
+	public void setRate(double rate) {
+		this.rate = rate;
+	}
+
+	/**
+	 * Returns the maximum number of payments per second for the given merchant account, for all nodes together.
+	 */
+	public double getRate(String merchantAccount) {
+		Double merchantRate = merchantRates.get(merchantAccount);
+		return merchantRate != null ? merchantRate : rate;
+	}
+
+	public Map<String, Double> getMerchantRates() {
+		return merchantRates;
+	}
+
+	public void setMerchantRates(Map<String, Double> merchantRates) {
+		this.merchantRates = merchantRates;
+	}
+
+	public int getMaxAttempts() {
+		return maxAttempts;
+	}
+
+	public void setMaxAttempts(int maxAttempts) {
+		this.maxAttempts = maxAttempts;
+	}
+
+	public int getReportSeconds() {
+		return reportSeconds;
+	}
+
+	public void setReportSeconds(int reportSeconds) {
+		this.reportSeconds = reportSeconds;
+	}
+
+	public String getApiUrl() {
+		return apiUrl;
+	}
+
+	public void setApiUrl(String apiUrl) {
+		this.apiUrl = apiUrl;
+	}
+
+	public String getWsUser() {
+		return wsUser;
+	}
+
+	public void setWsUser(String wsUser) {
+		this.wsUser = wsUser;
+	}
+
+	public String getWsPassword() {
+		return wsPassword;
+	}
+
+	public void setWsPassword(String wsPassword) {
+		this.wsPassword = wsPassword;
+	}
+
+	public String getMerchantAccount() {
+		return merchantAccount;
+	}
+
+	public void setMerchantAccount(String merchantAccount) {
+		this.merchantAccount = merchantAccount;
+	}
+
+	@Override
+	public String toString() {
+		return "input=" + input + " runId=" + runId + " resultLog=" + getResultLog() + " node=" + nodeIndex + "/"
+				+ nodeCount + " threads=" + threads + " rate=" + rate + " merchantRates=" + merchantRates
+				+ " apiUrl=" + apiUrl;
+	}
+
+	private static int parsePositive(String name, String value) {
+		int number = Integer.parseInt(value);
+		if (number < 1) {
+			throw new IllegalArgumentException(name + " must be at least 1: " + value);
+		}
+		return number;
+	}
+
+	private static Map<String, Double> parseRates(String value) {
+		Map<String, Double> rates = new HashMap<String, Double>();
+		for (String entry : value.split(",")) {
+			if (entry.trim().isEmpty()) {
+				continue;
+			}
+			int separator = entry.lastIndexOf(':');
+			if (separator < 0) {
+				throw new IllegalArgumentException("Expected merchantAccount:rate but was: " + entry);
+			}
+			rates.put(entry.substring(0, separator).trim(), Double.valueOf(entry.substring(separator + 1).trim()));
+		}
+		return rates;
+	}
+
+}
@@ -0,0 +1,127 @@
+package com.adyen.examples.recurring.billing;
+
+import java.io.BufferedReader;
+import java.io.Closeable;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.nio.charset.Charset;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import com.adyen.examples.common.Csv;
+
+/**
+ * Streams the charges of a billing run from a CSV file
+ *
+ * The file starts with a header line naming the columns, in any order; unknown columns are ignored:
+ *
+ * <pre>
+ * - shopperReference : the shopper to charge, as used in the payment that created the recurring contract
+ * - amount           : the amount in minor units (e.g. EUR 1,00 = 100)
+ * - currency         : the three character ISO currency code
+ * - merchantAccount  : the merchant account to charge with (optional, see BillingConfig)
+ * - reference        : the reference of the charge, e.g. the subscription ID (optional, see BillingRun)
+ * </pre>
+ *
+ * For example:
+ *
+ * <pre>
+ * shopperReference,amount,currency
+ * shopper-000001,999,EUR
+ * </pre>
+ *
+ * The file is read line by line, so it can hold millions of charges. Empty lines and lines starting with # are
+ * skipped, and empty fields are read as missing.
+ *
+ * @author Created by Adyen - Payments Made Easy
+ */
+public class BillingFileReader implements Closeable {
+
+	private static final Charset UTF8 = Charset.forName("UTF-8");
+
+	private final BufferedReader reader;
+	private final long size;
+
+	private Map<String, Integer> columns;
+	private volatile long row;
+	private volatile long position;
+
+	public BillingFileReader(File file) throws IOException {
+		this.size = file.length();
+		this.reader = new BufferedReader(new InputStreamReader(new FileInputStream(file), UTF8), 65536);
+	}
+
+	/**
+	 * Returns the next charge, or null at the end of the file.
+	 */
+	public BillingCharge next() throws IOException {
+		String line;
+		while ((line = reader.readLine()) != null) {
+			position += line.length() + 1;
+			if (line.isEmpty() || line.charAt(0) == '#' || line.trim().isEmpty()) {
+				continue;
+			}
+			if (columns == null) {
+				readHeader(line);
+				continue;
+			}
+
+			row++;
+			List<String> fields = Csv.split(line);
+			return new BillingCharge(row, column(fields, "shopperReference"), column(fields, "merchantAccount"),
+					column(fields, "currency"), column(fields, "amount"), column(fields, "reference"));
+		}
+		return null;
+	}
+
+	/**
+	 * Number of charges read so far.
+	 */
+	public long getRow() {
+		return row;
+	}
+
+	/**
+	 * Position in the file after the last line read, counted in characters (equal to bytes for ASCII files).
+	 */
+	public long getPosition() {
+		return position;
+	}
+
+	/**
+	 * Size of the file in bytes.
+	 */
+	public long getSize() {
+		return size;
+	}
+
+	@Override
+	public void close() throws IOException {
+		reader.close();
+	}
+
+	private void readHeader(String line) throws IOException {
+		List<String> names = Csv.split(line);
+		columns = new HashMap<String, Integer>();
+		for (int i = 0; i < names.size(); i++) {
+			columns.put(names.get(i).trim(), i);
+		}
+		if (!columns.containsKey("shopperReference") || !columns.containsKey("amount")
+				|| !columns.containsKey("currency")) {
+			throw new IOException("CSV header must contain the columns shopperReference, amount and currency: " + line);
+		}
+	}
+
+	private String column(List<String> fields, String name) {
+		Integer index = columns.get(name);
+		if (index == null || index >= fields.size()) {
+			return null;
+		}
+		String value = fields.get(index).trim();
+		return value.isEmpty() ? null : value;
+	}
+
+}
@@ -0,0 +1,87 @@
+package com.adyen.examples.recurring.billing;
+
+/**
+ * Result of a single charge of a billing run, as appended to the result log
+ *
+ * <pre>
+ * - PROCESSED : Adyen processed the payment; the resultCode tells whether it was Authorised, Refused, etc.
+ * - REJECTED  : Adyen rejected the payment request (e.g. no recurring contract for the shopper); it is not retried
+ * - FAILED    : the outcome is unknown, because of network errors or an overloaded platform in all attempts; the
+ *               charge is sent again (with the same idempotency key) when the run is restarted
+ * - INVALID   : the charge in the input file is incomplete; it is not sent
+ * </pre>
+ *
+ * @author Created by Adyen - Payments Made Easy
+ */
+public final class BillingResult {
+
+	public enum Status {
+		PROCESSED, REJECTED, FAILED, INVALID
+	}
+
+	private final BillingCharge charge;
+	private final String merchantAccount;
+	private final String reference;
+	private final Status status;
+	private final String resultCode;
+	private final String pspReference;
+	private final String message;
+
+	public BillingResult(BillingCharge charge, String merchantAccount, String reference, Status status,
+			String resultCode, String pspReference, String message) {
+		this.charge = charge;
+		this.merchantAccount = merchantAccount;
+		this.reference = reference;
+		this.status = status;
+		this.resultCode = resultCode;
+		this.pspReference = pspReference;
+		this.message = message;
+	}
+
+	public BillingCharge getCharge() {
+		return charge;
+	}
+
+	/**
+	 * Merchant account the payment was sent with.
+	 */
+	public String getMerchantAccount() {
+		return merchantAccount;
+	}
+
+	/**
+	 * Reference of the payment, as sent to Adyen.
+	 */
+	public String getReference() {
+		return reference;
+	}
+
+	public Status getStatus() {
+		return status;
+	}
+
+	/**
+	 * Result of the payment (e.g. Authorised or Refused), if Adyen processed it.
+	 */
+	public String getResultCode() {
+		return resultCode;
+	}
+
+	public String getPspReference() {
+		return pspReference;
+	}
+
+	/**
+	 * Refusal reason of a refused payment, or the reason the charge was rejected or failed.
+	 */
+	public String getMessage() {
+		return message;
+	}
+
+	@Override
+	public String toString() {
+		return charge + ": " + status + (resultCode != null ? " " + resultCode : "")
+				+ (message != null ? " (" + message + ")" : "");
+	}
+
+}
@@ -0,0 +1,197 @@
+package com.adyen.examples.recurring.billing;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.Closeable;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.io.RandomAccessFile;
+import java.io.Writer;
+import java.nio.charset.Charset;
+import java.util.BitSet;
+import java.util.List;
+
+import com.adyen.examples.common.Csv;
+
+/**
+ * Append-only log of the results of a billing run, per node
+ *
+ * Every charge that completes is appended as a CSV line; lines are never changed. The log starts with a line
+ * identifying the run and the input file, followed by a header line:
+ *
+ * <pre>
+ * # runId=2016-03 input=charges.csv inputSize=104857600
+ * row,shopperReference,merchantAccount,currency,amount,reference,status,resultCode,pspReference,message
+ * </pre>
+ *
+ * The log is also the state of the run. When the run is restarted, the log is read back: every row with a result
+ * other than FAILED is done and is skipped, and the failed rows are charged again. A row may appear more than once
+ * (a FAILED result followed by the result of the next run); the last result counts. A line that was only partly
+ * written when the process stopped is cut off.
+ *
+ * Every line is flushed to the operating system when it is appended, so a crash of the process loses no results. The
+ * log is synced to disk at most once per SYNC_MILLIS; after a power failure the last results may be missing, and those
+ * charges are sent again with the same idempotency key (see {@link BillingRun}).
+ *
+ * @author Created by Adyen - Payments Made Easy
+ */
+public class BillingResultLog implements Closeable {
+
+	/**
+	 * Log settings
+	 * - SYNC_MILLIS: maximum time appended results may stay unsynced
+	 */
+	private static final long SYNC_MILLIS = 1000;
+
+	private static final Charset UTF8 = Charset.forName("UTF-8");
+	private static final String HEADER = "row,shopperReference,merchantAccount,currency,amount,reference,status,"
+			+ "resultCode,pspReference,message";
+
+	private final File file;
+	private final BitSet done = new BitSet();
+	private final FileOutputStream out;
+	private final Writer writer;
+	private final StringBuilder line = new StringBuilder(256);
+
+	private long resumed;
+	private long lastSyncMillis = System.currentTimeMillis();
+	private boolean closed;
+
+	/**
+	 * Opens the log of the given run, reading back the results of an earlier attempt of the run.
+	 *
+	 * @throws IOException if the log belongs to another run or input file
+	 */
+	public BillingResultLog(File file, String runId, File input) throws IOException {
+		this.file = file;
+		String identity = "# runId=" + runId + " input=" + input.getName() + " inputSize=" + input.length();
+
+		boolean exists = file.length() > 0;
+		if (exists) {
+			load(identity);
+		}
+
+		out = new FileOutputStream(file, true);
+		writer = new BufferedWriter(new OutputStreamWriter(out, UTF8), 8192);
+		if (!exists) {
+			writer.write(identity + "\n" + HEADER + "\n");
+			writer.flush();
+		}
+	}
+
+	/**
+	 * Returns whether the given row has a result (other than FAILED) from an earlier attempt of the run.
+	 */
+	public synchronized boolean isDone(long row) {
+		return row <= Integer.MAX_VALUE && done.get((int) row);
+	}
+
+	/**
+	 * Number of rows that were done when the log was opened.
+	 */
+	public long getResumedCount() {
+		return resumed;
+	}
+
+	/**
+	 * Appends a result, and flushes it to the operating system.
+	 *
+	 * @throws IOException if the log is closed, e.g. because the run stopped without waiting for this payment
+	 */
+	public synchronized void append(BillingResult result) throws IOException {
+		if (closed) {
+			throw new IOException("Result log " + file + " is closed");
+		}
+		BillingCharge charge = result.getCharge();
+		line.setLength(0);
+		line.append(charge.getRow());
+		appendField(charge.getShopperReference());
+		appendField(result.getMerchantAccount());
+		appendField(charge.getCurrency());
+		appendField(charge.getAmount());
+		appendField(result.getReference());
+		appendField(result.getStatus().name());
+		appendField(result.getResultCode());
+		appendField(result.getPspReference());
+		appendField(result.getMessage());
+		line.append('\n');
+
+		writer.write(line.toString());
+		writer.flush();
+
+		long now = System.currentTimeMillis();
+		if (now - lastSyncMillis >= SYNC_MILLIS) {
+			out.getFD().sync();
+			lastSyncMillis = now;
+		}
+	}
+
+	@Override
+	public synchronized void close() throws IOException {
+		if (closed) {
+			return;
+		}
+		closed = true;
+		try {
+			writer.flush();
+			out.getFD().sync();
+		} finally {
+			writer.close();
+		}
+	}
+
+	private void appendField(String value) {
+		Csv.append(line.append(','), value);
+	}
+
+	/**
+	 * Reads the results of an earlier attempt, after cutting off a partly written last line.
+	 */
+	private void load(String identity) throws IOException {
+		// The last line has no line break if the process stopped while writing it
+		try (RandomAccessFile log = new RandomAccessFile(file, "rw")) {
+			log.seek(log.length() - 1);
+			if (log.read() != '\n') {
+				log.setLength(lastLineBreak(log) + 1);
+			}
+		}
+
+		try (BufferedReader reader = new BufferedReader(new InputStreamReader(new FileInputStream(file), UTF8), 65536)) {
+			String first = reader.readLine();
+			if (!identity.equals(first)) {
+				throw new IOException("Result log " + file + " belongs to another run or input file (" + first
+						+ "); use another runId or resultLog");
+			}
+
+			String entry;
+			while ((entry = reader.readLine()) != null) {
+				List<String> fields = Csv.split(entry);
+				if (fields.size() < 7) {
+					continue;
+				}
+				try {
+					int row = Integer.parseInt(fields.get(0));
+					done.set(row, !BillingResult.Status.FAILED.name().equals(fields.get(6)));
+				} catch (NumberFormatException e) {
+					// The header line
+				}
+			}
+		}
+		resumed = done.cardinality();
+	}
+
+	private static long lastLineBreak(RandomAccessFile file) throws IOException {
+		for (long position = file.length() - 1; position >= 0; position--) {
+			file.seek(position);
+			if (file.read() == '\n') {
+				return position;
+			}
+		}
+		return -1;
+	}
+
+}
@@ -0,0 +1,496 @@
+package com.adyen.examples.recurring.billing;
+
+import java.io.IOException;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+import javax.management.ObjectName;
+
+import org.apache.http.HttpResponse;
+import org.apache.http.client.HttpClient;
+import org.apache.http.client.methods.HttpPost;
+import org.apache.http.client.protocol.HttpClientContext;
+
+import com.adyen.examples.common.AdyenHttpClient;
+import com.adyen.examples.common.batch.BatchSupport;
+import com.adyen.examples.common.batch.ProgressReporter;
+import com.adyen.examples.common.batch.RetryBackoff;
+import com.adyen.examples.common.json.Amount;
+import com.adyen.examples.common.json.JsonCodec;
+import com.adyen.examples.common.json.PaymentRequest;
+import com.adyen.examples.common.json.PaymentResult;
+import com.adyen.examples.common.json.Recurring;
+import com.adyen.examples.common.json.ServiceError;
+import com.adyen.examples.common.metrics.AdyenMetrics;
+import com.adyen.examples.common.metrics.OperationTimer;
+import com.google.common.util.concurrent.RateLimiter;
+
+/**
+ * Subscription billing run: recurring payments for all shoppers of a (monthly) run (JSON)
+ *
+ * CreateRecurringPayment charges a single shopper with the LATEST recurring detail. A billing run does the same for
+ * every charge in a CSV file (see {@link BillingFileReader}), which may hold millions of charges:
+ *
+ * <pre>
+ * - nodes      : the run can be shared by several nodes, started with the same input file and runId and their own
+ *                nodeIndex; every node charges the shoppers whose hash falls in its share
+ * - partitions : on a node, the charges are divided over the worker threads by the hash of the shopper, so the
+ *                charges of a shopper are sent one at a time, in the order of the file
+ * - rate caps  : the payments per second are capped per merchant account (Guava RateLimiter); every node takes its
+ *                part (rate / nodeCount) of the cap
+ * - retries    : network errors and an overloaded platform (HTTP 429 and 5xx) are retried with exponential backoff
+ * </pre>
+ *
+ * The payments are sent as recurring (ContAuth) payments with the shared {@link AdyenHttpClient}, so they are subject
+ * to the concurrency limits of the authorise operation as well (see com.adyen.examples.common.limit).
+ *
+ * Every result is appended to the result log of the node (see {@link BillingResultLog}). When the run is stopped or
+ * crashes, it is restarted with the same settings: the charges with a result are skipped and the others are charged.
+ * A shopper is never charged twice for the same charge: the reference of a payment is derived from the runId and the
+ * reference of the charge (or the shopperReference and row number, e.g. 2016-03-shopper-000001-17), and it is sent as
+ * Idempotency-Key together with the merchant account. A payment that was in flight when the run stopped is sent again
+ * with the same key, and Adyen answers it with the result of the first payment instead of charging the shopper again.
+ * The row number keeps the charges of a shopper apart, so a restarted run must use the same input file (which the
+ * result log checks); give the charges a reference (e.g. the subscription ID) to have references that do not depend on
+ * the order of the file.
+ *
+ * The progress (throughput, estimated time remaining, results) is printed every reportSeconds and is available through
+ * JMX (see {@link BillingRunMBean}). Start a node with key=value settings (see {@link BillingConfig}), e.g.:
+ *
+ * <pre>
+ * java -cp "WEB-INF/classes:WEB-INF/lib/*" com.adyen.examples.recurring.billing.BillingRun input=charges.csv runId=2016-03 nodeIndex=0 nodeCount=4 threads=32 rate=200
+ * </pre>
+ *
+ * @author Created by Adyen - Payments Made Easy
+ */
+public class BillingRun implements BillingRunMBean {
+
+	/**
+	 * Run settings
+	 * - QUEUE_CAPACITY: maximum number of charges waiting in a partition
+	 * - RETRY_BACKOFF_MILLIS: time to wait before the first retry, doubled for every next retry
+	 * - SHUTDOWN_SECONDS: maximum time to wait for the payments in flight when the run stops; payments that are still
+	 *   in flight then are not in the result log and are sent again (with the same key) when the run is restarted
+	 */
+	private static final int QUEUE_CAPACITY = 256;
+	private static final long RETRY_BACKOFF_MILLIS = 500;
+	private static final long SHUTDOWN_SECONDS = 120;
+
+	// Marks the end of the charges in a partition queue
+	private static final BillingCharge END = new BillingCharge(0, null, null, null, null, null);
+
+	private final BillingConfig config;
+	private final ConcurrentMap<String, RateLimiter> rateLimiters = new ConcurrentHashMap<String, RateLimiter>();
+	private final RetryBackoff retry;
+	private final ProgressReporter progress;
+
+	private final LongAdder authorised = new LongAdder();
+	private final LongAdder refused = new LongAdder();
+	private final LongAdder otherResults = new LongAdder();
+	private final LongAdder rejected = new LongAdder();
+	private final LongAdder failed = new LongAdder();
+	private final LongAdder invalid = new LongAdder();
+	private final LongAdder assigned = new LongAdder();
+
+	private volatile boolean running = true;
+	private volatile IOException logFailure;
+	private volatile BillingFileReader reader;
+	private volatile BillingResultLog log;
+	private volatile Partition[] partitions;
+
+	private ObjectName objectName;
+
+	public BillingRun(BillingConfig config) {
+		config.validate();
+		this.config = config;
+		this.retry = new RetryBackoff(config.getMaxAttempts(), RETRY_BACKOFF_MILLIS, () -> running);
+		this.progress = new ProgressReporter("billing-progress", config.getReportSeconds(), this::getCompletedCount,
+				() -> System.out.println(this));
+	}
+
+	/**
+	 * Runs the charges of this node, skipping the charges with a result in the result log, and returns when all charges
+	 * are completed or the run is stopped.
+	 */
+	public void run() throws IOException, InterruptedException {
+		try (BillingResultLog resultLog = new BillingResultLog(config.getResultLog(), config.getRunId(),
+				config.getInput());
+				BillingFileReader fileReader = new BillingFileReader(config.getInput())) {
+			log = resultLog;
+			reader = fileReader;
+			if (resultLog.getResumedCount() > 0) {
+				System.out.println("Resuming run " + config.getRunId() + " after " + resultLog.getResumedCount()
+						+ " charges");
+			}
+
+			Partition[] workers = new Partition[config.getThreads()];
+			for (int i = 0; i < workers.length; i++) {
+				workers[i] = new Partition("billing-" + config.getRunId() + "-" + i);
+				workers[i].start();
+			}
+			partitions = workers;
+
+			objectName = BatchSupport.registerMBean(this, "BillingRun", config.getRunId() + "-" + config.getNodeIndex());
+			progress.start();
+			try {
+				dispatchAll(workers);
+			} finally {
+				for (Partition partition : workers) {
+					partition.finish();
+				}
+				long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(SHUTDOWN_SECONDS);
+				for (Partition partition : workers) {
+					partition.join(Math.max(1, TimeUnit.NANOSECONDS.toMillis(deadline - System.nanoTime())));
+				}
+				abandon(workers);
+			}
+		} finally {
+			progress.stop();
+			BatchSupport.unregisterMBean(objectName);
+		}
+
+		System.out.println(this);
+		if (logFailure != null) {
+			throw logFailure;
+		}
+	}
+
+	/**
+	 * Stops the run; {@link #run()} returns once the payments in flight are completed.
+	 */
+	@Override
+	public void stop() {
+		running = false;
+	}
+
+	/**
+	 * Stops the partitions that did not complete within SHUTDOWN_SECONDS. The result log is closed next, so their
+	 * payments in flight cannot be logged; the run fails, and a restart sends those payments again.
+	 */
+	private void abandon(Partition[] workers) {
+		int remaining = 0;
+		for (Partition partition : workers) {
+			if (partition.isAlive()) {
+				remaining++;
+			}
+		}
+		if (remaining == 0) {
+			return;
+		}
+
+		running = false;
+		for (Partition partition : workers) {
+			// Ends the backoff of a retry; a payment that is being sent ends at its socket timeout
+			partition.interrupt();
+		}
+		if (logFailure == null) {
+			logFailure = new IOException(remaining + " partitions did not complete within " + SHUTDOWN_SECONDS
+					+ " seconds, restart the run to complete their charges");
+		}
+	}
+
+	private void dispatchAll(Partition[] workers) throws IOException, InterruptedException {
+		int nodeCount = config.getNodeCount();
+		int nodeIndex = config.getNodeIndex();
+
+		BillingCharge charge;
+		while (running && (charge = reader.next()) != null) {
+			// Charges without shopperReference are reported by the first node only
+			int hash = charge.getShopperReference() != null ? spread(charge.getShopperReference().hashCode()) : 0;
+			if (Math.floorMod(hash, nodeCount) != nodeIndex) {
+				continue;
+			}
+			assigned.increment();
+
+			if (log.isDone(charge.getRow())) {
+				continue;
+			}
+
+			String error = charge.validate();
+			if (error != null) {
+				complete(new BillingResult(charge, merchantAccount(charge), null, BillingResult.Status.INVALID, null,
+						null, error));
+				continue;
+			}
+
+			workers[Math.floorMod(hash / nodeCount, workers.length)].queue.put(charge);
+		}
+	}
+
+	/**
+	 * Sends a single recurring payment, retrying network errors and an overloaded platform.
+	 */
+	private BillingResult charge(BillingCharge charge) {
+		String merchantAccount = merchantAccount(charge);
+		// Without a reference of its own, the row number keeps apart the charges of a shopper
+		String reference = config.getRunId() + "-" + (charge.getReference() != null ? charge.getReference()
+				: charge.getShopperReference() + "-" + charge.getRow());
+
+		PaymentRequest paymentRequest = new PaymentRequest();
+		paymentRequest.setMerchantAccount(merchantAccount);
+		paymentRequest.setReference(reference);
+		paymentRequest.setShopperReference(charge.getShopperReference());
+
+		Amount amount = new Amount();
+		amount.setCurrency(charge.getCurrency());
+		amount.setValue(charge.getAmountValue());
+		paymentRequest.setAmount(amount);
+
+		// Charge the most recently used recurring detail of the shopper, without the shopper being present
+		paymentRequest.setSelectedRecurringDetailReference("LATEST");
+		paymentRequest.setShopperInteraction("ContAuth");
+		paymentRequest.setRecurring(new Recurring("RECURRING"));
+
+		String url = config.getApiUrl();
+		String idempotencyKey = merchantAccount + "/" + reference;
+		HttpClient client = AdyenHttpClient.getInstance();
+		HttpClientContext context = AdyenHttpClient.createContext(url, config.getWsUser(), config.getWsPassword());
+
+		rateLimiter(merchantAccount).acquire();
+
+		String message = null;
+		for (int attempt = 1;; attempt++) {
+			HttpPost httpRequest = new HttpPost(url);
+			httpRequest.setHeader("Idempotency-Key", idempotencyKey);
+			httpRequest.setEntity(JsonCodec.toEntity(paymentRequest));
+
+			try (OperationTimer timer = AdyenMetrics.json(url).start()) {
+				HttpResponse httpResponse = client.execute(httpRequest, context);
+				int status = httpResponse.getStatusLine().getStatusCode();
+
+				if (status == 200) {
+					PaymentResult paymentResult = JsonCodec.read(httpResponse.getEntity(), PaymentResult::readFrom);
+					timer.setResult(paymentResult.getResultCode());
+					return new BillingResult(charge, merchantAccount, reference, BillingResult.Status.PROCESSED,
+							paymentResult.getResultCode(), paymentResult.getPspReference(), paymentResult
+									.getRefusalReason());
+				}
+
+				timer.setFailed(String.valueOf(status));
+				message = status + " " + ServiceError.from(httpResponse).getMessage();
+				if (status != 429 && status < 500) {
+					return new BillingResult(charge, merchantAccount, reference, BillingResult.Status.REJECTED, null,
+							null, message);
+				}
+			} catch (IOException e) {
+				message = e.toString();
+			}
+
+			if (!retry.awaitRetry(attempt)) {
+				return new BillingResult(charge, merchantAccount, reference, BillingResult.Status.FAILED, null, null,
+						message);
+			}
+			rateLimiter(merchantAccount).acquire();
+		}
+	}
+
+	private void complete(BillingResult result) {
+		switch (result.getStatus()) {
+			case PROCESSED:
+				if ("Authorised".equals(result.getResultCode())) {
+					authorised.increment();
+				}
+				else if ("Refused".equals(result.getResultCode())) {
+					refused.increment();
+				}
+				else {
+					otherResults.increment();
+				}
+				break;
+			case REJECTED:
+				rejected.increment();
+				break;
+			case FAILED:
+				failed.increment();
+				break;
+			default:
+				invalid.increment();
+		}
+
+		try {
+			log.append(result);
+		} catch (IOException e) {
+			// Without the result log the run cannot be restarted safely, stop charging; the first failure is reported
+			if (logFailure == null) {
+				logFailure = e;
+			}
+			running = false;
+		}
+	}
+
+	private String merchantAccount(BillingCharge charge) {
+		return charge.getMerchantAccount() != null ? charge.getMerchantAccount() : config.getMerchantAccount();
+	}
+
+	/**
+	 * Returns the rate limiter of a merchant account: its share of the rate cap of all nodes together.
+	 */
+	private RateLimiter rateLimiter(String merchantAccount) {
+		RateLimiter rateLimiter = rateLimiters.get(merchantAccount);
+		if (rateLimiter == null) {
+			double rate = config.getRate(merchantAccount);
+			rateLimiter = RateLimiter.create(rate > 0 ? rate / config.getNodeCount() : Double.MAX_VALUE);
+			RateLimiter existing = rateLimiters.putIfAbsent(merchantAccount, rateLimiter);
+			if (existing != null) {
+				rateLimiter = existing;
+			}
+		}
+		return rateLimiter;
+	}
+
+	@Override
+	public long getCompletedCount() {
+		BillingResultLog current = log;
+		long resumed = current != null ? current.getResumedCount() : 0;
+		return resumed + authorised.sum() + refused.sum() + otherResults.sum() + rejected.sum() + failed.sum()
+				+ invalid.sum();
+	}
+
+	@Override
+	public long getEstimatedTotal() {
+		BillingFileReader current = reader;
+		if (current == null || current.getPosition() == 0) {
+			return 0;
+		}
+		if (current.getPosition() >= current.getSize()) {
+			return assigned.sum();
+		}
+		return assigned.sum() * current.getSize() / current.getPosition();
+	}
+
+	@Override
+	public long getAuthorisedCount() {
+		return authorised.sum();
+	}
+
+	@Override
+	public long getRefusedCount() {
+		return refused.sum();
+	}
+
+	@Override
+	public long getRejectedCount() {
+		return rejected.sum();
+	}
+
+	@Override
+	public long getFailedCount() {
+		return failed.sum();
+	}
+
+	@Override
+	public long getInvalidCount() {
+		return invalid.sum();
+	}
+
+	@Override
+	public long getRetryCount() {
+		return retry.getRetryCount();
+	}
+
+	@Override
+	public int getQueueDepth() {
+		Partition[] current = partitions;
+		int depth = 0;
+		if (current != null) {
+			for (Partition partition : current) {
+				depth += partition.queue.size();
+			}
+		}
+		return depth;
+	}
+
+	@Override
+	public double getThroughput() {
+		return progress.getThroughput();
+	}
+
+	@Override
+	public long getEtaSeconds() {
+		return progress.getEtaSeconds(getEstimatedTotal() - getCompletedCount());
+	}
+
+	@Override
+	public String toString() {
+		long completed = getCompletedCount();
+		long total = Math.max(getEstimatedTotal(), completed);
+		return String.format("Run %s node %d/%d: completed %d of ~%d (%.1f%%), %.0f/s, ETA %s - authorised: %d, "
+				+ "refused: %d, rejected: %d, failed: %d, invalid: %d, retries: %d", config.getRunId(), config
+				.getNodeIndex(), config.getNodeCount(), completed, total, total > 0 ? completed * 100.0 / total : 0.0,
+				getThroughput(), ProgressReporter.formatEta(getEtaSeconds()), getAuthorisedCount(), getRefusedCount(),
+				getRejectedCount(), getFailedCount(), getInvalidCount(), getRetryCount());
+	}
+
+	/**
+	 * Spreads the bits of a String hash code, so consecutive shopper references are divided evenly.
+	 */
+	private static int spread(int hash) {
+		hash ^= hash >>> 16;
+		hash *= 0x85ebca6b;
+		hash ^= hash >>> 13;
+		return hash & Integer.MAX_VALUE;
+	}
+
+	/**
+	 * Worker thread charging the shoppers of a single partition, in order.
+	 */
+	private final class Partition extends Thread {
+
+		private final BlockingQueue<BillingCharge> queue = new ArrayBlockingQueue<BillingCharge>(QUEUE_CAPACITY);
+
+		private Partition(String name) {
+			super(name);
+			setDaemon(true);
+		}
+
+		@Override
+		public void run() {
+			try {
+				BillingCharge charge;
+				while ((charge = queue.take()) != END) {
+					// After a stop, the waiting charges are left for the restart
+					if (running) {
+						complete(charge(charge));
+					}
+				}
+			} catch (InterruptedException e) {
+				// Stopped
+			}
+		}
+
+		private void finish() throws InterruptedException {
+			queue.put(END);
+		}
+
+	}
+
+	public static void main(String[] args) throws Exception {
+		BillingConfig config = BillingConfig.fromArguments(args);
+		final BillingRun billingRun = new BillingRun(config);
+		System.out.println("Billing run started (" + config + ")");
+
+		final Thread main = Thread.currentThread();
+		Runtime.getRuntime().addShutdownHook(new Thread() {
+			@Override
+			public void run() {
+				billingRun.stop();
+				try {
+					main.join();
+				} catch (InterruptedException e) {
+					// Exit without waiting for the payments in flight
+				}
+			}
+		});
+
+		try {
+			billingRun.run();
+		} finally {
+			AdyenHttpClient.shutdown();
+		}
+	}
+
+}
@@ -0,0 +1,55 @@
+package com.adyen.examples.recurring.billing;
+
+/**
+ * Management interface of a {@link BillingRun}, registered as com.adyen.examples:type=BillingRun,name=&lt;runId&gt;
+ *
+ * @author Created by Adyen - Payments Made Easy
+ */
+public interface BillingRunMBean {
+
+	/**
+	 * Number of charges completed by this node, including the charges done before a restart.
+	 */
+	long getCompletedCount();
+
+	/**
+	 * Estimated total number of charges of this node, extrapolated from the part of the input read so far.
+	 */
+	long getEstimatedTotal();
+
+	long getAuthorisedCount();
+
+	long getRefusedCount();
+
+	long getRejectedCount();
+
+	long getFailedCount();
+
+	long getInvalidCount();
+
+	/**
+	 * Number of times a payment was sent again after a network error or an overloaded platform.
+	 */
+	long getRetryCount();
+
+	/**
+	 * Number of charges waiting in all partition queues.
+	 */
+	int getQueueDepth();
+
+	/**
+	 * Number of charges completed per second, measured over the last report interval.
+	 */
+	double getThroughput();
+
+	/**
+	 * Estimated number of seconds until this node has completed its charges, or -1 if not known yet.
+	 */
+	long getEtaSeconds();
+
+	/**
+	 * Stops the run; the payments in flight are completed, the charges waiting in the queues are left for the restart.
+	 */
+	void stop();
+
+}
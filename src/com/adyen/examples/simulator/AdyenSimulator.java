@@ -0,0 +1,262 @@
+package com.adyen.examples.simulator;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+import com.adyen.examples.common.AdyenRoutePlanner;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+
+/**
+ * Local simulator of the Adyen platform, for load and latency testing
+ *
+ * The simulator (using the HTTP server of the JDK) implements the endpoints called by the examples, so their
+ * throughput and tail latency can be measured end to end on a single machine, without calling the Adyen test
+ * platform:
+ *
+ * <pre>
+ * - /pal/servlet/Payment/v10/*    : JSON Payment API (authorise, authorise3d, capture, cancel, refund, cancelOrRefund)
+ * - /pal/servlet/Recurring/v10/*  : JSON Recurring API (listRecurringDetails, disable)
+ * - /pal/servlet/soap/*           : SOAP Payment, Recurring and Payout services (all operations)
+ * - /hpp/directory.shtml          : HPP directory service
+ * - /simulator/issuer             : 3D Secure issuer page, returning to the TermUrl immediately
+ * </pre>
+ *
+ * The response time follows the configured latency distribution, and errors, refusals and 3D Secure redirects are
+ * returned at the configured rates (see {@link SimulatorConfig}). Responses are delayed without blocking a thread, so
+ * thousands of requests can be in flight. The simulator can also push notifications to a NotificationServer at a
+ * configurable rate (see {@link NotificationPusher}).
+ *
+ * Start the simulator with key=value settings, e.g.:
+ *
+ * <pre>
+ * java -cp "WEB-INF/classes:WEB-INF/lib/*" com.adyen.examples.simulator.AdyenSimulator port=8089 latency=lognormal:80,600 errorRate=0.01
+ * </pre>
+ *
+ * and start the application server with -Dcom.adyen.examples.simulatorUrl=http://localhost:8089 to send all calls of
+ * the examples to the simulator (see {@link AdyenRoutePlanner}). The simulator can also be embedded in a test, using
+ * {@link #start()} and {@link #stop()}.
+ *
+ * @author Created by Adyen - Payments Made Easy
+ */
+public class AdyenSimulator {
+
+	/**
+	 * Outcome of a simulated payment.
+	 */
+	enum Outcome {
+		AUTHORISED, REFUSED, REDIRECT_SHOPPER
+	}
+
+	private final SimulatorConfig config;
+	private final AtomicLong pspReferences = new AtomicLong((System.currentTimeMillis() % 100000000L) * 100000000L);
+	private final LongAdder requests = new LongAdder();
+	private final LongAdder errors = new LongAdder();
+
+	private HttpServer server;
+	private volatile String url;
+	private ExecutorService executor;
+	private ScheduledExecutorService scheduler;
+	private NotificationPusher notificationPusher;
+
+	public AdyenSimulator(SimulatorConfig config) {
+		this.config = config;
+	}
+
+	/**
+	 * Starts the simulator, and the notification pusher if a notificationUrl is configured.
+	 */
+	public synchronized void start() throws IOException {
+		if (server != null) {
+			throw new IllegalStateException("Simulator is already started");
+		}
+
+		executor = Executors.newFixedThreadPool(config.getThreads(), daemonThreads("adyen-simulator"));
+		scheduler = Executors.newScheduledThreadPool(Math.max(1, config.getThreads() / 4), daemonThreads("adyen-simulator-responder"));
+
+		server = HttpServer.create(new InetSocketAddress(config.getPort()), 1024);
+		server.setExecutor(executor);
+
+		JsonApiHandler jsonApi = new JsonApiHandler(this);
+		server.createContext("/pal/servlet/Payment/", jsonApi);
+		server.createContext("/pal/servlet/Recurring/", jsonApi);
+		server.createContext("/pal/servlet/soap/", new SoapApiHandler(this));
+		server.createContext("/hpp/directory.shtml", new DirectoryHandler(this));
+		server.createContext("/simulator/issuer", new IssuerHandler(this));
+		server.start();
+		url = "http://localhost:" + server.getAddress().getPort();
+
+		if (config.getNotificationUrl() != null) {
+			notificationPusher = new NotificationPusher(this);
+			notificationPusher.start();
+		}
+	}
+
+	/**
+	 * Stops the simulator and the notification pusher.
+	 */
+	public synchronized void stop() {
+		if (server == null) {
+			return;
+		}
+
+		if (notificationPusher != null) {
+			notificationPusher.stop();
+		}
+		server.stop(0);
+		scheduler.shutdownNow();
+		executor.shutdownNow();
+		server = null;
+		url = null;
+	}
+
+	/**
+	 * Base URL of the (started) simulator, e.g. http://localhost:8089.
+	 */
+	public String getUrl() {
+		String current = url;
+		if (current == null) {
+			throw new IllegalStateException("Simulator is not started");
+		}
+		return current;
+	}
+
+	public SimulatorConfig getConfig() {
+		return config;
+	}
+
+	/**
+	 * The notification pusher, or null if no notificationUrl is configured.
+	 */
+	public NotificationPusher getNotificationPusher() {
+		return notificationPusher;
+	}
+
+	/**
+	 * Number of requests answered.
+	 */
+	public long getRequestCount() {
+		return requests.sum();
+	}
+
+	/**
+	 * Number of requests answered with an error status (including simulated errors).
+	 */
+	public long getErrorCount() {
+		return errors.sum();
+	}
+
+	boolean chance(double rate) {
+		return rate > 0 && ThreadLocalRandom.current().nextDouble() < rate;
+	}
+
+	/**
+	 * Decides the outcome of a payment; only payments that support 3D Secure can be redirected.
+	 */
+	Outcome decide(boolean threeDSecure) {
+		if (threeDSecure && chance(config.getRedirectShopperRate())) {
+			return Outcome.REDIRECT_SHOPPER;
+		}
+		return chance(config.getRefusalRate()) ? Outcome.REFUSED : Outcome.AUTHORISED;
+	}
+
+	String nextPspReference() {
+		return Long.toString(8800000000000000L + pspReferences.incrementAndGet() % 100000000000000L);
+	}
+
+	String nextAuthCode() {
+		return Integer.toString(10000 + ThreadLocalRandom.current().nextInt(90000));
+	}
+
+	String getIssuerUrl() {
+		return getUrl() + "/simulator/issuer";
+	}
+
+	/**
+	 * Sends the response when the simulated latency (counted from the start of the request) has passed.
+	 */
+	void send(final HttpExchange exchange, final SimulatorHandler.Response response, long startNanos) {
+		long delayMicros = config.getLatency().nextMicros() - TimeUnit.NANOSECONDS.toMicros(System.nanoTime() - startNanos);
+		if (delayMicros <= 0) {
+			write(exchange, response);
+			return;
+		}
+
+		try {
+			scheduler.schedule(new Runnable() {
+				@Override
+				public void run() {
+					write(exchange, response);
+				}
+			}, delayMicros, TimeUnit.MICROSECONDS);
+		} catch (RuntimeException e) {
+			// The simulator is stopped
+			exchange.close();
+		}
+	}
+
+	private void write(HttpExchange exchange, SimulatorHandler.Response response) {
+		requests.increment();
+		if (response.status >= 400) {
+			errors.increment();
+		}
+
+		try {
+			exchange.getResponseHeaders().set("Content-Type", response.contentType);
+			exchange.sendResponseHeaders(response.status, response.body.length);
+			OutputStream out = exchange.getResponseBody();
+			out.write(response.body);
+			out.close();
+		} catch (IOException e) {
+			// The client closed the connection
+		} finally {
+			exchange.close();
+		}
+	}
+
+	private static ThreadFactory daemonThreads(final String name) {
+		final AtomicInteger count = new AtomicInteger();
+		return new ThreadFactory() {
+			@Override
+			public Thread newThread(Runnable runnable) {
+				Thread thread = new Thread(runnable, name + "-" + count.incrementAndGet());
+				thread.setDaemon(true);
+				return thread;
+			}
+		};
+	}
+
+	public static void main(String[] args) throws Exception {
+		SimulatorConfig config = SimulatorConfig.fromArguments(args);
+		final AdyenSimulator simulator = new AdyenSimulator(config);
+		simulator.start();
+
+		System.out.println("Adyen simulator started on " + simulator.getUrl() + " (" + config + ")");
+		System.out.println("Start the application server with -D" + AdyenRoutePlanner.SIMULATOR_URL_PROPERTY + "="
+				+ simulator.getUrl());
+
+		Runtime.getRuntime().addShutdownHook(new Thread() {
+			@Override
+			public void run() {
+				simulator.stop();
+				System.out.println("Requests: " + simulator.getRequestCount() + ", errors: " + simulator.getErrorCount());
+				if (simulator.getNotificationPusher() != null) {
+					System.out.println(simulator.getNotificationPusher());
+				}
+			}
+		});
+
+		Thread.currentThread().join();
+	}
+
+}
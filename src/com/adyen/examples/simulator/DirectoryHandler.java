@@ -0,0 +1,54 @@
+package com.adyen.examples.simulator;
+
+import com.adyen.examples.common.json.JsonWriter;
+import com.sun.net.httpserver.HttpExchange;
+
+/**
+ * Simulated directory service of the HPP (/hpp/directory.shtml)
+ *
+ * Returns a fixed list of payment methods (iDEAL with its issuers, Visa and MasterCard) for every request; the
+ * merchant signature is not checked.
+ *
+ * @author Created by Adyen - Payments Made Easy
+ */
+class DirectoryHandler extends SimulatorHandler {
+
+	private final byte[] paymentMethods;
+
+	DirectoryHandler(AdyenSimulator simulator) {
+		super(simulator);
+
+		paymentMethods = new JsonWriter().beginObject()
+				.name("paymentMethods").beginArray()
+				.beginObject()
+				.field("brandCode", "ideal")
+				.field("name", "iDEAL")
+				.name("issuers").beginArray()
+				.beginObject().field("issuerId", "1121").field("name", "Test Issuer").endObject()
+				.beginObject().field("issuerId", "1154").field("name", "Test Issuer 5").endObject()
+				.endArray()
+				.endObject()
+				.beginObject().field("brandCode", "visa").field("name", "VISA").endObject()
+				.beginObject().field("brandCode", "mc").field("name", "MasterCard").endObject()
+				.endArray()
+				.endObject()
+				.toByteArray();
+	}
+
+	@Override
+	protected Response respond(HttpExchange exchange, byte[] body) {
+		return new Response(200, "application/json; charset=utf-8", paymentMethods);
+	}
+
+	@Override
+	protected Response error(String message) {
+		return Response.text(500, message);
+	}
+
+	@Override
+	protected boolean requiresAuthentication() {
+		// The directory service is authenticated by the merchant signature
+		return false;
+	}
+
+}
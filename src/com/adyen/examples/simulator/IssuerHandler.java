@@ -0,0 +1,66 @@
+package com.adyen.examples.simulator;
+
+import java.io.UnsupportedEncodingException;
+import java.net.URLDecoder;
+import java.util.HashMap;
+import java.util.Map;
+
+import com.sun.net.httpserver.HttpExchange;
+
+/**
+ * Simulated 3D Secure issuer page (the issuerUrl of a RedirectShopper result)
+ *
+ * The shopper is "authenticated" immediately: the page posts MD and a simulated PaRes straight back to the TermUrl,
+ * like the real issuer does after authentication. This completes the 3D Secure flow of the examples in a browser.
+ *
+ * @author Created by Adyen - Payments Made Easy
+ */
+class IssuerHandler extends SimulatorHandler {
+
+	IssuerHandler(AdyenSimulator simulator) {
+		super(simulator);
+	}
+
+	@Override
+	protected Response respond(HttpExchange exchange, byte[] body) throws UnsupportedEncodingException {
+		Map<String, String> parameters = parseForm(new String(body, UTF8));
+
+		String html = "<!DOCTYPE html><html><body onload=\"document.forms[0].submit()\">"
+				+ "<form method=\"post\" action=\"" + escapeHtml(parameters.get("TermUrl")) + "\">"
+				+ "<input type=\"hidden\" name=\"MD\" value=\"" + escapeHtml(parameters.get("MD")) + "\" />"
+				+ "<input type=\"hidden\" name=\"PaRes\" value=\"SIMULATED-PARES\" />"
+				+ "<noscript><input type=\"submit\" value=\"Continue\" /></noscript>"
+				+ "</form></body></html>";
+		return new Response(200, "text/html; charset=utf-8", html.getBytes(UTF8));
+	}
+
+	@Override
+	protected Response error(String message) {
+		return Response.text(500, message);
+	}
+
+	@Override
+	protected boolean requiresAuthentication() {
+		return false;
+	}
+
+	private static Map<String, String> parseForm(String form) throws UnsupportedEncodingException {
+		Map<String, String> parameters = new HashMap<String, String>();
+		for (String pair : form.split("&")) {
+			int separator = pair.indexOf('=');
+			if (separator > 0) {
+				parameters.put(URLDecoder.decode(pair.substring(0, separator), "UTF-8"),
+						URLDecoder.decode(pair.substring(separator + 1), "UTF-8"));
+			}
+		}
+		return parameters;
+	}
+
+	private static String escapeHtml(String value) {
+		if (value == null) {
+			return "";
+		}
+		return value.replace("&", "&amp;").replace("\"", "&quot;").replace("<", "&lt;").replace(">", "&gt;");
+	}
+
+}
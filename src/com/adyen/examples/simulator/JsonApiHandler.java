@@ -0,0 +1,152 @@
+package com.adyen.examples.simulator;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+
+import com.adyen.examples.common.json.JsonReader;
+import com.adyen.examples.common.json.JsonWriter;
+import com.sun.net.httpserver.HttpExchange;
+
+/**
+ * Simulated JSON API of the Payment and Recurring services
+ *
+ * <pre>
+ * - /pal/servlet/Payment/v10/authorise        : Authorised, Refused or RedirectShopper (with browserInfo)
+ * - /pal/servlet/Payment/v10/authorise3d      : Authorised or Refused
+ * - /pal/servlet/Payment/v10/capture, cancel, refund, cancelOrRefund : [action-received]
+ * - /pal/servlet/Recurring/v10/listRecurringDetails : a single card detail
+ * - /pal/servlet/Recurring/v10/disable        : [detail-successfully-disabled]
+ * </pre>
+ *
+ * @author Created by Adyen - Payments Made Easy
+ */
+class JsonApiHandler extends SimulatorHandler {
+
+	private static final String CONTENT_TYPE = "application/json; charset=utf-8";
+
+	JsonApiHandler(AdyenSimulator simulator) {
+		super(simulator);
+	}
+
+	@Override
+	protected Response respond(HttpExchange exchange, byte[] body) throws IOException {
+		String action = lastSegment(exchange);
+		RequestSummary request = RequestSummary.read(body);
+		JsonWriter writer = new JsonWriter();
+
+		switch (action) {
+			case "authorise":
+			case "authorise3d":
+				writePaymentResult(writer, simulator.decide(request.browserInfo && action.equals("authorise")));
+				break;
+			case "capture":
+			case "cancel":
+			case "refund":
+			case "cancelOrRefund":
+				writer.beginObject()
+						.field("pspReference", simulator.nextPspReference())
+						.field("response", "[" + action + "-received]")
+						.endObject();
+				break;
+			case "listRecurringDetails":
+				writeRecurringDetails(writer, request.shopperReference);
+				break;
+			case "disable":
+				writer.beginObject()
+						.field("response", "[detail-successfully-disabled]")
+						.endObject();
+				break;
+			default:
+				return new Response(404, CONTENT_TYPE, errorJson(404, "000", "Unknown action: " + action, "validation"));
+		}
+
+		return new Response(200, CONTENT_TYPE, writer.toByteArray());
+	}
+
+	@Override
+	protected Response error(String message) {
+		return new Response(500, CONTENT_TYPE, errorJson(500, "905", message, "internal"));
+	}
+
+	private void writePaymentResult(JsonWriter writer, AdyenSimulator.Outcome outcome) {
+		String pspReference = simulator.nextPspReference();
+		writer.beginObject().field("pspReference", pspReference);
+		switch (outcome) {
+			case AUTHORISED:
+				writer.field("resultCode", "Authorised").field("authCode", simulator.nextAuthCode());
+				break;
+			case REFUSED:
+				writer.field("resultCode", "Refused").field("refusalReason", "Refused");
+				break;
+			default:
+				writer.field("resultCode", "RedirectShopper")
+						.field("issuerUrl", simulator.getIssuerUrl())
+						.field("paRequest", "SIMULATED-PAREQ-" + pspReference)
+						.field("md", "SIMULATED-MD-" + pspReference);
+		}
+		writer.endObject();
+	}
+
+	private void writeRecurringDetails(JsonWriter writer, String shopperReference) {
+		writer.beginObject()
+				.field("creationDate", "2015-01-01T12:00:00+01:00")
+				.field("lastKnownShopperEmail", "test@example.com")
+				.field("shopperReference", shopperReference)
+				.name("details").beginArray()
+				.beginObject().name("RecurringDetail").beginObject()
+				.field("recurringDetailReference", "8313147988756818")
+				.field("variant", "mc")
+				.field("creationDate", "2015-01-01T12:00:00+01:00")
+				.name("card").beginObject()
+				.field("expiryMonth", "6")
+				.field("expiryYear", "2016")
+				.field("holderName", "John Doe")
+				.field("number", "1111")
+				.endObject()
+				.endObject().endObject()
+				.endArray()
+				.endObject();
+	}
+
+	private static byte[] errorJson(int status, String errorCode, String message, String errorType) {
+		return new JsonWriter().beginObject()
+				.name("status").value(status)
+				.field("errorCode", errorCode)
+				.field("message", message)
+				.field("errorType", errorType)
+				.endObject()
+				.toByteArray();
+	}
+
+	/**
+	 * The fields of the request that affect the response.
+	 */
+	private static final class RequestSummary {
+
+		boolean browserInfo;
+		String shopperReference;
+
+		static RequestSummary read(byte[] body) throws IOException {
+			RequestSummary summary = new RequestSummary();
+			JsonReader reader = new JsonReader(new ByteArrayInputStream(body));
+			reader.beginObject();
+			while (reader.hasNext()) {
+				switch (reader.nextName()) {
+					case "browserInfo":
+						summary.browserInfo = reader.peek() == JsonReader.Token.BEGIN_OBJECT;
+						reader.skipValue();
+						break;
+					case "shopperReference":
+						summary.shopperReference = reader.nextString();
+						break;
+					default:
+						reader.skipValue();
+				}
+			}
+			reader.endObject();
+			return summary;
+		}
+
+	}
+
+}
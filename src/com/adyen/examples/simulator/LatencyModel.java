@@ -0,0 +1,114 @@
+package com.adyen.examples.simulator;
+
+import java.util.Locale;
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * Distribution of the simulated response time of the Adyen platform
+ *
+ * A latency model is written as a short specification, with all times in milliseconds:
+ *
+ * <pre>
+ * - none                    : respond immediately
+ * - fixed:MILLIS            : always the same latency
+ * - uniform:MIN-MAX         : uniformly distributed between MIN and MAX
+ * - lognormal:MEDIAN,P99    : log-normal distribution with the given median and 99th percentile (long tail)
+ * </pre>
+ *
+ * The log-normal distribution is the closest to real payment latencies: most calls are fast, a few are very slow.
+ *
+ * @author Created by Adyen - Payments Made Easy
+ */
+public final class LatencyModel {
+
+	// 99th percentile of the standard normal distribution
+	private static final double Z_99 = 2.3263;
+
+	private enum Kind {
+		NONE, FIXED, UNIFORM, LOGNORMAL
+	}
+
+	private final String specification;
+	private final Kind kind;
+	private final double a;
+	private final double b;
+
+	private LatencyModel(String specification, Kind kind, double a, double b) {
+		this.specification = specification;
+		this.kind = kind;
+		this.a = a;
+		this.b = b;
+	}
+
+	/**
+	 * Parses a latency model specification (see above).
+	 */
+	public static LatencyModel parse(String specification) {
+		String spec = specification.trim().toLowerCase(Locale.ROOT);
+		int colon = spec.indexOf(':');
+		String kind = colon < 0 ? spec : spec.substring(0, colon);
+		String arguments = colon < 0 ? "" : spec.substring(colon + 1);
+
+		try {
+			switch (kind) {
+				case "none":
+					return new LatencyModel(spec, Kind.NONE, 0, 0);
+				case "fixed":
+					return new LatencyModel(spec, Kind.FIXED, Double.parseDouble(arguments), 0);
+				case "uniform": {
+					String[] range = arguments.split("-");
+					double min = Double.parseDouble(range[0]);
+					double max = Double.parseDouble(range[1]);
+					if (max < min) {
+						throw new IllegalArgumentException("Invalid latency range: " + specification);
+					}
+					return new LatencyModel(spec, Kind.UNIFORM, min, max);
+				}
+				case "lognormal": {
+					String[] values = arguments.split(",");
+					double median = Double.parseDouble(values[0]);
+					double p99 = Double.parseDouble(values[1]);
+					if (median <= 0 || p99 < median) {
+						throw new IllegalArgumentException("Invalid log-normal latency: " + specification);
+					}
+					// mu and sigma of the underlying normal distribution
+					double mu = Math.log(median);
+					double sigma = (Math.log(p99) - mu) / Z_99;
+					return new LatencyModel(spec, Kind.LOGNORMAL, mu, sigma);
+				}
+				default:
+					throw new IllegalArgumentException("Unknown latency model: " + specification);
+			}
+		} catch (NumberFormatException | ArrayIndexOutOfBoundsException e) {
+			throw new IllegalArgumentException("Invalid latency model: " + specification, e);
+		}
+	}
+
+	/**
+	 * Returns the latency of the next response, in microseconds.
+	 */
+	public long nextMicros() {
+		ThreadLocalRandom random = ThreadLocalRandom.current();
+		double millis;
+		switch (kind) {
+			case FIXED:
+				millis = a;
+				break;
+			case UNIFORM:
+				millis = a + random.nextDouble() * (b - a);
+				break;
+			case LOGNORMAL:
+				millis = Math.exp(a + b * random.nextGaussian());
+				break;
+			default:
+				return 0;
+		}
+		return (long) (millis * 1000);
+	}
+
+	@Override
+	public String toString() {
+		return specification;
+	}
+
+}
@@ -0,0 +1,225 @@
+package com.adyen.examples.simulator;
+
+import java.io.IOException;
+import java.nio.charset.Charset;
+import java.text.SimpleDateFormat;
+import java.util.Date;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+import org.apache.commons.codec.binary.Base64;
+import org.apache.http.HttpResponse;
+import org.apache.http.client.methods.HttpPost;
+import org.apache.http.entity.ByteArrayEntity;
+import org.apache.http.entity.ContentType;
+import org.apache.http.impl.client.CloseableHttpClient;
+import org.apache.http.impl.client.HttpClients;
+import org.apache.http.util.EntityUtils;
+
+import com.adyen.examples.common.json.JsonWriter;
+
+/**
+ * Pushes JSON notifications to a NotificationServer at a fixed rate, like the Adyen platform does
+ *
+ * Every request contains a batch of AUTHORISATION notifications with unique references. Requests are started at a
+ * fixed rate, independent of how fast the NotificationServer answers; the latency of a request is counted from the
+ * moment it should have been sent, so a slow server shows up in the latency instead of silently lowering the rate. If
+ * the maximum number of requests is already in flight, the request is skipped (and counted).
+ *
+ * @author Created by Adyen - Payments Made Easy
+ */
+public class NotificationPusher {
+
+	private static final Charset UTF8 = Charset.forName("UTF-8");
+
+	private final AdyenSimulator simulator;
+	private final SimulatorConfig config;
+	private final String authorization;
+
+	private final LongAdder sent = new LongAdder();
+	private final LongAdder accepted = new LongAdder();
+	private final LongAdder failed = new LongAdder();
+	private final LongAdder skipped = new LongAdder();
+	private final LongAdder totalLatencyMicros = new LongAdder();
+	private final AtomicLong maxLatencyMicros = new AtomicLong();
+	private final AtomicLong ticks = new AtomicLong();
+
+	private CloseableHttpClient client;
+	private ScheduledExecutorService ticker;
+	private ExecutorService workers;
+	private Semaphore inFlight;
+
+	NotificationPusher(AdyenSimulator simulator) {
+		this.simulator = simulator;
+		this.config = simulator.getConfig();
+		String credentials = config.getNotificationUser() + ":" + config.getNotificationPassword();
+		this.authorization = "Basic " + Base64.encodeBase64String(credentials.getBytes(UTF8));
+	}
+
+	synchronized void start() {
+		int concurrency = config.getNotificationConcurrency();
+		client = HttpClients.custom()
+				.setMaxConnTotal(concurrency)
+				.setMaxConnPerRoute(concurrency)
+				.build();
+		inFlight = new Semaphore(concurrency);
+		workers = Executors.newFixedThreadPool(concurrency);
+		ticker = Executors.newSingleThreadScheduledExecutor();
+
+		final long periodNanos = (long) (TimeUnit.SECONDS.toNanos(1) / config.getNotificationRate());
+		final long startNanos = System.nanoTime();
+		ticker.scheduleAtFixedRate(new Runnable() {
+			@Override
+			public void run() {
+				tick(startNanos + ticks.getAndIncrement() * periodNanos);
+			}
+		}, 0, periodNanos, TimeUnit.NANOSECONDS);
+	}
+
+	synchronized void stop() {
+		if (ticker == null) {
+			return;
+		}
+
+		ticker.shutdownNow();
+		workers.shutdown();
+		try {
+			workers.awaitTermination(10, TimeUnit.SECONDS);
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+		}
+		workers.shutdownNow();
+
+		try {
+			client.close();
+		} catch (IOException e) {
+			// Nothing left to do, the connections are closed
+		}
+		ticker = null;
+	}
+
+	public long getSentCount() {
+		return sent.sum();
+	}
+
+	public long getAcceptedCount() {
+		return accepted.sum();
+	}
+
+	public long getFailedCount() {
+		return failed.sum();
+	}
+
+	public long getSkippedCount() {
+		return skipped.sum();
+	}
+
+	public long getMaxLatencyMicros() {
+		return maxLatencyMicros.get();
+	}
+
+	public long getAverageLatencyMicros() {
+		long count = accepted.sum() + failed.sum();
+		return count == 0 ? 0 : totalLatencyMicros.sum() / count;
+	}
+
+	@Override
+	public String toString() {
+		return "Notifications sent: " + getSentCount() + ", accepted: " + getAcceptedCount() + ", failed: "
+				+ getFailedCount() + ", skipped: " + getSkippedCount() + ", average latency: "
+				+ getAverageLatencyMicros() + " us, max latency: " + getMaxLatencyMicros() + " us";
+	}
+
+	private void tick(final long intendedNanos) {
+		if (!inFlight.tryAcquire()) {
+			skipped.increment();
+			return;
+		}
+
+		try {
+			workers.execute(new Runnable() {
+				@Override
+				public void run() {
+					try {
+						push(intendedNanos);
+					} finally {
+						inFlight.release();
+					}
+				}
+			});
+		} catch (RuntimeException e) {
+			// The pusher is stopped
+			inFlight.release();
+		}
+	}
+
+	private void push(long intendedNanos) {
+		HttpPost httpPost = new HttpPost(config.getNotificationUrl());
+		httpPost.setHeader("Authorization", authorization);
+		httpPost.setEntity(new ByteArrayEntity(createBatch(), ContentType.APPLICATION_JSON));
+
+		sent.increment();
+		boolean ok = false;
+		try {
+			HttpResponse httpResponse = client.execute(httpPost);
+			String body = EntityUtils.toString(httpResponse.getEntity(), "UTF-8");
+			ok = httpResponse.getStatusLine().getStatusCode() == 200 && body.contains("[accepted]");
+		} catch (IOException e) {
+			// Counted as failed
+		}
+
+		long latencyMicros = TimeUnit.NANOSECONDS.toMicros(System.nanoTime() - intendedNanos);
+		totalLatencyMicros.add(latencyMicros);
+		long max;
+		while (latencyMicros > (max = maxLatencyMicros.get()) && !maxLatencyMicros.compareAndSet(max, latencyMicros)) {
+			// Retry until the maximum is updated
+		}
+
+		if (ok) {
+			accepted.increment();
+		}
+		else {
+			failed.increment();
+		}
+	}
+
+	/**
+	 * Creates a notification request with a batch of AUTHORISATION notifications.
+	 */
+	private byte[] createBatch() {
+		String eventDate = new SimpleDateFormat("yyyy-MM-dd'T'HH:mm:ss.SSSXXX").format(new Date());
+
+		JsonWriter writer = new JsonWriter();
+		writer.beginObject()
+				.field("live", "false")
+				.name("notificationItems").beginArray();
+
+		for (int i = 0; i < config.getNotificationBatchSize(); i++) {
+			String pspReference = simulator.nextPspReference();
+			writer.beginObject().name("NotificationRequestItem").beginObject()
+					.name("amount").beginObject()
+					.field("currency", "EUR")
+					.name("value").value(199)
+					.endObject()
+					.field("eventCode", "AUTHORISATION")
+					.field("eventDate", eventDate)
+					.field("merchantAccountCode", "YourMerchantAccount")
+					.field("merchantReference", "SIMULATED-" + pspReference)
+					.field("originalReference", "")
+					.field("paymentMethod", "mc")
+					.field("pspReference", pspReference)
+					.field("reason", simulator.nextAuthCode() + ":1111:6/2016")
+					.field("success", "true")
+					.endObject().endObject();
+		}
+
+		writer.endArray().endObject();
+		return writer.toByteArray();
+	}
+
+}
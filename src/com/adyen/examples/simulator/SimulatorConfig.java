@@ -0,0 +1,231 @@
+package com.adyen.examples.simulator;
+
+import java.util.Properties;
+
+/**
+ * Settings of the {@link AdyenSimulator}
+ *
+ * All settings have a default, so only the settings that differ need to be given, either as key=value arguments of
+ * the simulator, or as properties.
+ *
+ * @author Created by Adyen - Payments Made Easy
+ */
+public class SimulatorConfig {
+
+	/**
+	 * Simulator settings
+	 * - port: port of the simulator (HTTP)
+	 * - threads: number of threads handling the requests
+	 * - latency: distribution of the response time, see LatencyModel (e.g. lognormal:80,600)
+	 * - errorRate: fraction of the requests rejected with an error (0.0 - 1.0)
+	 * - refusalRate: fraction of the payments that are refused
+	 * - redirectShopperRate: fraction of the payments with browserInfo that require 3D Secure (RedirectShopper)
+	 */
+	private int port = 8089;
+	private int threads = 2 * Runtime.getRuntime().availableProcessors();
+	private LatencyModel latency = LatencyModel.parse("lognormal:80,600");
+	private double errorRate = 0.0;
+	private double refusalRate = 0.0;
+	private double redirectShopperRate = 0.0;
+
+	/**
+	 * Notification settings
+	 * - notificationUrl: URL of the NotificationServer to push notifications to (no notifications if not set)
+	 * - notificationUser: username for Basic Authentication with the NotificationServer
+	 * - notificationPassword: password for Basic Authentication with the NotificationServer
+	 * - notificationRate: number of notification requests per second
+	 * - notificationBatchSize: number of notification items per request
+	 * - notificationConcurrency: maximum number of notification requests in flight
+	 */
+	private String notificationUrl;
+	private String notificationUser = "TestUser";
+	private String notificationPassword = "TestPassword";
+	private double notificationRate = 10;
+	private int notificationBatchSize = 1;
+	private int notificationConcurrency = 16;
+
+	/**
+	 * Reads the settings from key=value arguments.
+	 */
+	public static SimulatorConfig fromArguments(String[] arguments) {
+		SimulatorConfig config = new SimulatorConfig();
+		for (String argument : arguments) {
+			int separator = argument.indexOf('=');
+			if (separator < 0) {
+				throw new IllegalArgumentException("Expected key=value but was: " + argument);
+			}
+			config.set(argument.substring(0, separator).trim(), argument.substring(separator + 1).trim());
+		}
+		return config;
+	}
+
+	/**
+	 * Reads the settings from properties.
+	 */
+	public static SimulatorConfig fromProperties(Properties properties) {
+		SimulatorConfig config = new SimulatorConfig();
+		for (String name : properties.stringPropertyNames()) {
+			config.set(name, properties.getProperty(name).trim());
+		}
+		return config;
+	}
+
+	/**
+	 * Sets a single setting by name.
+	 */
+	public void set(String name, String value) {
+		switch (name) {
+			case "port":
+				port = Integer.parseInt(value);
+				break;
+			case "threads":
+				threads = Integer.parseInt(value);
+				break;
+			case "latency":
+				latency = LatencyModel.parse(value);
+				break;
+			case "errorRate":
+				errorRate = parseRate(name, value);
+				break;
+			case "refusalRate":
+				refusalRate = parseRate(name, value);
+				break;
+			case "redirectShopperRate":
+				redirectShopperRate = parseRate(name, value);
+				break;
+			case "notificationUrl":
+				notificationUrl = value.isEmpty() ? null : value;
+				break;
+			case "notificationUser":
+				notificationUser = value;
+				break;
+			case "notificationPassword":
+				notificationPassword = value;
+				break;
+			case "notificationRate":
+				notificationRate = Double.parseDouble(value);
+				break;
+			case "notificationBatchSize":
+				notificationBatchSize = Integer.parseInt(value);
+				break;
+			case "notificationConcurrency":
+				notificationConcurrency = Integer.parseInt(value);
+				break;
+			default:
+				throw new IllegalArgumentException("Unknown simulator setting: " + name);
+		}
+	}
+
+	public int getPort() {
+		return port;
+	}
+
+	public void setPort(int port) {
+		this.port = port;
+	}
+
+	public int getThreads() {
+		return threads;
+	}
+
+	public void setThreads(int threads) {
+		this.threads = threads;
+	}
+
+	public LatencyModel getLatency() {
+		return latency;
+	}
+
+	public void setLatency(LatencyModel latency) {
+		this.latency = latency;
+	}
+
+	public double getErrorRate() {
+		return errorRate;
+	}
+
+	public void setErrorRate(double errorRate) {
+		this.errorRate = errorRate;
+	}
+
+	public double getRefusalRate() {
+		return refusalRate;
+	}
+
+	public void setRefusalRate(double refusalRate) {
+		this.refusalRate = refusalRate;
+	}
+
+	public double getRedirectShopperRate() {
+		return redirectShopperRate;
+	}
+
+	public void setRedirectShopperRate(double redirectShopperRate) {
+		this.redirectShopperRate = redirectShopperRate;
+	}
+
+	public String getNotificationUrl() {
+		return notificationUrl;
+	}
+
+	public void setNotificationUrl(String notificationUrl) {
+		this.notificationUrl = notificationUrl;
+	}
+
+	public String getNotificationUser() {
+		return notificationUser;
+	}
+
+	public void setNotificationUser(String notificationUser) {
+		this.notificationUser = notificationUser;
+	}
+
+	public String getNotificationPassword() {
+		return notificationPassword;
+	}
+
+	public void setNotificationPassword(String notificationPassword) {
+		this.notificationPassword = notificationPassword;
+	}
+
+	public double getNotificationRate() {
+		return notificationRate;
+	}
+
+	public void setNotificationRate(double notificationRate) {
+		this.notificationRate = notificationRate;
+	}
+
+	public int getNotificationBatchSize() {
+		return notificationBatchSize;
+	}
+
+	public void setNotificationBatchSize(int notificationBatchSize) {
+		this.notificationBatchSize = notificationBatchSize;
+	}
+
+	public int getNotificationConcurrency() {
+		return notificationConcurrency;
+	}
+
+	public void setNotificationConcurrency(int notificationConcurrency) {
+		this.notificationConcurrency = notificationConcurrency;
+	}
+
+	@Override
+	public String toString() {
+		return "port=" + port + " threads=" + threads + " latency=" + latency + " errorRate=" + errorRate
+				+ " refusalRate=" + refusalRate + " redirectShopperRate=" + redirectShopperRate
+				+ (notificationUrl == null ? "" : " notificationUrl=" + notificationUrl + " notificationRate="
+						+ notificationRate + " notificationBatchSize=" + notificationBatchSize);
+	}
+
+	private static double parseRate(String name, String value) {
+		double rate = Double.parseDouble(value);
+		if (rate < 0 || rate > 1) {
+			throw new IllegalArgumentException(name + " must be between 0.0 and 1.0: " + value);
+		}
+		return rate;
+	}
+
+}
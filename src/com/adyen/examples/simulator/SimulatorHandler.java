@@ -0,0 +1,113 @@
+package com.adyen.examples.simulator;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.Charset;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpHandler;
+
+/**
+ * Base class of the simulated Adyen endpoints
+ *
+ * A handler reads the request, builds the response, and hands it to the simulator, which sends it after the simulated
+ * latency. Errors are injected at the configured error rate, in the error format of the endpoint.
+ *
+ * @author Created by Adyen - Payments Made Easy
+ */
+abstract class SimulatorHandler implements HttpHandler {
+
+	static final Charset UTF8 = Charset.forName("UTF-8");
+
+	/**
+	 * A complete response of the simulator.
+	 */
+	static final class Response {
+
+		final int status;
+		final String contentType;
+		final byte[] body;
+
+		Response(int status, String contentType, byte[] body) {
+			this.status = status;
+			this.contentType = contentType;
+			this.body = body;
+		}
+
+		static Response text(int status, String text) {
+			return new Response(status, "text/plain; charset=utf-8", text.getBytes(UTF8));
+		}
+
+	}
+
+	protected final AdyenSimulator simulator;
+
+	SimulatorHandler(AdyenSimulator simulator) {
+		this.simulator = simulator;
+	}
+
+	@Override
+	public void handle(HttpExchange exchange) throws IOException {
+		long startNanos = System.nanoTime();
+		Response response;
+		try {
+			byte[] body = readBody(exchange.getRequestBody());
+
+			if (requiresAuthentication() && exchange.getRequestHeaders().getFirst("Authorization") == null) {
+				exchange.getResponseHeaders().set("WWW-Authenticate", "Basic realm=\"Adyen PAL Service Authentication\"");
+				response = Response.text(401, "Unauthorized");
+			}
+			else if (simulator.chance(simulator.getConfig().getErrorRate())) {
+				response = error("Simulated error");
+			}
+			else {
+				response = respond(exchange, body);
+			}
+		} catch (IOException | RuntimeException e) {
+			response = Response.text(400, "Invalid request: " + e);
+		}
+
+		simulator.send(exchange, response, startNanos);
+	}
+
+	/**
+	 * Builds the response to a valid request.
+	 */
+	protected abstract Response respond(HttpExchange exchange, byte[] body) throws IOException;
+
+	/**
+	 * Builds an error response in the format of this endpoint.
+	 */
+	protected abstract Response error(String message);
+
+	/**
+	 * Whether the endpoint requires (Basic) authentication.
+	 */
+	protected boolean requiresAuthentication() {
+		return true;
+	}
+
+	/**
+	 * Returns the last segment of the request path, which is the action (e.g. authorise).
+	 */
+	static String lastSegment(HttpExchange exchange) {
+		String path = exchange.getRequestURI().getPath();
+		return path.substring(path.lastIndexOf('/') + 1);
+	}
+
+	private static byte[] readBody(InputStream in) throws IOException {
+		try {
+			ByteArrayOutputStream body = new ByteArrayOutputStream(1024);
+			byte[] buffer = new byte[4096];
+			int count;
+			while ((count = in.read(buffer)) != -1) {
+				body.write(buffer, 0, count);
+			}
+			return body.toByteArray();
+		} finally {
+			in.close();
+		}
+	}
+
+}
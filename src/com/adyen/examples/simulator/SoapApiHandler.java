@@ -0,0 +1,247 @@
+package com.adyen.examples.simulator;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.lang.reflect.Method;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+import javax.xml.bind.JAXBContext;
+import javax.xml.bind.JAXBElement;
+import javax.xml.bind.JAXBException;
+import javax.xml.bind.Marshaller;
+import javax.xml.namespace.QName;
+import javax.xml.stream.XMLInputFactory;
+import javax.xml.stream.XMLStreamException;
+import javax.xml.stream.XMLStreamReader;
+import javax.xml.ws.RequestWrapper;
+import javax.xml.ws.ResponseWrapper;
+
+import com.adyen.services.payment.PaymentPortType;
+import com.adyen.services.payout.PayoutPortType;
+import com.adyen.services.recurring.RecurringPortType;
+import com.sun.net.httpserver.HttpExchange;
+
+/**
+ * Simulated SOAP API of the Payment, Recurring and Payout services (/pal/servlet/soap/Payment, Recurring and Payout)
+ *
+ * The operations are taken from the generated port types (adyen-wsdl-cxf.jar), so every operation of the services is
+ * answered: the result object of the operation is created, its reference, result code and response fields are set,
+ * and it is marshalled into the response element of the operation. Payments are Authorised, Refused or
+ * RedirectShopper (when the request contains browserInfo), like the JSON API.
+ *
+ * @author Created by Adyen - Payments Made Easy
+ */
+class SoapApiHandler extends SimulatorHandler {
+
+	private static final String CONTENT_TYPE = "text/xml; charset=utf-8";
+	private static final String SOAP_ENVELOPE_START = "<?xml version=\"1.0\" encoding=\"UTF-8\"?>"
+			+ "<soap:Envelope xmlns:soap=\"http://schemas.xmlsoap.org/soap/envelope/\"><soap:Body>";
+	private static final String SOAP_ENVELOPE_END = "</soap:Body></soap:Envelope>";
+
+	/**
+	 * A single operation of a service, e.g. Payment authorise.
+	 */
+	private static final class Operation {
+
+		final String name;
+		final Class<?> responseWrapper;
+		final QName responseName;
+		final Class<?> resultType;
+
+		Operation(String name, Class<?> responseWrapper, QName responseName, Class<?> resultType) {
+			this.name = name;
+			this.responseWrapper = responseWrapper;
+			this.responseName = responseName;
+			this.resultType = resultType;
+		}
+
+	}
+
+	private final Map<String, Operation> operations = new HashMap<String, Operation>();
+	private final ConcurrentMap<Class<?>, JAXBContext> contexts = new ConcurrentHashMap<Class<?>, JAXBContext>();
+	private final XMLInputFactory inputFactory = XMLInputFactory.newInstance();
+
+	SoapApiHandler(AdyenSimulator simulator) {
+		super(simulator);
+		addOperations("Payment", PaymentPortType.class);
+		addOperations("Recurring", RecurringPortType.class);
+		addOperations("Payout", PayoutPortType.class);
+	}
+
+	@Override
+	protected Response respond(HttpExchange exchange, byte[] body) throws IOException {
+		String service = lastSegment(exchange);
+		RequestSummary request = readRequest(body);
+
+		Operation operation = operations.get(service + "/" + request.operation);
+		if (operation == null) {
+			return fault("soap:Client", "Unknown operation: " + service + " " + request.operation);
+		}
+
+		try {
+			Object result = operation.resultType.getDeclaredConstructor().newInstance();
+			fillResult(result, operation.name, request.browserInfo);
+
+			Object response = operation.responseWrapper.getDeclaredConstructor().newInstance();
+			for (Method method : operation.responseWrapper.getMethods()) {
+				if (method.getName().startsWith("set") && method.getParameterTypes().length == 1
+						&& method.getParameterTypes()[0] == operation.resultType) {
+					method.invoke(response, result);
+				}
+			}
+
+			return new Response(200, CONTENT_TYPE, marshal(operation, response));
+		} catch (ReflectiveOperationException | JAXBException e) {
+			return fault("soap:Server", "Unable to create the response: " + e);
+		}
+	}
+
+	@Override
+	protected Response error(String message) {
+		return fault("soap:Server", "security 905 " + message);
+	}
+
+	private void addOperations(String service, Class<?> portType) {
+		for (Method method : portType.getMethods()) {
+			RequestWrapper requestWrapper = method.getAnnotation(RequestWrapper.class);
+			ResponseWrapper responseWrapper = method.getAnnotation(ResponseWrapper.class);
+			if (requestWrapper == null || responseWrapper == null) {
+				continue;
+			}
+
+			try {
+				Class<?> wrapperClass = Class.forName(responseWrapper.className());
+				QName responseName = new QName(responseWrapper.targetNamespace(), responseWrapper.localName());
+				operations.put(service + "/" + requestWrapper.localName(),
+						new Operation(requestWrapper.localName(), wrapperClass, responseName, method.getReturnType()));
+			} catch (ClassNotFoundException e) {
+				throw new IllegalStateException("Missing response class of " + service + " " + method.getName(), e);
+			}
+		}
+	}
+
+	/**
+	 * Sets the String fields of the result that the examples print.
+	 */
+	private void fillResult(Object result, String operation, boolean browserInfo) throws ReflectiveOperationException {
+		String pspReference = simulator.nextPspReference();
+		Map<String, String> fields = new HashMap<String, String>();
+		fields.put("pspReference", pspReference);
+
+		if (operation.startsWith("authorise")) {
+			switch (simulator.decide(browserInfo && operation.equals("authorise"))) {
+				case AUTHORISED:
+					fields.put("resultCode", "Authorised");
+					fields.put("authCode", simulator.nextAuthCode());
+					break;
+				case REFUSED:
+					fields.put("resultCode", "Refused");
+					fields.put("refusalReason", "Refused");
+					break;
+				default:
+					fields.put("resultCode", "RedirectShopper");
+					fields.put("issuerUrl", simulator.getIssuerUrl());
+					fields.put("paRequest", "SIMULATED-PAREQ-" + pspReference);
+					fields.put("md", "SIMULATED-MD-" + pspReference);
+			}
+		}
+		else {
+			fields.put("resultCode", "Success");
+			fields.put("response", operation.equals("disable") ? "[detail-successfully-disabled]" : "[" + operation + "-received]");
+			fields.put("recurringDetailReference", "8313147988756818");
+			fields.put("lastKnownShopperEmail", "test@example.com");
+		}
+
+		for (Map.Entry<String, String> field : fields.entrySet()) {
+			String setter = "set" + Character.toUpperCase(field.getKey().charAt(0)) + field.getKey().substring(1);
+			try {
+				result.getClass().getMethod(setter, String.class).invoke(result, field.getValue());
+			} catch (NoSuchMethodException e) {
+				// The result of this operation does not have this field
+			}
+		}
+	}
+
+	private byte[] marshal(Operation operation, Object response) throws JAXBException {
+		JAXBContext context = contexts.get(operation.responseWrapper);
+		if (context == null) {
+			context = JAXBContext.newInstance(operation.responseWrapper);
+			contexts.putIfAbsent(operation.responseWrapper, context);
+		}
+
+		Marshaller marshaller = context.createMarshaller();
+		marshaller.setProperty(Marshaller.JAXB_FRAGMENT, Boolean.TRUE);
+		marshaller.setProperty(Marshaller.JAXB_ENCODING, "UTF-8");
+
+		@SuppressWarnings({ "rawtypes", "unchecked" })
+		JAXBElement<?> element = new JAXBElement(operation.responseName, operation.responseWrapper, response);
+
+		ByteArrayOutputStream out = new ByteArrayOutputStream(1024);
+		byte[] start = SOAP_ENVELOPE_START.getBytes(UTF8);
+		out.write(start, 0, start.length);
+		marshaller.marshal(element, out);
+		byte[] end = SOAP_ENVELOPE_END.getBytes(UTF8);
+		out.write(end, 0, end.length);
+		return out.toByteArray();
+	}
+
+	private static Response fault(String faultCode, String faultString) {
+		String fault = SOAP_ENVELOPE_START + "<soap:Fault><faultcode>" + faultCode + "</faultcode><faultstring>"
+				+ escapeXml(faultString) + "</faultstring></soap:Fault>" + SOAP_ENVELOPE_END;
+		return new Response(500, CONTENT_TYPE, fault.getBytes(UTF8));
+	}
+
+	private static String escapeXml(String value) {
+		return value.replace("&", "&amp;").replace("<", "&lt;").replace(">", "&gt;");
+	}
+
+	/**
+	 * Reads the operation (the first element in the SOAP body) and whether the request contains browserInfo.
+	 */
+	private RequestSummary readRequest(byte[] body) throws IOException {
+		RequestSummary summary = new RequestSummary();
+		try {
+			XMLStreamReader reader = inputFactory.createXMLStreamReader(new ByteArrayInputStream(body));
+			try {
+				boolean inBody = false;
+				while (reader.hasNext()) {
+					if (reader.next() != XMLStreamReader.START_ELEMENT) {
+						continue;
+					}
+					String name = reader.getLocalName();
+					if (!inBody) {
+						inBody = name.equals("Body");
+					}
+					else if (summary.operation == null) {
+						summary.operation = name;
+					}
+					else if (name.equals("browserInfo")) {
+						summary.browserInfo = true;
+						break;
+					}
+				}
+			} finally {
+				reader.close();
+			}
+		} catch (XMLStreamException e) {
+			throw new IOException("Invalid SOAP request", e);
+		}
+
+		if (summary.operation == null) {
+			throw new IOException("No operation in SOAP request");
+		}
+		return summary;
+	}
+
+	private static final class RequestSummary {
+
+		String operation;
+		boolean browserInfo;
+
+	}
+
+}